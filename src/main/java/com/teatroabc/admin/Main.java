@@ -3,10 +3,14 @@ package com.teatroabc.admin;
 import com.teatroabc.admin.aplicacao.interfaces.IAutenticacaoServico;
 import com.teatroabc.admin.aplicacao.interfaces.IBilheteServico;
 import com.teatroabc.admin.aplicacao.interfaces.IEstatisticaServico;
+import com.teatroabc.admin.aplicacao.servicos.AgendadorSincronizacao;
 import com.teatroabc.admin.aplicacao.servicos.AutenticacaoServico;
 import com.teatroabc.admin.aplicacao.servicos.BilheteServico;
 import com.teatroabc.admin.aplicacao.servicos.EstatisticaServico;
 import com.teatroabc.admin.dominio.interfaces.IRepositorioBilhete;
+import com.teatroabc.admin.infraestrutura.persistencia.cache.CacheBilhetes;
+import com.teatroabc.admin.infraestrutura.persistencia.conexao.ConexaoDB;
+import com.teatroabc.admin.infraestrutura.persistencia.diario.DiarioReembolsos;
 import com.teatroabc.admin.infraestrutura.persistencia.implementacao.BilheteRepositorio;
 import com.teatroabc.admin.infraestrutura.persistencia.implementacao.UsuarioRepositorio;
 import com.teatroabc.admin.infraestrutura.ui_swing.telas.TelaLogin;
@@ -14,6 +18,10 @@ import com.teatroabc.admin.infraestrutura.ui_swing.util.ConstantesUI;
 
 import javax.swing.*;
 import java.awt.*;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
 
 /**
  * Classe principal da aplicação administrativa do Teatro ABC.
@@ -21,6 +29,10 @@ import java.awt.*;
  */
 public class Main {
     
+    // Intervalos da sincronização do cache em segundo plano
+    private static final long INTERVALO_SINCRONIZACAO_INCREMENTAL_MS = 5_000;
+    private static final long INTERVALO_RECARGA_COMPLETA_MS = 30 * 60_000;
+    
     /**
      * Ponto de entrada da aplicação.
      * @param args Argumentos de linha de comando
@@ -58,17 +70,37 @@ public class Main {
      */
     private static void inicializarAplicacao() {
         // --- Composição da Raiz (Composition Root) ---
+        // 0. Estrutura do cache (-Dcache.armazenamento=COLUNAR reduz o consumo de memória)
+        //    e limiar da agregação paralela (-Dcache.limiarAgregacaoParalela=<bilhetes>)
+        configurarArmazenamentoCache();
+        configurarAgregacaoCache();
+        //    Limite de memória do cache (-Dcache.pesoMaximoMB=<MB>), favorecendo as peças da temporada
+        //    iniciada em -Dcache.inicioTemporada=<aaaa-mm-dd>
+        configurarLimiteCache();
+        
         // 1. Instancia os repositórios (camada de persistência)
         IRepositorioBilhete bilheteRepositorio = new BilheteRepositorio();
         UsuarioRepositorio usuarioRepositorio = new UsuarioRepositorio();
         
         // 2. Instancia os serviços e injeta suas dependências (repositórios)
-        IBilheteServico bilheteServico = new BilheteServico(bilheteRepositorio);
-        IEstatisticaServico estatisticaServico = new EstatisticaServico(bilheteServico);
+        //    Com -Dreembolso.diario=<arquivo>, reembolsos são aceitos no diário local e gravados no banco em segundo plano
+        BilheteServico bilheteServico = new BilheteServico(bilheteRepositorio, BilheteServico.PoliticaCarga.AGUARDAR,
+                                                           abrirDiarioReembolsos());
+        //    Com -Dcache.snapshot=<arquivo>, o cache reinicia a partir do snapshot e busca no banco só o delta
+        configurarSnapshotCache(bilheteServico);
+        // Com o repositório, as estatísticas vêm de consultas agregadas no banco enquanto o cache carrega
+        IEstatisticaServico estatisticaServico = new EstatisticaServico(bilheteServico, bilheteRepositorio);
         IAutenticacaoServico autenticacaoServico = new AutenticacaoServico(usuarioRepositorio);
         
         // O ServiceLocator foi removido. As dependências são passadas explicitamente.
         
+        // Fecha as conexões do pool quando a aplicação for encerrada
+        // (antes, envia ao banco os reembolsos ainda pendentes no diário e grava o snapshot do cache, se houver)
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            bilheteServico.encerrar();
+            ConexaoDB.fecharPools();
+        }, "Pool-Conexoes-Shutdown"));
+        
         // 3. Inicializa o cache de bilhetes em uma thread separada para não bloquear a UI
         inicializarCacheEmBackground(bilheteServico);
         
@@ -81,6 +113,95 @@ public class Main {
         });
     }
     
+    /**
+     * Escolhe a estrutura de armazenamento do cache a partir da propriedade de sistema cache.armazenamento.
+     */
+    private static void configurarArmazenamentoCache() {
+        String modo = System.getProperty("cache.armazenamento");
+        if (modo == null || modo.trim().isEmpty()) {
+            return;
+        }
+        try {
+            CacheBilhetes.getInstance().setModoArmazenamento(
+                CacheBilhetes.ModoArmazenamento.valueOf(modo.trim().toUpperCase()));
+        } catch (IllegalArgumentException e) {
+            System.err.println("Modo de armazenamento inválido: " + modo + ". Usando o padrão.");
+        }
+    }
+    
+    /**
+     * Ajusta o limiar da agregação paralela a partir da propriedade de sistema cache.limiarAgregacaoParalela.
+     */
+    private static void configurarAgregacaoCache() {
+        String limiar = System.getProperty("cache.limiarAgregacaoParalela");
+        if (limiar == null || limiar.trim().isEmpty()) {
+            return;
+        }
+        try {
+            CacheBilhetes.getInstance().setLimiarAgregacaoParalela(Integer.parseInt(limiar.trim()));
+        } catch (IllegalArgumentException e) {
+            System.err.println("Limiar de agregação paralela inválido: " + limiar + ". Usando o padrão.");
+        }
+    }
+    
+    /**
+     * Aplica o limite de peso e o início da temporada do cache a partir das propriedades de sistema
+     * cache.pesoMaximoMB e cache.inicioTemporada.
+     */
+    private static void configurarLimiteCache() {
+        String pesoMaximo = System.getProperty("cache.pesoMaximoMB");
+        if (pesoMaximo != null && !pesoMaximo.trim().isEmpty()) {
+            try {
+                CacheBilhetes.getInstance().setPesoMaximo(Long.parseLong(pesoMaximo.trim()) * 1024 * 1024);
+            } catch (IllegalArgumentException e) {
+                System.err.println("Peso máximo do cache inválido: " + pesoMaximo + ". Usando cache sem limite.");
+            }
+        }
+        String inicioTemporada = System.getProperty("cache.inicioTemporada");
+        if (inicioTemporada != null && !inicioTemporada.trim().isEmpty()) {
+            try {
+                CacheBilhetes.getInstance().setInicioTemporada(LocalDate.parse(inicioTemporada.trim()));
+            } catch (DateTimeParseException e) {
+                System.err.println("Início de temporada inválido: " + inicioTemporada + ". Usando o último ano.");
+            }
+        }
+    }
+    
+    /**
+     * Abre o diário de reembolsos indicado pela propriedade de sistema reembolso.diario.
+     * @return Diário aberto, ou null para gravar os reembolsos diretamente no banco
+     */
+    private static DiarioReembolsos abrirDiarioReembolsos() {
+        String caminho = System.getProperty("reembolso.diario");
+        if (caminho == null || caminho.trim().isEmpty()) {
+            return null;
+        }
+        try {
+            return DiarioReembolsos.abrir(Paths.get(caminho.trim()));
+        } catch (IOException e) {
+            System.err.println("Não foi possível abrir o diário de reembolsos " + caminho
+                               + ". Reembolsos serão gravados diretamente no banco.");
+            e.printStackTrace();
+            return null;
+        }
+    }
+    
+    /**
+     * Configura o snapshot do cache indicado pela propriedade de sistema cache.snapshot.
+     */
+    private static void configurarSnapshotCache(BilheteServico bilheteServico) {
+        String caminho = System.getProperty("cache.snapshot");
+        if (caminho == null || caminho.trim().isEmpty()) {
+            return;
+        }
+        if (CacheBilhetes.getInstance().getPesoMaximo() > 0) {
+            System.err.println("Configuração inválida: cache.snapshot não é usado junto com cache.pesoMaximoMB."
+                               + " Snapshot desativado.");
+            return;
+        }
+        bilheteServico.setArquivoSnapshot(Paths.get(caminho.trim()));
+    }
+    
     /**
      * Inicializa o cache de bilhetes em uma thread de fundo para não travar a UI.
      * @param bilheteServico O serviço de bilhetes a ser usado.
@@ -98,6 +219,12 @@ public class Main {
                 e.printStackTrace();
                 // Opcional: Mostrar uma mensagem de erro para o usuário se o cache falhar.
             }
+            
+            // Mantém o cache atualizado com sincronizações incrementais periódicas.
+            // Se a carga inicial falhou, o primeiro ciclo tenta a carga completa novamente.
+            new AgendadorSincronizacao(bilheteServico,
+                    INTERVALO_SINCRONIZACAO_INCREMENTAL_MS,
+                    INTERVALO_RECARGA_COMPLETA_MS).iniciar();
         });
         threadCache.setName("Cache-Initializer-Thread");
         threadCache.setDaemon(true); // Permite que a JVM encerre mesmo se esta thread estiver rodando
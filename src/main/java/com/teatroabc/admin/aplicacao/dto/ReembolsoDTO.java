@@ -1,5 +1,6 @@
 package com.teatroabc.admin.aplicacao.dto;
 
+import com.teatroabc.admin.dominio.entidades.BilheteVendido;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
@@ -13,6 +14,7 @@ public class ReembolsoDTO {
     private final String mensagem;
     private final LocalDateTime dataReembolso;
     private final BigDecimal valorReembolsado;
+    private final BilheteVendido bilhete;
     
     /**
      * Construtor para criar um objeto ReembolsoDTO.
@@ -22,10 +24,24 @@ public class ReembolsoDTO {
      * @param valorReembolsado Valor reembolsado (zero em caso de falha)
      */
     public ReembolsoDTO(boolean sucesso, String mensagem, LocalDateTime dataReembolso, BigDecimal valorReembolsado) {
+        this(sucesso, mensagem, dataReembolso, valorReembolsado, null);
+    }
+    
+    /**
+     * Construtor que inclui o bilhete já atualizado, para que a interface atualize só a linha dele.
+     * @param sucesso Indica se o reembolso foi bem-sucedido
+     * @param mensagem Mensagem de resultado (sucesso ou falha)
+     * @param dataReembolso Data/hora do reembolso (null em caso de falha)
+     * @param valorReembolsado Valor reembolsado (zero em caso de falha)
+     * @param bilhete Bilhete no estado após o reembolso (null em caso de falha)
+     */
+    public ReembolsoDTO(boolean sucesso, String mensagem, LocalDateTime dataReembolso, BigDecimal valorReembolsado,
+                        BilheteVendido bilhete) {
         this.sucesso = sucesso;
         this.mensagem = mensagem;
         this.dataReembolso = dataReembolso;
         this.valorReembolsado = valorReembolsado != null ? valorReembolsado : BigDecimal.ZERO;
+        this.bilhete = bilhete;
     }
     
     /**
@@ -59,4 +75,12 @@ public class ReembolsoDTO {
     public BigDecimal getValorReembolsado() {
         return valorReembolsado;
     }
+    
+    /**
+     * Retorna o bilhete com o estado após o reembolso.
+     * @return Bilhete atualizado, ou null se o reembolso falhou
+     */
+    public BilheteVendido getBilhete() {
+        return bilhete;
+    }
 }
\ No newline at end of file
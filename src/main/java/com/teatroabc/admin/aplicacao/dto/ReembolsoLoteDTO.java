@@ -0,0 +1,93 @@
+package com.teatroabc.admin.aplicacao.dto;
+
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * DTO com o resultado de um reembolso em lote (ex.: cancelamento de uma sessão).
+ * Traz o resultado de cada bilhete, na ordem em que foram processados, e os totais do lote.
+ */
+public class ReembolsoLoteDTO {
+    private final Map<String, ReembolsoDTO> resultados;
+    private final int quantidadeSucesso;
+    private final BigDecimal valorTotalReembolsado;
+    private final boolean parcial;
+
+    /**
+     * Construtor para criar um objeto ReembolsoLoteDTO.
+     * @param resultados Resultado de cada bilhete, indexado pelo ID do ingresso
+     */
+    public ReembolsoLoteDTO(Map<String, ReembolsoDTO> resultados) {
+        this(resultados, false);
+    }
+
+    /**
+     * @param resultados Resultado de cada bilhete, indexado pelo ID do ingresso
+     * @param parcial true se a seleção dos bilhetes pode ter deixado de fora bilhetes da consulta
+     */
+    public ReembolsoLoteDTO(Map<String, ReembolsoDTO> resultados, boolean parcial) {
+        this.parcial = parcial;
+        this.resultados = Collections.unmodifiableMap(new LinkedHashMap<>(resultados));
+        int sucessos = 0;
+        BigDecimal total = BigDecimal.ZERO;
+        for (ReembolsoDTO resultado : resultados.values()) {
+            if (resultado.isSucesso()) {
+                sucessos++;
+                total = total.add(resultado.getValorReembolsado());
+            }
+        }
+        this.quantidadeSucesso = sucessos;
+        this.valorTotalReembolsado = total;
+    }
+
+    /**
+     * Retorna o resultado de cada bilhete do lote.
+     * @return Mapa imutável de ID do ingresso para o resultado do reembolso
+     */
+    public Map<String, ReembolsoDTO> getResultados() {
+        return resultados;
+    }
+
+    /**
+     * Retorna a quantidade de bilhetes processados no lote.
+     * @return Quantidade total de bilhetes
+     */
+    public int getQuantidadeTotal() {
+        return resultados.size();
+    }
+
+    /**
+     * Retorna a quantidade de bilhetes reembolsados com sucesso.
+     * @return Quantidade de reembolsos bem-sucedidos
+     */
+    public int getQuantidadeSucesso() {
+        return quantidadeSucesso;
+    }
+
+    /**
+     * Retorna a quantidade de bilhetes que não puderam ser reembolsados.
+     * @return Quantidade de falhas
+     */
+    public int getQuantidadeFalha() {
+        return resultados.size() - quantidadeSucesso;
+    }
+
+    /**
+     * Retorna a soma dos valores reembolsados com sucesso.
+     * @return Valor total reembolsado
+     */
+    public BigDecimal getValorTotalReembolsado() {
+        return valorTotalReembolsado;
+    }
+
+    /**
+     * Indica se o lote cobriu só parte dos bilhetes da consulta: com o cache limitado pelo peso
+     * e o banco indisponível, os bilhetes despejados do cache não foram selecionados.
+     * @return true se o reembolso deve ser repetido para alcançar os demais bilhetes
+     */
+    public boolean isParcial() {
+        return parcial;
+    }
+}
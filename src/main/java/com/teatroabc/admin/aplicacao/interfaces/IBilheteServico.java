@@ -1,12 +1,18 @@
 
 package com.teatroabc.admin.aplicacao.interfaces;
 
+import com.teatroabc.admin.aplicacao.dto.EstatisticaDTO;
 import com.teatroabc.admin.aplicacao.dto.ReembolsoDTO;
+import com.teatroabc.admin.aplicacao.dto.ReembolsoLoteDTO;
 import com.teatroabc.admin.dominio.entidades.BilheteVendido;
+import com.teatroabc.admin.dominio.entidades.ConsultaBilhetes;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 /**
  * Interface que define as operações de gerenciamento de bilhetes.
@@ -19,12 +25,39 @@ public interface IBilheteServico {
      */
     void inicializarCache();
     
+    /**
+     * Indica se o cache já foi preenchido por uma carga completa.
+     * @return true se as consultas podem ser respondidas pela memória
+     */
+    boolean isCacheCarregado();
+    
+    /**
+     * Indica se os agregados em memória (totais, vendas por peça, turno, mês e período, ocupação)
+     * contam todos os bilhetes. Com o cache limitado por um peso pequeno demais eles deixam de ser
+     * exatos, e as estatísticas devem vir da fonte de dados.
+     * @return true se as estatísticas podem ser lidas do cache
+     */
+    boolean isAgregadosExatos();
+    
     /**
      * Busca todos os bilhetes.
      * @return Lista com todos os bilhetes
      */
     List<BilheteVendido> buscarTodos();
     
+    /**
+     * Busca os bilhetes pelo status de reembolso.
+     * @param reembolsado true para os reembolsados, false para os ativos
+     * @return Lista de bilhetes com o status informado
+     */
+    List<BilheteVendido> buscarPorStatusReembolso(boolean reembolsado);
+    
+    /**
+     * Percorre todos os bilhetes sem copiá-los para uma nova lista.
+     * @param acao Função chamada para cada bilhete
+     */
+    void percorrerTodos(Consumer<BilheteVendido> acao);
+    
     /**
      * Busca um bilhete pelo seu ID.
      * @param idIngresso ID do bilhete
@@ -40,9 +73,57 @@ public interface IBilheteServico {
     List<BilheteVendido> buscarPorCpf(String cpf);
     
     /**
-     * Busca bilhetes pelo nome da peça.
-     * @param nomePeca Nome da peça
-     * @return Lista de bilhetes da peça
+     * Busca, uma página por vez, os bilhetes cujo CPF começa pelo prefixo informado
+     * (ex.: "123.45" enquanto o CPF ainda está sendo digitado).
+     * @param prefixoCpf Dígitos iniciais do CPF; pontuação é ignorada
+     * @param pagina Número da página, a partir de 0
+     * @param tamanhoPagina Quantidade de bilhetes por página
+     * @return Bilhetes da página, em ordem de CPF
+     */
+    List<BilheteVendido> buscarPorPrefixoCpf(String prefixoCpf, int pagina, int tamanhoPagina);
+    
+    /**
+     * Conta os bilhetes cujo CPF começa pelo prefixo informado.
+     * @param prefixoCpf Dígitos iniciais do CPF; pontuação é ignorada
+     * @return Quantidade de bilhetes
+     */
+    int contarPorPrefixoCpf(String prefixoCpf);
+    
+    /**
+     * Executa uma consulta composta: todos os critérios informados precisam ser atendidos,
+     * com ordenação e paginação opcionais.
+     * @param consulta Critérios, ordenação e paginação
+     * @return Página de bilhetes que atendem à consulta
+     */
+    List<BilheteVendido> consultar(ConsultaBilhetes consulta);
+    
+    /**
+     * Como consultar, mas respondida só com os bilhetes em memória: um ID ausente do cache não
+     * é procurado no banco de dados. Para buscas disparadas a cada pausa na digitação.
+     * @param consulta Critérios, ordenação e paginação
+     * @return Página de bilhetes do cache que atendem à consulta
+     */
+    List<BilheteVendido> consultarEmMemoria(ConsultaBilhetes consulta);
+    
+    /**
+     * Como contar, mas só com os bilhetes em memória (ver consultarEmMemoria).
+     * @param consulta Critérios da consulta
+     * @return Quantidade de bilhetes do cache
+     */
+    int contarEmMemoria(ConsultaBilhetes consulta);
+    
+    /**
+     * Conta os bilhetes que atendem à consulta, ignorando a paginação.
+     * @param consulta Critérios da consulta
+     * @return Quantidade total de bilhetes
+     */
+    int contar(ConsultaBilhetes consulta);
+    
+    /**
+     * Busca bilhetes pelo nome da peça. Aceita um trecho do nome, sem diferenciar
+     * maiúsculas, minúsculas e acentos.
+     * @param nomePeca Nome da peça ou trecho dele
+     * @return Lista de bilhetes das peças encontradas
      */
     List<BilheteVendido> buscarPorPeca(String nomePeca);
     
@@ -54,12 +135,39 @@ public interface IBilheteServico {
      */
     ReembolsoDTO processarReembolso(String idIngresso, String motivo);
     
+    /**
+     * Processa o reembolso de um bilhete de forma idempotente: repetir a chamada com a mesma
+     * chave (ex.: após um timeout) devolve o resultado do reembolso original em vez de
+     * reembolsar de novo ou falhar como "já reembolsado".
+     * @param idIngresso ID do bilhete
+     * @param motivo Motivo do reembolso
+     * @param chaveIdempotencia Identificador único da operação (null = sem idempotência)
+     * @return DTO com resultado do reembolso
+     */
+    ReembolsoDTO processarReembolso(String idIngresso, String motivo, String chaveIdempotencia);
+    
+    /**
+     * Reembolsa de uma vez todos os bilhetes que atendem à consulta (ex.: cancelamento de uma
+     * sessão: {@code ConsultaBilhetes.todos().comPeca(p).comTurno(t).comSessao(s)}).
+     * @param consulta Critérios dos bilhetes a reembolsar
+     * @param motivo Motivo do reembolso
+     * @return Relatório com o resultado de cada bilhete
+     */
+    ReembolsoLoteDTO processarReembolsoEmLote(ConsultaBilhetes consulta, String motivo);
+    
     /**
      * Sincroniza o cache com o banco de dados.
      * @return true se sincronizou com sucesso
      */
     boolean sincronizarComBancoDados();
     
+    /**
+     * Aplica no cache apenas os bilhetes comprados ou reembolsados desde a última sincronização.
+     * Faz uma carga completa se ainda não houver marca de sincronização.
+     * @return true se sincronizou com sucesso
+     */
+    boolean sincronizarIncremental();
+    
     /**
      * Conta a quantidade de bilhetes reembolsados.
      * @return Quantidade de bilhetes reembolsados
@@ -77,4 +185,32 @@ public interface IBilheteServico {
      * @return Valor total de reembolsos
      */
     BigDecimal calcularTotalReembolsos();
+    
+    /**
+     * Obtém os agregados mantidos pelo cache (totais, contagens, vendas por peça e por turno)
+     * sem percorrer os bilhetes.
+     * @return DTO com as estatísticas do estado atual do cache
+     */
+    EstatisticaDTO obterResumoEstatisticas();
+    
+    /**
+     * Obtém a taxa de ocupação (bilhetes não reembolsados / capacidade) de cada sessão.
+     * @return Mapa de "Peça - Turno - Sessão" para a taxa de ocupação (0 a 1)
+     */
+    Map<String, Double> calcularOcupacaoPorSessao();
+    
+    /**
+     * Calcula a receita de cada mês do ano pela data de compra (excluindo reembolsos).
+     * @param ano Ano da consulta
+     * @return Mapa de mês (1 a 12) para receita
+     */
+    Map<Integer, BigDecimal> calcularVendasPorMes(int ano);
+    
+    /**
+     * Calcula a receita das compras feitas no período (excluindo reembolsos).
+     * @param inicio Primeiro dia do período
+     * @param fim Último dia do período (inclusive)
+     * @return Receita do período
+     */
+    BigDecimal calcularVendasNoPeriodo(LocalDate inicio, LocalDate fim);
 }
\ No newline at end of file
@@ -4,6 +4,7 @@ package com.teatroabc.admin.aplicacao.interfaces;
 import com.teatroabc.admin.aplicacao.dto.EstatisticaDTO;
 import java.util.Map;
 import java.math.BigDecimal;
+import java.time.LocalDate;
 
 /**
  * Interface que define as operações de geração de estatísticas.
@@ -36,6 +37,21 @@ public interface IEstatisticaServico {
      */
     Map<Integer, BigDecimal> calcularVendasPorMes(int ano);
     
+    /**
+     * Calcula o valor de vendas do ano, pela data de compra.
+     * @param ano Ano para o cálculo (se for 0, usa o ano atual)
+     * @return Valor de vendas do ano
+     */
+    BigDecimal calcularVendasPorAno(int ano);
+    
+    /**
+     * Calcula o valor de vendas das compras feitas entre duas datas.
+     * @param inicio Primeiro dia do período
+     * @param fim Último dia do período (inclusive)
+     * @return Valor de vendas do período
+     */
+    BigDecimal calcularVendasNoPeriodo(LocalDate inicio, LocalDate fim);
+    
     /**
      * Calcula o valor total de bilhetes vendidos excluindo reembolsos.
      * @return Valor total de vendas
@@ -59,4 +75,10 @@ public interface IEstatisticaServico {
      * @return Array com nome do turno e valor de vendas
      */
     Object[] calcularTurnoMaisLucrativo();
+    
+    /**
+     * Calcula a taxa de ocupação de cada sessão.
+     * @return Mapa com a taxa de ocupação (0 a 1) por sessão
+     */
+    Map<String, Double> calcularOcupacaoPorSessao();
 }
\ No newline at end of file
@@ -0,0 +1,86 @@
+package com.teatroabc.admin.aplicacao.servicos;
+
+import com.teatroabc.admin.aplicacao.interfaces.IBilheteServico;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mantém o cache de bilhetes atualizado em segundo plano.
+ * A cada ciclo aplica apenas as alterações desde a última sincronização; a recarga completa
+ * fica como fallback quando a sincronização incremental falha e, periodicamente, para
+ * refletir bilhetes excluídos no banco (que a marca d'água não detecta).
+ */
+public class AgendadorSincronizacao {
+
+    private final IBilheteServico bilheteServico;
+    private final long intervaloIncrementalMs;
+    private final long intervaloRecargaCompletaMs;
+    private ScheduledExecutorService executor;
+    private long ultimaRecargaCompleta;
+
+    /**
+     * Construtor do agendador.
+     * @param bilheteServico Serviço de bilhetes a ser sincronizado
+     * @param intervaloIncrementalMs Intervalo entre sincronizações incrementais
+     * @param intervaloRecargaCompletaMs Intervalo entre recargas completas (0 desativa)
+     */
+    public AgendadorSincronizacao(IBilheteServico bilheteServico, long intervaloIncrementalMs,
+                                  long intervaloRecargaCompletaMs) {
+        if (bilheteServico == null) {
+            throw new IllegalArgumentException("Serviço de bilhetes não pode ser nulo");
+        }
+        if (intervaloIncrementalMs <= 0) {
+            throw new IllegalArgumentException("Intervalo incremental deve ser maior que zero");
+        }
+        this.bilheteServico = bilheteServico;
+        this.intervaloIncrementalMs = intervaloIncrementalMs;
+        this.intervaloRecargaCompletaMs = intervaloRecargaCompletaMs;
+    }
+
+    /**
+     * Inicia os ciclos de sincronização em uma thread daemon.
+     */
+    public synchronized void iniciar() {
+        if (executor != null) {
+            return;
+        }
+        ultimaRecargaCompleta = System.currentTimeMillis();
+        executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "Cache-Sync-Thread");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(this::executarCiclo,
+                intervaloIncrementalMs, intervaloIncrementalMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Interrompe os ciclos de sincronização.
+     */
+    public synchronized void parar() {
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+    }
+
+    private void executarCiclo() {
+        try {
+            long agora = System.currentTimeMillis();
+            boolean recargaVencida = intervaloRecargaCompletaMs > 0
+                    && agora - ultimaRecargaCompleta >= intervaloRecargaCompletaMs;
+
+            if (recargaVencida || !bilheteServico.sincronizarIncremental()) {
+                System.out.println("Executando recarga completa do cache...");
+                if (bilheteServico.sincronizarComBancoDados()) {
+                    ultimaRecargaCompleta = agora;
+                }
+            }
+        } catch (Exception e) {
+            // Uma exceção aqui cancelaria o agendamento; o próximo ciclo tenta novamente
+            System.err.println("Erro no ciclo de sincronização do cache: " + e.getMessage());
+        }
+    }
+}
@@ -1,51 +1,304 @@
 package com.teatroabc.admin.aplicacao.servicos;
 
 import com.teatroabc.admin.aplicacao.interfaces.IBilheteServico; // Corrigido para o pacote interfaces
+import com.teatroabc.admin.aplicacao.dto.EstatisticaDTO;
 import com.teatroabc.admin.aplicacao.dto.ReembolsoDTO;
+import com.teatroabc.admin.aplicacao.dto.ReembolsoLoteDTO;
 import com.teatroabc.admin.dominio.entidades.BilheteVendido;
+import com.teatroabc.admin.dominio.entidades.ConsultaBilhetes;
 import com.teatroabc.admin.dominio.interfaces.IRepositorioBilhete;
 import com.teatroabc.admin.infraestrutura.persistencia.cache.CacheBilhetes;
+import com.teatroabc.admin.infraestrutura.persistencia.cache.ResumoCache;
+import com.teatroabc.admin.infraestrutura.persistencia.diario.DiarioReembolsos;
 
+import java.io.IOException;
 import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
 /**
  * Serviço de aplicação responsável pela lógica de negócio de bilhetes.
  * Coordena operações entre cache e repositório, garantindo consistência.
  */
 public class BilheteServico implements IBilheteServico {
     
+    /**
+     * Define o que fazer com consultas que chegam enquanto a primeira carga do cache está em andamento.
+     */
+    public enum PoliticaCarga {
+        /** A consulta aguarda a carga em andamento terminar. */
+        AGUARDAR,
+        /** A consulta é atendida imediatamente com o conteúdo atual (possivelmente incompleto) do cache. */
+        SERVIR_DESATUALIZADO
+    }
+    
     private final IRepositorioBilhete repositorio;
     private final CacheBilhetes cache;
+    private final PoliticaCarga politicaCarga;
+    // Carga em andamento compartilhada por todos os chamadores (single-flight)
+    private final AtomicReference<CompletableFuture<Integer>> cargaEmAndamento;
+    // Marca d'água (relógio do banco) até a qual o cache já reflete o banco de dados
+    private volatile LocalDateTime marcaSincronizacao;
+    private final Object lockSincronizacaoIncremental;
+    // Locks por faixa de ID para serializar reembolsos do mesmo bilhete
+    private final TravasListradas travasReembolso;
+    // Resultados de reembolsos bem-sucedidos por chave de idempotência (os mais recentes)
+    private final Map<String, ReembolsoDTO> reembolsosPorChave;
+    // Modo write-behind: diário local dos reembolsos e gravação em segundo plano (null = síncrono)
+    private final DiarioReembolsos diarioReembolsos;
+    private final GravadorReembolsos gravadorReembolsos;
+    // Snapshot do cache para reinícios rápidos (null = sempre carga completa do banco)
+    private volatile Path arquivoSnapshot;
+    private volatile long ultimoSnapshotMs;
+    // Snapshot configurado junto com o limite de peso do cache: avisado uma única vez
+    private final AtomicBoolean snapshotRecusadoAvisado = new AtomicBoolean();
+    // Sobreposição aplicada à marca para cobrir transações confirmadas com atraso
+    private static final long MARGEM_SINCRONIZACAO_SEGUNDOS = 5;
+    private static final int QUANTIDADE_TRAVAS_REEMBOLSO = 256;
+    // Chaves de idempotência lembradas; uma repetição chega segundos ou minutos depois
+    private static final int LIMITE_CHAVES_IDEMPOTENCIA = 10_000;
+    // Intervalo mínimo entre gravações do snapshot feitas pela sincronização incremental
+    private static final long INTERVALO_SNAPSHOT_MS = 10 * 60 * 1000;
     
     public BilheteServico(IRepositorioBilhete repositorio) {
+        this(repositorio, PoliticaCarga.AGUARDAR);
+    }
+    
+    public BilheteServico(IRepositorioBilhete repositorio, PoliticaCarga politicaCarga) {
+        this(repositorio, politicaCarga, null);
+    }
+    
+    /**
+     * Construtor com reembolsos em modo write-behind: o reembolso é aceito assim que está no
+     * diário local e no cache, e a gravação no banco é feita em lotes em segundo plano.
+     * Reembolsos do diário ainda não gravados são reenviados e reaplicados ao cache.
+     * Nesse modo só os reembolsos desta instância são barrados antes do aceite: um bilhete
+     * reembolsado também por outra instância é detectado apenas na gravação em segundo plano,
+     * que o registra como conflito no diário (DiarioReembolsos.conflitos).
+     * @param diarioReembolsos Diário local dos reembolsos (null = gravação síncrona no banco)
+     */
+    public BilheteServico(IRepositorioBilhete repositorio, PoliticaCarga politicaCarga,
+                          DiarioReembolsos diarioReembolsos) {
         if (repositorio == null) {
             throw new IllegalArgumentException("Repositório não pode ser nulo");
         }
+        if (politicaCarga == null) {
+            throw new IllegalArgumentException("Política de carga não pode ser nula");
+        }
         this.repositorio = repositorio;
         this.cache = CacheBilhetes.getInstance();
+        this.politicaCarga = politicaCarga;
+        this.cargaEmAndamento = new AtomicReference<>();
+        this.marcaSincronizacao = null;
+        this.lockSincronizacaoIncremental = new Object();
+        this.diarioReembolsos = diarioReembolsos;
+        if (diarioReembolsos != null) {
+            this.gravadorReembolsos = new GravadorReembolsos(repositorio, cache, diarioReembolsos);
+            this.gravadorReembolsos.iniciar();
+        } else {
+            this.gravadorReembolsos = null;
+        }
+        this.travasReembolso = new TravasListradas(QUANTIDADE_TRAVAS_REEMBOLSO);
+        this.reembolsosPorChave = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, ReembolsoDTO> maisAntiga) {
+                return size() > LIMITE_CHAVES_IDEMPOTENCIA;
+            }
+        });
+    }
+    
+    /**
+     * Define o arquivo do snapshot do cache. Com ele, a inicialização carrega o snapshot e busca
+     * no banco apenas o que mudou desde sua marca d'água; o snapshot é regravado periodicamente
+     * pela sincronização incremental e no encerramento. Com limite de peso no cache o snapshot
+     * fica desativado (ver snapshotAtivo).
+     * @param arquivoSnapshot Arquivo do snapshot (null desativa)
+     */
+    public void setArquivoSnapshot(Path arquivoSnapshot) {
+        this.arquivoSnapshot = arquivoSnapshot;
     }
     
     @Override
     public void inicializarCache() {
+        if (snapshotAtivo() && carregarDoSnapshot()) {
+            System.out.println("Cache inicializado a partir do snapshot: " + cache.tamanho() + " bilhetes");
+            return;
+        }
         try {
-            List<BilheteVendido> todosBilhetes = repositorio.buscarTodos();
-            cache.carregarBilhetes(todosBilhetes);
-            System.out.println("Cache inicializado com sucesso: " + todosBilhetes.size() + " bilhetes");
-        } catch (Exception e) {
-            throw new RuntimeException("Erro ao inicializar cache: " + e.getMessage(), e);
+            int quantidade = carregarCacheCompartilhado().join();
+            System.out.println("Cache inicializado com sucesso: " + quantidade + " bilhetes");
+        } catch (CompletionException e) {
+            Throwable causa = e.getCause() != null ? e.getCause() : e;
+            throw new RuntimeException("Erro ao inicializar cache: " + causa.getMessage(), causa);
         }
     }
     
     @Override
-    public List<BilheteVendido> buscarTodos() {
-        if (!cache.isSincronizado()) {
-            inicializarCache();
+    public boolean isCacheCarregado() {
+        return cache.isCarregado();
+    }
+    
+    @Override
+    public boolean isAgregadosExatos() {
+        return cache.isAgregadosExatos();
+    }
+    
+    /**
+     * Indica se há snapshot configurado e o cache pode usá-lo. Snapshot e limite de peso juntos são
+     * um erro de configuração: é registrado uma vez e o snapshot fica desativado, em vez de cada
+     * gravação periódica falhar.
+     */
+    private boolean snapshotAtivo() {
+        Path arquivo = arquivoSnapshot;
+        if (arquivo == null) {
+            return false;
+        }
+        if (!cache.permiteSnapshot()) {
+            if (snapshotRecusadoAvisado.compareAndSet(false, true)) {
+                System.err.println("Configuração inválida: o snapshot do cache (" + arquivo
+                                   + ") não é usado com limite de peso no cache; remova uma das duas opções.");
+            }
+            return false;
+        }
+        return true;
+    }
+    
+    /**
+     * Carrega o cache do snapshot e aplica as alterações do banco posteriores à sua marca d'água.
+     * @return false se não houver snapshot utilizável ou se o banco não puder completar o delta;
+     *         nesse caso, a carga completa do banco deve ser feita
+     */
+    private boolean carregarDoSnapshot() {
+        Path arquivo = arquivoSnapshot;
+        synchronized (lockSincronizacaoIncremental) {
+            if (cache.isCarregado()) {
+                return true; // Outra thread já carregou, do snapshot ou do banco
+            }
+            if (!Files.isRegularFile(arquivo)) {
+                return false;
+            }
+            try {
+                LocalDateTime marca = cache.carregarSnapshot(arquivo);
+                // Reembolsos aceitos depois do snapshot e ainda não gravados no banco
+                if (diarioReembolsos != null) {
+                    for (DiarioReembolsos.Entrada pendente : diarioReembolsos.pendentes()) {
+                        cache.buscarPorId(pendente.getIdIngresso())
+                             .map(BilheteVendido::copiar)
+                             .map(this::comReembolsoPendente)
+                             .ifPresent(cache::atualizar);
+                    }
+                }
+                marcaSincronizacao = marca;
+                ultimoSnapshotMs = System.currentTimeMillis();
+            } catch (IOException e) {
+                System.err.println("Snapshot do cache descartado, carregando do banco: " + e.getMessage());
+                return false;
+            }
+            // Ainda sob o lock: nenhuma consulta de outra thread dispara um segundo delta
+            return sincronizarIncremental();
+        }
+    }
+    
+    /**
+     * Grava o snapshot do cache, se houver arquivo configurado e o cache estiver carregado.
+     * @return true se o snapshot foi gravado
+     */
+    public boolean salvarSnapshot() {
+        Path arquivo = arquivoSnapshot;
+        // A marca é lida antes da geração: o snapshot pode ser mais novo que a marca, nunca mais antigo
+        LocalDateTime marca = marcaSincronizacao;
+        if (marca == null || !cache.isCarregado() || !snapshotAtivo()) {
+            return false;
+        }
+        try {
+            long inicio = System.currentTimeMillis();
+            cache.salvarSnapshot(arquivo, marca);
+            ultimoSnapshotMs = System.currentTimeMillis();
+            System.out.println("Snapshot do cache gravado em " + (ultimoSnapshotMs - inicio) + " ms");
+            return true;
+        } catch (IOException e) {
+            System.err.println("Erro ao gravar o snapshot do cache: " + e.getMessage());
+            e.printStackTrace();
+            return false;
+        }
+    }
+    
+    /**
+     * Inicia a carga completa do cache ou, se já houver uma em andamento, retorna a mesma carga.
+     * Quem inicia a carga a executa na própria thread; os demais apenas aguardam o future.
+     * @return Future com a quantidade de bilhetes carregados
+     */
+    private CompletableFuture<Integer> carregarCacheCompartilhado() {
+        while (true) {
+            CompletableFuture<Integer> existente = cargaEmAndamento.get();
+            if (existente != null) {
+                return existente;
+            }
+            
+            CompletableFuture<Integer> nova = new CompletableFuture<>();
+            if (cargaEmAndamento.compareAndSet(null, nova)) {
+                try {
+                    LocalDateTime marca = repositorio.obterInstanteAtual();
+                    nova.complete(cache.carregarBilhetes(
+                        consumidor -> repositorio.buscarTodos(b -> consumidor.accept(comReembolsoPendente(b)))));
+                    marcaSincronizacao = marca;
+                } catch (Throwable t) {
+                    nova.completeExceptionally(t);
+                } finally {
+                    cargaEmAndamento.compareAndSet(nova, null);
+                }
+                return nova;
+            }
         }
+    }
+    
+    @Override
+    public List<BilheteVendido> buscarTodos() {
+        garantirCacheCarregado();
         return cache.buscarTodos();
     }
     
+    @Override
+    public List<BilheteVendido> buscarPorStatusReembolso(boolean reembolsado) {
+        garantirCacheCarregado();
+        if (cache.possuiDespejados()) {
+            return consultar(ConsultaBilhetes.todos().comReembolsado(reembolsado));
+        }
+        return cache.buscarPorStatusReembolso(reembolsado);
+    }
+    
+    @Override
+    public void percorrerTodos(Consumer<BilheteVendido> acao) {
+        garantirCacheCarregado();
+        cache.percorrer(acao);
+    }
+    
+    /**
+     * Dispara (ou aguarda) a carga do cache conforme a política configurada.
+     */
+    private void garantirCacheCarregado() {
+        if (!cache.isCarregado()) {
+            boolean cargaRodando = cargaEmAndamento.get() != null;
+            if (!(cargaRodando && politicaCarga == PoliticaCarga.SERVIR_DESATUALIZADO)) {
+                inicializarCache();
+            }
+        }
+    }
+    
     @Override
     public Optional<BilheteVendido> buscarPorId(String idIngresso) {
         if (idIngresso == null || idIngresso.trim().isEmpty()) {
@@ -58,8 +311,8 @@ public class BilheteServico implements IBilheteServico {
             return bilheteCache;
         }
         
-        // Se não encontrar no cache, busca no BD e adiciona ao cache
-        Optional<BilheteVendido> bilheteBD = repositorio.buscarPorId(idIngresso);
+        // Se não encontrar no cache (ou se foi despejado pelo limite de peso), busca no BD e adiciona ao cache
+        Optional<BilheteVendido> bilheteBD = repositorio.buscarPorId(idIngresso).map(this::comReembolsoPendente);
         bilheteBD.ifPresent(cache::adicionar);
         
         return bilheteBD;
@@ -71,8 +324,168 @@ public class BilheteServico implements IBilheteServico {
             return List.of();
         }
         
-        String cpfNormalizado = cpf.replaceAll("[^0-9]", "");
-        return cache.buscarPorCpf(cpfNormalizado);
+        String cpfNormalizado = normalizarCpf(cpf);
+        List<BilheteVendido> bilhetesCache = cache.buscarPorCpf(cpfNormalizado);
+        if (!cache.possuiDespejadosDoCpf(cpfNormalizado)) {
+            return bilhetesCache;
+        }
+        
+        // Parte dos bilhetes do cliente foi despejada pelo limite de peso: o BD tem a lista completa
+        List<BilheteVendido> bilhetesBD = repositorio.buscarPorCpf(cpfNormalizado);
+        if (bilhetesBD.isEmpty()) {
+            return bilhetesCache; // BD indisponível: fica o que o cache tem
+        }
+        List<BilheteVendido> resultado = new ArrayList<>(bilhetesBD.size());
+        for (BilheteVendido lido : bilhetesBD) {
+            BilheteVendido bilhete = comReembolsoPendente(lido);
+            if (!cache.contem(bilhete.getIdIngresso())) {
+                cache.adicionar(bilhete);
+            }
+            resultado.add(bilhete);
+        }
+        return resultado;
+    }
+    
+    @Override
+    public List<BilheteVendido> buscarPorPrefixoCpf(String prefixoCpf, int pagina, int tamanhoPagina) {
+        if (prefixoCpf == null || pagina < 0 || tamanhoPagina <= 0) {
+            return List.of();
+        }
+        long inicio = (long) pagina * tamanhoPagina;
+        if (inicio > Integer.MAX_VALUE) {
+            return List.of();
+        }
+        if (cache.possuiDespejados()) {
+            return consultar(ConsultaBilhetes.todos().comPrefixoCpf(prefixoCpf)
+                .ordenadaPor(ConsultaBilhetes.Ordenacao.CPF, true).comPaginacao((int) inicio, tamanhoPagina));
+        }
+        // O cache ignora a pontuação ao ler o prefixo: nenhuma String normalizada é criada
+        return cache.buscarPorPrefixoCpf(prefixoCpf, (int) inicio, tamanhoPagina);
+    }
+    
+    @Override
+    public int contarPorPrefixoCpf(String prefixoCpf) {
+        if (prefixoCpf == null) {
+            return 0;
+        }
+        if (cache.possuiDespejados()) {
+            return contar(ConsultaBilhetes.todos().comPrefixoCpf(prefixoCpf));
+        }
+        return cache.contarPorPrefixoCpf(prefixoCpf);
+    }
+    
+    @Override
+    public List<BilheteVendido> consultar(ConsultaBilhetes consulta) {
+        if (consulta == null) {
+            return List.of();
+        }
+        prepararConsulta(consulta);
+        if (consultaIncompletaNoCache(consulta)) {
+            List<BilheteVendido> doBanco = consultarNoBanco(consulta);
+            if (doBanco != null) {
+                return doBanco;
+            }
+        }
+        return cache.consultar(consulta);
+    }
+    
+    @Override
+    public List<BilheteVendido> consultarEmMemoria(ConsultaBilhetes consulta) {
+        if (consulta == null) {
+            return List.of();
+        }
+        garantirCacheCarregado();
+        return cache.consultar(consulta);
+    }
+    
+    @Override
+    public int contarEmMemoria(ConsultaBilhetes consulta) {
+        if (consulta == null) {
+            return 0;
+        }
+        garantirCacheCarregado();
+        return cache.contar(consulta);
+    }
+    
+    @Override
+    public int contar(ConsultaBilhetes consulta) {
+        if (consulta == null) {
+            return 0;
+        }
+        prepararConsulta(consulta);
+        if (consultaIncompletaNoCache(consulta)) {
+            try {
+                return repositorio.contar(consulta);
+            } catch (RuntimeException e) {
+                System.err.println("Contagem feita só com os bilhetes em cache: " + e.getMessage());
+            }
+        }
+        return cache.contar(consulta);
+    }
+    
+    /**
+     * Garante o cache carregado e, se a consulta for por ID ou CPF completo, traz do BD os
+     * bilhetes que ainda não estejam no cache (como em buscarPorId e buscarPorCpf).
+     */
+    private void prepararConsulta(ConsultaBilhetes consulta) {
+        garantirCacheCarregado();
+        if (consulta.getIdIngresso() != null) {
+            buscarPorId(consulta.getIdIngresso());
+        } else if (consulta.getCpf() != null) {
+            buscarPorCpf(consulta.getCpf());
+        }
+    }
+    
+    /**
+     * Com bilhetes despejados pelo limite de peso, o cache só responde sozinho às consultas por
+     * ID e por CPF completo, já completadas por prepararConsulta; as demais vão ao banco.
+     */
+    private boolean consultaIncompletaNoCache(ConsultaBilhetes consulta) {
+        return consulta.getIdIngresso() == null && consulta.getCpf() == null && cache.possuiDespejados();
+    }
+    
+    /**
+     * Executa a consulta no banco, com os reembolsos ainda pendentes no diário aplicados.
+     * @return Bilhetes da consulta, ou null se o banco falhar (o chamador fica com o cache)
+     */
+    private List<BilheteVendido> consultarNoBanco(ConsultaBilhetes consulta) {
+        try {
+            List<BilheteVendido> lidos = repositorio.consultar(consulta);
+            List<BilheteVendido> bilhetes = new ArrayList<>(lidos.size());
+            for (BilheteVendido lido : lidos) {
+                bilhetes.add(comReembolsoPendente(lido));
+            }
+            return bilhetes;
+        } catch (RuntimeException e) {
+            System.err.println("Consulta respondida só com os bilhetes em cache: " + e.getMessage());
+            return null;
+        }
+    }
+    
+    /**
+     * Mantém só os dígitos do CPF. Um CPF que já chega sem pontuação é devolvido como está,
+     * sem alocação; caso contrário os dígitos são copiados uma única vez, sem expressão regular.
+     */
+    private static String normalizarCpf(String cpf) {
+        int digitos = 0;
+        for (int i = 0; i < cpf.length(); i++) {
+            char c = cpf.charAt(i);
+            if (c >= '0' && c <= '9') {
+                digitos++;
+            }
+        }
+        if (digitos == cpf.length()) {
+            return cpf;
+        }
+        char[] somenteDigitos = new char[digitos];
+        int posicao = 0;
+        for (int i = 0; i < cpf.length(); i++) {
+            char c = cpf.charAt(i);
+            if (c >= '0' && c <= '9') {
+                somenteDigitos[posicao++] = c;
+            }
+        }
+        return new String(somenteDigitos);
     }
     
     @Override
@@ -80,16 +493,70 @@ public class BilheteServico implements IBilheteServico {
         if (nomePeca == null || nomePeca.trim().isEmpty()) {
             return List.of();
         }
-        return cache.buscarPorPeca(nomePeca);
+        if (cache.possuiDespejados()) {
+            return consultar(ConsultaBilhetes.todos().comTrechoPeca(nomePeca));
+        }
+        // Busca por trecho, como o LIKE do repositório, mas pelo índice de nomes do cache
+        return cache.buscarPorTrechoPeca(nomePeca);
     }
     
     @Override
     public ReembolsoDTO processarReembolso(String idIngresso, String motivo) {
+        return processarReembolso(idIngresso, motivo, null);
+    }
+    
+    /**
+     * O reembolso de um bilhete roda sob o lock da sua faixa (TravasListradas), então dois
+     * reembolsos do mesmo bilhete nesta instância não se intercalam, enquanto bilhetes
+     * diferentes seguem em paralelo. Entre instâncias, a atualização condicional no BD garante
+     * que só um reembolso é aceito, exceto no modo write-behind (ver reembolsarNoDiario).
+     */
+    @Override
+    public ReembolsoDTO processarReembolso(String idIngresso, String motivo, String chaveIdempotencia) {
         // Validações
         if (idIngresso == null || idIngresso.trim().isEmpty()) {
             return new ReembolsoDTO(false, "ID do ingresso inválido", null, BigDecimal.ZERO);
         }
         
+        ReembolsoDTO anterior = resultadoIdempotente(chaveIdempotencia, idIngresso);
+        if (anterior != null) {
+            return anterior;
+        }
+        
+        ReentrantLock trava = travasReembolso.travaDe(idIngresso);
+        trava.lock();
+        try {
+            // Uma repetição com a mesma chave pode ter esperado pelo lock enquanto a original terminava
+            anterior = resultadoIdempotente(chaveIdempotencia, idIngresso);
+            if (anterior != null) {
+                return anterior;
+            }
+            
+            ReembolsoDTO resultado = reembolsar(idIngresso, motivo);
+            if (chaveIdempotencia != null && resultado.isSucesso()) {
+                reembolsosPorChave.put(chaveIdempotencia, resultado);
+            }
+            return resultado;
+        } finally {
+            trava.unlock();
+        }
+    }
+    
+    /**
+     * Resultado já registrado para a chave, ou null se a chave é nova (ou nula).
+     */
+    private ReembolsoDTO resultadoIdempotente(String chaveIdempotencia, String idIngresso) {
+        if (chaveIdempotencia == null) {
+            return null;
+        }
+        ReembolsoDTO anterior = reembolsosPorChave.get(chaveIdempotencia);
+        if (anterior != null && !idIngresso.equals(anterior.getBilhete().getIdIngresso())) {
+            return new ReembolsoDTO(false, "Chave de idempotência já usada para outro bilhete", null, BigDecimal.ZERO);
+        }
+        return anterior;
+    }
+    
+    private ReembolsoDTO reembolsar(String idIngresso, String motivo) {
         Optional<BilheteVendido> bilheteOpt = buscarPorId(idIngresso);
         if (bilheteOpt.isEmpty()) {
             return new ReembolsoDTO(false, "Bilhete não encontrado", null, BigDecimal.ZERO);
@@ -104,26 +571,30 @@ public class BilheteServico implements IBilheteServico {
         }
         
         try {
-            // Realiza o reembolso
-            bilhete.realizarReembolso();
-            BigDecimal valorReembolso = bilhete.calcularValorReembolso();
+            // Realiza o reembolso em uma cópia: a instância do cache só muda via cache.atualizar,
+            // o que mantém os agregados corretos e deixa o cache intacto se o BD falhar
+            BilheteVendido reembolsado = bilhete.copiar();
+            reembolsado.realizarReembolso();
+            BigDecimal valorReembolso = reembolsado.calcularValorReembolso();
             
-            // Atualiza no banco de dados
-            boolean atualizadoNoBD = repositorio.atualizarStatusReembolso(
-                idIngresso, true, LocalDateTime.now(), motivo
+            if (diarioReembolsos != null) {
+                return reembolsarNoDiario(reembolsado, valorReembolso, motivo);
+            }
+            
+            // Atualização condicional: falha se outra instância reembolsou o bilhete antes
+            boolean atualizadoNoBD = repositorio.registrarReembolso(
+                idIngresso, reembolsado.getDataReembolso(), motivo
             );
             
             if (!atualizadoNoBD) {
-                // Reverter o reembolso no objeto se falhar no BD
-                return new ReembolsoDTO(false, "Erro ao atualizar banco de dados", 
-                                       null, BigDecimal.ZERO);
+                return resultadoNaoGravado(idIngresso);
             }
             
             // Atualiza no cache
-            cache.atualizar(bilhete);
+            cache.atualizar(reembolsado);
             
             return new ReembolsoDTO(true, "Reembolso processado com sucesso", 
-                                   bilhete.getDataReembolso(), valorReembolso);
+                                   reembolsado.getDataReembolso(), valorReembolso, reembolsado);
             
         } catch (Exception e) {
             return new ReembolsoDTO(false, "Erro ao processar reembolso: " + e.getMessage(), 
@@ -131,12 +602,188 @@ public class BilheteServico implements IBilheteServico {
         }
     }
     
+    /**
+     * Write-behind: o reembolso é aceito depois de sincronizado no diário local e aplicado ao
+     * cache, sem esperar o banco; o GravadorReembolsos o envia ao banco em seguida.
+     * A verificação foi feita só no cache desta instância: abre-se mão da garantia entre
+     * instâncias, e um reembolso concorrente de outra instância vira conflito na gravação.
+     */
+    private ReembolsoDTO reembolsarNoDiario(BilheteVendido reembolsado, BigDecimal valorReembolso, String motivo) {
+        try {
+            diarioReembolsos.registrar(reembolsado.getIdIngresso(), reembolsado.getDataReembolso(), motivo);
+        } catch (IOException e) {
+            System.err.println("Erro ao registrar reembolso no diário: " + e.getMessage());
+            e.printStackTrace();
+            return new ReembolsoDTO(false, "Erro ao registrar reembolso no diário local", null, BigDecimal.ZERO);
+        }
+        cache.atualizar(reembolsado);
+        gravadorReembolsos.sinalizar();
+        
+        return new ReembolsoDTO(true, "Reembolso processado com sucesso",
+                               reembolsado.getDataReembolso(), valorReembolso, reembolsado);
+    }
+    
+    /**
+     * Aplica a um bilhete lido do banco o reembolso ainda pendente no diário, para que cargas e
+     * sincronizações não desfaçam no cache um reembolso já aceito. O bilhete lido é alterado.
+     */
+    private BilheteVendido comReembolsoPendente(BilheteVendido bilhete) {
+        if (diarioReembolsos != null && !bilhete.isReembolsado()) {
+            DiarioReembolsos.Entrada pendente = diarioReembolsos.pendente(bilhete.getIdIngresso());
+            if (pendente != null) {
+                bilhete.restaurarReembolso(pendente.getDataReembolso());
+            }
+        }
+        return bilhete;
+    }
+    
+    /**
+     * Encerra a gravação em segundo plano dos reembolsos (modo write-behind), com uma última
+     * tentativa de enviar os pendentes ao banco, grava o snapshot do cache e fecha o diário.
+     */
+    public void encerrar() {
+        if (gravadorReembolsos != null) {
+            gravadorReembolsos.parar();
+        }
+        salvarSnapshot();
+        if (diarioReembolsos == null) {
+            return;
+        }
+        try {
+            diarioReembolsos.close();
+        } catch (IOException e) {
+            System.err.println("Erro ao fechar o diário de reembolsos: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Explica um reembolso que o BD não aceitou. Se o bilhete já estava reembolsado no BD
+     * (ex.: por outra instância), o cache recebe esse estado em vez de ficar desatualizado.
+     */
+    private ReembolsoDTO resultadoNaoGravado(String idIngresso) {
+        Optional<BilheteVendido> bilheteBD = repositorio.buscarPorId(idIngresso);
+        if (bilheteBD.isPresent() && bilheteBD.get().isReembolsado()) {
+            cache.atualizar(bilheteBD.get());
+            return new ReembolsoDTO(false, "Bilhete já foi reembolsado anteriormente",
+                                   bilheteBD.get().getDataReembolso(), BigDecimal.ZERO);
+        }
+        return new ReembolsoDTO(false, "Erro ao atualizar banco de dados", null, BigDecimal.ZERO);
+    }
+    
+    /**
+     * Seleciona os bilhetes pelos índices do cache (ou no banco, se o cache tiver despejado parte
+     * deles pelo limite de peso), grava todos os reembolsos com atualizações
+     * em lote no BD e aplica no cache, em uma única escrita, apenas os que foram gravados.
+     * No modo síncrono não usa as travas por bilhete: a atualização condicional do lote já recusa
+     * bilhetes reembolsados em paralelo, e travar centenas de faixas bloquearia os reembolsos
+     * avulsos. No modo write-behind os reembolsos avulsos ainda não chegaram ao banco, então o
+     * lote trava as faixas dos bilhetes e descarta os que já estão no diário ou no cache.
+     */
+    @Override
+    public ReembolsoLoteDTO processarReembolsoEmLote(ConsultaBilhetes consulta, String motivo) {
+        Map<String, ReembolsoDTO> resultados = new LinkedHashMap<>();
+        if (consulta == null) {
+            return new ReembolsoLoteDTO(resultados);
+        }
+        
+        prepararConsulta(consulta);
+        List<BilheteVendido> candidatos = null;
+        boolean parcial = false;
+        if (consultaIncompletaNoCache(consulta)) {
+            candidatos = consultarNoBanco(consulta);
+            // Banco indisponível: reembolsa o que o cache tem e avisa que pode faltar bilhete
+            parcial = candidatos == null;
+        }
+        if (candidatos == null) {
+            candidatos = cache.consultar(consulta);
+        }
+        
+        List<BilheteVendido> reembolsados = new ArrayList<>();
+        for (BilheteVendido bilhete : candidatos) {
+            if (bilhete.isReembolsado()) {
+                resultados.put(bilhete.getIdIngresso(), new ReembolsoDTO(false, "Bilhete já foi reembolsado anteriormente",
+                                                                         bilhete.getDataReembolso(), BigDecimal.ZERO));
+                continue;
+            }
+            // Como em processarReembolso, o reembolso é feito em cópias
+            BilheteVendido reembolsado = bilhete.copiar();
+            reembolsado.realizarReembolso();
+            reembolsados.add(reembolsado);
+        }
+        if (reembolsados.isEmpty()) {
+            return new ReembolsoLoteDTO(resultados, parcial);
+        }
+        if (diarioReembolsos == null) {
+            gravarReembolsosEmLote(reembolsados, motivo, resultados);
+            return new ReembolsoLoteDTO(resultados, parcial);
+        }
+        
+        List<String> ids = new ArrayList<>(reembolsados.size());
+        for (BilheteVendido reembolsado : reembolsados) {
+            ids.add(reembolsado.getIdIngresso());
+        }
+        List<ReentrantLock> travas = travasReembolso.travasDe(ids);
+        for (ReentrantLock trava : travas) {
+            trava.lock();
+        }
+        try {
+            // Sob as travas, um reembolso avulso aceito no diário já aparece no cache
+            List<BilheteVendido> aindaNaoReembolsados = new ArrayList<>(reembolsados.size());
+            for (BilheteVendido reembolsado : reembolsados) {
+                Optional<BilheteVendido> atual = cache.buscarPorId(reembolsado.getIdIngresso());
+                if (diarioReembolsos.pendente(reembolsado.getIdIngresso()) != null
+                        || (atual.isPresent() && atual.get().isReembolsado())) {
+                    resultados.put(reembolsado.getIdIngresso(), new ReembolsoDTO(false, "Bilhete já foi reembolsado anteriormente",
+                        atual.map(BilheteVendido::getDataReembolso).orElse(null), BigDecimal.ZERO));
+                } else {
+                    aindaNaoReembolsados.add(reembolsado);
+                }
+            }
+            gravarReembolsosEmLote(aindaNaoReembolsados, motivo, resultados);
+        } finally {
+            for (int i = travas.size() - 1; i >= 0; i--) {
+                travas.get(i).unlock();
+            }
+        }
+        return new ReembolsoLoteDTO(resultados, parcial);
+    }
+    
+    /**
+     * Grava os reembolsos com a atualização condicional em lote e aplica ao cache os gravados.
+     */
+    private void gravarReembolsosEmLote(List<BilheteVendido> reembolsados, String motivo,
+                                        Map<String, ReembolsoDTO> resultados) {
+        if (reembolsados.isEmpty()) {
+            return;
+        }
+        boolean[] gravados;
+        try {
+            gravados = repositorio.atualizarStatusReembolsoEmLote(reembolsados, motivo);
+        } catch (Exception e) {
+            System.err.println("Erro ao processar reembolso em lote: " + e.getMessage());
+            e.printStackTrace();
+            gravados = new boolean[reembolsados.size()];
+        }
+        
+        List<BilheteVendido> paraCache = new ArrayList<>(reembolsados.size());
+        for (int i = 0; i < reembolsados.size(); i++) {
+            BilheteVendido reembolsado = reembolsados.get(i);
+            if (gravados[i]) {
+                paraCache.add(reembolsado);
+                resultados.put(reembolsado.getIdIngresso(), new ReembolsoDTO(true, "Reembolso processado com sucesso",
+                    reembolsado.getDataReembolso(), reembolsado.calcularValorReembolso(), reembolsado));
+            } else {
+                resultados.put(reembolsado.getIdIngresso(), resultadoNaoGravado(reembolsado.getIdIngresso()));
+            }
+        }
+        cache.atualizarTodos(paraCache);
+    }
+    
     @Override
     public boolean sincronizarComBancoDados() {
         try {
-            // Recarrega todos os dados do banco
-            List<BilheteVendido> bilhetesAtualizados = repositorio.buscarTodos();
-            cache.carregarBilhetes(bilhetesAtualizados);
+            // Recarrega todos os dados do banco em modo streaming, juntando-se a uma carga já em andamento
+            carregarCacheCompartilhado().join();
             return true;
         } catch (Exception e) {
             System.err.println("Erro ao sincronizar com banco de dados: " + e.getMessage());
@@ -144,26 +791,103 @@ public class BilheteServico implements IBilheteServico {
         }
     }
     
+    @Override
+    public boolean sincronizarIncremental() {
+        synchronized (lockSincronizacaoIncremental) {
+            LocalDateTime marcaAnterior = marcaSincronizacao;
+            if (marcaAnterior == null) {
+                // Sem marca d'água ainda: apenas a carga completa garante um ponto de partida
+                return sincronizarComBancoDados();
+            }
+            
+            try {
+                LocalDateTime novaMarca = repositorio.obterInstanteAtual();
+                LocalDateTime desde = marcaAnterior.minusSeconds(MARGEM_SINCRONIZACAO_SEGUNDOS);
+                
+                int alterados = repositorio.buscarAlteradosDesde(desde, lido -> {
+                    BilheteVendido bilhete = comReembolsoPendente(lido);
+                    if (cache.contem(bilhete.getIdIngresso())) {
+                        cache.atualizar(bilhete);
+                    } else {
+                        cache.adicionar(bilhete);
+                    }
+                });
+                
+                marcaSincronizacao = novaMarca;
+                if (alterados > 0) {
+                    System.out.println("Sincronização incremental aplicou " + alterados + " bilhetes");
+                }
+                if (arquivoSnapshot != null
+                        && System.currentTimeMillis() - ultimoSnapshotMs >= INTERVALO_SNAPSHOT_MS) {
+                    salvarSnapshot();
+                }
+                return true;
+            } catch (Exception e) {
+                System.err.println("Erro na sincronização incremental: " + e.getMessage());
+                return false;
+            }
+        }
+    }
+    
     @Override
     public int contarBilhetesReembolsados() {
-        return (int) cache.buscarTodos().stream()
-                         .filter(BilheteVendido::isReembolsado)
-                         .count();
+        return obterResumo().getQuantidadeReembolsados();
     }
     
     @Override
     public BigDecimal calcularTotalVendas() {
-        return cache.buscarTodos().stream()
-                   .filter(b -> !b.isReembolsado())
-                   .map(BilheteVendido::getPreco)
-                   .reduce(BigDecimal.ZERO, BigDecimal::add);
+        return obterResumo().getTotalVendas();
     }
     
     @Override
     public BigDecimal calcularTotalReembolsos() {
-        return cache.buscarTodos().stream()
-                   .filter(BilheteVendido::isReembolsado)
-                   .map(BilheteVendido::getPreco)
-                   .reduce(BigDecimal.ZERO, BigDecimal::add);
+        return obterResumo().getTotalReembolsos();
+    }
+    
+    @Override
+    public EstatisticaDTO obterResumoEstatisticas() {
+        ResumoCache resumo = obterResumo();
+        return new EstatisticaDTO(
+            resumo.getTotalVendas(),
+            resumo.getTotalReembolsos(),
+            resumo.getQuantidadeBilhetes(),
+            resumo.getQuantidadeReembolsados(),
+            new HashMap<>(resumo.getVendasPorPeca()),
+            new HashMap<>(resumo.getVendasPorTurno())
+        );
+    }
+    
+    @Override
+    public Map<String, Double> calcularOcupacaoPorSessao() {
+        Map<String, Double> ocupacao = new HashMap<>();
+        for (ResumoCache.OcupacaoSessao sessao : obterResumo().getOcupacaoPorSessao()) {
+            String chave = sessao.getNomePeca() + " - " + sessao.getTurno()
+                         + (sessao.getNomeSessao() != null ? " - " + sessao.getNomeSessao() : "");
+            ocupacao.put(chave, sessao.getTaxaOcupacao());
+        }
+        return ocupacao;
+    }
+    
+    @Override
+    public Map<Integer, BigDecimal> calcularVendasPorMes(int ano) {
+        garantirCacheCarregado();
+        return cache.obterVendasPorMes(ano);
+    }
+    
+    @Override
+    public BigDecimal calcularVendasNoPeriodo(LocalDate inicio, LocalDate fim) {
+        if (inicio == null || fim == null || inicio.isAfter(fim)) {
+            return BigDecimal.ZERO;
+        }
+        garantirCacheCarregado();
+        return cache.obterVendasEntre(inicio, fim);
+    }
+    
+    /**
+     * Agregados mantidos pelo cache, garantindo antes a carga conforme a política configurada.
+     */
+    private ResumoCache obterResumo() {
+        garantirCacheCarregado();
+        return cache.obterResumo();
     }
 }
\ No newline at end of file
@@ -4,124 +4,156 @@ package com.teatroabc.admin.aplicacao.servicos;
 import com.teatroabc.admin.aplicacao.dto.EstatisticaDTO;
 import com.teatroabc.admin.aplicacao.interfaces.IBilheteServico;
 import com.teatroabc.admin.aplicacao.interfaces.IEstatisticaServico;
-import com.teatroabc.admin.dominio.entidades.BilheteVendido;
+import com.teatroabc.admin.dominio.entidades.TotaisVendas;
+import com.teatroabc.admin.dominio.interfaces.IRepositorioBilhete;
 
 import java.math.BigDecimal;
-import java.time.LocalDateTime;
+import java.time.LocalDate;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
 
 /**
  * Serviço de aplicação responsável por gerar estatísticas de vendas.
  * Implementa a lógica de negócio para análise de dados de bilhetes.
+ * Com o cache carregado, lê os agregados mantidos em memória; enquanto ele não está pronto
+ * (ou se os agregados deixarem de ser exatos), e se houver repositório disponível, delega as
+ * somas ao banco de dados (GROUP BY / SUM) em vez de forçar a carga completa dos bilhetes.
+ * A ocupação por sessão não tem consulta agregada e vem sempre do cache.
  */
 public class EstatisticaServico implements IEstatisticaServico {
     
     private final IBilheteServico bilheteServico;
+    // Opcional: quando nulo, as estatísticas sempre vêm do cache
+    private final IRepositorioBilhete repositorio;
     
     /**
      * Construtor do serviço de estatísticas.
      * @param bilheteServico Serviço de bilhetes injetado
      */
     public EstatisticaServico(IBilheteServico bilheteServico) {
+        this(bilheteServico, null);
+    }
+    
+    /**
+     * Construtor com consultas agregadas no banco para quando o cache ainda não estiver carregado.
+     * @param bilheteServico Serviço de bilhetes injetado
+     * @param repositorio Repositório usado para as consultas agregadas (pode ser nulo)
+     */
+    public EstatisticaServico(IBilheteServico bilheteServico, IRepositorioBilhete repositorio) {
         if (bilheteServico == null) {
             throw new IllegalArgumentException("Serviço de bilhetes não pode ser nulo");
         }
         this.bilheteServico = bilheteServico;
+        this.repositorio = repositorio;
+    }
+    
+    /**
+     * Indica se a consulta deve ser respondida pelo banco: repositório disponível e cache ainda
+     * frio, ou com agregados que já não contam todos os bilhetes (limite de peso pequeno demais).
+     */
+    private boolean usarBancoDados() {
+        return repositorio != null && (!bilheteServico.isCacheCarregado() || !bilheteServico.isAgregadosExatos());
+    }
+    
+    /**
+     * Lê os agregados mantidos incrementalmente pelo cache, sem percorrer os bilhetes.
+     * @return Estatísticas do estado atual do cache
+     */
+    private EstatisticaDTO agregar() {
+        return bilheteServico.obterResumoEstatisticas();
     }
     
     @Override
     public EstatisticaDTO gerarEstatisticasGerais() {
-        List<BilheteVendido> todosBilhetes = bilheteServico.buscarTodos();
-        
-        BigDecimal totalVendas = calcularTotalVendas();
-        BigDecimal totalReembolsos = calcularTotalReembolsos();
-        int quantidadeBilhetes = todosBilhetes.size();
-        int quantidadeReembolsados = bilheteServico.contarBilhetesReembolsados();
-        
-        Map<String, BigDecimal> vendasPorPeca = calcularVendasPorPeca();
-        Map<String, BigDecimal> vendasPorTurno = calcularVendasPorTurno();
-        
-        return new EstatisticaDTO(
-            totalVendas,
-            totalReembolsos,
-            quantidadeBilhetes,
-            quantidadeReembolsados,
-            vendasPorPeca,
-            vendasPorTurno
-        );
+        if (usarBancoDados()) {
+            TotaisVendas totais = repositorio.calcularTotais()
+                .orElse(new TotaisVendas(BigDecimal.ZERO, BigDecimal.ZERO, 0, 0));
+            return new EstatisticaDTO(
+                totais.getTotalVendas(),
+                totais.getTotalReembolsos(),
+                totais.getQuantidadeBilhetes(),
+                totais.getQuantidadeReembolsados(),
+                repositorio.somarVendasPorPeca(),
+                repositorio.somarVendasPorTurno()
+            );
+        }
+        return agregar();
     }
     
     @Override
     public Map<String, BigDecimal> calcularVendasPorPeca() {
-        Map<String, BigDecimal> resultado = new HashMap<>();
-        List<BilheteVendido> bilhetes = bilheteServico.buscarTodos();
-        
-        for (BilheteVendido bilhete : bilhetes) {
-            if (!bilhete.isReembolsado()) {
-                String nomePeca = bilhete.getNomePeca();
-                BigDecimal valorAtual = resultado.getOrDefault(nomePeca, BigDecimal.ZERO);
-                resultado.put(nomePeca, valorAtual.add(bilhete.getPreco()));
-            }
+        if (usarBancoDados()) {
+            return repositorio.somarVendasPorPeca();
         }
-        
-        return resultado;
+        return agregar().getVendasPorPeca();
     }
     
     @Override
     public Map<String, BigDecimal> calcularVendasPorTurno() {
-        Map<String, BigDecimal> resultado = new HashMap<>();
-        List<BilheteVendido> bilhetes = bilheteServico.buscarTodos();
-        
-        for (BilheteVendido bilhete : bilhetes) {
-            if (!bilhete.isReembolsado()) {
-                String turno = bilhete.getTurno();
-                BigDecimal valorAtual = resultado.getOrDefault(turno, BigDecimal.ZERO);
-                resultado.put(turno, valorAtual.add(bilhete.getPreco()));
-            }
+        if (usarBancoDados()) {
+            return repositorio.somarVendasPorTurno();
         }
-        
-        return resultado;
+        return agregar().getVendasPorTurno();
     }
     
     @Override
     public Map<Integer, BigDecimal> calcularVendasPorMes(int ano) {
-        Map<Integer, BigDecimal> resultado = new HashMap<>();
-        
-        // Inicializa todos os meses com zero
-        for (int mes = 1; mes <= 12; mes++) {
-            resultado.put(mes, BigDecimal.ZERO);
-        }
-        
-        // Como não temos a data de compra nos bilhetes, vamos simular
-        // Em uma aplicação real, você precisaria adicionar esse campo
-        List<BilheteVendido> bilhetes = bilheteServico.buscarTodos();
-        
-        // Por enquanto, distribuir uniformemente pelos meses
-        if (!bilhetes.isEmpty()) {
-            BigDecimal totalPorMes = calcularTotalVendas().divide(
-                BigDecimal.valueOf(12), 2, BigDecimal.ROUND_HALF_UP
-            );
-            
+        int anoConsulta = resolverAno(ano);
+        if (usarBancoDados()) {
+            Map<Integer, BigDecimal> resultado = new HashMap<>();
+            // Inicializa todos os meses com zero; o banco só retorna meses com vendas
             for (int mes = 1; mes <= 12; mes++) {
-                resultado.put(mes, totalPorMes);
+                resultado.put(mes, BigDecimal.ZERO);
             }
+            resultado.putAll(repositorio.somarVendasPorMes(anoConsulta));
+            return resultado;
         }
-        
-        return resultado;
+        // Lido dos baldes mensais mantidos pelo cache a partir da data de compra
+        return bilheteServico.calcularVendasPorMes(anoConsulta);
+    }
+    
+    @Override
+    public BigDecimal calcularVendasPorAno(int ano) {
+        int anoConsulta = resolverAno(ano);
+        return calcularVendasNoPeriodo(LocalDate.of(anoConsulta, 1, 1), LocalDate.of(anoConsulta, 12, 31));
+    }
+    
+    @Override
+    public BigDecimal calcularVendasNoPeriodo(LocalDate inicio, LocalDate fim) {
+        if (inicio == null || fim == null || inicio.isAfter(fim)) {
+            return BigDecimal.ZERO;
+        }
+        if (usarBancoDados()) {
+            return repositorio.somarVendasNoPeriodo(inicio.atStartOfDay(), fim.plusDays(1).atStartOfDay());
+        }
+        return bilheteServico.calcularVendasNoPeriodo(inicio, fim);
+    }
+    
+    private int resolverAno(int ano) {
+        return ano == 0 ? LocalDate.now().getYear() : ano;
     }
     
     @Override
     public BigDecimal calcularTotalVendas() {
+        if (usarBancoDados()) {
+            return repositorio.calcularTotais().map(TotaisVendas::getTotalVendas).orElse(BigDecimal.ZERO);
+        }
         return bilheteServico.calcularTotalVendas();
     }
     
     @Override
     public BigDecimal calcularTotalReembolsos() {
+        if (usarBancoDados()) {
+            return repositorio.calcularTotais().map(TotaisVendas::getTotalReembolsos).orElse(BigDecimal.ZERO);
+        }
         return bilheteServico.calcularTotalReembolsos();
     }
     
+    @Override
+    public Map<String, Double> calcularOcupacaoPorSessao() {
+        return bilheteServico.calcularOcupacaoPorSessao();
+    }
+    
     @Override
     public Object[] calcularPecaMaisLucrativa() {
         Map<String, BigDecimal> vendasPorPeca = calcularVendasPorPeca();
@@ -0,0 +1,175 @@
+package com.teatroabc.admin.aplicacao.servicos;
+
+import com.teatroabc.admin.dominio.entidades.BilheteVendido;
+import com.teatroabc.admin.dominio.interfaces.IRepositorioBilhete;
+import com.teatroabc.admin.infraestrutura.persistencia.cache.CacheBilhetes;
+import com.teatroabc.admin.infraestrutura.persistencia.diario.DiarioReembolsos;
+import com.teatroabc.admin.infraestrutura.persistencia.diario.DiarioReembolsos.Entrada;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Grava no banco, em segundo plano, os reembolsos aceitos no modo write-behind.
+ * Os pendentes do diário são enviados em atualizações em lote (um lote por motivo) e
+ * confirmados no diário assim que o banco os aceita. Um reembolso que o banco recusa porque
+ * o bilhete já está reembolsado não é confirmado: como o balcão o aceitou sem consultar o
+ * banco, outra instância pode ter reembolsado o mesmo bilhete. Ele é registrado no log,
+ * marcado como conflito no diário, e o cache passa a refletir o reembolso gravado no banco.
+ * O banco não distingue esse caso de um reenvio cuja confirmação se perdeu (queda entre a
+ * gravação e a confirmação), que também aparece como conflito. Falhas de conexão deixam os
+ * pendentes para o próximo ciclo.
+ */
+class GravadorReembolsos {
+
+    // Intervalo entre tentativas quando não há novos reembolsos sinalizados
+    private static final long INTERVALO_MS = 1_000;
+
+    private final IRepositorioBilhete repositorio;
+    private final CacheBilhetes cache;
+    private final DiarioReembolsos diario;
+    // Evita enfileirar várias descargas enquanto uma já está agendada
+    private final AtomicBoolean descargaAgendada = new AtomicBoolean();
+    private volatile ScheduledExecutorService executor;
+
+    GravadorReembolsos(IRepositorioBilhete repositorio, CacheBilhetes cache, DiarioReembolsos diario) {
+        this.repositorio = repositorio;
+        this.cache = cache;
+        this.diario = diario;
+    }
+
+    synchronized void iniciar() {
+        if (executor != null) {
+            return;
+        }
+        executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "Reembolsos-WriteBehind-Thread");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(this::executarCiclo, INTERVALO_MS, INTERVALO_MS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Pede uma descarga logo após um novo reembolso. Reembolsos que chegam enquanto uma
+     * descarga está em andamento entram juntos na seguinte.
+     */
+    void sinalizar() {
+        ScheduledExecutorService atual = executor;
+        if (atual != null && descargaAgendada.compareAndSet(false, true)) {
+            try {
+                atual.execute(this::executarCiclo);
+            } catch (RejectedExecutionException e) {
+                // Encerrando: parar() faz a última descarga, e o diário guarda o restante
+            }
+        }
+    }
+
+    /**
+     * Interrompe a thread de fundo e faz uma última tentativa de descarga.
+     * O que não for gravado continua no diário e é reenviado no próximo início.
+     */
+    synchronized void parar() {
+        if (executor == null) {
+            return;
+        }
+        executor.shutdown();
+        try {
+            executor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        executor = null;
+        executarCiclo();
+    }
+
+    private void executarCiclo() {
+        descargaAgendada.set(false);
+        try {
+            descarregar();
+        } catch (Exception e) {
+            System.err.println("Erro ao gravar reembolsos pendentes: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Envia ao banco os reembolsos pendentes do diário.
+     * @return Quantidade de reembolsos confirmados
+     */
+    synchronized int descarregar() throws IOException {
+        List<Entrada> pendentes = diario.pendentes();
+        // Sem o cache carregado não há como montar os bilhetes nem saber se ainda existem
+        if (pendentes.isEmpty() || !cache.isCarregado()) {
+            return 0;
+        }
+
+        Map<String, List<Entrada>> porMotivo = new LinkedHashMap<>();
+        for (Entrada entrada : pendentes) {
+            porMotivo.computeIfAbsent(entrada.getMotivo(), m -> new ArrayList<>()).add(entrada);
+        }
+
+        List<Entrada> confirmadas = new ArrayList<>();
+        List<Entrada> conflitos = new ArrayList<>();
+        boolean bancoDisponivel = true;
+        for (Map.Entry<String, List<Entrada>> grupo : porMotivo.entrySet()) {
+            List<Entrada> entradas = new ArrayList<>();
+            List<BilheteVendido> bilhetes = new ArrayList<>();
+            for (Entrada entrada : grupo.getValue()) {
+                Optional<BilheteVendido> bilhete = cache.buscarPorId(entrada.getIdIngresso());
+                if (bilhete.isEmpty() && cache.isDespejado(entrada.getIdIngresso())) {
+                    // Despejado pelo limite de peso do cache: o estado vem do banco; sem ele, fica para o próximo ciclo
+                    bilhete = repositorio.buscarPorId(entrada.getIdIngresso());
+                    if (bilhete.isEmpty()) {
+                        continue;
+                    }
+                }
+                if (bilhete.isEmpty()) {
+                    System.err.println("Reembolso pendente de bilhete inexistente descartado: " + entrada.getIdIngresso());
+                    confirmadas.add(entrada);
+                    continue;
+                }
+                BilheteVendido reembolsado = bilhete.get().copiar();
+                reembolsado.restaurarReembolso(entrada.getDataReembolso());
+                bilhetes.add(reembolsado);
+                entradas.add(entrada);
+            }
+            if (bilhetes.isEmpty()) {
+                continue;
+            }
+
+            boolean[] gravados = repositorio.atualizarStatusReembolsoEmLote(bilhetes, grupo.getKey());
+            for (int i = 0; i < gravados.length; i++) {
+                if (gravados[i]) {
+                    confirmadas.add(entradas.get(i));
+                } else if (bancoDisponivel) {
+                    // Recusado: já reembolsado no banco, ou o banco está fora do ar
+                    Entrada entrada = entradas.get(i);
+                    Optional<BilheteVendido> noBanco = repositorio.buscarPorId(entrada.getIdIngresso());
+                    if (noBanco.isEmpty()) {
+                        bancoDisponivel = false; // Não insiste bilhete a bilhete; tenta no próximo ciclo
+                    } else if (noBanco.get().isReembolsado()) {
+                        System.err.println("Conflito de reembolso: bilhete " + entrada.getIdIngresso()
+                                           + " aceito localmente em " + entrada.getDataReembolso()
+                                           + " já estava reembolsado no banco em " + noBanco.get().getDataReembolso());
+                        cache.atualizar(noBanco.get());
+                        conflitos.add(entrada);
+                    }
+                }
+            }
+        }
+
+        diario.confirmar(confirmadas);
+        diario.marcarConflitos(conflitos);
+        return confirmadas.size();
+    }
+}
@@ -0,0 +1,58 @@
+package com.teatroabc.admin.aplicacao.servicos;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Conjunto fixo de locks escolhidos pelo hash de uma chave (lock striping).
+ * Operações sobre a mesma chave são serializadas, enquanto chaves diferentes quase sempre
+ * caem em locks distintos e seguem em paralelo, sem um lock por chave nem um lock global.
+ */
+class TravasListradas {
+
+    private final ReentrantLock[] travas;
+    private final int mascara;
+
+    /**
+     * @param quantidade Quantidade de locks; arredondada para a próxima potência de dois
+     */
+    TravasListradas(int quantidade) {
+        int tamanho = Integer.highestOneBit(Math.max(1, quantidade - 1)) << 1;
+        this.travas = new ReentrantLock[tamanho];
+        for (int i = 0; i < tamanho; i++) {
+            travas[i] = new ReentrantLock();
+        }
+        this.mascara = tamanho - 1;
+    }
+
+    ReentrantLock travaDe(String chave) {
+        return travas[indice(chave)];
+    }
+
+    /**
+     * Locks das chaves, sem repetição e sempre na mesma ordem (a do arranjo): quem trava
+     * vários locks nessa ordem não entra em deadlock com outro que faça o mesmo.
+     */
+    List<ReentrantLock> travasDe(Collection<String> chaves) {
+        boolean[] usadas = new boolean[travas.length];
+        for (String chave : chaves) {
+            usadas[indice(chave)] = true;
+        }
+        List<ReentrantLock> resultado = new ArrayList<>();
+        for (int i = 0; i < travas.length; i++) {
+            if (usadas[i]) {
+                resultado.add(travas[i]);
+            }
+        }
+        return resultado;
+    }
+
+    private int indice(String chave) {
+        int hash = chave.hashCode();
+        // Espalha os bits altos, já que só os baixos escolhem o lock
+        hash ^= (hash >>> 16);
+        return hash & mascara;
+    }
+}
@@ -21,6 +21,7 @@ public class BilheteVendido {
     private final BigDecimal preco;
     private boolean reembolsado;
     private LocalDateTime dataReembolso;
+    private LocalDateTime dataCompra;
     
     /**
      * Construtor principal para criar instância a partir do banco de dados
@@ -61,6 +62,37 @@ public class BilheteVendido {
         this.dataReembolso = LocalDateTime.now();
     }
     
+    /**
+     * Restaura o estado de reembolso lido da persistência, preservando a data original.
+     * @param dataReembolso Data em que o reembolso foi registrado (pode ser nula se desconhecida)
+     */
+    public void restaurarReembolso(LocalDateTime dataReembolso) {
+        this.reembolsado = true;
+        this.dataReembolso = dataReembolso;
+    }
+    
+    /**
+     * Restaura a data de compra lida da persistência.
+     * @param dataCompra Data e hora da compra (pode ser nula se desconhecida)
+     */
+    public void restaurarDataCompra(LocalDateTime dataCompra) {
+        this.dataCompra = dataCompra;
+    }
+    
+    /**
+     * Cria uma cópia independente do bilhete, incluindo o estado de reembolso.
+     * Usada para alterar o estado sem tocar na instância compartilhada pelo cache.
+     */
+    public BilheteVendido copiar() {
+        BilheteVendido copia = new BilheteVendido(
+            idIngresso, cpf, nomePeca, turno, numeroPoltronas, nomeSessao, capacidade, preco
+        );
+        copia.reembolsado = this.reembolsado;
+        copia.dataReembolso = this.dataReembolso;
+        copia.dataCompra = this.dataCompra;
+        return copia;
+    }
+    
     /**
      * Calcula o valor do reembolso (pode aplicar regras de negócio como taxas)
      */
@@ -92,8 +124,30 @@ public class BilheteVendido {
         }
     }
     
+    /**
+     * Mantém só os dígitos do CPF. O CPF que já chega normalizado (banco, snapshot do cache)
+     * é devolvido sem alocação nem expressão regular, o que pesa em cargas de milhões de bilhetes.
+     */
     private String normalizarCpf(String cpf) {
-        return cpf.replaceAll("[^0-9]", "");
+        int digitos = 0;
+        for (int i = 0; i < cpf.length(); i++) {
+            char c = cpf.charAt(i);
+            if (c >= '0' && c <= '9') {
+                digitos++;
+            }
+        }
+        if (digitos == cpf.length()) {
+            return cpf;
+        }
+        char[] somenteDigitos = new char[digitos];
+        int j = 0;
+        for (int i = 0; i < cpf.length(); i++) {
+            char c = cpf.charAt(i);
+            if (c >= '0' && c <= '9') {
+                somenteDigitos[j++] = c;
+            }
+        }
+        return new String(somenteDigitos);
     }
     
     // Getters
@@ -107,6 +161,7 @@ public class BilheteVendido {
     public BigDecimal getPreco() { return preco; }
     public boolean isReembolsado() { return reembolsado; }
     public LocalDateTime getDataReembolso() { return dataReembolso; }
+    public LocalDateTime getDataCompra() { return dataCompra; }
     
     @Override
     public boolean equals(Object o) {
@@ -130,11 +185,4 @@ public class BilheteVendido {
                 ", reembolsado=" + reembolsado +
                 '}';
     }
-
-private LocalDateTime dataCompra;
-
-
-public LocalDateTime getDataCompra() {
-    return dataCompra;
 }
-}
\ No newline at end of file
@@ -0,0 +1,203 @@
+package com.teatroabc.admin.dominio.entidades;
+
+import java.math.BigDecimal;
+
+/**
+ * Especificação de uma consulta de bilhetes com vários critérios combinados (todos precisam
+ * ser atendidos), ordenação e paginação.
+ * Imutável: cada método "com..." devolve uma nova consulta, de modo que consultas podem ser
+ * montadas aos poucos e reaproveitadas. Critérios não informados não filtram.
+ *
+ * Exemplo: {@code ConsultaBilhetes.todos().comPeca("Hamlet").comTurno("NOITE").comReembolsado(false)}
+ */
+public class ConsultaBilhetes {
+
+    /**
+     * Campos disponíveis para ordenação.
+     */
+    public enum Ordenacao {
+        ID, CPF, PECA, TURNO, SESSAO, PRECO, DATA_COMPRA
+    }
+
+    /** Limite usado quando a consulta não é paginada. */
+    public static final int SEM_LIMITE = Integer.MAX_VALUE;
+
+    private String idIngresso;
+    private String cpf;
+    private String prefixoCpf;
+    private String nomePeca;
+    private String trechoPeca;
+    private String turno;
+    private String nomeSessao;
+    private Boolean reembolsado;
+    private BigDecimal precoMinimo;
+    private BigDecimal precoMaximo;
+    private Ordenacao ordenacao;
+    private boolean crescente = true;
+    private int deslocamento = 0;
+    private int limite = SEM_LIMITE;
+
+    private ConsultaBilhetes() {
+    }
+
+    /**
+     * Consulta sem critérios: todos os bilhetes.
+     */
+    public static ConsultaBilhetes todos() {
+        return new ConsultaBilhetes();
+    }
+
+    public ConsultaBilhetes comId(String idIngresso) {
+        ConsultaBilhetes nova = copiar();
+        nova.idIngresso = idIngresso;
+        return nova;
+    }
+
+    /**
+     * CPF completo; a pontuação é descartada.
+     */
+    public ConsultaBilhetes comCpf(String cpf) {
+        ConsultaBilhetes nova = copiar();
+        nova.cpf = somenteDigitos(cpf);
+        return nova;
+    }
+
+    /**
+     * Dígitos iniciais do CPF; a pontuação é descartada e um prefixo sem dígitos não filtra.
+     */
+    public ConsultaBilhetes comPrefixoCpf(String prefixoCpf) {
+        ConsultaBilhetes nova = copiar();
+        String digitos = somenteDigitos(prefixoCpf);
+        nova.prefixoCpf = digitos == null || digitos.isEmpty() ? null : digitos;
+        return nova;
+    }
+
+    /**
+     * Nome exato da peça.
+     */
+    public ConsultaBilhetes comPeca(String nomePeca) {
+        ConsultaBilhetes nova = copiar();
+        nova.nomePeca = nomePeca;
+        return nova;
+    }
+
+    /**
+     * Trecho do nome da peça, sem diferenciar maiúsculas, minúsculas e acentos.
+     */
+    public ConsultaBilhetes comTrechoPeca(String trechoPeca) {
+        ConsultaBilhetes nova = copiar();
+        nova.trechoPeca = trechoPeca;
+        return nova;
+    }
+
+    public ConsultaBilhetes comTurno(String turno) {
+        ConsultaBilhetes nova = copiar();
+        nova.turno = turno;
+        return nova;
+    }
+
+    public ConsultaBilhetes comSessao(String nomeSessao) {
+        ConsultaBilhetes nova = copiar();
+        nova.nomeSessao = nomeSessao;
+        return nova;
+    }
+
+    /**
+     * @param reembolsado true para só reembolsados, false para só ativos, null para ambos
+     */
+    public ConsultaBilhetes comReembolsado(Boolean reembolsado) {
+        ConsultaBilhetes nova = copiar();
+        nova.reembolsado = reembolsado;
+        return nova;
+    }
+
+    /**
+     * Faixa de preço, inclusive nas duas pontas; uma ponta nula não limita.
+     */
+    public ConsultaBilhetes comPrecoEntre(BigDecimal minimo, BigDecimal maximo) {
+        if (minimo != null && maximo != null && minimo.compareTo(maximo) > 0) {
+            throw new IllegalArgumentException("Preço mínimo não pode ser maior que o máximo");
+        }
+        ConsultaBilhetes nova = copiar();
+        nova.precoMinimo = minimo;
+        nova.precoMaximo = maximo;
+        return nova;
+    }
+
+    public ConsultaBilhetes ordenadaPor(Ordenacao ordenacao, boolean crescente) {
+        ConsultaBilhetes nova = copiar();
+        nova.ordenacao = ordenacao;
+        nova.crescente = crescente;
+        return nova;
+    }
+
+    /**
+     * @param deslocamento Quantidade de bilhetes a pular
+     * @param limite Quantidade máxima de bilhetes retornados
+     */
+    public ConsultaBilhetes comPaginacao(int deslocamento, int limite) {
+        if (deslocamento < 0 || limite < 0) {
+            throw new IllegalArgumentException("Deslocamento e limite não podem ser negativos");
+        }
+        ConsultaBilhetes nova = copiar();
+        nova.deslocamento = deslocamento;
+        nova.limite = limite;
+        return nova;
+    }
+
+    /**
+     * A mesma consulta sem paginação (ex.: para contar o total de resultados).
+     */
+    public ConsultaBilhetes semPaginacao() {
+        return comPaginacao(0, SEM_LIMITE);
+    }
+
+    private ConsultaBilhetes copiar() {
+        ConsultaBilhetes copia = new ConsultaBilhetes();
+        copia.idIngresso = idIngresso;
+        copia.cpf = cpf;
+        copia.prefixoCpf = prefixoCpf;
+        copia.nomePeca = nomePeca;
+        copia.trechoPeca = trechoPeca;
+        copia.turno = turno;
+        copia.nomeSessao = nomeSessao;
+        copia.reembolsado = reembolsado;
+        copia.precoMinimo = precoMinimo;
+        copia.precoMaximo = precoMaximo;
+        copia.ordenacao = ordenacao;
+        copia.crescente = crescente;
+        copia.deslocamento = deslocamento;
+        copia.limite = limite;
+        return copia;
+    }
+
+    private static String somenteDigitos(String texto) {
+        if (texto == null) {
+            return null;
+        }
+        StringBuilder digitos = new StringBuilder(texto.length());
+        for (int i = 0; i < texto.length(); i++) {
+            char c = texto.charAt(i);
+            if (c >= '0' && c <= '9') {
+                digitos.append(c);
+            }
+        }
+        return digitos.toString();
+    }
+
+    // Getters
+    public String getIdIngresso() { return idIngresso; }
+    public String getCpf() { return cpf; }
+    public String getPrefixoCpf() { return prefixoCpf; }
+    public String getNomePeca() { return nomePeca; }
+    public String getTrechoPeca() { return trechoPeca; }
+    public String getTurno() { return turno; }
+    public String getNomeSessao() { return nomeSessao; }
+    public Boolean getReembolsado() { return reembolsado; }
+    public BigDecimal getPrecoMinimo() { return precoMinimo; }
+    public BigDecimal getPrecoMaximo() { return precoMaximo; }
+    public Ordenacao getOrdenacao() { return ordenacao; }
+    public boolean isCrescente() { return crescente; }
+    public int getDeslocamento() { return deslocamento; }
+    public int getLimite() { return limite; }
+}
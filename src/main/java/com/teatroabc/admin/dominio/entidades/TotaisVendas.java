@@ -0,0 +1,28 @@
+package com.teatroabc.admin.dominio.entidades;
+
+import java.math.BigDecimal;
+
+/**
+ * Totais consolidados de vendas e reembolsos, calculados diretamente pela fonte de dados.
+ * Imutável.
+ */
+public class TotaisVendas {
+    private final BigDecimal totalVendas;
+    private final BigDecimal totalReembolsos;
+    private final int quantidadeBilhetes;
+    private final int quantidadeReembolsados;
+
+    public TotaisVendas(BigDecimal totalVendas, BigDecimal totalReembolsos,
+                        int quantidadeBilhetes, int quantidadeReembolsados) {
+        this.totalVendas = totalVendas != null ? totalVendas : BigDecimal.ZERO;
+        this.totalReembolsos = totalReembolsos != null ? totalReembolsos : BigDecimal.ZERO;
+        this.quantidadeBilhetes = quantidadeBilhetes;
+        this.quantidadeReembolsados = quantidadeReembolsados;
+    }
+
+    // Getters
+    public BigDecimal getTotalVendas() { return totalVendas; }
+    public BigDecimal getTotalReembolsos() { return totalReembolsos; }
+    public int getQuantidadeBilhetes() { return quantidadeBilhetes; }
+    public int getQuantidadeReembolsados() { return quantidadeReembolsados; }
+}
@@ -1,9 +1,14 @@
 package com.teatroabc.admin.dominio.interfaces;
 
 import com.teatroabc.admin.dominio.entidades.BilheteVendido;
+import com.teatroabc.admin.dominio.entidades.ConsultaBilhetes;
+import com.teatroabc.admin.dominio.entidades.TotaisVendas;
+import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 /**
  * Interface para o repositório de bilhetes.
@@ -18,6 +23,14 @@ public interface IRepositorioBilhete {
      */
     List<BilheteVendido> buscarTodos();
     
+    /**
+     * Percorre todos os bilhetes em modo streaming, entregando um por vez ao consumidor
+     * sem materializar a lista completa em memória.
+     * @param consumidor Função chamada para cada bilhete lido
+     * @return Quantidade de bilhetes entregues ao consumidor
+     */
+    int buscarTodos(Consumer<BilheteVendido> consumidor);
+    
     /**
      * Busca um bilhete pelo seu ID.
      * @param id ID do bilhete
@@ -50,6 +63,30 @@ public interface IRepositorioBilhete {
     boolean atualizarStatusReembolso(String idBilhete, boolean reembolsado, 
                                    LocalDateTime dataReembolso, String motivo);
     
+    /**
+     * Marca um bilhete como reembolsado somente se ele ainda não estiver reembolsado
+     * (atualização condicional), de modo que dois reembolsos concorrentes do mesmo bilhete,
+     * mesmo vindos de instâncias diferentes da aplicação, não sejam ambos aceitos.
+     * A data de reembolso gravada é a informada; a marca de alteração usada pela sincronização
+     * incremental (buscarAlteradosDesde) vem do relógio do banco, o de obterInstanteAtual.
+     * @param idBilhete ID do bilhete
+     * @param dataReembolso Data e hora do reembolso
+     * @param motivo Motivo do reembolso
+     * @return true se este chamador reembolsou o bilhete; false se ele já estava reembolsado,
+     *         não existe ou a atualização falhou
+     */
+    boolean registrarReembolso(String idBilhete, LocalDateTime dataReembolso, String motivo);
+    
+    /**
+     * Grava o reembolso de vários bilhetes com atualizações JDBC em lote, em transações de
+     * tamanho limitado. Uma falha desfaz apenas a transação do trecho em que ocorreu.
+     * Como em registrarReembolso, bilhetes que já estavam reembolsados não são alterados.
+     * @param bilhetes Bilhetes já no estado reembolsado (a data de reembolso de cada um é gravada)
+     * @param motivo Motivo do reembolso
+     * @return Para cada bilhete, na mesma ordem, true se este chamador o reembolsou
+     */
+    boolean[] atualizarStatusReembolsoEmLote(List<BilheteVendido> bilhetes, String motivo);
+    
     /**
      * Busca bilhetes por status de reembolso.
      * @param reembolsado Flag indicando status de reembolso a ser filtrado
@@ -65,6 +102,73 @@ public interface IRepositorioBilhete {
      */
     List<BilheteVendido> buscarPorPeriodo(LocalDateTime inicio, LocalDateTime fim);
     
+    /**
+     * Executa na fonte de dados uma consulta composta, com os mesmos critérios, ordenação e
+     * paginação do cache (usada quando o cache guarda só parte dos bilhetes).
+     * @param consulta Critérios, ordenação e paginação
+     * @return Página de bilhetes que atendem à consulta
+     * @throws RuntimeException Se a consulta falhar: uma lista vazia seria tomada como resposta completa
+     */
+    List<BilheteVendido> consultar(ConsultaBilhetes consulta);
+    
+    /**
+     * Conta na fonte de dados os bilhetes que atendem à consulta, ignorando a paginação.
+     * @param consulta Critérios da consulta
+     * @return Quantidade total de bilhetes
+     * @throws RuntimeException Se a contagem falhar
+     */
+    int contar(ConsultaBilhetes consulta);
+    
+    /**
+     * Percorre os bilhetes inseridos ou alterados no banco a partir de um instante (sincronização
+     * incremental), pela marca de alteração que o próprio banco grava, não pelas datas de negócio.
+     * @param desde Instante do relógio do banco a partir do qual as alterações são buscadas (inclusive)
+     * @param consumidor Função chamada para cada bilhete alterado
+     * @return Quantidade de bilhetes entregues ao consumidor
+     */
+    int buscarAlteradosDesde(LocalDateTime desde, Consumer<BilheteVendido> consumidor);
+    
+    /**
+     * Obtém o instante atual segundo o relógio do banco de dados, no mesmo fuso da marca de alteração.
+     * Usado como marca d'água da sincronização incremental, evitando divergência entre relógios.
+     * @return Instante atual do banco de dados
+     */
+    LocalDateTime obterInstanteAtual();
+    
+    /**
+     * Calcula na própria fonte de dados os totais de vendas e reembolsos e as quantidades de bilhetes,
+     * sem transferir os bilhetes.
+     * @return Optional com os totais, vazio se a consulta falhar
+     */
+    Optional<TotaisVendas> calcularTotais();
+    
+    /**
+     * Soma na fonte de dados o valor vendido (excluindo reembolsos) agrupado por peça.
+     * @return Mapa de nome da peça para valor vendido
+     */
+    Map<String, BigDecimal> somarVendasPorPeca();
+    
+    /**
+     * Soma na fonte de dados o valor vendido (excluindo reembolsos) agrupado por turno.
+     * @return Mapa de turno para valor vendido
+     */
+    Map<String, BigDecimal> somarVendasPorTurno();
+    
+    /**
+     * Soma na fonte de dados o valor vendido (excluindo reembolsos) em cada mês do ano, pela data de compra.
+     * @param ano Ano da consulta
+     * @return Mapa de mês (1 a 12) para valor vendido; meses sem vendas não aparecem
+     */
+    Map<Integer, BigDecimal> somarVendasPorMes(int ano);
+    
+    /**
+     * Soma na fonte de dados o valor vendido (excluindo reembolsos) em um intervalo de datas de compra.
+     * @param inicio Início do intervalo (inclusive)
+     * @param fim Fim do intervalo (exclusive)
+     * @return Valor vendido no intervalo
+     */
+    BigDecimal somarVendasNoPeriodo(LocalDateTime inicio, LocalDateTime fim);
+    
     /**
      * Salva as alterações em um bilhete.
      * @param bilhete Bilhete a ser salvo
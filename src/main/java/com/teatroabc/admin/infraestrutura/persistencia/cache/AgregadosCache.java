@@ -0,0 +1,284 @@
+package com.teatroabc.admin.infraestrutura.persistencia.cache;
+
+import com.teatroabc.admin.dominio.entidades.BilheteVendido;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Consumer;
+
+/**
+ * Agregados de uma geração do cache, mantidos incrementalmente a cada escrita:
+ * cada alteração retira a contribuição do estado anterior do bilhete e soma a do novo estado.
+ * Valores monetários são acumulados em centavos (SomaCentavos) e convertidos para BigDecimal
+ * apenas ao montar o resumo.
+ * Não é thread-safe: só é alterado sob o lock de escrita do CacheBilhetes
+ * (ou pela thread de carga, antes de a geração ser publicada).
+ * Após uma carga completa, os agregados são calculados a partir do armazenamento,
+ * em paralelo quando a quantidade de bilhetes passa do limiar configurado.
+ */
+class AgregadosCache {
+
+    // Alguns segmentos por thread equilibram partes de tamanhos diferentes
+    private static final int SEGMENTOS_POR_THREAD = 4;
+
+    private final SomaCentavos totalVendas = new SomaCentavos();
+    private final SomaCentavos totalReembolsos = new SomaCentavos();
+    private int quantidadeBilhetes = 0;
+    private int quantidadeReembolsados = 0;
+    private final Map<String, Acumulado> vendasPorPeca = new HashMap<>();
+    private final Map<String, Acumulado> vendasPorTurno = new HashMap<>();
+    private final Map<ChaveSessao, Ocupacao> ocupacaoPorSessao = new HashMap<>();
+    // Receita por data de compra (dia/mês/ano); bilhetes sem data de compra ficam de fora
+    private final VendasPorPeriodo vendasPorPeriodo = new VendasPorPeriodo();
+    // Último resumo montado; descartado a cada alteração
+    private volatile ResumoCache resumo;
+
+    /**
+     * Soma de valores com a quantidade de bilhetes que a compõem,
+     * para que a chave desapareça quando o último bilhete sair.
+     */
+    private static final class Acumulado {
+        int quantidade;
+        final SomaCentavos valor = new SomaCentavos();
+    }
+
+    private static final class Ocupacao {
+        int bilhetes;
+        int ativos;
+        int capacidade;
+    }
+
+    private static final class ChaveSessao {
+        final String nomePeca;
+        final String turno;
+        final String nomeSessao;
+
+        ChaveSessao(BilheteVendido bilhete) {
+            this.nomePeca = bilhete.getNomePeca();
+            this.turno = bilhete.getTurno();
+            this.nomeSessao = bilhete.getNomeSessao();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof ChaveSessao)) return false;
+            ChaveSessao that = (ChaveSessao) o;
+            return Objects.equals(nomePeca, that.nomePeca)
+                && Objects.equals(turno, that.turno)
+                && Objects.equals(nomeSessao, that.nomeSessao);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(nomePeca, turno, nomeSessao);
+        }
+    }
+
+    /**
+     * Calcula os agregados de um armazenamento que não está recebendo escritas.
+     * Acima do limiar, os bilhetes são divididos em segmentos reduzidos no ForkJoinPool comum
+     * e os parciais são mesclados; como toda soma é exata (centavos em long, contagens inteiras
+     * e capacidade pelo máximo), o resultado é idêntico ao do cálculo sequencial.
+     * @param armazenamento Armazenamento da geração recém-carregada
+     * @param limiarParalelo Quantidade de bilhetes a partir da qual o cálculo é paralelo
+     */
+    static AgregadosCache calcular(ArmazenamentoBilhetes armazenamento, int limiarParalelo) {
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        if (armazenamento.tamanho() < limiarParalelo || pool.getParallelism() < 2) {
+            AgregadosCache agregados = new AgregadosCache();
+            armazenamento.paraCada(bilhete -> agregados.contabilizar(bilhete, 1));
+            return agregados;
+        }
+
+        List<Consumer<Consumer<BilheteVendido>>> segmentos =
+            armazenamento.segmentos(pool.getParallelism() * SEGMENTOS_POR_THREAD);
+        return pool.invoke(new TarefaAgregacao(segmentos, 0, segmentos.size()));
+    }
+
+    /**
+     * Reduz um intervalo de segmentos dividindo-o ao meio até restar um segmento por tarefa.
+     * Serializable só por herança de ForkJoinTask; a tarefa nunca é serializada.
+     */
+    @SuppressWarnings("serial")
+    private static final class TarefaAgregacao extends RecursiveTask<AgregadosCache> {
+        private final List<Consumer<Consumer<BilheteVendido>>> segmentos;
+        private final int inicio;
+        private final int fim;
+
+        TarefaAgregacao(List<Consumer<Consumer<BilheteVendido>>> segmentos, int inicio, int fim) {
+            this.segmentos = segmentos;
+            this.inicio = inicio;
+            this.fim = fim;
+        }
+
+        @Override
+        protected AgregadosCache compute() {
+            if (fim - inicio <= 1) {
+                AgregadosCache parcial = new AgregadosCache();
+                if (inicio < fim) {
+                    segmentos.get(inicio).accept(bilhete -> parcial.contabilizar(bilhete, 1));
+                }
+                return parcial;
+            }
+
+            int meio = (inicio + fim) >>> 1;
+            TarefaAgregacao esquerda = new TarefaAgregacao(segmentos, inicio, meio);
+            esquerda.fork();
+            AgregadosCache direita = new TarefaAgregacao(segmentos, meio, fim).compute();
+            AgregadosCache resultado = esquerda.join();
+            resultado.mesclar(direita);
+            return resultado;
+        }
+    }
+
+    /**
+     * Soma a este os agregados parciais de outro segmento.
+     */
+    private void mesclar(AgregadosCache outro) {
+        totalVendas.mesclar(outro.totalVendas);
+        totalReembolsos.mesclar(outro.totalReembolsos);
+        quantidadeBilhetes += outro.quantidadeBilhetes;
+        quantidadeReembolsados += outro.quantidadeReembolsados;
+        mesclar(vendasPorPeca, outro.vendasPorPeca);
+        mesclar(vendasPorTurno, outro.vendasPorTurno);
+        vendasPorPeriodo.mesclar(outro.vendasPorPeriodo);
+        outro.ocupacaoPorSessao.forEach((chave, parcial) -> {
+            Ocupacao ocupacao = ocupacaoPorSessao.computeIfAbsent(chave, k -> new Ocupacao());
+            ocupacao.bilhetes += parcial.bilhetes;
+            ocupacao.ativos += parcial.ativos;
+            ocupacao.capacidade = Math.max(ocupacao.capacidade, parcial.capacidade);
+        });
+    }
+
+    private static void mesclar(Map<String, Acumulado> destino, Map<String, Acumulado> origem) {
+        origem.forEach((chave, parcial) -> {
+            Acumulado acumulado = destino.computeIfAbsent(chave, k -> new Acumulado());
+            acumulado.quantidade += parcial.quantidade;
+            acumulado.valor.mesclar(parcial.valor);
+        });
+    }
+
+    /**
+     * Aplica a troca de estado de um bilhete.
+     * @param anterior Estado que estava no cache (null se o bilhete não existia)
+     * @param novo Estado que passa a valer (null se o bilhete foi removido)
+     */
+    void aplicar(BilheteVendido anterior, BilheteVendido novo) {
+        if (anterior != null) {
+            contabilizar(anterior, -1);
+        }
+        if (novo != null) {
+            contabilizar(novo, 1);
+        }
+        resumo = null;
+    }
+
+    private void contabilizar(BilheteVendido bilhete, int sinal) {
+        BigDecimal preco = bilhete.getPreco();
+        quantidadeBilhetes += sinal;
+
+        if (bilhete.isReembolsado()) {
+            quantidadeReembolsados += sinal;
+            totalReembolsos.somar(preco, sinal);
+        } else {
+            totalVendas.somar(preco, sinal);
+            acumular(vendasPorPeca, bilhete.getNomePeca(), preco, sinal);
+            acumular(vendasPorTurno, bilhete.getTurno(), preco, sinal);
+            if (bilhete.getDataCompra() != null) {
+                vendasPorPeriodo.somar(bilhete.getDataCompra().toLocalDate(), preco, sinal);
+            }
+        }
+
+        ChaveSessao chave = new ChaveSessao(bilhete);
+        Ocupacao ocupacao = ocupacaoPorSessao.computeIfAbsent(chave, k -> new Ocupacao());
+        ocupacao.bilhetes += sinal;
+        if (!bilhete.isReembolsado()) {
+            ocupacao.ativos += sinal;
+        }
+        if (sinal > 0) {
+            // Máximo em vez do último valor visto: independe da ordem em que os bilhetes chegam
+            ocupacao.capacidade = Math.max(ocupacao.capacidade, bilhete.getCapacidade());
+        }
+        if (ocupacao.bilhetes <= 0) {
+            ocupacaoPorSessao.remove(chave);
+        }
+    }
+
+    private static void acumular(Map<String, Acumulado> mapa, String chave, BigDecimal valor, int sinal) {
+        Acumulado acumulado = mapa.computeIfAbsent(chave, k -> new Acumulado());
+        acumulado.quantidade += sinal;
+        acumulado.valor.somar(valor, sinal);
+        if (acumulado.quantidade <= 0) {
+            mapa.remove(chave);
+        }
+    }
+
+    /**
+     * Receita de cada mês do ano (1 a 12). Deve ser chamado sob o mesmo lock das escritas.
+     */
+    Map<Integer, BigDecimal> vendasPorMes(int ano) {
+        Map<Integer, BigDecimal> resultado = new HashMap<>();
+        for (int mes = 1; mes <= 12; mes++) {
+            resultado.put(mes, vendasPorPeriodo.doMes(ano, mes));
+        }
+        return resultado;
+    }
+
+    /**
+     * Receita das compras feitas no intervalo, inclusive. Deve ser chamado sob o mesmo lock das escritas.
+     */
+    BigDecimal vendasEntre(LocalDate inicio, LocalDate fim) {
+        return vendasPorPeriodo.entre(inicio, fim);
+    }
+
+    /**
+     * Resumo já montado, ou null se houve alteração desde a última montagem.
+     */
+    ResumoCache resumoAtual() {
+        return resumo;
+    }
+
+    /**
+     * Monta (ou reaproveita) o resumo imutável. Deve ser chamado sob o mesmo lock das escritas.
+     */
+    ResumoCache montarResumo() {
+        ResumoCache existente = resumo;
+        if (existente != null) {
+            return existente;
+        }
+
+        List<ResumoCache.OcupacaoSessao> ocupacoes = new ArrayList<>(ocupacaoPorSessao.size());
+        for (Map.Entry<ChaveSessao, Ocupacao> entrada : ocupacaoPorSessao.entrySet()) {
+            ChaveSessao chave = entrada.getKey();
+            Ocupacao ocupacao = entrada.getValue();
+            ocupacoes.add(new ResumoCache.OcupacaoSessao(
+                chave.nomePeca, chave.turno, chave.nomeSessao, ocupacao.ativos, ocupacao.capacidade));
+        }
+
+        ResumoCache novo = new ResumoCache(
+            totalVendas.valor(),
+            totalReembolsos.valor(),
+            quantidadeBilhetes,
+            quantidadeReembolsados,
+            valores(vendasPorPeca),
+            valores(vendasPorTurno),
+            ocupacoes
+        );
+        resumo = novo;
+        return novo;
+    }
+
+    private static Map<String, BigDecimal> valores(Map<String, Acumulado> mapa) {
+        Map<String, BigDecimal> copia = new HashMap<>(mapa.size() * 2);
+        mapa.forEach((chave, acumulado) -> copia.put(chave, acumulado.valor.valor()));
+        return copia;
+    }
+}
@@ -0,0 +1,110 @@
+package com.teatroabc.admin.infraestrutura.persistencia.cache;
+
+import com.teatroabc.admin.dominio.entidades.BilheteVendido;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Estrutura de armazenamento de uma geração do cache (dados + índices por CPF e peça).
+ * Escritas são serializadas pelo CacheBilhetes; leituras podem ocorrer em paralelo às escritas.
+ */
+interface ArmazenamentoBilhetes {
+
+    /**
+     * Adiciona o bilhete ou substitui o existente com o mesmo ID.
+     */
+    void adicionar(BilheteVendido bilhete);
+
+    /**
+     * Substitui o bilhete somente se o ID já estiver armazenado.
+     */
+    void atualizar(BilheteVendido bilhete);
+
+    /**
+     * Remove o bilhete com o ID informado, se existir.
+     */
+    void remover(String idIngresso);
+
+    boolean contem(String idIngresso);
+
+    /**
+     * @return Bilhete com o ID informado ou null
+     */
+    BilheteVendido buscarPorId(String idIngresso);
+
+    /**
+     * @param cpf CPF normalizado (somente dígitos)
+     */
+    List<BilheteVendido> buscarPorCpf(String cpf);
+
+    /**
+     * Uma página dos bilhetes cujo CPF começa pelo prefixo, em ordem de CPF.
+     * @param prefixo Dígitos iniciais do CPF; separadores e marcadores de máscara são ignorados
+     * @param inicio Quantidade de bilhetes a pular
+     * @param limite Quantidade máxima de bilhetes na página
+     */
+    List<BilheteVendido> buscarPorPrefixoCpf(CharSequence prefixo, int inicio, int limite);
+
+    /**
+     * Quantidade de bilhetes cujo CPF começa pelo prefixo.
+     */
+    int contarPorPrefixoCpf(CharSequence prefixo);
+
+    List<BilheteVendido> buscarPorPeca(String nomePeca);
+
+    /**
+     * Bilhetes cuja peça contém o trecho, sem diferenciar maiúsculas, minúsculas e acentos.
+     */
+    List<BilheteVendido> buscarPorTrechoPeca(String trecho);
+
+    /**
+     * IDs dos bilhetes cuja peça contém o trecho, sem materializar os bilhetes.
+     */
+    List<String> idsPorTrechoPeca(String trecho);
+
+    /**
+     * Nomes de peça que contêm o trecho, sem diferenciar maiúsculas, minúsculas e acentos.
+     */
+    Set<String> nomesPecaContendo(String trecho);
+
+    /**
+     * Linhas que atendem a todos os critérios, pelos índices bitmap (critérios nulos não filtram).
+     * Deve ser chamado sob o lock de escrita do CacheBilhetes; o bitmap devolvido é uma cópia.
+     * @param nomesPeca Linhas de qualquer uma destas peças (null = qualquer peça)
+     */
+    BitmapCompactado filtrarLinhas(Collection<String> nomesPeca, String turno, String nomeSessao, Boolean reembolsado);
+
+    /**
+     * Bilhetes das linhas informadas, em ordem de linha, no estado em que estão agora;
+     * linhas removidas depois do filtro são ignoradas.
+     */
+    List<BilheteVendido> bilhetesDasLinhas(BitmapCompactado linhas);
+
+    /**
+     * Percorre todos os bilhetes armazenados.
+     */
+    void paraCada(Consumer<BilheteVendido> acao);
+
+    /**
+     * Divide os bilhetes em partes disjuntas que podem ser percorridas em paralelo.
+     * Só deve ser usado sem escritas concorrentes (ex.: geração ainda não publicada).
+     * @param quantidade Quantidade desejada de partes (pode retornar menos)
+     * @return Fontes que entregam, cada uma, os bilhetes de uma parte
+     */
+    List<Consumer<Consumer<BilheteVendido>>> segmentos(int quantidade);
+
+    int tamanho();
+
+    int totalClientes();
+
+    int totalPecas();
+
+    /**
+     * Memória aproximada, em bytes, que o bilhete ocupa nesta estrutura (dados e índices),
+     * usada como peso pelo limite do cache.
+     */
+    int pesoEstimado(BilheteVendido bilhete);
+}
@@ -0,0 +1,851 @@
+package com.teatroabc.admin.infraestrutura.persistencia.cache;
+
+import com.teatroabc.admin.dominio.entidades.BilheteVendido;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * Armazenamento colunar e compacto para caches com milhões de bilhetes.
+ * Cada atributo fica em um array primitivo indexado pela linha do bilhete:
+ * os IDs ficam concatenados em um único char[], peça, turno, sessão e poltronas são
+ * códigos de dicionário, o CPF é um long,
+ * o preço é guardado em centavos e o status de reembolso em um bitset.
+ * Objetos BilheteVendido só são criados quando alguém os consulta.
+ *
+ * Escritas são serializadas pelo CacheBilhetes. Leitores sincronizam pelos campos voláteis
+ * {@code linhas} e {@code colunas}: uma linha só é visível depois de totalmente escrita.
+ * Linhas removidas viram lápides e são descartadas na próxima carga completa.
+ * Uma substituição publica a nova linha antes de transformar a antiga em lápide: buscas por ID
+ * e por CPF sempre encontram uma das duas versões, e varreduras (listagens, filtros) feitas
+ * durante a troca podem ver as duas por um instante.
+ */
+class ArmazenamentoColunar implements ArmazenamentoBilhetes {
+
+    private static final long SEM_DATA = Long.MIN_VALUE;
+    // Marcador de preço que não cabe em centavos exatos; o valor fica em precosExatos
+    private static final long PRECO_EXATO = Long.MIN_VALUE;
+    private static final int CAPACIDADE_INICIAL = 1024;
+    private static final int VAZIO = 0;
+    private static final int LAPIDE = -1;
+
+    /**
+     * Conjunto de colunas com capacidade fixa; substituído por uma cópia maior quando enche.
+     */
+    private static final class Colunas {
+        // Posição em textoIds onde termina o ID de cada linha (o início é o fim da linha anterior)
+        final int[] fimIds;
+        final long[] cpfs;
+        final int[] pecas;
+        final int[] turnos;
+        final int[] sessoes;
+        final int[] poltronas;
+        final int[] capacidades;
+        final long[] precosCentavos;
+        final long[] datasReembolso;
+        final long[] datasCompra;
+        final long[] reembolsados;
+        final long[] removidos;
+
+        Colunas(int capacidade) {
+            this.fimIds = new int[capacidade];
+            this.cpfs = new long[capacidade];
+            this.pecas = new int[capacidade];
+            this.turnos = new int[capacidade];
+            this.sessoes = new int[capacidade];
+            this.poltronas = new int[capacidade];
+            this.capacidades = new int[capacidade];
+            this.precosCentavos = new long[capacidade];
+            this.datasReembolso = new long[capacidade];
+            this.datasCompra = new long[capacidade];
+            this.reembolsados = new long[palavras(capacidade)];
+            this.removidos = new long[palavras(capacidade)];
+        }
+
+        private Colunas(Colunas origem, int capacidade) {
+            this.fimIds = Arrays.copyOf(origem.fimIds, capacidade);
+            this.cpfs = Arrays.copyOf(origem.cpfs, capacidade);
+            this.pecas = Arrays.copyOf(origem.pecas, capacidade);
+            this.turnos = Arrays.copyOf(origem.turnos, capacidade);
+            this.sessoes = Arrays.copyOf(origem.sessoes, capacidade);
+            this.poltronas = Arrays.copyOf(origem.poltronas, capacidade);
+            this.capacidades = Arrays.copyOf(origem.capacidades, capacidade);
+            this.precosCentavos = Arrays.copyOf(origem.precosCentavos, capacidade);
+            this.datasReembolso = Arrays.copyOf(origem.datasReembolso, capacidade);
+            this.datasCompra = Arrays.copyOf(origem.datasCompra, capacidade);
+            this.reembolsados = Arrays.copyOf(origem.reembolsados, palavras(capacidade));
+            this.removidos = Arrays.copyOf(origem.removidos, palavras(capacidade));
+        }
+
+        Colunas ampliar() {
+            // Crescimento de 1,5x limita a folga de memória das colunas
+            return new Colunas(this, capacidade() + (capacidade() >>> 1));
+        }
+
+        int capacidade() {
+            return fimIds.length;
+        }
+
+        private static int palavras(int bits) {
+            return (bits + 63) >>> 6;
+        }
+    }
+
+    private final Dicionario dicionarioPecas = new Dicionario();
+    // Nomes distintos de peça, para busca por trecho
+    private final IndiceTrigramas nomesPeca = new IndiceTrigramas();
+    private final Dicionario dicionarioTurnos = new Dicionario();
+    private final Dicionario dicionarioSessoes = new Dicionario();
+    private final Dicionario dicionarioPoltronas = new Dicionario();
+    // CPFs que não cabem na codificação numérica (mais de 16 dígitos)
+    private final Dicionario dicionarioCpfsExtensos = new Dicionario();
+
+    private final Map<Integer, BigDecimal> precosExatos = new ConcurrentHashMap<>();
+    private final Map<Long, int[]> linhasPorCpf = new ConcurrentHashMap<>();
+    // CPFs de 11 dígitos em ordem, para busca por prefixo
+    private final IndiceCpfPrefixo cpfsOrdenados = new IndiceCpfPrefixo();
+    private final IndicesBitmap indicesBitmap = new IndicesBitmap();
+
+    private volatile Colunas colunas;
+    private volatile char[] textoIds;
+    private int usoTextoIds = 0;
+    // Linhas usadas (inclui lápides); publicado depois que a linha está completa
+    private volatile int linhas = 0;
+    private volatile int ativos = 0;
+
+    // Tabela hash de endereçamento aberto: ID -> linha + 1 (0 = vazio, -1 = lápide)
+    private volatile int[] tabelaIds;
+    private int ocupadosTabela = 0;
+
+    ArmazenamentoColunar() {
+        this(0);
+    }
+
+    /**
+     * @param capacidadeEsperada Quantidade de bilhetes prevista (ex.: a de um snapshot), para que
+     *                           a carga não realoque colunas e tabela de IDs repetidas vezes
+     */
+    ArmazenamentoColunar(int capacidadeEsperada) {
+        int capacidade = Math.max(CAPACIDADE_INICIAL, capacidadeEsperada);
+        this.colunas = new Colunas(capacidade);
+        this.textoIds = new char[capacidade * 16];
+        // Potência de dois com folga para o fator de carga de 1/3 de redimensionarTabela
+        this.tabelaIds = new int[Integer.highestOneBit(capacidade * 3 - 1) << 1];
+    }
+
+    @Override
+    public void adicionar(BilheteVendido bilhete) {
+        int existente = localizar(bilhete.getIdIngresso());
+        if (existente >= 0) {
+            substituir(existente, bilhete);
+        } else {
+            acrescentar(bilhete);
+        }
+    }
+
+    @Override
+    public void atualizar(BilheteVendido bilhete) {
+        int existente = localizar(bilhete.getIdIngresso());
+        if (existente >= 0) {
+            substituir(existente, bilhete);
+        }
+    }
+
+    @Override
+    public void remover(String idIngresso) {
+        int linha = localizar(idIngresso);
+        if (linha >= 0) {
+            retirar(linha, idIngresso, true);
+        }
+    }
+
+    @Override
+    public boolean contem(String idIngresso) {
+        return localizar(idIngresso) >= 0;
+    }
+
+    @Override
+    public BilheteVendido buscarPorId(String idIngresso) {
+        int linha = localizar(idIngresso);
+        return linha >= 0 ? materializar(colunas, linha) : null;
+    }
+
+    @Override
+    public List<BilheteVendido> buscarPorCpf(String cpf) {
+        long codigo = codigoCpfExistente(cpf);
+        if (codigo == Long.MAX_VALUE) {
+            return Collections.emptyList();
+        }
+        int[] ativas = linhasAtivasCpf(codigo);
+        Colunas c = colunas;
+        List<BilheteVendido> resultado = new ArrayList<>(ativas.length);
+        for (int linha : ativas) {
+            resultado.add(materializar(c, linha));
+        }
+        return resultado;
+    }
+
+    @Override
+    public List<BilheteVendido> buscarPorPrefixoCpf(CharSequence prefixo, int inicio, int limite) {
+        List<BilheteVendido> pagina = new ArrayList<>();
+        if (limite <= 0) {
+            return pagina;
+        }
+        int[] pular = {Math.max(0, inicio)};
+        cpfsOrdenados.percorrerPrefixo(prefixo, valor -> {
+            long codigo = codigoCpfOnzeDigitos(valor);
+            int[] linhasCpf = linhasPorCpf.get(codigo);
+            if (linhasCpf == null) {
+                return true;
+            }
+            if (linhasCpf.length <= pular[0]) {
+                // CPF inteiro antes da página: pula pela contagem, sem materializar
+                pular[0] -= linhasCpf.length;
+                return true;
+            }
+            int[] ativas = linhasAtivasCpf(codigo);
+            Colunas c = colunas;
+            for (int linha : ativas) {
+                if (pular[0] > 0) {
+                    pular[0]--;
+                    continue;
+                }
+                pagina.add(materializar(c, linha));
+                if (pagina.size() == limite) {
+                    return false;
+                }
+            }
+            return true;
+        });
+        return pagina;
+    }
+
+    @Override
+    public int contarPorPrefixoCpf(CharSequence prefixo) {
+        int[] total = {0};
+        cpfsOrdenados.percorrerPrefixo(prefixo, valor -> {
+            int[] linhasCpf = linhasPorCpf.get(codigoCpfOnzeDigitos(valor));
+            if (linhasCpf != null) {
+                total[0] += linhasCpf.length;
+            }
+            return true;
+        });
+        return total[0];
+    }
+
+    @Override
+    public List<BilheteVendido> buscarPorPeca(String nomePeca) {
+        int codigo = dicionarioPecas.codigoDe(nomePeca);
+        if (codigo == Dicionario.NULO) {
+            return Collections.emptyList();
+        }
+
+        // Poucas peças distintas: varrer a coluna de int é barato e dispensa índice por linha
+        int limite = linhas;
+        Colunas c = colunas;
+        List<BilheteVendido> resultado = new ArrayList<>();
+        for (int linha = 0; linha < limite; linha++) {
+            if (c.pecas[linha] == codigo && !bit(c.removidos, linha)) {
+                resultado.add(materializar(c, linha));
+            }
+        }
+        return resultado;
+    }
+
+    @Override
+    public List<BilheteVendido> buscarPorTrechoPeca(String trecho) {
+        List<BilheteVendido> resultado = new ArrayList<>();
+        percorrerPecas(nomesPeca.buscar(trecho), (c, linha) -> resultado.add(materializar(c, linha)));
+        return resultado;
+    }
+
+    @Override
+    public Set<String> nomesPecaContendo(String trecho) {
+        return nomesPeca.buscar(trecho);
+    }
+
+    @Override
+    public BitmapCompactado filtrarLinhas(Collection<String> nomesPeca, String turno, String nomeSessao,
+                                          Boolean reembolsado) {
+        return indicesBitmap.filtrar(nomesPeca, turno, nomeSessao, reembolsado);
+    }
+
+    @Override
+    public List<BilheteVendido> bilhetesDasLinhas(BitmapCompactado linhasFiltradas) {
+        int limite = linhas;
+        Colunas c = colunas;
+        List<BilheteVendido> resultado = new ArrayList<>(linhasFiltradas.cardinalidade());
+        linhasFiltradas.paraCada(linha -> {
+            if (linha < limite && !bit(c.removidos, linha)) {
+                resultado.add(materializar(c, linha));
+            }
+        });
+        return resultado;
+    }
+
+    @Override
+    public List<String> idsPorTrechoPeca(String trecho) {
+        List<String> ids = new ArrayList<>();
+        percorrerPecas(nomesPeca.buscar(trecho), (c, linha) -> ids.add(lerId(c, linha)));
+        return ids;
+    }
+
+    /**
+     * Visita as linhas ativas de qualquer uma das peças, numa única passada pela coluna de códigos.
+     */
+    private void percorrerPecas(Set<String> nomesPecas, ObjIntConsumer<Colunas> acao) {
+        if (nomesPecas.isEmpty()) {
+            return;
+        }
+        boolean[] alvos = new boolean[dicionarioPecas.tamanho()];
+        boolean algum = false;
+        for (String nomePeca : nomesPecas) {
+            int codigo = dicionarioPecas.codigoDe(nomePeca);
+            if (codigo != Dicionario.NULO && codigo < alvos.length) {
+                alvos[codigo] = true;
+                algum = true;
+            }
+        }
+        if (!algum) {
+            return;
+        }
+
+        int limite = linhas;
+        Colunas c = colunas;
+        for (int linha = 0; linha < limite; linha++) {
+            int peca = c.pecas[linha];
+            if (peca >= 0 && peca < alvos.length && alvos[peca] && !bit(c.removidos, linha)) {
+                acao.accept(c, linha);
+            }
+        }
+    }
+
+    @Override
+    public void paraCada(Consumer<BilheteVendido> acao) {
+        int limite = linhas;
+        Colunas c = colunas;
+        for (int linha = 0; linha < limite; linha++) {
+            if (!bit(c.removidos, linha)) {
+                acao.accept(materializar(c, linha));
+            }
+        }
+    }
+
+    @Override
+    public List<Consumer<Consumer<BilheteVendido>>> segmentos(int quantidade) {
+        int limite = linhas;
+        Colunas c = colunas;
+        int partes = Math.max(1, Math.min(quantidade, limite));
+        List<Consumer<Consumer<BilheteVendido>>> segmentos = new ArrayList<>(partes);
+        for (int parte = 0; parte < partes; parte++) {
+            int inicio = (int) ((long) limite * parte / partes);
+            int fim = (int) ((long) limite * (parte + 1) / partes);
+            segmentos.add(acao -> {
+                for (int linha = inicio; linha < fim; linha++) {
+                    if (!bit(c.removidos, linha)) {
+                        acao.accept(materializar(c, linha));
+                    }
+                }
+            });
+        }
+        return segmentos;
+    }
+
+    @Override
+    public int tamanho() {
+        return ativos;
+    }
+
+    @Override
+    public int totalClientes() {
+        return linhasPorCpf.size();
+    }
+
+    @Override
+    public int totalPecas() {
+        int limite = linhas;
+        Colunas c = colunas;
+        boolean[] vistas = new boolean[dicionarioPecas.tamanho()];
+        int total = 0;
+        for (int linha = 0; linha < limite; linha++) {
+            int peca = c.pecas[linha];
+            if (!bit(c.removidos, linha) && peca >= 0 && peca < vistas.length && !vistas[peca]) {
+                vistas[peca] = true;
+                total++;
+            }
+        }
+        return total;
+    }
+
+    @Override
+    public int pesoEstimado(BilheteVendido bilhete) {
+        // Uma posição em cada coluna, na tabela de IDs, no índice de CPF e nos bitmaps, mais o texto do ID
+        return 128 + 2 * bilhete.getIdIngresso().length();
+    }
+
+    // Escrita
+
+    private void acrescentar(BilheteVendido bilhete) {
+        acrescentar(bilhete, -1);
+    }
+
+    /**
+     * @param linhaSubstituida Linha do mesmo bilhete e mesmo CPF cuja posição no índice de CPF
+     *                         passa para a nova linha (-1 se não houver)
+     */
+    private void acrescentar(BilheteVendido bilhete, int linhaSubstituida) {
+        int linha = linhas;
+        Colunas c = colunas;
+        if (linha == c.capacidade()) {
+            c = c.ampliar();
+            colunas = c;
+        }
+
+        c.fimIds[linha] = escreverId(bilhete.getIdIngresso());
+        c.cpfs[linha] = codificarCpf(bilhete.getCpf());
+        escreverAtributos(c, linha, bilhete);
+        marcar(c.removidos, linha, false);
+
+        inserirNaTabela(bilhete.getIdIngresso(), linha);
+        if (linhaSubstituida < 0) {
+            adicionarAoIndiceCpf(c.cpfs[linha], linha);
+        }
+        cpfsOrdenados.registrar(bilhete.getCpf());
+        indicesBitmap.adicionar(linha, bilhete);
+
+        ativos = ativos + 1;
+        linhas = linha + 1;
+        if (linhaSubstituida >= 0) {
+            // Só depois da publicação: quem lê a nova lista de linhas do CPF já enxerga a linha
+            trocarNoIndiceCpf(c.cpfs[linha], linhaSubstituida, linha);
+        }
+    }
+
+    /**
+     * Transforma a linha em lápide e a retira dos índices.
+     * O preço exato da linha continua em precosExatos, como as demais colunas da lápide: um leitor
+     * sem lock que já passou pela verificação de removidos ainda pode materializá-la.
+     * @param doIndiceCpf false quando a posição da linha no índice de CPF já foi passada à substituta
+     */
+    private void retirar(int linha, String idIngresso, boolean doIndiceCpf) {
+        Colunas c = colunas;
+        indicesBitmap.remover(linha,
+            dicionarioPecas.decodificar(c.pecas[linha]),
+            dicionarioTurnos.decodificar(c.turnos[linha]),
+            dicionarioSessoes.decodificar(c.sessoes[linha]));
+        marcar(c.removidos, linha, true);
+        removerDaTabela(idIngresso, linha);
+        if (doIndiceCpf) {
+            removerDoIndiceCpf(c.cpfs[linha], linha);
+        }
+        ativos = ativos - 1;
+    }
+
+    /**
+     * Reembolsos alteram apenas status e data e são gravados na própria linha.
+     * Qualquer outra mudança vira nova linha + lápide, para que leitores nunca vejam uma linha pela metade;
+     * a nova linha é publicada antes, para que buscas por ID e CPF não fiquem sem o bilhete no meio da troca.
+     */
+    private void substituir(int linha, BilheteVendido bilhete) {
+        Colunas c = colunas;
+        boolean mesmosAtributos = c.cpfs[linha] == codificarCpf(bilhete.getCpf())
+                && c.pecas[linha] == dicionarioPecas.codificar(bilhete.getNomePeca())
+                && c.turnos[linha] == dicionarioTurnos.codificar(bilhete.getTurno())
+                && c.sessoes[linha] == dicionarioSessoes.codificar(bilhete.getNomeSessao())
+                && c.poltronas[linha] == dicionarioPoltronas.codificar(bilhete.getNumeroPoltronas())
+                && c.capacidades[linha] == bilhete.getCapacidade()
+                && c.datasCompra[linha] == codificarData(bilhete.getDataCompra())
+                && lerPreco(c, linha).compareTo(bilhete.getPreco()) == 0;
+
+        if (mesmosAtributos) {
+            c.datasReembolso[linha] = codificarData(bilhete.getDataReembolso());
+            marcar(c.reembolsados, linha, bilhete.isReembolsado());
+            indicesBitmap.marcarReembolso(linha, bilhete.isReembolsado());
+            // Publica as alterações para os leitores
+            linhas = linhas;
+        } else {
+            boolean mesmoCpf = c.cpfs[linha] == codificarCpf(bilhete.getCpf());
+            acrescentar(bilhete, mesmoCpf ? linha : -1);
+            retirar(linha, bilhete.getIdIngresso(), !mesmoCpf);
+        }
+    }
+
+    private void escreverAtributos(Colunas c, int linha, BilheteVendido bilhete) {
+        c.pecas[linha] = dicionarioPecas.codificar(bilhete.getNomePeca());
+        nomesPeca.registrar(bilhete.getNomePeca());
+        c.turnos[linha] = dicionarioTurnos.codificar(bilhete.getTurno());
+        c.sessoes[linha] = dicionarioSessoes.codificar(bilhete.getNomeSessao());
+        c.poltronas[linha] = dicionarioPoltronas.codificar(bilhete.getNumeroPoltronas());
+        c.capacidades[linha] = bilhete.getCapacidade();
+        c.datasReembolso[linha] = codificarData(bilhete.getDataReembolso());
+        c.datasCompra[linha] = codificarData(bilhete.getDataCompra());
+        marcar(c.reembolsados, linha, bilhete.isReembolsado());
+
+        precosExatos.remove(linha);
+        try {
+            c.precosCentavos[linha] = bilhete.getPreco().movePointRight(2).longValueExact();
+        } catch (ArithmeticException e) {
+            // Frações de centavo ou valores enormes: preserva o BigDecimal original
+            c.precosCentavos[linha] = PRECO_EXATO;
+            precosExatos.put(linha, bilhete.getPreco());
+        }
+    }
+
+    // Leitura
+
+    private BilheteVendido materializar(Colunas c, int linha) {
+        BilheteVendido bilhete = new BilheteVendido(
+            lerId(c, linha),
+            decodificarCpf(c.cpfs[linha]),
+            dicionarioPecas.decodificar(c.pecas[linha]),
+            dicionarioTurnos.decodificar(c.turnos[linha]),
+            dicionarioPoltronas.decodificar(c.poltronas[linha]),
+            dicionarioSessoes.decodificar(c.sessoes[linha]),
+            c.capacidades[linha],
+            lerPreco(c, linha)
+        );
+        bilhete.restaurarDataCompra(decodificarData(c.datasCompra[linha]));
+        if (bit(c.reembolsados, linha)) {
+            bilhete.restaurarReembolso(decodificarData(c.datasReembolso[linha]));
+        }
+        return bilhete;
+    }
+
+    private BigDecimal lerPreco(Colunas c, int linha) {
+        long centavos = c.precosCentavos[linha];
+        if (centavos == PRECO_EXATO) {
+            return precosExatos.get(linha);
+        }
+        return BigDecimal.valueOf(centavos, 2);
+    }
+
+    // Índice de ID (endereçamento aberto)
+
+    /**
+     * @return Linha ativa do bilhete ou -1 se não existir
+     */
+    private int localizar(String idIngresso) {
+        if (idIngresso == null) {
+            return -1;
+        }
+        while (true) {
+            int limite = linhas;
+            Colunas c = colunas;
+            int[] tabela = tabelaIds;
+            int linha = procurar(idIngresso, limite, c, tabela);
+            // Sem resultado, confere se uma escrita publicou linhas ou trocou a tabela durante a busca:
+            // a nova linha de uma substituição pode ter entrado numa posição já percorrida
+            if (linha >= 0 || (limite == linhas && tabela == tabelaIds)) {
+                return linha;
+            }
+        }
+    }
+
+    private int procurar(String idIngresso, int limite, Colunas c, int[] tabela) {
+        int mascara = tabela.length - 1;
+        int posicao = espalhar(idIngresso.hashCode()) & mascara;
+
+        for (int tentativas = 0; tentativas < tabela.length; tentativas++) {
+            int entrada = tabela[posicao];
+            if (entrada == VAZIO) {
+                return -1;
+            }
+            if (entrada != LAPIDE) {
+                int linha = entrada - 1;
+                if (linha < limite && idIgual(c, linha, idIngresso) && !bit(c.removidos, linha)) {
+                    return linha;
+                }
+            }
+            posicao = (posicao + 1) & mascara;
+        }
+        return -1;
+    }
+
+    private void inserirNaTabela(String idIngresso, int linha) {
+        if ((ocupadosTabela + 1) * 2 > tabelaIds.length) {
+            redimensionarTabela();
+        }
+        int[] tabela = tabelaIds;
+        int mascara = tabela.length - 1;
+        int posicao = espalhar(idIngresso.hashCode()) & mascara;
+        while (tabela[posicao] != VAZIO && tabela[posicao] != LAPIDE) {
+            posicao = (posicao + 1) & mascara;
+        }
+        if (tabela[posicao] == VAZIO) {
+            ocupadosTabela++;
+        }
+        tabela[posicao] = linha + 1;
+    }
+
+    /**
+     * Retira a entrada da linha; durante uma substituição, a entrada da nova linha do mesmo ID fica.
+     */
+    private void removerDaTabela(String idIngresso, int linha) {
+        int[] tabela = tabelaIds;
+        int mascara = tabela.length - 1;
+        int posicao = espalhar(idIngresso.hashCode()) & mascara;
+        while (tabela[posicao] != VAZIO) {
+            if (tabela[posicao] == linha + 1) {
+                tabela[posicao] = LAPIDE;
+                return;
+            }
+            posicao = (posicao + 1) & mascara;
+        }
+    }
+
+    /**
+     * Reconstrói a tabela só com as linhas ativas, descartando lápides; dobra o tamanho se necessário.
+     */
+    private void redimensionarTabela() {
+        int tamanhoNovo = tabelaIds.length;
+        while ((ativos + 1) * 3 > tamanhoNovo) {
+            tamanhoNovo *= 2;
+        }
+        int[] nova = new int[tamanhoNovo];
+        int mascara = tamanhoNovo - 1;
+        int limite = linhas;
+        Colunas c = colunas;
+        int ocupados = 0;
+        for (int linha = 0; linha < limite; linha++) {
+            if (bit(c.removidos, linha)) {
+                continue;
+            }
+            int posicao = espalhar(hashId(c, linha)) & mascara;
+            while (nova[posicao] != VAZIO) {
+                posicao = (posicao + 1) & mascara;
+            }
+            nova[posicao] = linha + 1;
+            ocupados++;
+        }
+        ocupadosTabela = ocupados;
+        tabelaIds = nova;
+    }
+
+    // IDs concatenados
+
+    private int escreverId(String idIngresso) {
+        int tamanho = idIngresso.length();
+        char[] texto = textoIds;
+        if (usoTextoIds + tamanho > texto.length) {
+            texto = Arrays.copyOf(texto, Math.max(texto.length + (texto.length >>> 1), usoTextoIds + tamanho));
+            textoIds = texto;
+        }
+        idIngresso.getChars(0, tamanho, texto, usoTextoIds);
+        usoTextoIds += tamanho;
+        return usoTextoIds;
+    }
+
+    private int inicioId(Colunas c, int linha) {
+        return linha == 0 ? 0 : c.fimIds[linha - 1];
+    }
+
+    private String lerId(Colunas c, int linha) {
+        int inicio = inicioId(c, linha);
+        return new String(textoIds, inicio, c.fimIds[linha] - inicio);
+    }
+
+    private boolean idIgual(Colunas c, int linha, String idIngresso) {
+        int inicio = inicioId(c, linha);
+        int tamanho = c.fimIds[linha] - inicio;
+        if (tamanho != idIngresso.length()) {
+            return false;
+        }
+        char[] texto = textoIds;
+        for (int i = 0; i < tamanho; i++) {
+            if (texto[inicio + i] != idIngresso.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Mesmo resultado de String.hashCode(), calculado direto sobre o texto armazenado.
+     */
+    private int hashId(Colunas c, int linha) {
+        int inicio = inicioId(c, linha);
+        int fim = c.fimIds[linha];
+        char[] texto = textoIds;
+        int hash = 0;
+        for (int i = inicio; i < fim; i++) {
+            hash = 31 * hash + texto[i];
+        }
+        return hash;
+    }
+
+    private static int espalhar(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    // Índice de CPF
+
+    /**
+     * Linhas ativas do CPF. Se uma linha da lista lida virou lápide e a lista foi trocada nesse
+     * meio-tempo (substituição em andamento), lê a lista de novo para não perder a linha substituta.
+     */
+    private int[] linhasAtivasCpf(long codigoCpf) {
+        while (true) {
+            int[] linhasCpf = linhasPorCpf.get(codigoCpf);
+            if (linhasCpf == null) {
+                return new int[0];
+            }
+            int limite = linhas;
+            Colunas c = colunas;
+            int[] ativas = new int[linhasCpf.length];
+            int quantidade = 0;
+            for (int linha : linhasCpf) {
+                if (linha < limite && !bit(c.removidos, linha)) {
+                    ativas[quantidade++] = linha;
+                }
+            }
+            if (quantidade == linhasCpf.length) {
+                return ativas;
+            }
+            if (linhasPorCpf.get(codigoCpf) == linhasCpf) {
+                return Arrays.copyOf(ativas, quantidade);
+            }
+        }
+    }
+
+    private void adicionarAoIndiceCpf(long codigoCpf, int linha) {
+        linhasPorCpf.compute(codigoCpf, (k, atuais) -> {
+            if (atuais == null) {
+                return new int[]{linha};
+            }
+            int[] novas = Arrays.copyOf(atuais, atuais.length + 1);
+            novas[atuais.length] = linha;
+            return novas;
+        });
+    }
+
+    private void trocarNoIndiceCpf(long codigoCpf, int linhaAntiga, int linhaNova) {
+        linhasPorCpf.computeIfPresent(codigoCpf, (k, atuais) -> {
+            int[] novas = atuais.clone();
+            for (int i = 0; i < novas.length; i++) {
+                if (novas[i] == linhaAntiga) {
+                    novas[i] = linhaNova;
+                }
+            }
+            return novas;
+        });
+    }
+
+    private void removerDoIndiceCpf(long codigoCpf, int linha) {
+        linhasPorCpf.computeIfPresent(codigoCpf, (k, atuais) -> {
+            int[] novas = Arrays.stream(atuais).filter(l -> l != linha).toArray();
+            return novas.length == 0 ? null : novas;
+        });
+    }
+
+    // Codificações
+
+    /**
+     * CPFs de até 16 dígitos viram (valor * 100 + quantidade de dígitos), preservando zeros à esquerda.
+     * CPFs maiores usam um dicionário e recebem códigos negativos.
+     */
+    private long codificarCpf(String cpf) {
+        long numerico = codificarCpfNumerico(cpf);
+        if (numerico >= 0) {
+            return numerico;
+        }
+        return -1L - dicionarioCpfsExtensos.codificar(cpf);
+    }
+
+    /**
+     * Código de um CPF já presente, sem registrar novos valores.
+     * @return Código ou Long.MAX_VALUE se o CPF não puder estar armazenado
+     */
+    private long codigoCpfExistente(String cpf) {
+        if (cpf == null) {
+            return Long.MAX_VALUE;
+        }
+        long numerico = codificarCpfNumerico(cpf);
+        if (numerico >= 0) {
+            return numerico;
+        }
+        int codigo = dicionarioCpfsExtensos.codigoDe(cpf);
+        return codigo == Dicionario.NULO ? Long.MAX_VALUE : -1L - codigo;
+    }
+
+    /**
+     * Mesmo código de codificarCpfNumerico para um CPF de 11 dígitos já convertido em número.
+     */
+    private static long codigoCpfOnzeDigitos(long valor) {
+        return valor * 100 + IndiceCpfPrefixo.DIGITOS_CPF;
+    }
+
+    private static long codificarCpfNumerico(String cpf) {
+        int tamanho = cpf.length();
+        if (tamanho > 16) {
+            return -1;
+        }
+        long valor = 0;
+        for (int i = 0; i < tamanho; i++) {
+            char digito = cpf.charAt(i);
+            if (digito < '0' || digito > '9') {
+                return -1;
+            }
+            valor = valor * 10 + (digito - '0');
+        }
+        return valor * 100 + tamanho;
+    }
+
+    private String decodificarCpf(long codigo) {
+        if (codigo < 0) {
+            return dicionarioCpfsExtensos.decodificar((int) (-1L - codigo));
+        }
+        int tamanho = (int) (codigo % 100);
+        if (tamanho == 0) {
+            return "";
+        }
+        String digitos = Long.toString(codigo / 100);
+        StringBuilder cpf = new StringBuilder(tamanho);
+        for (int i = digitos.length(); i < tamanho; i++) {
+            cpf.append('0');
+        }
+        return cpf.append(digitos).toString();
+    }
+
+    /**
+     * Datas são guardadas em milissegundos desde a época (UTC); frações abaixo de 1 ms são descartadas.
+     */
+    private static long codificarData(LocalDateTime data) {
+        return data == null ? SEM_DATA : data.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    private static LocalDateTime decodificarData(long milissegundos) {
+        if (milissegundos == SEM_DATA) {
+            return null;
+        }
+        return LocalDateTime.ofEpochSecond(
+            Math.floorDiv(milissegundos, 1000L),
+            (int) Math.floorMod(milissegundos, 1000L) * 1_000_000,
+            ZoneOffset.UTC
+        );
+    }
+
+    // Bitsets
+
+    private static boolean bit(long[] palavras, int indice) {
+        return (palavras[indice >>> 6] & (1L << indice)) != 0;
+    }
+
+    private static void marcar(long[] palavras, int indice, boolean valor) {
+        if (valor) {
+            palavras[indice >>> 6] |= (1L << indice);
+        } else {
+            palavras[indice >>> 6] &= ~(1L << indice);
+        }
+    }
+}
@@ -0,0 +1,283 @@
+package com.teatroabc.admin.infraestrutura.persistencia.cache;
+
+import com.teatroabc.admin.dominio.entidades.BilheteVendido;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Armazenamento padrão: mantém os próprios objetos BilheteVendido em um ConcurrentHashMap,
+ * com índices secundários por CPF e por peça, e um índice de trigramas dos nomes de peça
+ * para busca por trecho.
+ * Cada ID recebe também um número de linha, usado pelos índices bitmap; linhas de bilhetes
+ * removidos não são reaproveitadas e são descartadas na próxima carga completa.
+ */
+class ArmazenamentoObjetos implements ArmazenamentoBilhetes {
+
+    private final Map<String, BilheteVendido> cachePrincipal;
+    private final IndiceMultiplo indicePorCpf = new IndiceMultiplo();
+    private final IndiceMultiplo indicePorPeca = new IndiceMultiplo();
+    private final IndiceTrigramas nomesPeca = new IndiceTrigramas();
+    private final IndiceCpfPrefixo cpfsOrdenados = new IndiceCpfPrefixo();
+
+    private static final int CAPACIDADE_INICIAL = 1024;
+    private final Map<String, Integer> linhaPorId;
+    // ID de cada linha (null depois da remoção)
+    private volatile String[] idPorLinha;
+    private int linhas = 0;
+    private final IndicesBitmap indicesBitmap = new IndicesBitmap();
+
+    ArmazenamentoObjetos() {
+        this(0);
+    }
+
+    /**
+     * @param capacidadeEsperada Quantidade de bilhetes prevista (ex.: a de um snapshot), para que
+     *                           a carga não redimensione o mapa principal repetidas vezes
+     */
+    ArmazenamentoObjetos(int capacidadeEsperada) {
+        int capacidade = Math.max(CAPACIDADE_INICIAL, capacidadeEsperada);
+        this.cachePrincipal = new ConcurrentHashMap<>(capacidade);
+        this.linhaPorId = new ConcurrentHashMap<>(capacidade);
+        this.idPorLinha = new String[capacidade];
+    }
+
+    @Override
+    public void adicionar(BilheteVendido bilhete) {
+        BilheteVendido anterior = cachePrincipal.put(bilhete.getIdIngresso(), bilhete);
+        Integer linha = linhaPorId.get(bilhete.getIdIngresso());
+        if (anterior != null && linha != null) {
+            // Substituição: retira as chaves antigas caso CPF, peça, turno ou sessão tenham mudado
+            removerDosIndices(anterior);
+            indicesBitmap.remover(linha, anterior.getNomePeca(), anterior.getTurno(), anterior.getNomeSessao());
+        } else {
+            linha = reservarLinha(bilhete.getIdIngresso());
+        }
+        indicesBitmap.adicionar(linha, bilhete);
+
+        // Atualizar índice por CPF
+        indicePorCpf.adicionar(bilhete.getCpf(), bilhete.getIdIngresso());
+        cpfsOrdenados.registrar(bilhete.getCpf());
+
+        // Atualizar índice por peça
+        indicePorPeca.adicionar(bilhete.getNomePeca(), bilhete.getIdIngresso());
+        nomesPeca.registrar(bilhete.getNomePeca());
+    }
+
+    @Override
+    public void atualizar(BilheteVendido bilhete) {
+        if (cachePrincipal.containsKey(bilhete.getIdIngresso())) {
+            adicionar(bilhete);
+        }
+    }
+
+    @Override
+    public void remover(String idIngresso) {
+        BilheteVendido bilhete = cachePrincipal.remove(idIngresso);
+        if (bilhete != null) {
+            removerDosIndices(bilhete);
+            Integer linha = linhaPorId.remove(idIngresso);
+            if (linha != null) {
+                idPorLinha[linha] = null;
+                indicesBitmap.remover(linha, bilhete.getNomePeca(), bilhete.getTurno(), bilhete.getNomeSessao());
+            }
+        }
+    }
+
+    private int reservarLinha(String idIngresso) {
+        int linha = linhas;
+        String[] ids = idPorLinha;
+        if (linha == ids.length) {
+            ids = Arrays.copyOf(ids, ids.length + (ids.length >>> 1));
+            idPorLinha = ids;
+        }
+        ids[linha] = idIngresso;
+        linhas = linha + 1;
+        linhaPorId.put(idIngresso, linha);
+        return linha;
+    }
+
+    private void removerDosIndices(BilheteVendido bilhete) {
+        indicePorCpf.remover(bilhete.getCpf(), bilhete.getIdIngresso());
+        indicePorPeca.remover(bilhete.getNomePeca(), bilhete.getIdIngresso());
+    }
+
+    @Override
+    public boolean contem(String idIngresso) {
+        return cachePrincipal.containsKey(idIngresso);
+    }
+
+    @Override
+    public BilheteVendido buscarPorId(String idIngresso) {
+        return cachePrincipal.get(idIngresso);
+    }
+
+    @Override
+    public List<BilheteVendido> buscarPorCpf(String cpf) {
+        return resolver(indicePorCpf.obter(cpf));
+    }
+
+    @Override
+    public List<BilheteVendido> buscarPorPrefixoCpf(CharSequence prefixo, int inicio, int limite) {
+        List<BilheteVendido> pagina = new ArrayList<>();
+        if (limite <= 0) {
+            return pagina;
+        }
+        int[] pular = {Math.max(0, inicio)};
+        cpfsOrdenados.percorrerPrefixo(prefixo, valor -> {
+            Set<String> ids = indicePorCpf.obter(IndiceCpfPrefixo.textoCpf(valor));
+            if (ids.size() <= pular[0]) {
+                // CPF inteiro antes da página: pula pela contagem, sem tocar nos bilhetes
+                pular[0] -= ids.size();
+                return true;
+            }
+            // Ordem estável entre páginas dentro do mesmo CPF
+            List<String> ordenados = new ArrayList<>(ids);
+            Collections.sort(ordenados);
+            for (String id : ordenados) {
+                if (pular[0] > 0) {
+                    pular[0]--;
+                    continue;
+                }
+                BilheteVendido bilhete = cachePrincipal.get(id);
+                if (bilhete != null) {
+                    pagina.add(bilhete);
+                    if (pagina.size() == limite) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        });
+        return pagina;
+    }
+
+    @Override
+    public int contarPorPrefixoCpf(CharSequence prefixo) {
+        int[] total = {0};
+        cpfsOrdenados.percorrerPrefixo(prefixo, valor -> {
+            total[0] += indicePorCpf.obter(IndiceCpfPrefixo.textoCpf(valor)).size();
+            return true;
+        });
+        return total[0];
+    }
+
+    @Override
+    public List<BilheteVendido> buscarPorPeca(String nomePeca) {
+        return resolver(indicePorPeca.obter(nomePeca));
+    }
+
+    @Override
+    public List<BilheteVendido> buscarPorTrechoPeca(String trecho) {
+        List<BilheteVendido> resultado = new ArrayList<>();
+        for (String nomePeca : nomesPeca.buscar(trecho)) {
+            resultado.addAll(buscarPorPeca(nomePeca));
+        }
+        return resultado;
+    }
+
+    @Override
+    public Set<String> nomesPecaContendo(String trecho) {
+        return nomesPeca.buscar(trecho);
+    }
+
+    @Override
+    public BitmapCompactado filtrarLinhas(Collection<String> nomesPeca, String turno, String nomeSessao,
+                                          Boolean reembolsado) {
+        return indicesBitmap.filtrar(nomesPeca, turno, nomeSessao, reembolsado);
+    }
+
+    @Override
+    public List<BilheteVendido> bilhetesDasLinhas(BitmapCompactado linhasFiltradas) {
+        String[] ids = idPorLinha;
+        List<BilheteVendido> resultado = new ArrayList<>(linhasFiltradas.cardinalidade());
+        linhasFiltradas.paraCada(linha -> {
+            String id = linha < ids.length ? ids[linha] : null;
+            BilheteVendido bilhete = id != null ? cachePrincipal.get(id) : null;
+            if (bilhete != null) {
+                resultado.add(bilhete);
+            }
+        });
+        return resultado;
+    }
+
+    @Override
+    public List<String> idsPorTrechoPeca(String trecho) {
+        List<String> ids = new ArrayList<>();
+        for (String nomePeca : nomesPeca.buscar(trecho)) {
+            ids.addAll(indicePorPeca.obter(nomePeca));
+        }
+        return ids;
+    }
+
+    private List<BilheteVendido> resolver(Set<String> ids) {
+        if (ids.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        return ids.stream()
+                  .map(cachePrincipal::get)
+                  .filter(Objects::nonNull)
+                  .collect(Collectors.toList());
+    }
+
+    @Override
+    public void paraCada(Consumer<BilheteVendido> acao) {
+        cachePrincipal.values().forEach(acao);
+    }
+
+    @Override
+    public List<Consumer<Consumer<BilheteVendido>>> segmentos(int quantidade) {
+        // O spliterator do ConcurrentHashMap divide a tabela por faixas de posições, sem copiar os valores
+        List<Spliterator<BilheteVendido>> partes = new ArrayList<>();
+        partes.add(cachePrincipal.values().spliterator());
+        boolean dividiu = true;
+        while (partes.size() < quantidade && dividiu) {
+            dividiu = false;
+            List<Spliterator<BilheteVendido>> proximas = new ArrayList<>(partes.size() * 2);
+            for (Spliterator<BilheteVendido> parte : partes) {
+                Spliterator<BilheteVendido> metade = proximas.size() < quantidade ? parte.trySplit() : null;
+                if (metade != null) {
+                    proximas.add(metade);
+                    dividiu = true;
+                }
+                proximas.add(parte);
+            }
+            partes = proximas;
+        }
+
+        List<Consumer<Consumer<BilheteVendido>>> segmentos = new ArrayList<>(partes.size());
+        for (Spliterator<BilheteVendido> parte : partes) {
+            segmentos.add(parte::forEachRemaining);
+        }
+        return segmentos;
+    }
+
+    @Override
+    public int tamanho() {
+        return cachePrincipal.size();
+    }
+
+    @Override
+    public int totalClientes() {
+        return indicePorCpf.tamanho();
+    }
+
+    @Override
+    public int totalPecas() {
+        return indicePorPeca.tamanho();
+    }
+
+    @Override
+    public int pesoEstimado(BilheteVendido bilhete) {
+        // Objeto, entradas nos mapas e índices, linha e bitmaps; textos de peça e sessão são compartilhados
+        return 480 + 2 * (tamanho(bilhete.getIdIngresso()) + tamanho(bilhete.getCpf())
+                          + tamanho(bilhete.getNumeroPoltronas()));
+    }
+
+    private static int tamanho(String texto) {
+        return texto == null ? 0 : texto.length();
+    }
+}
@@ -0,0 +1,450 @@
+package com.teatroabc.admin.infraestrutura.persistencia.cache;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Conjunto compactado de inteiros não negativos (linhas do armazenamento), no estilo Roaring:
+ * os valores são agrupados pelos 16 bits altos e cada grupo usa o contêiner mais econômico,
+ * um array ordenado de char enquanto tiver até 4096 valores ou um bitmap de 65536 bits acima disso.
+ * Interseção (e), diferença (eNao) e união (ou) operam contêiner a contêiner e devolvem um
+ * novo conjunto; a cardinalidade é mantida em cada contêiner e não exige percorrer os valores.
+ * Não é thread-safe.
+ */
+class BitmapCompactado {
+
+    private static final int LIMITE_ARRAY = 4096;
+    private static final int PALAVRAS_BITMAP = 1 << 10;
+
+    // 16 bits altos de cada grupo, em ordem crescente, e o contêiner correspondente
+    private char[] chaves;
+    private Conteiner[] conteineres;
+    private int tamanho;
+
+    BitmapCompactado() {
+        this(4);
+    }
+
+    private BitmapCompactado(int capacidade) {
+        this.chaves = new char[Math.max(1, capacidade)];
+        this.conteineres = new Conteiner[Math.max(1, capacidade)];
+        this.tamanho = 0;
+    }
+
+    void adicionar(int valor) {
+        char chave = (char) (valor >>> 16);
+        int posicao = buscarChave(chave);
+        if (posicao >= 0) {
+            conteineres[posicao] = conteineres[posicao].adicionar((char) valor);
+        } else {
+            inserir(-posicao - 1, chave, new ConteinerArray().adicionar((char) valor));
+        }
+    }
+
+    void remover(int valor) {
+        int posicao = buscarChave((char) (valor >>> 16));
+        if (posicao < 0) {
+            return;
+        }
+        Conteiner conteiner = conteineres[posicao].remover((char) valor);
+        if (conteiner.cardinalidade() == 0) {
+            System.arraycopy(chaves, posicao + 1, chaves, posicao, tamanho - posicao - 1);
+            System.arraycopy(conteineres, posicao + 1, conteineres, posicao, tamanho - posicao - 1);
+            conteineres[--tamanho] = null;
+        } else {
+            conteineres[posicao] = conteiner;
+        }
+    }
+
+    boolean contem(int valor) {
+        int posicao = buscarChave((char) (valor >>> 16));
+        return posicao >= 0 && conteineres[posicao].contem((char) valor);
+    }
+
+    int cardinalidade() {
+        int total = 0;
+        for (int i = 0; i < tamanho; i++) {
+            total += conteineres[i].cardinalidade();
+        }
+        return total;
+    }
+
+    boolean isVazio() {
+        return tamanho == 0;
+    }
+
+    /**
+     * Valores presentes neste e no outro conjunto.
+     */
+    BitmapCompactado e(BitmapCompactado outro) {
+        BitmapCompactado resultado = new BitmapCompactado(Math.min(tamanho, outro.tamanho));
+        int i = 0, j = 0;
+        while (i < tamanho && j < outro.tamanho) {
+            if (chaves[i] < outro.chaves[j]) {
+                i++;
+            } else if (chaves[i] > outro.chaves[j]) {
+                j++;
+            } else {
+                resultado.acrescentarSeNaoVazio(chaves[i], Conteiner.e(conteineres[i], outro.conteineres[j]));
+                i++;
+                j++;
+            }
+        }
+        return resultado;
+    }
+
+    /**
+     * Valores presentes neste conjunto e ausentes do outro.
+     */
+    BitmapCompactado eNao(BitmapCompactado outro) {
+        BitmapCompactado resultado = new BitmapCompactado(tamanho);
+        int j = 0;
+        for (int i = 0; i < tamanho; i++) {
+            while (j < outro.tamanho && outro.chaves[j] < chaves[i]) {
+                j++;
+            }
+            if (j < outro.tamanho && outro.chaves[j] == chaves[i]) {
+                resultado.acrescentarSeNaoVazio(chaves[i], Conteiner.eNao(conteineres[i], outro.conteineres[j]));
+            } else {
+                resultado.acrescentarSeNaoVazio(chaves[i], conteineres[i].copiar());
+            }
+        }
+        return resultado;
+    }
+
+    /**
+     * Valores presentes em qualquer um dos dois conjuntos.
+     */
+    BitmapCompactado ou(BitmapCompactado outro) {
+        BitmapCompactado resultado = new BitmapCompactado(tamanho + outro.tamanho);
+        int i = 0, j = 0;
+        while (i < tamanho || j < outro.tamanho) {
+            if (j >= outro.tamanho || (i < tamanho && chaves[i] < outro.chaves[j])) {
+                resultado.acrescentarSeNaoVazio(chaves[i], conteineres[i].copiar());
+                i++;
+            } else if (i >= tamanho || chaves[i] > outro.chaves[j]) {
+                resultado.acrescentarSeNaoVazio(outro.chaves[j], outro.conteineres[j].copiar());
+                j++;
+            } else {
+                resultado.acrescentarSeNaoVazio(chaves[i], Conteiner.ou(conteineres[i], outro.conteineres[j]));
+                i++;
+                j++;
+            }
+        }
+        return resultado;
+    }
+
+    BitmapCompactado copiar() {
+        BitmapCompactado copia = new BitmapCompactado(tamanho);
+        for (int i = 0; i < tamanho; i++) {
+            copia.acrescentarSeNaoVazio(chaves[i], conteineres[i].copiar());
+        }
+        return copia;
+    }
+
+    /**
+     * Percorre os valores em ordem crescente.
+     */
+    void paraCada(IntConsumer acao) {
+        for (int i = 0; i < tamanho; i++) {
+            conteineres[i].paraCada(chaves[i] << 16, acao);
+        }
+    }
+
+    private int buscarChave(char chave) {
+        return Arrays.binarySearch(chaves, 0, tamanho, chave);
+    }
+
+    private void inserir(int posicao, char chave, Conteiner conteiner) {
+        if (tamanho == chaves.length) {
+            chaves = Arrays.copyOf(chaves, tamanho * 2);
+            conteineres = Arrays.copyOf(conteineres, tamanho * 2);
+        }
+        System.arraycopy(chaves, posicao, chaves, posicao + 1, tamanho - posicao);
+        System.arraycopy(conteineres, posicao, conteineres, posicao + 1, tamanho - posicao);
+        chaves[posicao] = chave;
+        conteineres[posicao] = conteiner;
+        tamanho++;
+    }
+
+    /**
+     * Acrescenta no fim um contêiner cuja chave é maior que todas as atuais.
+     */
+    private void acrescentarSeNaoVazio(char chave, Conteiner conteiner) {
+        if (conteiner.cardinalidade() > 0) {
+            inserir(tamanho, chave, conteiner);
+        }
+    }
+
+    // Contêineres
+
+    private abstract static class Conteiner {
+
+        /** Adiciona o valor; pode devolver outro contêiner se a representação mudar. */
+        abstract Conteiner adicionar(char valor);
+
+        /** Remove o valor; pode devolver outro contêiner se a representação mudar. */
+        abstract Conteiner remover(char valor);
+
+        abstract boolean contem(char valor);
+
+        abstract int cardinalidade();
+
+        abstract void paraCada(int base, IntConsumer acao);
+
+        abstract Conteiner copiar();
+
+        static Conteiner e(Conteiner a, Conteiner b) {
+            if (a instanceof ConteinerArray) {
+                return ((ConteinerArray) a).filtrar(b, true);
+            }
+            if (b instanceof ConteinerArray) {
+                return ((ConteinerArray) b).filtrar(a, true);
+            }
+            long[] palavras = ((ConteinerBitmap) a).palavras.clone();
+            long[] outras = ((ConteinerBitmap) b).palavras;
+            for (int i = 0; i < PALAVRAS_BITMAP; i++) {
+                palavras[i] &= outras[i];
+            }
+            return new ConteinerBitmap(palavras).normalizar();
+        }
+
+        static Conteiner eNao(Conteiner a, Conteiner b) {
+            if (a instanceof ConteinerArray) {
+                return ((ConteinerArray) a).filtrar(b, false);
+            }
+            long[] palavras = ((ConteinerBitmap) a).palavras.clone();
+            if (b instanceof ConteinerArray) {
+                ConteinerArray array = (ConteinerArray) b;
+                for (int i = 0; i < array.cardinalidade; i++) {
+                    char valor = array.valores[i];
+                    palavras[valor >>> 6] &= ~(1L << valor);
+                }
+            } else {
+                long[] outras = ((ConteinerBitmap) b).palavras;
+                for (int i = 0; i < PALAVRAS_BITMAP; i++) {
+                    palavras[i] &= ~outras[i];
+                }
+            }
+            return new ConteinerBitmap(palavras).normalizar();
+        }
+
+        static Conteiner ou(Conteiner a, Conteiner b) {
+            if (a instanceof ConteinerArray && b instanceof ConteinerArray) {
+                return ((ConteinerArray) a).unir((ConteinerArray) b);
+            }
+            ConteinerBitmap base = (ConteinerBitmap) (a instanceof ConteinerBitmap ? a : b);
+            Conteiner outro = base == a ? b : a;
+            long[] palavras = base.palavras.clone();
+            if (outro instanceof ConteinerArray) {
+                ConteinerArray array = (ConteinerArray) outro;
+                for (int i = 0; i < array.cardinalidade; i++) {
+                    char valor = array.valores[i];
+                    palavras[valor >>> 6] |= 1L << valor;
+                }
+            } else {
+                long[] outras = ((ConteinerBitmap) outro).palavras;
+                for (int i = 0; i < PALAVRAS_BITMAP; i++) {
+                    palavras[i] |= outras[i];
+                }
+            }
+            return new ConteinerBitmap(palavras);
+        }
+    }
+
+    /**
+     * Até 4096 valores em um array ordenado de char (no máximo 8 KB).
+     */
+    private static final class ConteinerArray extends Conteiner {
+        private char[] valores;
+        private int cardinalidade;
+
+        ConteinerArray() {
+            this(new char[4], 0);
+        }
+
+        ConteinerArray(char[] valores, int cardinalidade) {
+            this.valores = valores;
+            this.cardinalidade = cardinalidade;
+        }
+
+        @Override
+        Conteiner adicionar(char valor) {
+            // Linhas costumam chegar em ordem crescente: o caso comum é acrescentar no fim
+            int posicao = cardinalidade > 0 && valores[cardinalidade - 1] < valor
+                    ? -cardinalidade - 1
+                    : Arrays.binarySearch(valores, 0, cardinalidade, valor);
+            if (posicao >= 0) {
+                return this;
+            }
+            if (cardinalidade == LIMITE_ARRAY) {
+                return paraBitmap().adicionar(valor);
+            }
+            posicao = -posicao - 1;
+            if (cardinalidade == valores.length) {
+                valores = Arrays.copyOf(valores, Math.min(LIMITE_ARRAY, cardinalidade * 2));
+            }
+            System.arraycopy(valores, posicao, valores, posicao + 1, cardinalidade - posicao);
+            valores[posicao] = valor;
+            cardinalidade++;
+            return this;
+        }
+
+        @Override
+        Conteiner remover(char valor) {
+            int posicao = Arrays.binarySearch(valores, 0, cardinalidade, valor);
+            if (posicao >= 0) {
+                System.arraycopy(valores, posicao + 1, valores, posicao, cardinalidade - posicao - 1);
+                cardinalidade--;
+            }
+            return this;
+        }
+
+        @Override
+        boolean contem(char valor) {
+            return Arrays.binarySearch(valores, 0, cardinalidade, valor) >= 0;
+        }
+
+        @Override
+        int cardinalidade() {
+            return cardinalidade;
+        }
+
+        @Override
+        void paraCada(int base, IntConsumer acao) {
+            for (int i = 0; i < cardinalidade; i++) {
+                acao.accept(base | valores[i]);
+            }
+        }
+
+        @Override
+        Conteiner copiar() {
+            return new ConteinerArray(Arrays.copyOf(valores, Math.max(1, cardinalidade)), cardinalidade);
+        }
+
+        /**
+         * Valores deste array que estão (manter = true) ou não estão (manter = false) no outro contêiner.
+         */
+        ConteinerArray filtrar(Conteiner outro, boolean manter) {
+            char[] resultado = new char[Math.max(1, cardinalidade)];
+            int quantidade = 0;
+            for (int i = 0; i < cardinalidade; i++) {
+                if (outro.contem(valores[i]) == manter) {
+                    resultado[quantidade++] = valores[i];
+                }
+            }
+            return new ConteinerArray(resultado, quantidade);
+        }
+
+        Conteiner unir(ConteinerArray outro) {
+            char[] resultado = new char[cardinalidade + outro.cardinalidade];
+            int i = 0, j = 0, k = 0;
+            while (i < cardinalidade && j < outro.cardinalidade) {
+                char a = valores[i];
+                char b = outro.valores[j];
+                if (a < b) {
+                    resultado[k++] = a;
+                    i++;
+                } else if (a > b) {
+                    resultado[k++] = b;
+                    j++;
+                } else {
+                    resultado[k++] = a;
+                    i++;
+                    j++;
+                }
+            }
+            while (i < cardinalidade) resultado[k++] = valores[i++];
+            while (j < outro.cardinalidade) resultado[k++] = outro.valores[j++];
+            ConteinerArray uniao = new ConteinerArray(resultado, k);
+            return k > LIMITE_ARRAY ? uniao.paraBitmap() : uniao;
+        }
+
+        private ConteinerBitmap paraBitmap() {
+            long[] palavras = new long[PALAVRAS_BITMAP];
+            for (int i = 0; i < cardinalidade; i++) {
+                char valor = valores[i];
+                palavras[valor >>> 6] |= 1L << valor;
+            }
+            return new ConteinerBitmap(palavras);
+        }
+    }
+
+    /**
+     * Mais de 4096 valores em um bitmap fixo de 65536 bits (8 KB).
+     */
+    private static final class ConteinerBitmap extends Conteiner {
+        private final long[] palavras;
+        private int cardinalidade;
+
+        ConteinerBitmap(long[] palavras) {
+            this.palavras = palavras;
+            int total = 0;
+            for (long palavra : palavras) {
+                total += Long.bitCount(palavra);
+            }
+            this.cardinalidade = total;
+        }
+
+        @Override
+        Conteiner adicionar(char valor) {
+            long antes = palavras[valor >>> 6];
+            long depois = antes | (1L << valor);
+            if (antes != depois) {
+                palavras[valor >>> 6] = depois;
+                cardinalidade++;
+            }
+            return this;
+        }
+
+        @Override
+        Conteiner remover(char valor) {
+            long antes = palavras[valor >>> 6];
+            long depois = antes & ~(1L << valor);
+            if (antes != depois) {
+                palavras[valor >>> 6] = depois;
+                cardinalidade--;
+            }
+            return normalizar();
+        }
+
+        @Override
+        boolean contem(char valor) {
+            return (palavras[valor >>> 6] & (1L << valor)) != 0;
+        }
+
+        @Override
+        int cardinalidade() {
+            return cardinalidade;
+        }
+
+        @Override
+        void paraCada(int base, IntConsumer acao) {
+            for (int i = 0; i < PALAVRAS_BITMAP; i++) {
+                long palavra = palavras[i];
+                while (palavra != 0) {
+                    acao.accept(base | (i << 6) | Long.numberOfTrailingZeros(palavra));
+                    palavra &= palavra - 1;
+                }
+            }
+        }
+
+        @Override
+        Conteiner copiar() {
+            return new ConteinerBitmap(palavras.clone());
+        }
+
+        /**
+         * Volta para array quando a quantidade de valores cai ao limite do array.
+         */
+        Conteiner normalizar() {
+            if (cardinalidade > LIMITE_ARRAY) {
+                return this;
+            }
+            char[] valores = new char[Math.max(1, cardinalidade)];
+            int[] quantidade = {0};
+            paraCada(0, valor -> valores[quantidade[0]++] = (char) valor);
+            return new ConteinerArray(valores, cardinalidade);
+        }
+    }
+}
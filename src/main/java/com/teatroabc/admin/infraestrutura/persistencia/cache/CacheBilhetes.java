@@ -3,29 +3,252 @@ package com.teatroabc.admin.infraestrutura.persistencia.cache;
 
 
 import com.teatroabc.admin.dominio.entidades.BilheteVendido;
+import com.teatroabc.admin.dominio.entidades.ConsultaBilhetes;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.stream.Collectors;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
 
 /**
  * Sistema de cache em memória para bilhetes vendidos.
- * Utiliza ConcurrentHashMap para garantir thread-safety.
+ * Utiliza estruturas concorrentes para garantir thread-safety.
  * Padrão Singleton para garantir instância única.
+ * Os dados ficam em uma geração (mapa principal + índices) publicada por uma referência volátil:
+ * recargas montam a nova geração à parte e a publicam de uma só vez.
+ * Cada geração mantém também seus agregados (totais, receita por peça/turno, ocupação),
+ * atualizados a cada escrita, de modo que as estatísticas não exigem varrer os bilhetes.
+ *
+ * Com um peso máximo definido (setPesoMaximo), a geração guarda só os bilhetes escolhidos pela
+ * PoliticaDespejo; os despejados continuam contados nos agregados (EstadosDespejados guarda o
+ * estado contado de cada um, cobrado do mesmo limite) e são buscados no banco pelo BilheteServico.
  */
 public class CacheBilhetes {
     private static volatile CacheBilhetes instancia;
-    private final Map<String, BilheteVendido> cachePrincipal;
-    private final Map<String, Set<String>> indicePorCpf;
-    private final Map<String, Set<String>> indicePorPeca;
-    private boolean sincronizado;
-    
+    private volatile Geracao atual;
+    private volatile ModoArmazenamento modoArmazenamento;
+    private volatile int limiarAgregacaoParalela;
+    // Limite de memória das próximas gerações (0 = sem limite) e início da temporada atual
+    private volatile long pesoMaximo;
+    private volatile LocalDate inicioTemporada;
+    private final LongAdder acertos = new LongAdder();
+    private final LongAdder falhas = new LongAdder();
+    private final LongAdder despejos = new LongAdder();
+
+    // Fração do peso máximo que os estados dos despejados podem ocupar antes de serem descartados
+    private static final double FRACAO_MAXIMA_ESTADOS_DESPEJADOS = 0.5;
+
+    /** Quantidade de bilhetes a partir da qual os agregados de uma carga são calculados em paralelo. */
+    public static final int LIMIAR_AGREGACAO_PARALELA_PADRAO = 200_000;
+
+    // Serializa escritas pontuais e a publicação de uma nova geração
+    private final Object lockEscrita;
+    // Serializa recargas completas concorrentes
+    private final Object lockCarga;
+    // Escritas feitas durante uma recarga, reaplicadas na nova geração antes da publicação
+    private List<Consumer<Geracao>> escritasDuranteCarga;
+
+    /**
+     * Estrutura usada para guardar os bilhetes de uma geração.
+     */
+    public enum ModoArmazenamento {
+        /** Mantém os próprios objetos BilheteVendido (padrão). */
+        OBJETOS,
+        /** Guarda os bilhetes em colunas primitivas codificadas por dicionário, com footprint bem menor. */
+        COLUNAR
+    }
+
+    /**
+     * Conjunto de dados do cache: bilhetes, índices secundários e agregados, sempre consistentes entre si.
+     */
+    private static final class Geracao {
+        // true quando a geração veio de uma carga completa da fonte de dados
+        final boolean completa;
+        final ArmazenamentoBilhetes armazenamento;
+        // Definido antes da publicação; em cargas completas, calculado depois da ingestão
+        AgregadosCache agregados;
+        // Limite de peso (todos null sem limite): política e bilhetes despejados, com o estado contado de cada um
+        final PoliticaDespejo politica;
+        final EstadosDespejados despejados;
+        private final LocalDateTime inicioTemporada;
+        private final Set<String> pecasTemporada;
+        private final LongAdder contadorDespejos;
+
+        Geracao(boolean completa, ModoArmazenamento modo) {
+            this(completa, modo, 0, 0, null, null);
+        }
+
+        Geracao(boolean completa, ModoArmazenamento modo, int capacidadeEsperada,
+                long pesoMaximo, LocalDate inicioTemporada, LongAdder contadorDespejos) {
+            this.completa = completa;
+            // Com limite, não adianta reservar espaço para todos os bilhetes da fonte
+            int capacidade = pesoMaximo > 0 ? 0 : capacidadeEsperada;
+            this.armazenamento = modo == ModoArmazenamento.COLUNAR
+                    ? new ArmazenamentoColunar(capacidade)
+                    : new ArmazenamentoObjetos(capacidade);
+            this.agregados = new AgregadosCache();
+            if (pesoMaximo > 0) {
+                int pesoMedio = modo == ModoArmazenamento.COLUNAR ? 160 : 540;
+                this.politica = new PoliticaDespejo(pesoMaximo, pesoMedio);
+                this.despejados = new EstadosDespejados();
+                this.inicioTemporada = inicioTemporada.atStartOfDay();
+                this.pecasTemporada = new HashSet<>();
+                this.contadorDespejos = contadorDespejos;
+            } else {
+                this.politica = null;
+                this.despejados = null;
+                this.inicioTemporada = null;
+                this.pecasTemporada = null;
+                this.contadorDespejos = null;
+            }
+        }
+
+        void adicionar(BilheteVendido bilhete) {
+            String idIngresso = bilhete.getIdIngresso();
+            BilheteVendido anterior = armazenamento.buscarPorId(idIngresso);
+            if (anterior == null && politica != null) {
+                // Um bilhete despejado que volta (ex.: lido do banco em uma falta) já está nos agregados,
+                // no estado em que foi contado
+                anterior = despejados.retirar(idIngresso);
+                if (anterior != null) {
+                    armazenamento.adicionar(bilhete);
+                    agregados.aplicar(anterior, bilhete);
+                    admitir(bilhete);
+                    return;
+                }
+            }
+            armazenamento.adicionar(bilhete);
+            agregados.aplicar(anterior, bilhete);
+            if (politica == null) {
+                return;
+            }
+            if (anterior != null) {
+                politica.registrarAcesso(idIngresso);
+                return;
+            }
+            admitir(bilhete);
+        }
+
+        /**
+         * Submete um bilhete recém-armazenado à política, despejando os que ela escolher.
+         */
+        private void admitir(BilheteVendido bilhete) {
+            String idIngresso = bilhete.getIdIngresso();
+            despejarTodos(politica.admitir(idIngresso, armazenamento.pesoEstimado(bilhete), daTemporada(bilhete)));
+        }
+
+        /**
+         * Despeja os bilhetes escolhidos pela política e os que deixarem de caber com os estados guardados.
+         */
+        private void despejarTodos(List<String> aDespejar) {
+            while (!aDespejar.isEmpty()) {
+                for (String despejado : aDespejar) {
+                    despejar(despejado);
+                }
+                // Os estados guardados pelos despejos ocupam o espaço de outros bilhetes presentes
+                aDespejar = cobrarEstadosDespejados();
+            }
+        }
+
+        /**
+         * Cobra do limite de peso a memória dos estados dos despejados. Se só eles passarem da
+         * fração máxima do limite, o limite é pequeno demais para manter os agregados exatos:
+         * os estados são descartados e as estatísticas passam a vir do banco (isAgregadosExatos).
+         * @return Bilhetes presentes que deixaram de caber
+         */
+        private List<String> cobrarEstadosDespejados() {
+            long pesoEstados = despejados.pesoEstimado();
+            if (!despejados.isDescartado()
+                    && pesoEstados > politica.getPesoMaximo() * FRACAO_MAXIMA_ESTADOS_DESPEJADOS) {
+                System.err.println("Configuração do cache: o estado de " + despejados.tamanho()
+                        + " bilhetes despejados passou de metade do peso máximo (" + politica.getPesoMaximo()
+                        + " bytes). Os agregados deixam de ser mantidos em memória e as estatísticas passam"
+                        + " a ser lidas do banco; aumente o peso máximo para mantê-las no cache.");
+                despejados.descartar();
+                pesoEstados = despejados.pesoEstimado();
+            }
+            return politica.definirPesoExterno(pesoEstados);
+        }
+
+        /**
+         * Um bilhete despejado continua despejado: só o estado contado nos agregados muda.
+         */
+        void atualizar(BilheteVendido bilhete) {
+            BilheteVendido anterior = armazenamento.buscarPorId(bilhete.getIdIngresso());
+            if (anterior != null) {
+                armazenamento.atualizar(bilhete);
+                agregados.aplicar(anterior, bilhete);
+                if (politica != null) {
+                    politica.registrarAcesso(bilhete.getIdIngresso());
+                }
+            } else if (politica != null) {
+                BilheteVendido contado = despejados.obter(bilhete.getIdIngresso());
+                if (contado != null) {
+                    despejados.guardar(bilhete);
+                    agregados.aplicar(contado, bilhete);
+                    // O novo estado pode pesar mais (ex.: preço com fração de centavo)
+                    despejarTodos(cobrarEstadosDespejados());
+                }
+            }
+        }
+
+        void remover(String idIngresso) {
+            BilheteVendido anterior = armazenamento.buscarPorId(idIngresso);
+            if (anterior != null) {
+                armazenamento.remover(idIngresso);
+                agregados.aplicar(anterior, null);
+                if (politica != null) {
+                    politica.remover(idIngresso);
+                }
+            } else if (politica != null) {
+                BilheteVendido contado = despejados.retirar(idIngresso);
+                if (contado != null) {
+                    agregados.aplicar(contado, null);
+                    despejarTodos(cobrarEstadosDespejados());
+                }
+            }
+        }
+
+        /**
+         * Retira o bilhete do armazenamento sem tocar nos agregados, que continuam a contá-lo
+         * pelo estado guardado em despejados.
+         */
+        private void despejar(String idIngresso) {
+            BilheteVendido bilhete = armazenamento.buscarPorId(idIngresso);
+            if (bilhete == null) {
+                return;
+            }
+            armazenamento.remover(idIngresso);
+            despejados.guardar(bilhete);
+            contadorDespejos.increment();
+        }
+
+        /**
+         * Bilhete comprado desde o início da temporada, ou de uma peça que já teve um bilhete assim.
+         * Sem data de compra, o bilhete é tratado como da temporada.
+         */
+        private boolean daTemporada(BilheteVendido bilhete) {
+            LocalDateTime compra = bilhete.getDataCompra();
+            if (compra == null || !compra.isBefore(inicioTemporada)) {
+                pecasTemporada.add(bilhete.getNomePeca());
+                return true;
+            }
+            return pecasTemporada.contains(bilhete.getNomePeca());
+        }
+    }
+
     private CacheBilhetes() {
-        this.cachePrincipal = new ConcurrentHashMap<>();
-        this.indicePorCpf = new ConcurrentHashMap<>();
-        this.indicePorPeca = new ConcurrentHashMap<>();
-        this.sincronizado = false;
+        this.modoArmazenamento = ModoArmazenamento.OBJETOS;
+        this.limiarAgregacaoParalela = LIMIAR_AGREGACAO_PARALELA_PADRAO;
+        this.atual = new Geracao(false, modoArmazenamento);
+        this.lockEscrita = new Object();
+        this.lockCarga = new Object();
+        this.escritasDuranteCarga = null;
     }
-    
+
     /**
      * Obtém a instância única do cache (Singleton thread-safe)
      */
@@ -39,162 +262,528 @@ public class CacheBilhetes {
         }
         return instancia;
     }
-    
+
     /**
      * Carrega todos os bilhetes para o cache e cria índices
      */
     public void carregarBilhetes(List<BilheteVendido> bilhetes) {
-        limparCache();
-        
-        for (BilheteVendido bilhete : bilhetes) {
-            adicionar(bilhete);
-        }
-        
-        this.sincronizado = true;
-        System.out.println("Cache carregado com " + bilhetes.size() + " bilhetes");
+        carregarBilhetes(consumidor -> bilhetes.forEach(consumidor));
     }
-    
+
     /**
-     * Adiciona um bilhete ao cache e atualiza índices
+     * Carrega o cache a partir de uma fonte em streaming, ingerindo um bilhete por vez
+     * sem materializar a lista completa.
+     * A nova geração é montada à parte; leitores continuam vendo a geração anterior, completa,
+     * até a troca atômica no final. Se a fonte falhar, a geração anterior é mantida.
+     * @param fonte Fonte que entrega cada bilhete ao consumidor recebido (ex.: repositorio::buscarTodos)
+     * @return Quantidade de bilhetes carregados
      */
-    public void adicionar(BilheteVendido bilhete) {
-        if (bilhete == null) return;
-        
-        cachePrincipal.put(bilhete.getIdIngresso(), bilhete);
-        
-        // Atualizar índice por CPF
-        indicePorCpf.computeIfAbsent(bilhete.getCpf(), k -> new HashSet<>())
-                    .add(bilhete.getIdIngresso());
-        
-        // Atualizar índice por peça
-        indicePorPeca.computeIfAbsent(bilhete.getNomePeca(), k -> new HashSet<>())
-                     .add(bilhete.getIdIngresso());
-    }
-    
+    public int carregarBilhetes(Consumer<Consumer<BilheteVendido>> fonte) {
+        return carregarBilhetes(fonte, 0);
+    }
+
     /**
-     * Remove um bilhete do cache e atualiza índices
+     * @param capacidadeEsperada Quantidade de bilhetes prevista, quando a fonte a conhece de antemão
      */
-    public void remover(String idIngresso) {
-        BilheteVendido bilhete = cachePrincipal.remove(idIngresso);
-        if (bilhete != null) {
-            // Remover dos índices
-            Set<String> idsPorCpf = indicePorCpf.get(bilhete.getCpf());
-            if (idsPorCpf != null) {
-                idsPorCpf.remove(idIngresso);
-                if (idsPorCpf.isEmpty()) {
-                    indicePorCpf.remove(bilhete.getCpf());
+    private int carregarBilhetes(Consumer<Consumer<BilheteVendido>> fonte, int capacidadeEsperada) {
+        synchronized (lockCarga) {
+            synchronized (lockEscrita) {
+                escritasDuranteCarga = new ArrayList<>();
+            }
+
+            Geracao nova = novaGeracao(true, capacidadeEsperada);
+            try {
+                fonte.accept(bilhete -> {
+                    if (bilhete == null) {
+                        return;
+                    }
+                    if (nova.politica == null) {
+                        nova.armazenamento.adicionar(bilhete);
+                    } else {
+                        // Com limite, os agregados são acumulados na ingestão: no final só restam os admitidos
+                        nova.adicionar(bilhete);
+                    }
+                });
+                if (nova.politica == null) {
+                    // Agregados calculados de uma vez sobre a geração completa, fora do caminho de leitura da fonte
+                    nova.agregados = AgregadosCache.calcular(nova.armazenamento, limiarAgregacaoParalela);
                 }
+            } catch (RuntimeException e) {
+                synchronized (lockEscrita) {
+                    escritasDuranteCarga = null;
+                }
+                throw e;
             }
-            
-            Set<String> idsPorPeca = indicePorPeca.get(bilhete.getNomePeca());
-            if (idsPorPeca != null) {
-                idsPorPeca.remove(idIngresso);
-                if (idsPorPeca.isEmpty()) {
-                    indicePorPeca.remove(bilhete.getNomePeca());
+
+            synchronized (lockEscrita) {
+                for (Consumer<Geracao> escrita : escritasDuranteCarga) {
+                    escrita.accept(nova);
                 }
+                escritasDuranteCarga = null;
+                this.atual = nova;
             }
+
+            int quantidade = nova.armazenamento.tamanho();
+            System.out.println("Cache carregado com " + quantidade + " bilhetes");
+            return quantidade;
         }
     }
-    
+
+    /**
+     * Grava os bilhetes da geração atual em um snapshot binário (ver SnapshotCache).
+     * @param arquivo Arquivo do snapshot; substituído atomicamente
+     * @param marca Instante até o qual o cache reflete o banco; alterações posteriores
+     *              são buscadas no banco depois de carregar o snapshot
+     * @throws IOException Se o arquivo não puder ser gravado; o snapshot anterior é mantido
+     * @throws IllegalStateException Se o cache tiver limite de peso (ver permiteSnapshot)
+     */
+    public void salvarSnapshot(Path arquivo, LocalDateTime marca) throws IOException {
+        Geracao geracao = atual;
+        if (geracao.politica != null) {
+            throw new IllegalStateException("Snapshot do cache não é suportado com limite de peso");
+        }
+        SnapshotCache.gravar(arquivo, marca, geracao.armazenamento);
+    }
+
+    /**
+     * Indica se o cache pode gravar snapshots. Com limite de peso não pode: o snapshot vira a
+     * geração inteira na próxima carga, e os bilhetes despejados ficariam fora dos agregados.
+     */
+    public boolean permiteSnapshot() {
+        return pesoMaximo == 0 && atual.politica == null;
+    }
+
+    /**
+     * Carrega o cache a partir de um snapshot gravado por salvarSnapshot, lido de um arquivo
+     * mapeado em memória. Como em carregarBilhetes, a geração anterior é mantida se a leitura falhar.
+     * @param arquivo Arquivo do snapshot
+     * @return Marca d'água do snapshot
+     * @throws IOException Se o arquivo não existir, for de outra versão ou estiver corrompido
+     */
+    public LocalDateTime carregarSnapshot(Path arquivo) throws IOException {
+        SnapshotCache.Leitura leitura = SnapshotCache.abrir(arquivo);
+        try {
+            carregarBilhetes(leitura::lerBilhetes, leitura.quantidade());
+        } catch (RuntimeException e) {
+            throw new IOException("Snapshot ilegível: " + arquivo, e);
+        }
+        return leitura.marca();
+    }
+
+    /**
+     * Aplica uma escrita na geração atual e, se houver recarga em andamento, agenda a mesma
+     * escrita para a geração que está sendo montada.
+     */
+    private void escrever(Consumer<Geracao> escrita) {
+        synchronized (lockEscrita) {
+            escrita.accept(atual);
+            if (escritasDuranteCarga != null) {
+                escritasDuranteCarga.add(escrita);
+            }
+        }
+    }
+
+    /**
+     * Adiciona um bilhete ao cache e atualiza índices e agregados.
+     * O bilhete passa a pertencer ao cache: alterações de estado devem ser feitas em uma
+     * nova instância e aplicadas com atualizar, nunca no objeto já armazenado.
+     */
+    public void adicionar(BilheteVendido bilhete) {
+        if (bilhete == null) return;
+
+        escrever(geracao -> geracao.adicionar(bilhete));
+    }
+
+    /**
+     * Remove um bilhete do cache e atualiza índices
+     */
+    public void remover(String idIngresso) {
+        if (idIngresso == null) return;
+
+        escrever(geracao -> geracao.remover(idIngresso));
+    }
+
     /**
      * Busca um bilhete por ID
      */
     public Optional<BilheteVendido> buscarPorId(String idIngresso) {
-        return Optional.ofNullable(cachePrincipal.get(idIngresso));
+        Geracao geracao = atual;
+        BilheteVendido bilhete = geracao.armazenamento.buscarPorId(idIngresso);
+        if (bilhete == null) {
+            falhas.increment();
+            return Optional.empty();
+        }
+        acertos.increment();
+        if (geracao.politica != null) {
+            geracao.politica.registrarAcesso(idIngresso);
+        }
+        return Optional.of(bilhete);
+    }
+
+    /**
+     * Verifica se o bilhete está no cache sem materializá-lo
+     */
+    public boolean contem(String idIngresso) {
+        return atual.armazenamento.contem(idIngresso);
     }
-    
+
     /**
      * Busca bilhetes por CPF usando índice
      */
     public List<BilheteVendido> buscarPorCpf(String cpf) {
-        Set<String> ids = indicePorCpf.get(cpf);
-        if (ids == null || ids.isEmpty()) {
-            return Collections.emptyList();
+        Geracao geracao = atual;
+        List<BilheteVendido> bilhetes = geracao.armazenamento.buscarPorCpf(cpf);
+        if (geracao.despejados != null && (geracao.despejados.isDescartado() || geracao.despejados.possuiCpf(cpf))) {
+            falhas.increment(); // Resultado parcial: o BilheteServico completa pelo banco
+        } else {
+            acertos.increment();
+        }
+        if (geracao.politica != null) {
+            for (BilheteVendido bilhete : bilhetes) {
+                geracao.politica.registrarAcesso(bilhete.getIdIngresso());
+            }
+        }
+        return bilhetes;
+    }
+
+    /**
+     * Indica se o bilhete foi despejado pelo limite de peso: existe, mas não está no cache.
+     */
+    public boolean isDespejado(String idIngresso) {
+        Geracao geracao = atual;
+        EstadosDespejados despejados = geracao.despejados;
+        if (despejados != null && despejados.isDescartado()) {
+            // Sem os estados, qualquer bilhete ausente pode ter sido despejado
+            return !geracao.armazenamento.contem(idIngresso);
         }
-        
-        return ids.stream()
-                  .map(cachePrincipal::get)
-                  .filter(Objects::nonNull)
-                  .collect(Collectors.toList());
+        return despejados != null && despejados.contem(idIngresso);
+    }
+
+    /**
+     * Indica se a geração atual tem bilhetes despejados pelo limite de peso: consultas por filtros,
+     * prefixo de CPF e listagens respondem só com os bilhetes presentes.
+     */
+    public boolean possuiDespejados() {
+        EstadosDespejados despejados = atual.despejados;
+        return despejados != null && (despejados.isDescartado() || despejados.tamanho() > 0);
+    }
+
+    /**
+     * Indica se os agregados da geração atual (resumo, vendas por mês e por período, ocupação)
+     * contam exatamente todos os bilhetes. Deixa de ser verdade quando o limite de peso é pequeno
+     * demais até para os estados dos despejados, que então são descartados (ver setPesoMaximo).
+     */
+    public boolean isAgregadosExatos() {
+        EstadosDespejados despejados = atual.despejados;
+        return despejados == null || !despejados.isDescartado();
     }
-    
+
+    /**
+     * Indica se algum bilhete do CPF foi despejado pelo limite de peso, isto é, se buscarPorCpf
+     * devolve só parte dos bilhetes do cliente.
+     * @param cpf CPF normalizado (somente dígitos)
+     */
+    public boolean possuiDespejadosDoCpf(String cpf) {
+        EstadosDespejados despejados = atual.despejados;
+        return despejados != null && (despejados.isDescartado() || despejados.possuiCpf(cpf));
+    }
+
+    /**
+     * Uma página dos bilhetes cujo CPF começa pelo prefixo (ex.: "123.45"), em ordem de CPF.
+     * O prefixo é localizado por busca binária no índice ordenado de CPFs; separadores são
+     * ignorados sem criar uma String normalizada.
+     * @param inicio Quantidade de bilhetes a pular
+     * @param limite Tamanho máximo da página
+     */
+    public List<BilheteVendido> buscarPorPrefixoCpf(CharSequence prefixo, int inicio, int limite) {
+        return atual.armazenamento.buscarPorPrefixoCpf(prefixo, inicio, limite);
+    }
+
+    /**
+     * Quantidade de bilhetes cujo CPF começa pelo prefixo
+     */
+    public int contarPorPrefixoCpf(CharSequence prefixo) {
+        return atual.armazenamento.contarPorPrefixoCpf(prefixo);
+    }
+
     /**
      * Busca bilhetes por peça usando índice
      */
     public List<BilheteVendido> buscarPorPeca(String nomePeca) {
-        Set<String> ids = indicePorPeca.get(nomePeca);
-        if (ids == null || ids.isEmpty()) {
-            return Collections.emptyList();
-        }
-        
-        return ids.stream()
-                  .map(cachePrincipal::get)
-                  .filter(Objects::nonNull)
-                  .collect(Collectors.toList());
+        return atual.armazenamento.buscarPorPeca(nomePeca);
+    }
+
+    /**
+     * Busca bilhetes cuja peça contém o trecho, sem diferenciar maiúsculas, minúsculas e acentos.
+     * Usa o índice de trigramas dos nomes de peça e depois o índice por peça, sem varrer os bilhetes.
+     */
+    public List<BilheteVendido> buscarPorTrechoPeca(String trecho) {
+        return atual.armazenamento.buscarPorTrechoPeca(trecho);
     }
-    
+
+    /**
+     * IDs dos bilhetes cuja peça contém o trecho, sem materializar os bilhetes
+     */
+    public List<String> buscarIdsPorTrechoPeca(String trecho) {
+        return atual.armazenamento.idsPorTrechoPeca(trecho);
+    }
+
     /**
      * Retorna todos os bilhetes do cache
      */
     public List<BilheteVendido> buscarTodos() {
-        return new ArrayList<>(cachePrincipal.values());
+        ArmazenamentoBilhetes armazenamento = atual.armazenamento;
+        List<BilheteVendido> todos = new ArrayList<>(armazenamento.tamanho());
+        armazenamento.paraCada(todos::add);
+        return todos;
+    }
+
+    /**
+     * Percorre todos os bilhetes da geração atual sem copiá-los para uma lista
+     */
+    public void percorrer(Consumer<BilheteVendido> acao) {
+        atual.armazenamento.paraCada(acao);
     }
-    
+
     /**
-     * Retorna bilhetes filtrados por status de reembolso
+     * Retorna bilhetes filtrados por status de reembolso, pelo índice bitmap de reembolsados
      */
     public List<BilheteVendido> buscarPorStatusReembolso(boolean reembolsado) {
-        return cachePrincipal.values().stream()
-                .filter(b -> b.isReembolsado() == reembolsado)
-                .collect(Collectors.toList());
+        return filtrar(null, null, null, reembolsado);
     }
-    
+
+    /**
+     * Bilhetes que atendem a todos os critérios informados; critérios nulos não filtram.
+     * O filtro é resolvido por interseção e diferença dos índices bitmap de peça, turno, sessão
+     * e reembolso (ex.: peça X, turno NOITE, não reembolsados), e só as linhas resultantes
+     * são materializadas.
+     */
+    public List<BilheteVendido> filtrar(String nomePeca, String turno, String nomeSessao, Boolean reembolsado) {
+        ArmazenamentoBilhetes armazenamento;
+        BitmapCompactado linhas;
+        synchronized (lockEscrita) {
+            armazenamento = atual.armazenamento;
+            linhas = armazenamento.filtrarLinhas(pecas(nomePeca), turno, nomeSessao, reembolsado);
+        }
+        return armazenamento.bilhetesDasLinhas(linhas);
+    }
+
+    /**
+     * Quantidade de bilhetes que atendem aos critérios de filtrar, pela cardinalidade do
+     * bitmap resultante, sem materializar bilhetes.
+     */
+    public int contar(String nomePeca, String turno, String nomeSessao, Boolean reembolsado) {
+        synchronized (lockEscrita) {
+            return atual.armazenamento.filtrarLinhas(pecas(nomePeca), turno, nomeSessao, reembolsado).cardinalidade();
+        }
+    }
+
     /**
-     * Atualiza um bilhete no cache
+     * Executa uma consulta composta (critérios, ordenação e paginação) sobre a geração atual.
+     * O planejador parte do índice mais seletivo (ID, CPF, prefixo de CPF ou bitmaps) e
+     * confere os demais critérios só nos candidatos.
+     */
+    public List<BilheteVendido> consultar(ConsultaBilhetes consulta) {
+        return new PlanejadorConsultas(atual.armazenamento, lockEscrita).executar(consulta);
+    }
+
+    /**
+     * Quantidade de bilhetes que atendem à consulta, ignorando a paginação.
+     */
+    public int contar(ConsultaBilhetes consulta) {
+        return new PlanejadorConsultas(atual.armazenamento, lockEscrita).contar(consulta);
+    }
+
+    private static Collection<String> pecas(String nomePeca) {
+        return nomePeca == null ? null : Collections.singletonList(nomePeca);
+    }
+
+    /**
+     * Atualiza um bilhete no cache (ex.: reembolso), ajustando os agregados pela diferença
+     * entre o estado armazenado e o novo. Deve receber uma instância nova, não a armazenada.
      */
     public void atualizar(BilheteVendido bilhete) {
-        if (bilhete != null && cachePrincipal.containsKey(bilhete.getIdIngresso())) {
-            cachePrincipal.put(bilhete.getIdIngresso(), bilhete);
+        if (bilhete == null) return;
+
+        escrever(geracao -> geracao.atualizar(bilhete));
+    }
+
+    /**
+     * Atualiza vários bilhetes em uma única escrita (ex.: reembolso em lote): índices e
+     * agregados mudam de uma vez, e nenhuma leitura sob o lock vê o lote aplicado pela metade.
+     * Como em atualizar, deve receber instâncias novas, não as armazenadas.
+     */
+    public void atualizarTodos(Collection<BilheteVendido> bilhetes) {
+        if (bilhetes == null || bilhetes.isEmpty()) return;
+
+        List<BilheteVendido> lote = new ArrayList<>(bilhetes);
+        escrever(geracao -> {
+            for (BilheteVendido bilhete : lote) {
+                geracao.atualizar(bilhete);
+            }
+        });
+    }
+
+    /**
+     * Agregados da geração publicada, sem varrer os bilhetes.
+     * O resumo é montado uma vez por alteração e reaproveitado pelas leituras seguintes.
+     * @return Resumo imutável e consistente com a geração atual
+     */
+    public ResumoCache obterResumo() {
+        return resumoDe(atual);
+    }
+
+    /**
+     * Receita (bilhetes não reembolsados) de cada mês do ano, pela data de compra,
+     * lida dos baldes mensais mantidos pelos agregados.
+     * @return Mapa de mês (1 a 12) para receita
+     */
+    public Map<Integer, BigDecimal> obterVendasPorMes(int ano) {
+        synchronized (lockEscrita) {
+            return atual.agregados.vendasPorMes(ano);
         }
     }
-    
+
+    /**
+     * Receita (bilhetes não reembolsados) das compras feitas entre as datas, inclusive.
+     * O intervalo é decomposto em anos e meses inteiros e nos dias avulsos das pontas.
+     */
+    public BigDecimal obterVendasEntre(LocalDate inicio, LocalDate fim) {
+        if (inicio == null || fim == null) {
+            throw new IllegalArgumentException("Datas do período não podem ser nulas");
+        }
+        synchronized (lockEscrita) {
+            return atual.agregados.vendasEntre(inicio, fim);
+        }
+    }
+
+    private ResumoCache resumoDe(Geracao geracao) {
+        AgregadosCache agregados = geracao.agregados;
+        ResumoCache resumo = agregados.resumoAtual();
+        if (resumo != null) {
+            return resumo;
+        }
+        synchronized (lockEscrita) {
+            return agregados.montarResumo();
+        }
+    }
+
     /**
      * Estatísticas rápidas do cache
      */
     public Map<String, Object> obterEstatisticas() {
+        Geracao geracao = atual;
+        ArmazenamentoBilhetes armazenamento = geracao.armazenamento;
+        ResumoCache resumo = resumoDe(geracao);
+
         Map<String, Object> stats = new HashMap<>();
-        stats.put("totalBilhetes", cachePrincipal.size());
-        stats.put("totalClientes", indicePorCpf.size());
-        stats.put("totalPecas", indicePorPeca.size());
-        stats.put("bilhetesReembolsados", 
-                 cachePrincipal.values().stream()
-                               .filter(BilheteVendido::isReembolsado)
-                               .count());
+        stats.put("totalBilhetes", armazenamento.tamanho());
+        stats.put("totalClientes", armazenamento.totalClientes());
+        stats.put("totalPecas", armazenamento.totalPecas());
+        stats.put("bilhetesReembolsados", (long) resumo.getQuantidadeReembolsados());
+        stats.put("modoArmazenamento", modoArmazenamento.name());
+        stats.put("acertos", acertos.sum());
+        stats.put("falhas", falhas.sum());
+        stats.put("despejos", despejos.sum());
+        if (geracao.politica != null) {
+            stats.put("pesoAtual", geracao.politica.getPesoAtual());
+            stats.put("pesoMaximo", geracao.politica.getPesoMaximo());
+            stats.put("bilhetesDespejados", geracao.despejados.tamanho());
+            stats.put("pesoEstadosDespejados", geracao.despejados.pesoEstimado());
+            stats.put("agregadosExatos", !geracao.despejados.isDescartado());
+        }
         return stats;
     }
-    
+
     /**
      * Limpa todo o cache
      */
     public void limparCache() {
-        cachePrincipal.clear();
-        indicePorCpf.clear();
-        indicePorPeca.clear();
-        this.sincronizado = false;
+        synchronized (lockEscrita) {
+            this.atual = novaGeracao(false, 0);
+        }
     }
-    
-    public boolean isSincronizado() {
-        return sincronizado;
+
+    private Geracao novaGeracao(boolean completa, int capacidadeEsperada) {
+        LocalDate temporada = inicioTemporada != null ? inicioTemporada : LocalDate.now().minusYears(1);
+        return new Geracao(completa, modoArmazenamento, capacidadeEsperada, pesoMaximo, temporada, despejos);
     }
-    
-    public void setSincronizado(boolean sincronizado) {
-        this.sincronizado = sincronizado;
+
+    /**
+     * Define a estrutura de armazenamento. Vale a partir da próxima carga completa;
+     * a geração publicada continua com a estrutura em que foi montada.
+     */
+    public void setModoArmazenamento(ModoArmazenamento modo) {
+        if (modo == null) {
+            throw new IllegalArgumentException("Modo de armazenamento não pode ser nulo");
+        }
+        this.modoArmazenamento = modo;
+    }
+
+    public ModoArmazenamento getModoArmazenamento() {
+        return modoArmazenamento;
+    }
+
+    /**
+     * Limita a memória dos bilhetes em cache (dados e índices, estimados por ArmazenamentoBilhetes),
+     * para terminais que ficam abertos por temporadas inteiras. Vale a partir da próxima carga completa.
+     * Acima do limite, bilhetes pouco acessados e de peças fora da temporada são despejados: buscas por
+     * ID e CPF os trazem de volta do banco, os agregados continuam contando todos os bilhetes e
+     * consultas por filtros e listagens cobrem só os bilhetes presentes (o BilheteServico leva ao
+     * banco as consultas por filtros enquanto possuiDespejados for true). Snapshots não são gravados.
+     * Cada despejado guarda o estado contado nos agregados (EstadosDespejados, bem menor que o bilhete),
+     * de modo que alterações e readmissões, inclusive as trazidas pela sincronização incremental,
+     * corrigem os agregados; exclusões feitas por outros terminais chegam na próxima carga completa.
+     * Esses estados ocupam parte do limite: se passarem de metade dele, são descartados (com um aviso
+     * em System.err) e isAgregadosExatos passa a false, para que as estatísticas venham do banco.
+     * @param pesoMaximo Peso máximo em bytes (0 = sem limite)
+     */
+    public void setPesoMaximo(long pesoMaximo) {
+        if (pesoMaximo < 0) {
+            throw new IllegalArgumentException("Peso máximo não pode ser negativo");
+        }
+        this.pesoMaximo = pesoMaximo;
+    }
+
+    public long getPesoMaximo() {
+        return pesoMaximo;
+    }
+
+    /**
+     * Define o início da temporada atual: peças com bilhetes comprados a partir dessa data são
+     * favorecidas pelo limite de peso. Sem definição, vale o último ano. Vale a partir da próxima carga completa.
+     */
+    public void setInicioTemporada(LocalDate inicioTemporada) {
+        this.inicioTemporada = inicioTemporada;
+    }
+
+    /**
+     * Define a partir de quantos bilhetes os agregados de uma carga completa são calculados
+     * em paralelo (ForkJoinPool comum). O resultado é o mesmo do cálculo sequencial.
+     */
+    public void setLimiarAgregacaoParalela(int limiar) {
+        if (limiar < 0) {
+            throw new IllegalArgumentException("Limiar de agregação paralela não pode ser negativo");
+        }
+        this.limiarAgregacaoParalela = limiar;
     }
-    
+
+    public int getLimiarAgregacaoParalela() {
+        return limiarAgregacaoParalela;
+    }
+
+    /**
+     * Indica se a geração publicada veio de uma carga completa.
+     * Permanece true durante uma recarga, pois a geração anterior continua válida.
+     */
+    public boolean isCarregado() {
+        return atual.completa;
+    }
+
     /**
      * Tamanho do cache
      */
     public int tamanho() {
-        return cachePrincipal.size();
+        return atual.armazenamento.tamanho();
     }
-}
\ No newline at end of file
+}
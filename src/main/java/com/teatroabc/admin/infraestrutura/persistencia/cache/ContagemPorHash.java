@@ -0,0 +1,150 @@
+package com.teatroabc.admin.infraestrutura.persistencia.cache;
+
+/**
+ * Contagem de textos (IDs, CPFs) identificados por um hash de 64 bits, em uma tabela de
+ * endereçamento aberto de longs e ints: cerca de 12 bytes por chave distinta, contra mais
+ * de 80 de um conjunto de Strings. A chance de dois textos distintos colidirem é desprezível
+ * para os volumes do cache (da ordem de n² / 2⁶⁵). Um texto null nunca é contado.
+ * Métodos sincronizados: escritas vêm sob o lock do CacheBilhetes, leituras de qualquer thread.
+ */
+class ContagemPorHash {
+
+    private static final int CAPACIDADE_INICIAL = 64;
+    // Chave reservada para posição vazia; um hash igual a ela é trocado por outro valor fixo
+    private static final long VAZIA = 0L;
+
+    private long[] chaves = new long[CAPACIDADE_INICIAL];
+    private int[] contagens = new int[CAPACIDADE_INICIAL];
+    private int tamanho = 0;
+
+    synchronized void incrementar(String texto) {
+        if (texto != null) {
+            incrementar(hash(texto));
+        }
+    }
+
+    /**
+     * Incrementa pela chave já calculada com {@link #hash(String)}.
+     */
+    synchronized void incrementar(long chave) {
+        int posicao = localizar(chave);
+        if (chaves[posicao] == chave) {
+            contagens[posicao]++;
+            return;
+        }
+        chaves[posicao] = chave;
+        contagens[posicao] = 1;
+        if (++tamanho * 3 > chaves.length * 2) {
+            redimensionar(chaves.length * 2);
+        }
+    }
+
+    /**
+     * Decrementa a contagem, removendo a chave quando chegar a zero.
+     * @return false se o texto não estava contado
+     */
+    synchronized boolean decrementar(String texto) {
+        return texto != null && decrementar(hash(texto));
+    }
+
+    /**
+     * Decrementa pela chave já calculada com {@link #hash(String)}.
+     */
+    synchronized boolean decrementar(long chave) {
+        int posicao = localizar(chave);
+        if (chaves[posicao] != chave) {
+            return false;
+        }
+        if (--contagens[posicao] == 0) {
+            removerPosicao(posicao);
+        }
+        return true;
+    }
+
+    synchronized boolean contem(String texto) {
+        if (texto == null) {
+            return false;
+        }
+        long chave = hash(texto);
+        return chaves[localizar(chave)] == chave;
+    }
+
+    /**
+     * Memória ocupada pela tabela, em bytes estimados (chave e contagem de cada posição).
+     */
+    synchronized long pesoEstimado() {
+        return chaves.length * 12L;
+    }
+
+    /**
+     * Quantidade de chaves distintas.
+     */
+    synchronized int tamanho() {
+        return tamanho;
+    }
+
+    /**
+     * Posição da chave ou, se ausente, da posição vazia onde ela entraria (sondagem linear).
+     */
+    private int localizar(long chave) {
+        int mascara = chaves.length - 1;
+        int posicao = (int) (chave ^ (chave >>> 32)) & mascara;
+        while (chaves[posicao] != VAZIA && chaves[posicao] != chave) {
+            posicao = (posicao + 1) & mascara;
+        }
+        return posicao;
+    }
+
+    /**
+     * Remove sem lápide: as chaves seguintes do mesmo agrupamento voltam para posições que
+     * continuem alcançáveis a partir da posição ideal de cada uma.
+     */
+    private void removerPosicao(int posicao) {
+        int mascara = chaves.length - 1;
+        int vaga = posicao;
+        int atual = (posicao + 1) & mascara;
+        while (chaves[atual] != VAZIA) {
+            int ideal = (int) (chaves[atual] ^ (chaves[atual] >>> 32)) & mascara;
+            // A chave pode ir para a vaga se a vaga estiver entre sua posição ideal e a atual
+            if (((atual - ideal) & mascara) >= ((atual - vaga) & mascara)) {
+                chaves[vaga] = chaves[atual];
+                contagens[vaga] = contagens[atual];
+                vaga = atual;
+            }
+            atual = (atual + 1) & mascara;
+        }
+        chaves[vaga] = VAZIA;
+        contagens[vaga] = 0;
+        tamanho--;
+    }
+
+    private void redimensionar(int capacidade) {
+        long[] chavesAntigas = chaves;
+        int[] contagensAntigas = contagens;
+        chaves = new long[capacidade];
+        contagens = new int[capacidade];
+        for (int i = 0; i < chavesAntigas.length; i++) {
+            if (chavesAntigas[i] != VAZIA) {
+                int posicao = localizar(chavesAntigas[i]);
+                chaves[posicao] = chavesAntigas[i];
+                contagens[posicao] = contagensAntigas[i];
+            }
+        }
+    }
+
+    /**
+     * Hash de 64 bits do texto (multiplicativo, com a finalização do MurmurHash3).
+     */
+    static long hash(String texto) {
+        long h = 0x9E3779B97F4A7C15L ^ texto.length();
+        for (int i = 0; i < texto.length(); i++) {
+            h = (h ^ texto.charAt(i)) * 0x100000001B3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+        return h == VAZIA ? 1L : h;
+    }
+}
@@ -0,0 +1,70 @@
+package com.teatroabc.admin.infraestrutura.persistencia.cache;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Dicionário de codificação String <-> int usado pelo armazenamento colunar.
+ * Valores repetidos (peças, turnos, sessões) são guardados uma única vez.
+ * Códigos só são acrescentados, nunca reaproveitados; o código -1 representa null.
+ */
+class Dicionario {
+
+    static final int NULO = -1;
+
+    private final Map<String, Integer> codigos = new ConcurrentHashMap<>();
+    private volatile String[] valores = new String[16];
+    private volatile int tamanho = 0;
+
+    /**
+     * Retorna o código do valor, registrando-o se ainda não existir.
+     */
+    synchronized int codificar(String valor) {
+        if (valor == null) {
+            return NULO;
+        }
+        Integer existente = codigos.get(valor);
+        if (existente != null) {
+            return existente;
+        }
+
+        int codigo = tamanho;
+        String[] atuais = valores;
+        if (codigo == atuais.length) {
+            atuais = Arrays.copyOf(atuais, atuais.length * 2);
+        }
+        atuais[codigo] = valor;
+        valores = atuais;
+        tamanho = codigo + 1;
+        codigos.put(valor, codigo);
+        return codigo;
+    }
+
+    /**
+     * Código já registrado para o valor, sem registrar novos valores.
+     * @return Código ou NULO se o valor não existir no dicionário
+     */
+    int codigoDe(String valor) {
+        if (valor == null) {
+            return NULO;
+        }
+        Integer codigo = codigos.get(valor);
+        return codigo != null ? codigo : NULO;
+    }
+
+    String decodificar(int codigo) {
+        if (codigo == NULO) {
+            return null;
+        }
+        int limite = tamanho;
+        if (codigo < 0 || codigo >= limite) {
+            throw new IllegalArgumentException("Código fora do dicionário: " + codigo);
+        }
+        return valores[codigo];
+    }
+
+    int tamanho() {
+        return tamanho;
+    }
+}
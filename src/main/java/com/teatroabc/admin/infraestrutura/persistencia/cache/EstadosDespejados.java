@@ -0,0 +1,266 @@
+package com.teatroabc.admin.infraestrutura.persistencia.cache;
+
+import com.teatroabc.admin.dominio.entidades.BilheteVendido;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Bilhetes despejados pelo limite de peso, cada um com o estado que continua contado nos
+ * agregados: preço, reembolso, peça, turno, sessão, capacidade e dia da compra. Com ele,
+ * readmissões, atualizações e remoções de um despejado retiram dos agregados exatamente o
+ * que foi somado.
+ * Os campos ficam em colunas primitivas de uma tabela de endereçamento aberto, pelo hash de
+ * 64 bits do ID (como em ContagemPorHash), com textos codificados por dicionário: cerca de
+ * 70 bytes por bilhete, contra mais de 500 de um BilheteVendido. ID, CPF e poltrona não são
+ * guardados; os CPFs são apenas contados, para saber quais buscas por CPF estão incompletas.
+ * A memória da tabela (pesoEstimado) é cobrada do mesmo limite de peso dos bilhetes presentes.
+ * Se ela ainda assim crescer demais, o CacheBilhetes a descarta (descartar): os estados são
+ * esquecidos, novos despejos deixam de ser guardados e os agregados deixam de ser exatos.
+ * Métodos sincronizados: escritas vêm sob o lock do CacheBilhetes, leituras de qualquer thread.
+ */
+class EstadosDespejados {
+
+    private static final int CAPACIDADE_INICIAL = 64;
+    private static final long VAZIA = 0L;
+    private static final int SEM_DATA = Integer.MIN_VALUE;
+    // O CPF não entra nos agregados; o BilheteVendido montado só precisa de um valor válido
+    private static final String CPF_NAO_GUARDADO = "0";
+    // Bytes de cada posição da tabela: chave, chave do CPF, centavos, cinco códigos e o reembolso
+    private static final int BYTES_POR_POSICAO = 8 + 8 + 8 + 5 * 4 + 1;
+    // Entrada do mapa de preços exatos: nó do mapa, chave Long e BigDecimal
+    private static final int BYTES_POR_PRECO_EXATO = 100;
+
+    private final Dicionario textos = new Dicionario();
+    private volatile ContagemPorHash cpfs = new ContagemPorHash();
+    // Preços com frações de centavo ou fora do long, pela chave do ID
+    private final Map<Long, BigDecimal> precosExatos = new HashMap<>();
+    private volatile boolean descartado = false;
+
+    private long[] chaves = new long[CAPACIDADE_INICIAL];
+    private long[] chavesCpf = new long[CAPACIDADE_INICIAL];
+    private long[] centavos = new long[CAPACIDADE_INICIAL];
+    private int[] pecas = new int[CAPACIDADE_INICIAL];
+    private int[] turnos = new int[CAPACIDADE_INICIAL];
+    private int[] sessoes = new int[CAPACIDADE_INICIAL];
+    private int[] capacidades = new int[CAPACIDADE_INICIAL];
+    private int[] diasCompra = new int[CAPACIDADE_INICIAL];
+    private boolean[] reembolsados = new boolean[CAPACIDADE_INICIAL];
+    private int tamanho = 0;
+
+    /**
+     * Guarda (ou substitui) o estado contado do bilhete.
+     */
+    synchronized void guardar(BilheteVendido bilhete) {
+        if (descartado) {
+            return;
+        }
+        long chave = ContagemPorHash.hash(bilhete.getIdIngresso());
+        int posicao = localizar(chave);
+        if (chaves[posicao] == chave) {
+            cpfs.decrementar(chavesCpf[posicao]);
+        } else {
+            chaves[posicao] = chave;
+            tamanho++;
+        }
+        long chaveCpf = ContagemPorHash.hash(bilhete.getCpf());
+        cpfs.incrementar(chaveCpf);
+        chavesCpf[posicao] = chaveCpf;
+
+        long emCentavos = SomaCentavos.paraCentavos(bilhete.getPreco());
+        centavos[posicao] = emCentavos;
+        if (emCentavos == Long.MIN_VALUE) {
+            precosExatos.put(chave, bilhete.getPreco());
+        } else {
+            precosExatos.remove(chave);
+        }
+        pecas[posicao] = textos.codificar(bilhete.getNomePeca());
+        turnos[posicao] = textos.codificar(bilhete.getTurno());
+        sessoes[posicao] = textos.codificar(bilhete.getNomeSessao());
+        capacidades[posicao] = bilhete.getCapacidade();
+        diasCompra[posicao] = bilhete.getDataCompra() != null
+                ? (int) bilhete.getDataCompra().toLocalDate().toEpochDay() : SEM_DATA;
+        reembolsados[posicao] = bilhete.isReembolsado();
+
+        if (tamanho * 3 > chaves.length * 2) {
+            redimensionar(chaves.length * 2);
+        }
+    }
+
+    /**
+     * Estado contado do bilhete despejado, ou null se ele não foi despejado.
+     * Só os campos que entram nos agregados são fiéis ao original.
+     */
+    synchronized BilheteVendido obter(String idIngresso) {
+        long chave = ContagemPorHash.hash(idIngresso);
+        int posicao = localizar(chave);
+        return chaves[posicao] == chave ? montar(idIngresso, posicao) : null;
+    }
+
+    /**
+     * Retira o bilhete dos despejados (readmissão ou remoção).
+     * @return Estado que estava contado, ou null se ele não foi despejado
+     */
+    synchronized BilheteVendido retirar(String idIngresso) {
+        long chave = ContagemPorHash.hash(idIngresso);
+        int posicao = localizar(chave);
+        if (chaves[posicao] != chave) {
+            return null;
+        }
+        BilheteVendido contado = montar(idIngresso, posicao);
+        cpfs.decrementar(chavesCpf[posicao]);
+        precosExatos.remove(chave);
+        removerPosicao(posicao);
+        return contado;
+    }
+
+    synchronized boolean contem(String idIngresso) {
+        if (idIngresso == null) {
+            return false;
+        }
+        long chave = ContagemPorHash.hash(idIngresso);
+        return chaves[localizar(chave)] == chave;
+    }
+
+    /**
+     * Indica se algum bilhete despejado é do CPF.
+     */
+    boolean possuiCpf(String cpf) {
+        return cpfs.contem(cpf);
+    }
+
+    synchronized int tamanho() {
+        return tamanho;
+    }
+
+    /**
+     * Memória da tabela, em bytes estimados, para ser cobrada do limite de peso.
+     */
+    synchronized long pesoEstimado() {
+        return (long) chaves.length * BYTES_POR_POSICAO + cpfs.pesoEstimado()
+                + (long) precosExatos.size() * BYTES_POR_PRECO_EXATO;
+    }
+
+    /**
+     * Esquece todos os estados, liberando a tabela, e ignora os despejos seguintes.
+     */
+    synchronized void descartar() {
+        descartado = true;
+        cpfs = new ContagemPorHash();
+        precosExatos.clear();
+        chaves = new long[CAPACIDADE_INICIAL];
+        chavesCpf = new long[CAPACIDADE_INICIAL];
+        centavos = new long[CAPACIDADE_INICIAL];
+        pecas = new int[CAPACIDADE_INICIAL];
+        turnos = new int[CAPACIDADE_INICIAL];
+        sessoes = new int[CAPACIDADE_INICIAL];
+        capacidades = new int[CAPACIDADE_INICIAL];
+        diasCompra = new int[CAPACIDADE_INICIAL];
+        reembolsados = new boolean[CAPACIDADE_INICIAL];
+        tamanho = 0;
+    }
+
+    /**
+     * Indica se os estados foram descartados: a partir daí não se sabe mais quais bilhetes foram despejados.
+     */
+    boolean isDescartado() {
+        return descartado;
+    }
+
+    private BilheteVendido montar(String idIngresso, int posicao) {
+        BigDecimal preco = centavos[posicao] == Long.MIN_VALUE
+                ? precosExatos.get(chaves[posicao])
+                : BigDecimal.valueOf(centavos[posicao], 2);
+        BilheteVendido bilhete = new BilheteVendido(idIngresso, CPF_NAO_GUARDADO,
+                textos.decodificar(pecas[posicao]), textos.decodificar(turnos[posicao]), null,
+                textos.decodificar(sessoes[posicao]), capacidades[posicao], preco);
+        if (reembolsados[posicao]) {
+            bilhete.restaurarReembolso(null);
+        }
+        if (diasCompra[posicao] != SEM_DATA) {
+            // Os agregados usam só o dia da compra
+            bilhete.restaurarDataCompra(LocalDate.ofEpochDay(diasCompra[posicao]).atStartOfDay());
+        }
+        return bilhete;
+    }
+
+    /**
+     * Posição da chave ou, se ausente, da posição vazia onde ela entraria (sondagem linear).
+     */
+    private int localizar(long chave) {
+        int mascara = chaves.length - 1;
+        int posicao = (int) (chave ^ (chave >>> 32)) & mascara;
+        while (chaves[posicao] != VAZIA && chaves[posicao] != chave) {
+            posicao = (posicao + 1) & mascara;
+        }
+        return posicao;
+    }
+
+    /**
+     * Remove sem lápide, trazendo para a vaga as entradas seguintes do agrupamento (ver ContagemPorHash).
+     */
+    private void removerPosicao(int posicao) {
+        int mascara = chaves.length - 1;
+        int vaga = posicao;
+        int atual = (posicao + 1) & mascara;
+        while (chaves[atual] != VAZIA) {
+            int ideal = (int) (chaves[atual] ^ (chaves[atual] >>> 32)) & mascara;
+            if (((atual - ideal) & mascara) >= ((atual - vaga) & mascara)) {
+                mover(atual, vaga);
+                vaga = atual;
+            }
+            atual = (atual + 1) & mascara;
+        }
+        chaves[vaga] = VAZIA;
+        tamanho--;
+    }
+
+    private void mover(int origem, int destino) {
+        chaves[destino] = chaves[origem];
+        chavesCpf[destino] = chavesCpf[origem];
+        centavos[destino] = centavos[origem];
+        pecas[destino] = pecas[origem];
+        turnos[destino] = turnos[origem];
+        sessoes[destino] = sessoes[origem];
+        capacidades[destino] = capacidades[origem];
+        diasCompra[destino] = diasCompra[origem];
+        reembolsados[destino] = reembolsados[origem];
+    }
+
+    private void redimensionar(int capacidade) {
+        long[] chavesAntigas = chaves;
+        long[] chavesCpfAntigas = chavesCpf;
+        long[] centavosAntigos = centavos;
+        int[] pecasAntigas = pecas;
+        int[] turnosAntigos = turnos;
+        int[] sessoesAntigas = sessoes;
+        int[] capacidadesAntigas = capacidades;
+        int[] diasAntigos = diasCompra;
+        boolean[] reembolsadosAntigos = reembolsados;
+        chaves = new long[capacidade];
+        chavesCpf = new long[capacidade];
+        centavos = new long[capacidade];
+        pecas = new int[capacidade];
+        turnos = new int[capacidade];
+        sessoes = new int[capacidade];
+        capacidades = new int[capacidade];
+        diasCompra = new int[capacidade];
+        reembolsados = new boolean[capacidade];
+        for (int i = 0; i < chavesAntigas.length; i++) {
+            if (chavesAntigas[i] != VAZIA) {
+                int posicao = localizar(chavesAntigas[i]);
+                chaves[posicao] = chavesAntigas[i];
+                chavesCpf[posicao] = chavesCpfAntigas[i];
+                centavos[posicao] = centavosAntigos[i];
+                pecas[posicao] = pecasAntigas[i];
+                turnos[posicao] = turnosAntigos[i];
+                sessoes[posicao] = sessoesAntigas[i];
+                capacidades[posicao] = capacidadesAntigas[i];
+                diasCompra[posicao] = diasAntigos[i];
+                reembolsados[posicao] = reembolsadosAntigos[i];
+            }
+        }
+    }
+}
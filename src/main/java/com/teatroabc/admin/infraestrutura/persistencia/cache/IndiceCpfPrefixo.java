@@ -0,0 +1,226 @@
+package com.teatroabc.admin.infraestrutura.persistencia.cache;
+
+import java.util.Arrays;
+import java.util.function.LongPredicate;
+
+/**
+ * Índice ordenado dos CPFs distintos (11 dígitos, guardados como long) para busca por prefixo.
+ * Um prefixo com d dígitos corresponde a uma faixa contínua de valores, localizada por busca
+ * binária; a consulta custa O(log n) mais os CPFs encontrados.
+ *
+ * Os valores ficam em dois arrays primitivos ordenados: o principal e um pequeno array de
+ * pendentes que recebe os CPFs novos. Quando os pendentes enchem, os dois são intercalados
+ * em um novo principal, de modo que inserir não exige deslocar o array inteiro a cada CPF.
+ * Ambos são trocados por cópias e publicados juntos, então leitores nunca veem um estado parcial.
+ * CPFs só são acrescentados; um CPF sem bilhetes continua aqui e não resolve para nenhum bilhete.
+ * Registros são serializados pelo CacheBilhetes; buscas podem ocorrer em paralelo.
+ *
+ * Os CPFs registrados entram primeiro em um buffer sem ordem, que só é ordenado e intercalado
+ * quando uma busca precisa dele ou quando passa do tamanho do índice. Assim, uma carga de
+ * milhões de bilhetes custa uma ordenação, e não uma intercalação a cada LIMITE_PENDENTES CPFs.
+ */
+class IndiceCpfPrefixo {
+
+    static final int DIGITOS_CPF = 11;
+    private static final int LIMITE_PENDENTES = 1024;
+    private static final long[] VAZIO = new long[0];
+    private static final long[] POTENCIAS_DE_DEZ = new long[DIGITOS_CPF + 1];
+
+    static {
+        POTENCIAS_DE_DEZ[0] = 1;
+        for (int i = 1; i < POTENCIAS_DE_DEZ.length; i++) {
+            POTENCIAS_DE_DEZ[i] = POTENCIAS_DE_DEZ[i - 1] * 10;
+        }
+    }
+
+    private static final class Estado {
+        final long[] principal;
+        final long[] pendentes;
+
+        Estado(long[] principal, long[] pendentes) {
+            this.principal = principal;
+            this.pendentes = pendentes;
+        }
+    }
+
+    private volatile Estado estado = new Estado(VAZIO, VAZIO);
+    // CPFs registrados ainda fora do estado publicado, sem ordem e possivelmente repetidos ou já indexados
+    private long[] novos = new long[64];
+    private volatile int quantidadeNovos = 0;
+
+    /**
+     * Registra o CPF, se tiver exatamente 11 dígitos. CPFs já indexados são descartados ao consolidar.
+     */
+    synchronized void registrar(String cpf) {
+        long valor = valorCpf(cpf);
+        if (valor < 0) {
+            return;
+        }
+        int quantidade = quantidadeNovos;
+        if (quantidade == novos.length) {
+            novos = Arrays.copyOf(novos, quantidade * 2);
+        }
+        novos[quantidade] = valor;
+        quantidadeNovos = quantidade + 1;
+        // Limita o buffer sem intercalar o principal com mais frequência que a cada duplicação
+        if (quantidade + 1 >= Math.max(LIMITE_PENDENTES, estado.principal.length)) {
+            consolidar();
+        }
+    }
+
+    /**
+     * Estado publicado, já incluindo os CPFs do buffer.
+     */
+    private Estado estadoAtual() {
+        if (quantidadeNovos > 0) {
+            synchronized (this) {
+                consolidar();
+            }
+        }
+        return estado;
+    }
+
+    /**
+     * Ordena o buffer, descarta repetidos e CPFs já indexados e junta o restante aos pendentes,
+     * ou ao principal quando os pendentes passariam de LIMITE_PENDENTES.
+     * Chamado com o monitor do índice.
+     */
+    private void consolidar() {
+        int quantidade = quantidadeNovos;
+        if (quantidade == 0) {
+            return;
+        }
+        Estado atual = estado;
+        long[] ordenados = Arrays.copyOf(novos, quantidade);
+        Arrays.sort(ordenados);
+        int distintos = 0;
+        for (int i = 0; i < quantidade; i++) {
+            long valor = ordenados[i];
+            if ((distintos > 0 && ordenados[distintos - 1] == valor)
+                    || Arrays.binarySearch(atual.principal, valor) >= 0
+                    || Arrays.binarySearch(atual.pendentes, valor) >= 0) {
+                continue;
+            }
+            ordenados[distintos++] = valor;
+        }
+        if (distintos == 0) {
+            quantidadeNovos = 0;
+            return;
+        }
+
+        long[] pendentes = intercalar(atual.pendentes, Arrays.copyOf(ordenados, distintos));
+        if (pendentes.length < LIMITE_PENDENTES) {
+            estado = new Estado(atual.principal, pendentes);
+        } else {
+            estado = new Estado(intercalar(atual.principal, pendentes), VAZIO);
+        }
+        quantidadeNovos = 0;
+        if (novos.length > LIMITE_PENDENTES) {
+            novos = new long[64];
+        }
+    }
+
+    /**
+     * Visita, em ordem crescente, os CPFs que começam pelo prefixo.
+     * Caracteres que não são dígitos (pontos, hífen, espaços, marcadores de máscara) são ignorados,
+     * sem criar uma String normalizada.
+     * @param prefixo Prefixo digitado; sem nenhum dígito, nada é visitado
+     * @param acao Recebe cada CPF; retornar false interrompe a visita
+     */
+    void percorrerPrefixo(CharSequence prefixo, LongPredicate acao) {
+        if (prefixo == null) {
+            return;
+        }
+        long valor = 0;
+        int digitos = 0;
+        for (int i = 0; i < prefixo.length(); i++) {
+            char c = prefixo.charAt(i);
+            if (c >= '0' && c <= '9') {
+                if (++digitos > DIGITOS_CPF) {
+                    return;
+                }
+                valor = valor * 10 + (c - '0');
+            }
+        }
+        if (digitos == 0) {
+            return;
+        }
+
+        long escala = POTENCIAS_DE_DEZ[DIGITOS_CPF - digitos];
+        long inicio = valor * escala;
+        long fim = inicio + escala; // exclusivo
+
+        Estado atual = estadoAtual();
+        long[] principal = atual.principal;
+        long[] pendentes = atual.pendentes;
+        int i = limiteInferior(principal, inicio);
+        int j = limiteInferior(pendentes, inicio);
+        // Intercala as duas faixas para manter a ordem crescente
+        while (true) {
+            long a = i < principal.length ? principal[i] : Long.MAX_VALUE;
+            long b = j < pendentes.length ? pendentes[j] : Long.MAX_VALUE;
+            long proximo;
+            if (a <= b) {
+                proximo = a;
+                i++;
+            } else {
+                proximo = b;
+                j++;
+            }
+            if (proximo >= fim || !acao.test(proximo)) {
+                return;
+            }
+        }
+    }
+
+    int tamanho() {
+        Estado atual = estadoAtual();
+        return atual.principal.length + atual.pendentes.length;
+    }
+
+    /**
+     * Valor numérico de um CPF com exatamente 11 dígitos, ou -1 se não for o caso.
+     */
+    static long valorCpf(String cpf) {
+        if (cpf == null || cpf.length() != DIGITOS_CPF) {
+            return -1;
+        }
+        long valor = 0;
+        for (int i = 0; i < DIGITOS_CPF; i++) {
+            char c = cpf.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            valor = valor * 10 + (c - '0');
+        }
+        return valor;
+    }
+
+    /**
+     * CPF de 11 dígitos, com zeros à esquerda, a partir do valor numérico.
+     */
+    static String textoCpf(long valor) {
+        char[] digitos = new char[DIGITOS_CPF];
+        for (int i = DIGITOS_CPF - 1; i >= 0; i--) {
+            digitos[i] = (char) ('0' + valor % 10);
+            valor /= 10;
+        }
+        return new String(digitos);
+    }
+
+    private static int limiteInferior(long[] valores, long chave) {
+        int posicao = Arrays.binarySearch(valores, chave);
+        return posicao >= 0 ? posicao : -posicao - 1;
+    }
+
+    private static long[] intercalar(long[] a, long[] b) {
+        long[] resultado = new long[a.length + b.length];
+        int i = 0, j = 0, k = 0;
+        while (i < a.length && j < b.length) {
+            resultado[k++] = a[i] <= b[j] ? a[i++] : b[j++];
+        }
+        while (i < a.length) resultado[k++] = a[i++];
+        while (j < b.length) resultado[k++] = b[j++];
+        return resultado;
+    }
+}
@@ -0,0 +1,57 @@
+package com.teatroabc.admin.infraestrutura.persistencia.cache;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Índice secundário concorrente (multi-mapa chave -> IDs de bilhetes).
+ * Cada chave aponta para um conjunto concorrente, que pode ser percorrido enquanto outras
+ * threads adicionam ou removem IDs. Inserções e remoções de uma chave são feitas dentro de
+ * compute/computeIfPresent, de modo que a remoção de um conjunto vazio nunca descarta
+ * um ID adicionado em paralelo.
+ */
+class IndiceMultiplo {
+
+    private final Map<String, Set<String>> entradas = new ConcurrentHashMap<>();
+
+    /**
+     * Associa um ID à chave.
+     */
+    void adicionar(String chave, String idIngresso) {
+        entradas.compute(chave, (k, ids) -> {
+            if (ids == null) {
+                ids = ConcurrentHashMap.newKeySet();
+            }
+            ids.add(idIngresso);
+            return ids;
+        });
+    }
+
+    /**
+     * Desassocia um ID da chave, removendo a chave quando não restarem IDs.
+     */
+    void remover(String chave, String idIngresso) {
+        entradas.computeIfPresent(chave, (k, ids) -> {
+            ids.remove(idIngresso);
+            return ids.isEmpty() ? null : ids;
+        });
+    }
+
+    /**
+     * IDs associados à chave. A visão é somente-leitura e fracamente consistente:
+     * pode ser percorrida sem risco de ConcurrentModificationException.
+     */
+    Set<String> obter(String chave) {
+        Set<String> ids = entradas.get(chave);
+        return ids == null ? Collections.emptySet() : Collections.unmodifiableSet(ids);
+    }
+
+    /**
+     * Quantidade de chaves distintas no índice.
+     */
+    int tamanho() {
+        return entradas.size();
+    }
+}
@@ -0,0 +1,93 @@
+package com.teatroabc.admin.infraestrutura.persistencia.cache;
+
+import java.text.Normalizer;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * Índice de trigramas sobre valores distintos (nomes de peça), para busca por trecho
+ * sem diferenciar maiúsculas, minúsculas e acentos.
+ * Indexa cada valor uma única vez, não cada bilhete: a busca devolve os valores que contêm
+ * o trecho, e os bilhetes são resolvidos pelo índice exato de quem usa este índice.
+ * Valores só são acrescentados; um nome que deixou de ter bilhetes continua aqui e
+ * simplesmente não resolve para nenhum bilhete.
+ * Registros são serializados pelo CacheBilhetes; buscas podem ocorrer em paralelo.
+ */
+class IndiceTrigramas {
+
+    private static final int TAMANHO_GRAMA = 3;
+    private static final Pattern MARCAS_DIACRITICAS = Pattern.compile("\\p{M}+");
+
+    // Valor original -> forma normalizada; publicado por último, depois dos trigramas
+    private final Map<String, String> normalizados = new ConcurrentHashMap<>();
+    private final Map<String, Set<String>> valoresPorTrigrama = new ConcurrentHashMap<>();
+
+    /**
+     * Registra o valor, se ainda não estiver no índice.
+     */
+    void registrar(String valor) {
+        if (valor == null || normalizados.containsKey(valor)) {
+            return;
+        }
+        String normalizado = normalizar(valor);
+        for (int i = 0; i + TAMANHO_GRAMA <= normalizado.length(); i++) {
+            valoresPorTrigrama
+                .computeIfAbsent(normalizado.substring(i, i + TAMANHO_GRAMA), k -> ConcurrentHashMap.newKeySet())
+                .add(valor);
+        }
+        normalizados.put(valor, normalizado);
+    }
+
+    /**
+     * Valores registrados que contêm o trecho, ignorando caixa e acentos.
+     * Com três ou mais caracteres, os candidatos vêm da menor lista entre os trigramas do trecho;
+     * trechos mais curtos conferem todos os valores distintos, que são poucos.
+     * @return Valores originais encontrados (vazio se o trecho for nulo ou em branco)
+     */
+    Set<String> buscar(String trecho) {
+        if (trecho == null) {
+            return Collections.emptySet();
+        }
+        String alvo = normalizar(trecho);
+        if (alvo.isEmpty()) {
+            return Collections.emptySet();
+        }
+
+        Collection<String> candidatos = normalizados.keySet();
+        if (alvo.length() >= TAMANHO_GRAMA) {
+            for (int i = 0; i + TAMANHO_GRAMA <= alvo.length(); i++) {
+                Set<String> lista = valoresPorTrigrama.get(alvo.substring(i, i + TAMANHO_GRAMA));
+                if (lista == null) {
+                    return Collections.emptySet(); // Nenhum valor tem este trigrama
+                }
+                if (lista.size() < candidatos.size()) {
+                    candidatos = lista;
+                }
+            }
+        }
+
+        // Confere o trecho inteiro: os trigramas só garantem os pedaços, não a sequência
+        Set<String> encontrados = new HashSet<>();
+        for (String candidato : candidatos) {
+            String normalizado = normalizados.get(candidato);
+            if (normalizado != null && normalizado.contains(alvo)) {
+                encontrados.add(candidato);
+            }
+        }
+        return encontrados;
+    }
+
+    /**
+     * Forma usada na comparação: sem acentos, em minúsculas e sem espaços nas pontas.
+     */
+    static String normalizar(String valor) {
+        String semAcentos = MARCAS_DIACRITICAS.matcher(Normalizer.normalize(valor, Normalizer.Form.NFD)).replaceAll("");
+        return semAcentos.toLowerCase(Locale.ROOT).trim();
+    }
+}
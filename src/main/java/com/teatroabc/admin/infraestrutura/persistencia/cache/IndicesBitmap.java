@@ -0,0 +1,105 @@
+package com.teatroabc.admin.infraestrutura.persistencia.cache;
+
+import com.teatroabc.admin.dominio.entidades.BilheteVendido;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Índices bitmap das linhas de um armazenamento para atributos de baixa cardinalidade:
+ * peça, turno, sessão e status de reembolso. Filtros compostos viram interseções e
+ * diferenças de bitmaps, e a quantidade de linhas sai da cardinalidade do resultado,
+ * sem materializar bilhetes.
+ * Não é thread-safe: alterado sob o lock de escrita do CacheBilhetes (ou pela thread de carga,
+ * antes de a geração ser publicada) e consultado sob o mesmo lock.
+ */
+class IndicesBitmap {
+
+    private final BitmapCompactado ativos = new BitmapCompactado();
+    private final BitmapCompactado reembolsados = new BitmapCompactado();
+    private final Map<String, BitmapCompactado> porPeca = new HashMap<>();
+    private final Map<String, BitmapCompactado> porTurno = new HashMap<>();
+    private final Map<String, BitmapCompactado> porSessao = new HashMap<>();
+
+    void adicionar(int linha, BilheteVendido bilhete) {
+        ativos.adicionar(linha);
+        marcarReembolso(linha, bilhete.isReembolsado());
+        porPeca.computeIfAbsent(bilhete.getNomePeca(), k -> new BitmapCompactado()).adicionar(linha);
+        porTurno.computeIfAbsent(bilhete.getTurno(), k -> new BitmapCompactado()).adicionar(linha);
+        porSessao.computeIfAbsent(bilhete.getNomeSessao(), k -> new BitmapCompactado()).adicionar(linha);
+    }
+
+    /**
+     * Retira a linha de todos os índices.
+     * @param nomePeca Peça, turno e sessão que a linha tinha ao ser indexada
+     */
+    void remover(int linha, String nomePeca, String turno, String nomeSessao) {
+        ativos.remover(linha);
+        reembolsados.remover(linha);
+        removerDe(porPeca, nomePeca, linha);
+        removerDe(porTurno, turno, linha);
+        removerDe(porSessao, nomeSessao, linha);
+    }
+
+    void marcarReembolso(int linha, boolean reembolsado) {
+        if (reembolsado) {
+            reembolsados.adicionar(linha);
+        } else {
+            reembolsados.remover(linha);
+        }
+    }
+
+    /**
+     * Linhas que atendem a todos os critérios informados; critérios nulos não filtram.
+     * @param nomesPeca Linhas de qualquer uma destas peças (null = qualquer peça)
+     * @param turno Turno exato (null = qualquer turno)
+     * @param nomeSessao Sessão exata (null = qualquer sessão)
+     * @param reembolsado Status de reembolso (null = ambos)
+     * @return Novo bitmap, que pode ser usado fora do lock
+     */
+    BitmapCompactado filtrar(Collection<String> nomesPeca, String turno, String nomeSessao, Boolean reembolsado) {
+        BitmapCompactado resultado = null;
+        if (nomesPeca != null) {
+            BitmapCompactado pecas = new BitmapCompactado();
+            for (String nomePeca : nomesPeca) {
+                BitmapCompactado peca = porPeca.get(nomePeca);
+                if (peca != null) {
+                    pecas = pecas.ou(peca);
+                }
+            }
+            resultado = pecas;
+        }
+        if (turno != null) {
+            resultado = intersecao(resultado, porTurno.get(turno));
+        }
+        if (nomeSessao != null) {
+            resultado = intersecao(resultado, porSessao.get(nomeSessao));
+        }
+        if (resultado == null) {
+            resultado = ativos;
+        }
+        if (reembolsado != null) {
+            resultado = reembolsado ? resultado.e(reembolsados) : resultado.eNao(reembolsados);
+        }
+        // Nunca devolve um dos bitmaps internos, que continuam sendo alterados
+        return resultado == ativos ? ativos.copiar() : resultado;
+    }
+
+    private static BitmapCompactado intersecao(BitmapCompactado atual, BitmapCompactado criterio) {
+        if (criterio == null) {
+            return new BitmapCompactado();
+        }
+        return atual == null ? criterio.copiar() : atual.e(criterio);
+    }
+
+    private static void removerDe(Map<String, BitmapCompactado> indice, String chave, int linha) {
+        BitmapCompactado linhas = indice.get(chave);
+        if (linhas != null) {
+            linhas.remover(linha);
+            if (linhas.isVazio()) {
+                indice.remove(chave);
+            }
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package com.teatroabc.admin.infraestrutura.persistencia.cache;
+
+import com.teatroabc.admin.dominio.entidades.BilheteVendido;
+import com.teatroabc.admin.dominio.entidades.ConsultaBilhetes;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Executa uma ConsultaBilhetes sobre um armazenamento, escolhendo o índice mais seletivo
+ * para gerar os candidatos:
+ * <ol>
+ *   <li>ID: no máximo um bilhete;</li>
+ *   <li>CPF completo: os poucos bilhetes de um cliente;</li>
+ *   <li>prefixo de CPF ou interseção dos índices bitmap (peça, turno, sessão, reembolso),
+ *       o que tiver menor cardinalidade, sem materializar nada para comparar;</li>
+ *   <li>varredura completa, só quando nenhum critério é indexado (ex.: apenas faixa de preço).</li>
+ * </ol>
+ * Os candidatos passam pelos critérios restantes, e a ordenação usa um heap limitado quando
+ * a página pedida é pequena perto do total.
+ */
+class PlanejadorConsultas {
+
+    private final ArmazenamentoBilhetes armazenamento;
+    // Lock sob o qual os índices bitmap são consultados (lock de escrita do CacheBilhetes)
+    private final Object lockIndices;
+
+    PlanejadorConsultas(ArmazenamentoBilhetes armazenamento, Object lockIndices) {
+        this.armazenamento = armazenamento;
+        this.lockIndices = lockIndices;
+    }
+
+    List<BilheteVendido> executar(ConsultaBilhetes consulta) {
+        if (consulta.getLimite() == 0) {
+            return new ArrayList<>();
+        }
+        Set<String> pecas = nomesPeca(consulta);
+        List<BilheteVendido> filtrados = new ArrayList<>();
+        for (BilheteVendido bilhete : candidatos(consulta, pecas)) {
+            if (atende(consulta, pecas, bilhete)) {
+                filtrados.add(bilhete);
+            }
+        }
+        return ordenarEPaginar(filtrados, consulta);
+    }
+
+    /**
+     * Quantidade de bilhetes que atendem à consulta, ignorando a paginação.
+     * Quando todos os critérios são indexados por bitmap, sai da cardinalidade da interseção.
+     */
+    int contar(ConsultaBilhetes consulta) {
+        Set<String> pecas = nomesPeca(consulta);
+        if (consulta.getIdIngresso() == null && consulta.getCpf() == null && consulta.getPrefixoCpf() == null
+                && consulta.getPrecoMinimo() == null && consulta.getPrecoMaximo() == null) {
+            return filtrarLinhas(consulta, pecas).cardinalidade();
+        }
+        int total = 0;
+        for (BilheteVendido bilhete : candidatos(consulta, pecas)) {
+            if (atende(consulta, pecas, bilhete)) {
+                total++;
+            }
+        }
+        return total;
+    }
+
+    private List<BilheteVendido> candidatos(ConsultaBilhetes consulta, Set<String> pecas) {
+        if (consulta.getIdIngresso() != null) {
+            List<BilheteVendido> unico = new ArrayList<>(1);
+            BilheteVendido bilhete = armazenamento.buscarPorId(consulta.getIdIngresso());
+            if (bilhete != null) {
+                unico.add(bilhete);
+            }
+            return unico;
+        }
+        if (consulta.getCpf() != null) {
+            return armazenamento.buscarPorCpf(consulta.getCpf());
+        }
+
+        BitmapCompactado linhas = usaBitmap(consulta, pecas) ? filtrarLinhas(consulta, pecas) : null;
+        if (consulta.getPrefixoCpf() != null) {
+            int porPrefixo = armazenamento.contarPorPrefixoCpf(consulta.getPrefixoCpf());
+            if (linhas == null || porPrefixo <= linhas.cardinalidade()) {
+                return armazenamento.buscarPorPrefixoCpf(consulta.getPrefixoCpf(), 0, ConsultaBilhetes.SEM_LIMITE);
+            }
+        }
+        if (linhas != null) {
+            return armazenamento.bilhetesDasLinhas(linhas);
+        }
+
+        List<BilheteVendido> todos = new ArrayList<>(armazenamento.tamanho());
+        armazenamento.paraCada(todos::add);
+        return todos;
+    }
+
+    private static boolean usaBitmap(ConsultaBilhetes consulta, Set<String> pecas) {
+        return pecas != null || consulta.getTurno() != null || consulta.getNomeSessao() != null
+            || consulta.getReembolsado() != null;
+    }
+
+    private BitmapCompactado filtrarLinhas(ConsultaBilhetes consulta, Collection<String> pecas) {
+        synchronized (lockIndices) {
+            return armazenamento.filtrarLinhas(pecas, consulta.getTurno(), consulta.getNomeSessao(),
+                                               consulta.getReembolsado());
+        }
+    }
+
+    /**
+     * Peças aceitas pela consulta (nome exato e/ou trecho), ou null se ela não filtra por peça.
+     */
+    private Set<String> nomesPeca(ConsultaBilhetes consulta) {
+        Set<String> pecas = null;
+        if (consulta.getTrechoPeca() != null) {
+            pecas = new HashSet<>(armazenamento.nomesPecaContendo(consulta.getTrechoPeca()));
+        }
+        if (consulta.getNomePeca() != null) {
+            if (pecas == null) {
+                pecas = new HashSet<>();
+                pecas.add(consulta.getNomePeca());
+            } else {
+                pecas.retainAll(Collections.singleton(consulta.getNomePeca()));
+            }
+        }
+        return pecas;
+    }
+
+    /**
+     * Confere todos os critérios; os candidatos vêm de um único índice e podem ter mudado
+     * depois de selecionados.
+     */
+    private static boolean atende(ConsultaBilhetes consulta, Set<String> pecas, BilheteVendido bilhete) {
+        if (consulta.getIdIngresso() != null && !consulta.getIdIngresso().equals(bilhete.getIdIngresso())) {
+            return false;
+        }
+        if (consulta.getCpf() != null && !consulta.getCpf().equals(bilhete.getCpf())) {
+            return false;
+        }
+        if (consulta.getPrefixoCpf() != null
+                && (bilhete.getCpf() == null || !bilhete.getCpf().startsWith(consulta.getPrefixoCpf()))) {
+            return false;
+        }
+        if (pecas != null && !pecas.contains(bilhete.getNomePeca())) {
+            return false;
+        }
+        if (consulta.getTurno() != null && !consulta.getTurno().equals(bilhete.getTurno())) {
+            return false;
+        }
+        if (consulta.getNomeSessao() != null && !consulta.getNomeSessao().equals(bilhete.getNomeSessao())) {
+            return false;
+        }
+        if (consulta.getReembolsado() != null && consulta.getReembolsado() != bilhete.isReembolsado()) {
+            return false;
+        }
+        BigDecimal preco = bilhete.getPreco();
+        if (consulta.getPrecoMinimo() != null && preco.compareTo(consulta.getPrecoMinimo()) < 0) {
+            return false;
+        }
+        return consulta.getPrecoMaximo() == null || preco.compareTo(consulta.getPrecoMaximo()) <= 0;
+    }
+
+    private static List<BilheteVendido> ordenarEPaginar(List<BilheteVendido> filtrados, ConsultaBilhetes consulta) {
+        int inicio = consulta.getDeslocamento();
+        if (inicio >= filtrados.size()) {
+            return new ArrayList<>();
+        }
+        int fim = (int) Math.min(filtrados.size(), (long) inicio + consulta.getLimite());
+
+        if (consulta.getOrdenacao() != null) {
+            Comparator<BilheteVendido> comparador = comparador(consulta);
+            if (fim < filtrados.size() / 4) {
+                // Página pequena: mantém só os 'fim' primeiros em um heap, sem ordenar tudo
+                PriorityQueue<BilheteVendido> heap = new PriorityQueue<>(fim + 1, comparador.reversed());
+                for (BilheteVendido bilhete : filtrados) {
+                    if (heap.size() < fim) {
+                        heap.add(bilhete);
+                    } else if (comparador.compare(bilhete, heap.peek()) < 0) {
+                        heap.poll();
+                        heap.add(bilhete);
+                    }
+                }
+                List<BilheteVendido> primeiros = new ArrayList<>(heap);
+                primeiros.sort(comparador);
+                return new ArrayList<>(primeiros.subList(inicio, primeiros.size()));
+            }
+            filtrados.sort(comparador);
+        }
+        return new ArrayList<>(filtrados.subList(inicio, fim));
+    }
+
+    private static Comparator<BilheteVendido> comparador(ConsultaBilhetes consulta) {
+        Comparator<BilheteVendido> comparador;
+        switch (consulta.getOrdenacao()) {
+            case CPF: comparador = por(BilheteVendido::getCpf); break;
+            case PECA: comparador = por(BilheteVendido::getNomePeca); break;
+            case TURNO: comparador = por(BilheteVendido::getTurno); break;
+            case SESSAO: comparador = por(BilheteVendido::getNomeSessao); break;
+            case PRECO: comparador = por(BilheteVendido::getPreco); break;
+            case DATA_COMPRA: comparador = por(BilheteVendido::getDataCompra); break;
+            default: comparador = por(BilheteVendido::getIdIngresso); break;
+        }
+        if (!consulta.isCrescente()) {
+            comparador = comparador.reversed();
+        }
+        // Desempate pelo ID: a mesma consulta gera sempre a mesma ordem, e as páginas não se sobrepõem
+        return comparador.thenComparing(BilheteVendido::getIdIngresso, Comparator.nullsFirst(Comparator.naturalOrder()));
+    }
+
+    private static <T extends Comparable<? super T>> Comparator<BilheteVendido> por(Function<BilheteVendido, T> campo) {
+        return Comparator.comparing(campo, Comparator.nullsFirst(Comparator.<T>naturalOrder()));
+    }
+}
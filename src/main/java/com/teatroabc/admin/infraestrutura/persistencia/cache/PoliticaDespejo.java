@@ -0,0 +1,292 @@
+package com.teatroabc.admin.infraestrutura.persistencia.cache;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Política de admissão e despejo W-TinyLFU para o cache limitado por peso.
+ *
+ * Bilhetes novos entram em uma janela LRU pequena (1% do peso). Quem sai da janela disputa
+ * a vaga com o bilhete menos recente do segmento de prova: fica o de maior frequência
+ * estimada por um sketch count-min com envelhecimento; no empate, fica quem já estava.
+ * Um acesso no segmento de prova promove o bilhete ao segmento protegido (80% da região
+ * principal); o excedente do protegido volta para a prova. Assim, uma varredura de bilhetes
+ * antigos não expulsa os bilhetes consultados com frequência.
+ *
+ * Bilhetes de peças da temporada atual recebem um bônus de frequência na disputa e ficam em uma
+ * fila de prova própria, consultada só depois da fila dos históricos: com o peso esgotado, os
+ * bilhetes históricos são os primeiros a sair. Entre dois bilhetes da temporada, o empate
+ * favorece o novo, já que as vendas recentes são as mais consultadas.
+ *
+ * A política só conhece IDs e pesos; quem a usa remove do armazenamento os IDs despejados e
+ * informa o peso das estruturas que crescem com os despejos (definirPesoExterno), que sai da região principal.
+ * Métodos sincronizados: escritas vêm sob o lock do CacheBilhetes, acessos de qualquer leitura.
+ */
+class PoliticaDespejo {
+
+    private static final double FRACAO_JANELA = 0.01;
+    private static final double FRACAO_PROTEGIDO = 0.80;
+    // Equivale a alguns acessos a mais na disputa pela vaga
+    private static final int BONUS_TEMPORADA = 3;
+
+    private static final class Entrada {
+        final int peso;
+        final boolean temporada;
+
+        Entrada(int peso, boolean temporada) {
+            this.peso = peso;
+            this.temporada = temporada;
+        }
+    }
+
+    private final long pesoMaximo;
+    private final long pesoMaximoJanela;
+    private final long pesoMaximoProtegido;
+
+    // Ordem de inserção = ordem LRU (o primeiro é o menos recente); um acesso reinsere no fim
+    private final LinkedHashMap<String, Entrada> janela = new LinkedHashMap<>();
+    private final LinkedHashMap<String, Entrada> provaHistorica = new LinkedHashMap<>();
+    private final LinkedHashMap<String, Entrada> provaTemporada = new LinkedHashMap<>();
+    private final LinkedHashMap<String, Entrada> protegido = new LinkedHashMap<>();
+    private long pesoJanela;
+    private long pesoProva;
+    private long pesoProtegido;
+    // Peso de outras estruturas cobrado do mesmo limite (estados dos despejados), tirado da região principal
+    private long pesoExterno;
+
+    private final SketchFrequencia sketch;
+
+    /**
+     * @param pesoMaximo Peso total permitido, em bytes estimados
+     * @param pesoMedio Peso típico de um bilhete, para dimensionar o sketch de frequência
+     */
+    PoliticaDespejo(long pesoMaximo, int pesoMedio) {
+        if (pesoMaximo <= 0) {
+            throw new IllegalArgumentException("Peso máximo deve ser maior que zero");
+        }
+        this.pesoMaximo = pesoMaximo;
+        this.pesoMaximoJanela = Math.max(1, (long) (pesoMaximo * FRACAO_JANELA));
+        this.pesoMaximoProtegido = (long) ((pesoMaximo - pesoMaximoJanela) * FRACAO_PROTEGIDO);
+        long entradasEstimadas = pesoMaximo / Math.max(1, pesoMedio);
+        this.sketch = new SketchFrequencia((int) Math.min(1 << 22, Math.max(1024, entradasEstimadas)));
+    }
+
+    /**
+     * Registra um bilhete novo e aplica o limite de peso.
+     * @param temporada true se o bilhete é de uma peça da temporada atual
+     * @return IDs despejados (pode incluir o próprio bilhete, se não vencer a disputa)
+     */
+    synchronized List<String> admitir(String idIngresso, int peso, boolean temporada) {
+        sketch.incrementar(idIngresso);
+        List<String> despejados = new ArrayList<>();
+        if (peso > limitePrincipal()) {
+            despejados.add(idIngresso); // Não caberia na região principal
+            return despejados;
+        }
+        janela.put(idIngresso, new Entrada(peso, temporada));
+        pesoJanela += peso;
+
+        while (pesoJanela > pesoMaximoJanela) {
+            Iterator<Map.Entry<String, Entrada>> maisAntigo = janela.entrySet().iterator();
+            Map.Entry<String, Entrada> candidato = maisAntigo.next();
+            maisAntigo.remove();
+            pesoJanela -= candidato.getValue().peso;
+            disputarVaga(candidato.getKey(), candidato.getValue(), despejados);
+        }
+        return despejados;
+    }
+
+    /**
+     * Leva o candidato vindo da janela para a região principal, despejando as vítimas menos
+     * recentes que ele vencer; se perder para alguma, o candidato é que sai.
+     */
+    private void disputarVaga(String id, Entrada candidato, List<String> despejados) {
+        long limitePrincipal = limitePrincipal();
+        if (candidato.peso > limitePrincipal) {
+            despejados.add(id); // O peso externo cresceu desde a admissão
+            return;
+        }
+        while (pesoProva + pesoProtegido + candidato.peso > limitePrincipal) {
+            LinkedHashMap<String, Entrada> segmento = !provaHistorica.isEmpty() ? provaHistorica
+                    : !provaTemporada.isEmpty() ? provaTemporada : protegido;
+            Map.Entry<String, Entrada> vitima = segmento.entrySet().iterator().next();
+            int freqCandidato = frequencia(id, candidato);
+            int freqVitima = frequencia(vitima.getKey(), vitima.getValue());
+            boolean venceEmpate = candidato.temporada && vitima.getValue().temporada;
+            if (freqCandidato < freqVitima || (freqCandidato == freqVitima && !venceEmpate)) {
+                despejados.add(id);
+                return;
+            }
+            retirar(segmento, vitima.getKey());
+            despejados.add(vitima.getKey());
+        }
+        prova(candidato).put(id, candidato);
+        pesoProva += candidato.peso;
+    }
+
+    private long limitePrincipal() {
+        return pesoMaximo - pesoMaximoJanela - pesoExterno;
+    }
+
+    /**
+     * Cobra do limite o peso de outras estruturas do cache (os estados dos despejados), despejando
+     * da região principal, na ordem da disputa por vaga, os bilhetes que deixarem de caber.
+     * @return IDs despejados
+     */
+    synchronized List<String> definirPesoExterno(long peso) {
+        pesoExterno = peso;
+        List<String> despejados = new ArrayList<>();
+        while (pesoProva + pesoProtegido > Math.max(0, limitePrincipal())) {
+            LinkedHashMap<String, Entrada> segmento = !provaHistorica.isEmpty() ? provaHistorica
+                    : !provaTemporada.isEmpty() ? provaTemporada : protegido;
+            String vitima = segmento.keySet().iterator().next();
+            retirar(segmento, vitima);
+            despejados.add(vitima);
+        }
+        return despejados;
+    }
+
+    private LinkedHashMap<String, Entrada> prova(Entrada entrada) {
+        return entrada.temporada ? provaTemporada : provaHistorica;
+    }
+
+    private int frequencia(String id, Entrada entrada) {
+        return sketch.estimar(id) + (entrada.temporada ? BONUS_TEMPORADA : 0);
+    }
+
+    /**
+     * Registra um acesso (leitura ou atualização) a um bilhete presente.
+     */
+    synchronized void registrarAcesso(String idIngresso) {
+        sketch.incrementar(idIngresso);
+        Entrada entrada = janela.remove(idIngresso);
+        if (entrada != null) {
+            janela.put(idIngresso, entrada);
+            return;
+        }
+        entrada = protegido.remove(idIngresso);
+        if (entrada != null) {
+            protegido.put(idIngresso, entrada);
+            return;
+        }
+        entrada = provaHistorica.remove(idIngresso);
+        if (entrada == null) {
+            entrada = provaTemporada.remove(idIngresso);
+        }
+        if (entrada == null) {
+            return;
+        }
+        // Segundo acesso na prova: promove ao protegido, rebaixando o excedente
+        pesoProva -= entrada.peso;
+        protegido.put(idIngresso, entrada);
+        pesoProtegido += entrada.peso;
+        while (pesoProtegido > pesoMaximoProtegido) {
+            Iterator<Map.Entry<String, Entrada>> maisAntigo = protegido.entrySet().iterator();
+            Map.Entry<String, Entrada> rebaixado = maisAntigo.next();
+            maisAntigo.remove();
+            pesoProtegido -= rebaixado.getValue().peso;
+            prova(rebaixado.getValue()).put(rebaixado.getKey(), rebaixado.getValue());
+            pesoProva += rebaixado.getValue().peso;
+        }
+    }
+
+    /**
+     * Esquece um bilhete removido do cache por outro motivo que não o despejo.
+     */
+    synchronized void remover(String idIngresso) {
+        if (!retirar(janela, idIngresso) && !retirar(provaHistorica, idIngresso)
+                && !retirar(provaTemporada, idIngresso)) {
+            retirar(protegido, idIngresso);
+        }
+    }
+
+    private boolean retirar(LinkedHashMap<String, Entrada> segmento, String idIngresso) {
+        Entrada entrada = segmento.remove(idIngresso);
+        if (entrada == null) {
+            return false;
+        }
+        if (segmento == janela) {
+            pesoJanela -= entrada.peso;
+        } else if (segmento == protegido) {
+            pesoProtegido -= entrada.peso;
+        } else {
+            pesoProva -= entrada.peso;
+        }
+        return true;
+    }
+
+    /**
+     * Peso dos bilhetes presentes somado ao peso externo cobrado do limite.
+     */
+    synchronized long getPesoAtual() {
+        return pesoJanela + pesoProva + pesoProtegido + pesoExterno;
+    }
+
+    long getPesoMaximo() {
+        return pesoMaximo;
+    }
+
+    /**
+     * Sketch count-min de 4 linhas com contadores de 4 bits (máximo 15). Depois de 10 vezes
+     * a largura em incrementos, todos os contadores são divididos por dois, para que a
+     * popularidade antiga perca peso frente à recente.
+     */
+    private static final class SketchFrequencia {
+        private static final int LINHAS = 4;
+        private static final int MAXIMO = 15;
+        private static final long[] SEMENTES = {
+            0x9E3779B97F4A7C15L, 0xC2B2AE3D27D4EB4FL, 0x165667B19E3779F9L, 0xD6E8FEB86659FD93L
+        };
+
+        private final byte[] contadores;
+        private final int mascara;
+        private final int limiteAmostra;
+        private int amostra;
+
+        SketchFrequencia(int largura) {
+            int tamanho = Integer.highestOneBit(Math.max(2, largura) - 1) << 1;
+            this.contadores = new byte[LINHAS * tamanho];
+            this.mascara = tamanho - 1;
+            this.limiteAmostra = 10 * tamanho;
+        }
+
+        void incrementar(String id) {
+            long hash = ContagemPorHash.hash(id);
+            boolean incrementou = false;
+            for (int linha = 0; linha < LINHAS; linha++) {
+                int indice = indice(hash, linha);
+                if (contadores[indice] < MAXIMO) {
+                    contadores[indice]++;
+                    incrementou = true;
+                }
+            }
+            if (incrementou && ++amostra >= limiteAmostra) {
+                envelhecer();
+            }
+        }
+
+        int estimar(String id) {
+            long hash = ContagemPorHash.hash(id);
+            int minimo = MAXIMO;
+            for (int linha = 0; linha < LINHAS; linha++) {
+                minimo = Math.min(minimo, contadores[indice(hash, linha)]);
+            }
+            return minimo;
+        }
+
+        private int indice(long hash, int linha) {
+            long h = (hash + SEMENTES[linha]) * SEMENTES[linha];
+            return linha * (mascara + 1) + ((int) (h >>> 32) & mascara);
+        }
+
+        private void envelhecer() {
+            for (int i = 0; i < contadores.length; i++) {
+                contadores[i] >>= 1;
+            }
+            amostra /= 2;
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.teatroabc.admin.infraestrutura.persistencia.cache;
+
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Retrato imutável dos agregados de uma geração do cache: totais, contagens,
+ * receita por peça e por turno e ocupação por sessão.
+ * Todos os valores correspondem ao mesmo instante da geração em que foram lidos.
+ */
+public final class ResumoCache {
+
+    private final BigDecimal totalVendas;
+    private final BigDecimal totalReembolsos;
+    private final int quantidadeBilhetes;
+    private final int quantidadeReembolsados;
+    private final Map<String, BigDecimal> vendasPorPeca;
+    private final Map<String, BigDecimal> vendasPorTurno;
+    private final List<OcupacaoSessao> ocupacaoPorSessao;
+
+    /**
+     * Ocupação de uma sessão (peça + turno + nome da sessão).
+     */
+    public static final class OcupacaoSessao {
+        private final String nomePeca;
+        private final String turno;
+        private final String nomeSessao;
+        private final int bilhetesAtivos;
+        private final int capacidade;
+
+        OcupacaoSessao(String nomePeca, String turno, String nomeSessao, int bilhetesAtivos, int capacidade) {
+            this.nomePeca = nomePeca;
+            this.turno = turno;
+            this.nomeSessao = nomeSessao;
+            this.bilhetesAtivos = bilhetesAtivos;
+            this.capacidade = capacidade;
+        }
+
+        public String getNomePeca() { return nomePeca; }
+        public String getTurno() { return turno; }
+        public String getNomeSessao() { return nomeSessao; }
+        public int getBilhetesAtivos() { return bilhetesAtivos; }
+        public int getCapacidade() { return capacidade; }
+
+        /**
+         * @return Fração da capacidade ocupada por bilhetes não reembolsados (0 se a capacidade for desconhecida)
+         */
+        public double getTaxaOcupacao() {
+            return capacidade > 0 ? (double) bilhetesAtivos / capacidade : 0.0;
+        }
+    }
+
+    ResumoCache(BigDecimal totalVendas, BigDecimal totalReembolsos,
+                int quantidadeBilhetes, int quantidadeReembolsados,
+                Map<String, BigDecimal> vendasPorPeca, Map<String, BigDecimal> vendasPorTurno,
+                List<OcupacaoSessao> ocupacaoPorSessao) {
+        this.totalVendas = totalVendas;
+        this.totalReembolsos = totalReembolsos;
+        this.quantidadeBilhetes = quantidadeBilhetes;
+        this.quantidadeReembolsados = quantidadeReembolsados;
+        this.vendasPorPeca = Collections.unmodifiableMap(vendasPorPeca);
+        this.vendasPorTurno = Collections.unmodifiableMap(vendasPorTurno);
+        this.ocupacaoPorSessao = Collections.unmodifiableList(ocupacaoPorSessao);
+    }
+
+    public BigDecimal getTotalVendas() {
+        return totalVendas;
+    }
+
+    public BigDecimal getTotalReembolsos() {
+        return totalReembolsos;
+    }
+
+    public int getQuantidadeBilhetes() {
+        return quantidadeBilhetes;
+    }
+
+    public int getQuantidadeReembolsados() {
+        return quantidadeReembolsados;
+    }
+
+    public Map<String, BigDecimal> getVendasPorPeca() {
+        return vendasPorPeca;
+    }
+
+    public Map<String, BigDecimal> getVendasPorTurno() {
+        return vendasPorTurno;
+    }
+
+    public List<OcupacaoSessao> getOcupacaoPorSessao() {
+        return ocupacaoPorSessao;
+    }
+}
@@ -0,0 +1,322 @@
+package com.teatroabc.admin.infraestrutura.persistencia.cache;
+
+import com.teatroabc.admin.dominio.entidades.BilheteVendido;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * Formato binário compacto do conteúdo do cache, para reiniciar a aplicação sem varrer
+ * vw_bilhetes: o snapshot é lido de um arquivo mapeado em memória e só as alterações
+ * posteriores à sua marca d'água são buscadas no banco.
+ *
+ * Layout (big-endian):
+ * <pre>
+ * cabeçalho: MAGICO, VERSAO, marca d'água (segundos + nanos), quantidade, posição do dicionário
+ * bilhetes:  id, cpf, poltrona (textos), peça, turno, sessão (índices do dicionário),
+ *            capacidade, preço (valor sem escala + escala), flags, datas presentes
+ * dicionário: textos de peça, turno e sessão, na ordem dos índices
+ * CRC32 de bilhetes + dicionário, seguidos do cabeçalho
+ * </pre>
+ * O arquivo é gravado em um temporário e movido atomicamente, de modo que uma queda durante
+ * a gravação mantém o snapshot anterior.
+ */
+final class SnapshotCache {
+
+    private static final int MAGICO = 0x54414243; // "TABC"
+    private static final int VERSAO = 1;
+    private static final int TAMANHO_CABECALHO = 4 + 4 + 8 + 4 + 4 + 8;
+    private static final int TAMANHO_BUFFER_ESCRITA = 1 << 20;
+
+    private static final byte FLAG_REEMBOLSADO = 1;
+    private static final byte FLAG_DATA_REEMBOLSO = 2;
+    private static final byte FLAG_DATA_COMPRA = 4;
+
+    private SnapshotCache() {
+    }
+
+    /**
+     * Grava os bilhetes do armazenamento no arquivo.
+     * @param marca Instante do banco até o qual os bilhetes refletem o banco de dados
+     */
+    static void gravar(Path arquivo, LocalDateTime marca, ArmazenamentoBilhetes armazenamento) throws IOException {
+        Path diretorio = arquivo.toAbsolutePath().getParent();
+        if (diretorio != null) {
+            Files.createDirectories(diretorio);
+        }
+        Path temporario = arquivo.resolveSibling(arquivo.getFileName() + ".tmp");
+
+        try (FileChannel canal = FileChannel.open(temporario, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            Escritor escritor = new Escritor(canal, TAMANHO_CABECALHO); // cabeçalho gravado no final
+
+            Map<String, Integer> indices = new HashMap<>();
+            List<String> dicionario = new ArrayList<>();
+            int[] quantidade = {0};
+            IOException[] erro = {null};
+            armazenamento.paraCada(bilhete -> {
+                if (erro[0] != null) {
+                    return;
+                }
+                try {
+                    escritor.bilhete(bilhete, indices, dicionario);
+                    quantidade[0]++;
+                } catch (IOException e) {
+                    erro[0] = e;
+                }
+            });
+            if (erro[0] != null) {
+                throw erro[0];
+            }
+
+            long posicaoDicionario = escritor.posicao();
+            escritor.inteiro(dicionario.size());
+            for (String texto : dicionario) {
+                escritor.texto(texto);
+            }
+            escritor.descarregar();
+
+            ByteBuffer cabecalho = ByteBuffer.allocate(TAMANHO_CABECALHO);
+            cabecalho.putInt(MAGICO).putInt(VERSAO)
+                     .putLong(marca.toEpochSecond(ZoneOffset.UTC)).putInt(marca.getNano())
+                     .putInt(quantidade[0]).putLong(posicaoDicionario).flip();
+            escritor.crc.update(cabecalho.duplicate());
+            canal.write(cabecalho, 0);
+
+            ByteBuffer rodape = ByteBuffer.allocate(4).putInt((int) escritor.crc.getValue());
+            rodape.flip();
+            canal.write(rodape, escritor.posicao());
+            canal.force(true);
+        }
+        Files.move(temporario, arquivo, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Lê o cabeçalho do snapshot e confere versão e integridade, sem criar bilhetes.
+     * @return Arquivo mapeado e validado, pronto para ler
+     * @throws IOException Se o arquivo for de outra versão, estiver truncado ou corrompido
+     */
+    static Leitura abrir(Path arquivo) throws IOException {
+        try (FileChannel canal = FileChannel.open(arquivo, StandardOpenOption.READ)) {
+            long tamanho = canal.size();
+            if (tamanho < TAMANHO_CABECALHO + 8 || tamanho > Integer.MAX_VALUE) {
+                throw new IOException("Tamanho de snapshot inválido: " + tamanho + " bytes");
+            }
+            // O mapeamento continua válido depois que o canal é fechado
+            MappedByteBuffer mapa = canal.map(FileChannel.MapMode.READ_ONLY, 0, tamanho);
+
+            if (mapa.getInt(0) != MAGICO) {
+                throw new IOException("Arquivo não é um snapshot do cache");
+            }
+            if (mapa.getInt(4) != VERSAO) {
+                throw new IOException("Versão de snapshot não suportada: " + mapa.getInt(4));
+            }
+            CRC32 crc = new CRC32();
+            crc.update(mapa.duplicate().limit((int) tamanho - 4).position(TAMANHO_CABECALHO));
+            crc.update(mapa.duplicate().limit(TAMANHO_CABECALHO));
+            if (mapa.getInt((int) tamanho - 4) != (int) crc.getValue()) {
+                throw new IOException("Snapshot corrompido (CRC não confere)");
+            }
+            return new Leitura(mapa, (int) tamanho - 4);
+        }
+    }
+
+    /**
+     * Snapshot mapeado e validado.
+     */
+    static final class Leitura {
+        private final MappedByteBuffer mapa;
+        private final int fimDados;
+
+        private Leitura(MappedByteBuffer mapa, int fimDados) {
+            this.mapa = mapa;
+            this.fimDados = fimDados;
+        }
+
+        LocalDateTime marca() {
+            return LocalDateTime.ofEpochSecond(mapa.getLong(8), mapa.getInt(16), ZoneOffset.UTC);
+        }
+
+        int quantidade() {
+            return mapa.getInt(20);
+        }
+
+        /**
+         * Entrega cada bilhete do snapshot ao consumidor, na ordem gravada.
+         */
+        void lerBilhetes(Consumer<BilheteVendido> consumidor) {
+            ByteBuffer dados = mapa.duplicate();
+            int posicaoDicionario = (int) mapa.getLong(24);
+            byte[] rascunho = new byte[256];
+
+            dados.position(posicaoDicionario).limit(fimDados);
+            String[] dicionario = new String[dados.getInt()];
+            for (int i = 0; i < dicionario.length; i++) {
+                dicionario[i] = lerTexto(dados, rascunho);
+            }
+
+            dados.position(TAMANHO_CABECALHO).limit(posicaoDicionario);
+            Map<Long, BigDecimal> precos = new HashMap<>();
+            int quantidade = quantidade();
+            for (int i = 0; i < quantidade; i++) {
+                String idIngresso = lerTexto(dados, rascunho);
+                String cpf = lerTexto(dados, rascunho);
+                String poltrona = lerTexto(dados, rascunho);
+                String nomePeca = doDicionario(dicionario, dados.getInt());
+                String turno = doDicionario(dicionario, dados.getInt());
+                String nomeSessao = doDicionario(dicionario, dados.getInt());
+                int capacidade = dados.getInt();
+                long precoSemEscala = dados.getLong();
+                byte escala = dados.get();
+                // Poucos preços distintos: uma instância por valor
+                BigDecimal preco = precos.computeIfAbsent(precoSemEscala * 64 + escala,
+                                                          k -> BigDecimal.valueOf(precoSemEscala, escala));
+                byte flags = dados.get();
+
+                BilheteVendido bilhete = new BilheteVendido(idIngresso, cpf, nomePeca, turno, poltrona,
+                                                            nomeSessao, capacidade, preco);
+                LocalDateTime dataReembolso = (flags & FLAG_DATA_REEMBOLSO) != 0 ? lerData(dados) : null;
+                if ((flags & FLAG_REEMBOLSADO) != 0) {
+                    bilhete.restaurarReembolso(dataReembolso);
+                }
+                if ((flags & FLAG_DATA_COMPRA) != 0) {
+                    bilhete.restaurarDataCompra(lerData(dados));
+                }
+                consumidor.accept(bilhete);
+            }
+        }
+    }
+
+    private static String doDicionario(String[] dicionario, int indice) {
+        return indice < 0 ? null : dicionario[indice];
+    }
+
+    private static String lerTexto(ByteBuffer dados, byte[] rascunho) {
+        int tamanho = dados.getShort() & 0xFFFF;
+        if (tamanho == 0xFFFF) {
+            return null;
+        }
+        byte[] bytes = tamanho <= rascunho.length ? rascunho : new byte[tamanho];
+        dados.get(bytes, 0, tamanho);
+        return new String(bytes, 0, tamanho, StandardCharsets.UTF_8);
+    }
+
+    private static LocalDateTime lerData(ByteBuffer dados) {
+        return LocalDateTime.ofEpochSecond(dados.getLong(), dados.getInt(), ZoneOffset.UTC);
+    }
+
+    /**
+     * Escrita sequencial em um buffer grande, descarregado no canal quando enche.
+     */
+    private static final class Escritor {
+        private final FileChannel canal;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(TAMANHO_BUFFER_ESCRITA);
+        // Calculado sobre o que é descarregado, sem reler o arquivo
+        private final CRC32 crc = new CRC32();
+        private long gravados;
+
+        Escritor(FileChannel canal, long inicio) {
+            this.canal = canal;
+            this.gravados = inicio;
+        }
+
+        long posicao() {
+            return gravados + buffer.position();
+        }
+
+        void bilhete(BilheteVendido bilhete, Map<String, Integer> indices, List<String> dicionario) throws IOException {
+            texto(bilhete.getIdIngresso());
+            texto(bilhete.getCpf());
+            texto(bilhete.getNumeroPoltronas());
+            garantirEspaco(4 * 4 + 8 + 1 + 1 + 2 * 12);
+            buffer.putInt(indice(bilhete.getNomePeca(), indices, dicionario));
+            buffer.putInt(indice(bilhete.getTurno(), indices, dicionario));
+            buffer.putInt(indice(bilhete.getNomeSessao(), indices, dicionario));
+            buffer.putInt(bilhete.getCapacidade());
+
+            BigDecimal preco = bilhete.getPreco();
+            if (preco.scale() < 0 || preco.scale() > 63 || preco.unscaledValue().bitLength() > 57) {
+                throw new IOException("Preço fora do formato do snapshot: " + preco);
+            }
+            buffer.putLong(preco.unscaledValue().longValue());
+            buffer.put((byte) preco.scale());
+
+            byte flags = 0;
+            if (bilhete.isReembolsado()) flags |= FLAG_REEMBOLSADO;
+            if (bilhete.getDataReembolso() != null) flags |= FLAG_DATA_REEMBOLSO;
+            if (bilhete.getDataCompra() != null) flags |= FLAG_DATA_COMPRA;
+            buffer.put(flags);
+            if (bilhete.getDataReembolso() != null) data(bilhete.getDataReembolso());
+            if (bilhete.getDataCompra() != null) data(bilhete.getDataCompra());
+        }
+
+        void inteiro(int valor) throws IOException {
+            garantirEspaco(4);
+            buffer.putInt(valor);
+        }
+
+        void texto(String texto) throws IOException {
+            if (texto == null) {
+                garantirEspaco(2);
+                buffer.putShort((short) 0xFFFF);
+                return;
+            }
+            byte[] bytes = texto.getBytes(StandardCharsets.UTF_8);
+            if (bytes.length >= 0xFFFF) {
+                throw new IOException("Texto longo demais para o snapshot: " + bytes.length + " bytes");
+            }
+            garantirEspaco(2 + bytes.length);
+            buffer.putShort((short) bytes.length);
+            buffer.put(bytes);
+        }
+
+        private void data(LocalDateTime data) {
+            buffer.putLong(data.toEpochSecond(ZoneOffset.UTC));
+            buffer.putInt(data.getNano());
+        }
+
+        private static int indice(String texto, Map<String, Integer> indices, List<String> dicionario) {
+            if (texto == null) {
+                return -1;
+            }
+            Integer indice = indices.get(texto);
+            if (indice == null) {
+                indice = dicionario.size();
+                indices.put(texto, indice);
+                dicionario.add(texto);
+            }
+            return indice;
+        }
+
+        private void garantirEspaco(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                descarregar();
+            }
+        }
+
+        void descarregar() throws IOException {
+            buffer.flip();
+            crc.update(buffer.duplicate());
+            while (buffer.hasRemaining()) {
+                gravados += canal.write(buffer, gravados);
+            }
+            buffer.clear();
+        }
+    }
+}
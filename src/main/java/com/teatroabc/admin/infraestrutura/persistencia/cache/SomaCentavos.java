@@ -0,0 +1,79 @@
+package com.teatroabc.admin.infraestrutura.persistencia.cache;
+
+import java.math.BigDecimal;
+
+/**
+ * Acumulador monetário em centavos (long), usado nos agregados do cache para somar preços
+ * sem alocar um BigDecimal por bilhete.
+ * Valores que não cabem em centavos exatos (mais de duas casas decimais) e somas que
+ * estourariam o long são desviados para uma parcela BigDecimal, de modo que o resultado
+ * é sempre idêntico ao da soma feita inteiramente com BigDecimal.
+ * Não é thread-safe.
+ */
+class SomaCentavos {
+
+    private static final int CASAS_DECIMAIS = 2;
+    private static final int DIGITOS_INTEIROS_SEGUROS = 13;
+
+    private long centavos = 0;
+    // Parcela que não pôde ser representada em centavos; null enquanto não houver
+    private BigDecimal excedente = null;
+
+    /**
+     * Soma (sinal 1) ou subtrai (sinal -1) um valor.
+     */
+    void somar(BigDecimal valor, int sinal) {
+        long emCentavos = paraCentavos(valor);
+        if (emCentavos != Long.MIN_VALUE) {
+            try {
+                centavos = Math.addExact(centavos, sinal > 0 ? emCentavos : -emCentavos);
+                return;
+            } catch (ArithmeticException estouro) {
+                // Cai para a parcela exata abaixo
+            }
+        }
+        BigDecimal parcela = sinal > 0 ? valor : valor.negate();
+        excedente = excedente == null ? parcela : excedente.add(parcela);
+    }
+
+    /**
+     * Soma ao acumulado o valor de outra soma (usado para juntar resultados parciais).
+     */
+    void mesclar(SomaCentavos outra) {
+        try {
+            centavos = Math.addExact(centavos, outra.centavos);
+        } catch (ArithmeticException estouro) {
+            BigDecimal parcela = BigDecimal.valueOf(outra.centavos, CASAS_DECIMAIS);
+            excedente = excedente == null ? parcela : excedente.add(parcela);
+        }
+        if (outra.excedente != null) {
+            excedente = excedente == null ? outra.excedente : excedente.add(outra.excedente);
+        }
+    }
+
+    /**
+     * Converte o acumulado para BigDecimal, sem perda.
+     */
+    BigDecimal valor() {
+        BigDecimal valor = BigDecimal.valueOf(centavos, CASAS_DECIMAIS);
+        return excedente == null ? valor : valor.add(excedente);
+    }
+
+    /**
+     * Valor em centavos, ou Long.MIN_VALUE se o valor tiver frações de centavo ou não couber em long.
+     */
+    static long paraCentavos(BigDecimal valor) {
+        int escala = valor.scale();
+        if (escala >= 0 && escala <= CASAS_DECIMAIS && valor.precision() - escala <= DIGITOS_INTEIROS_SEGUROS) {
+            // Caminho rápido, sem alocação: com até 13 dígitos inteiros o valor em centavos fica
+            // abaixo de 2^50, e o erro do double (< 0,5 centavo) é eliminado pelo arredondamento
+            return Math.round(valor.doubleValue() * 100);
+        }
+        try {
+            // Um resultado igual a Long.MIN_VALUE também vai para a parcela exata, o que é inofensivo
+            return valor.movePointRight(CASAS_DECIMAIS).longValueExact();
+        } catch (ArithmeticException e) {
+            return Long.MIN_VALUE;
+        }
+    }
+}
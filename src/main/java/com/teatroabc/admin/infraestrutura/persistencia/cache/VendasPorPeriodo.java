@@ -0,0 +1,89 @@
+package com.teatroabc.admin.infraestrutura.persistencia.cache;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Receita agregada por data de compra em três níveis: dia, mês e ano.
+ * Cada venda é somada nos três níveis, de modo que consultas por ano ou por mês leem um único
+ * balde e um intervalo arbitrário é decomposto em anos e meses inteiros mais os dias das pontas.
+ * Não é thread-safe: segue as mesmas regras de acesso de AgregadosCache.
+ */
+class VendasPorPeriodo {
+
+    // Chave: dias desde a época (LocalDate.toEpochDay)
+    private final TreeMap<Long, SomaCentavos> porDia = new TreeMap<>();
+    // Chave: ano * 12 + (mês - 1)
+    private final Map<Integer, SomaCentavos> porMes = new HashMap<>();
+    private final Map<Integer, SomaCentavos> porAno = new HashMap<>();
+
+    void somar(LocalDate dia, BigDecimal valor, int sinal) {
+        porDia.computeIfAbsent(dia.toEpochDay(), k -> new SomaCentavos()).somar(valor, sinal);
+        porMes.computeIfAbsent(chaveMes(dia.getYear(), dia.getMonthValue()), k -> new SomaCentavos()).somar(valor, sinal);
+        porAno.computeIfAbsent(dia.getYear(), k -> new SomaCentavos()).somar(valor, sinal);
+    }
+
+    /**
+     * Soma a este os baldes de outro agregado parcial.
+     */
+    void mesclar(VendasPorPeriodo outro) {
+        outro.porDia.forEach((dia, soma) -> porDia.computeIfAbsent(dia, k -> new SomaCentavos()).mesclar(soma));
+        outro.porMes.forEach((mes, soma) -> porMes.computeIfAbsent(mes, k -> new SomaCentavos()).mesclar(soma));
+        outro.porAno.forEach((ano, soma) -> porAno.computeIfAbsent(ano, k -> new SomaCentavos()).mesclar(soma));
+    }
+
+    BigDecimal doAno(int ano) {
+        SomaCentavos soma = porAno.get(ano);
+        return soma != null ? soma.valor() : BigDecimal.ZERO;
+    }
+
+    BigDecimal doMes(int ano, int mes) {
+        SomaCentavos soma = porMes.get(chaveMes(ano, mes));
+        return soma != null ? soma.valor() : BigDecimal.ZERO;
+    }
+
+    /**
+     * Receita das compras feitas entre as duas datas, inclusive.
+     */
+    BigDecimal entre(LocalDate inicio, LocalDate fim) {
+        if (porDia.isEmpty() || inicio.isAfter(fim)) {
+            return BigDecimal.ZERO;
+        }
+
+        // Limita o intervalo aos dias que têm vendas, para não percorrer anos vazios
+        LocalDate primeiro = LocalDate.ofEpochDay(porDia.firstKey());
+        LocalDate ultimo = LocalDate.ofEpochDay(porDia.lastKey());
+        LocalDate dia = inicio.isBefore(primeiro) ? primeiro : inicio;
+        LocalDate limite = fim.isAfter(ultimo) ? ultimo : fim;
+
+        SomaCentavos total = new SomaCentavos();
+        while (!dia.isAfter(limite)) {
+            LocalDate fimDoAno = dia.withDayOfYear(dia.lengthOfYear());
+            LocalDate fimDoMes = dia.withDayOfMonth(dia.lengthOfMonth());
+            if (dia.getDayOfYear() == 1 && !fimDoAno.isAfter(limite)) {
+                mesclar(total, porAno.get(dia.getYear()));
+                dia = fimDoAno.plusDays(1);
+            } else if (dia.getDayOfMonth() == 1 && !fimDoMes.isAfter(limite)) {
+                mesclar(total, porMes.get(chaveMes(dia.getYear(), dia.getMonthValue())));
+                dia = fimDoMes.plusDays(1);
+            } else {
+                mesclar(total, porDia.get(dia.toEpochDay()));
+                dia = dia.plusDays(1);
+            }
+        }
+        return total.valor();
+    }
+
+    private static void mesclar(SomaCentavos total, SomaCentavos parcela) {
+        if (parcela != null) {
+            total.mesclar(parcela);
+        }
+    }
+
+    private static int chaveMes(int ano, int mes) {
+        return ano * 12 + (mes - 1);
+    }
+}
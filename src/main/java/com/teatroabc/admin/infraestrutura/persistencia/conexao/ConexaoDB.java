@@ -3,21 +3,27 @@ package com.teatroabc.admin.infraestrutura.persistencia.conexao;
 import java.io.IOException;
 import java.io.InputStream;
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Classe responsável por gerenciar a conexão com o banco de dados.
  * Utiliza um arquivo de propriedades para configuração.
+ * As conexões são emprestadas de um pool compartilhado por URL e credenciais.
  */
 public class ConexaoDB {
     
     private String url;
     private String usuario;
     private String senha;
+    private PoolConexoes.Configuracao configuracaoPool;
     private static final String ARQUIVO_PROPRIEDADES = "/database.properties";
     private static boolean driverCarregado = false;
+    private static final Map<List<String>, PoolConexoes> POOLS = new ConcurrentHashMap<>();
     
     /**
      * Construtor que inicializa as propriedades de conexão a partir do arquivo de configuração.
@@ -68,6 +74,7 @@ public class ConexaoDB {
                 this.url = propriedades.getProperty("url");
                 this.usuario = propriedades.getProperty("usuario", "root");
                 this.senha = propriedades.getProperty("senha", "@Pitoco123");
+                this.configuracaoPool = PoolConexoes.Configuracao.deProperties(propriedades);
                 
                 System.out.println("Propriedades carregadas do arquivo: " + ARQUIVO_PROPRIEDADES);
                 System.out.println("URL: " + this.url);
@@ -78,25 +85,28 @@ public class ConexaoDB {
                 System.out.println("Usando configurações padrão...");
                 
                 // Valores padrão em caso de falha na leitura do arquivo
-                this.url = "jdbc:mysql://localhost:3306/teatro?useSSL=false&serverTimezone=UTC";
+                this.url = "jdbc:mysql://localhost:3306/teatro?useSSL=false&serverTimezone=UTC&rewriteBatchedStatements=true";
                 this.usuario = "root";
                 this.senha = "";
+                this.configuracaoPool = PoolConexoes.Configuracao.padrao();
             }
         } catch (IOException e) {
             System.err.println("Erro ao carregar propriedades de conexão: " + e.getMessage());
             e.printStackTrace();
             
             // Valores padrão em caso de falha na leitura do arquivo
-            this.url = "jdbc:mysql://localhost:3306/teatro?useSSL=false&serverTimezone=UTC";
+            this.url = "jdbc:mysql://localhost:3306/teatro?useSSL=false&serverTimezone=UTC&rewriteBatchedStatements=true";
             this.usuario = "root";
             this.senha = "";
+            this.configuracaoPool = PoolConexoes.Configuracao.padrao();
         }
     }
     
     /**
-     * Obtém uma conexão com o banco de dados.
+     * Obtém uma conexão com o banco de dados a partir do pool.
+     * Fechar a conexão devolve-a ao pool.
      * @return Conexão aberta com o banco de dados
-     * @throws SQLException Em caso de erro na conexão
+     * @throws SQLException Em caso de erro na conexão ou tempo de espera esgotado
      */
     public Connection obterConexao() throws SQLException {
         if (!driverCarregado) {
@@ -104,10 +114,7 @@ public class ConexaoDB {
         }
         
         try {
-            System.out.println("Tentando conectar com: " + url);
-            Connection conn = DriverManager.getConnection(url, usuario, senha);
-            System.out.println("Conexão estabelecida com sucesso!");
-            return conn;
+            return obterPool().emprestar();
         } catch (SQLException e) {
             System.err.println("Erro ao obter conexão com o banco de dados: " + e.getMessage());
             System.err.println("URL: " + url);
@@ -123,6 +130,38 @@ public class ConexaoDB {
         }
     }
     
+    /**
+     * Obtém (ou cria) o pool compartilhado para a URL e as credenciais atuais.
+     * Após setUsuario/setSenha, as conexões vêm de um pool aberto com as novas credenciais.
+     * @return Pool de conexões
+     */
+    public PoolConexoes obterPool() {
+        String urlAtual = url;
+        String usuarioAtual = usuario;
+        String senhaAtual = senha;
+        List<String> chave = Arrays.asList(urlAtual, usuarioAtual, senhaAtual);
+        return POOLS.computeIfAbsent(chave,
+                k -> new PoolConexoes(urlAtual, usuarioAtual, senhaAtual, configuracaoPool));
+    }
+    
+    /**
+     * Métricas do pool (ativas, ociosas, aguardando) para dimensionamento.
+     * @return Mapa com as métricas do pool
+     */
+    public Map<String, Object> obterMetricasPool() {
+        return obterPool().obterMetricas();
+    }
+    
+    /**
+     * Encerra todos os pools de conexões abertos pela aplicação.
+     */
+    public static void fecharPools() {
+        for (PoolConexoes pool : POOLS.values()) {
+            pool.fechar();
+        }
+        POOLS.clear();
+    }
+    
     /**
      * Verifica se a conexão com o banco de dados está disponível.
      * @return true se a conexão estiver disponível, false caso contrário
@@ -0,0 +1,501 @@
+package com.teatroabc.admin.infraestrutura.persistencia.conexao;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pool limitado de conexões JDBC.
+ * Reaproveita conexões físicas para evitar o handshake TCP + autenticação a cada operação.
+ * As conexões entregues são proxies: chamar close() devolve a conexão ao pool em vez de fechá-la.
+ * Statements, result sets e metadados obtidos delas também são proxies, para que getConnection()
+ * e getStatement() devolvam o proxy e nunca a conexão física; só unwrap() dá acesso a ela.
+ */
+public class PoolConexoes {
+
+    /**
+     * Parâmetros de configuração do pool, lidos de database.properties (prefixo "pool.").
+     */
+    public static class Configuracao {
+        final int tamanhoMinimo;
+        final int tamanhoMaximo;
+        final long timeoutEmprestimoMs;
+        final long tempoOciosoMaximoMs;
+        final long limiteVazamentoMs;
+        final int timeoutValidacaoSeg;
+        final long intervaloManutencaoMs;
+
+        public Configuracao(int tamanhoMinimo, int tamanhoMaximo, long timeoutEmprestimoMs,
+                            long tempoOciosoMaximoMs, long limiteVazamentoMs,
+                            int timeoutValidacaoSeg, long intervaloManutencaoMs) {
+            if (tamanhoMaximo < 1) {
+                throw new IllegalArgumentException("Tamanho máximo do pool deve ser maior que zero");
+            }
+            if (tamanhoMinimo < 0 || tamanhoMinimo > tamanhoMaximo) {
+                throw new IllegalArgumentException("Tamanho mínimo do pool deve estar entre 0 e o tamanho máximo");
+            }
+            this.tamanhoMinimo = tamanhoMinimo;
+            this.tamanhoMaximo = tamanhoMaximo;
+            this.timeoutEmprestimoMs = timeoutEmprestimoMs;
+            this.tempoOciosoMaximoMs = tempoOciosoMaximoMs;
+            this.limiteVazamentoMs = limiteVazamentoMs;
+            this.timeoutValidacaoSeg = timeoutValidacaoSeg;
+            this.intervaloManutencaoMs = intervaloManutencaoMs;
+        }
+
+        /**
+         * Cria a configuração a partir das propriedades, usando valores padrão para chaves ausentes.
+         * @param propriedades Propriedades carregadas de database.properties
+         * @return Configuração do pool
+         */
+        public static Configuracao deProperties(Properties propriedades) {
+            return new Configuracao(
+                lerInt(propriedades, "pool.tamanhoMinimo", 2),
+                lerInt(propriedades, "pool.tamanhoMaximo", 10),
+                lerLong(propriedades, "pool.timeoutEmprestimoMs", 5000),
+                lerLong(propriedades, "pool.tempoOciosoMaximoMs", 300000),
+                lerLong(propriedades, "pool.limiteVazamentoMs", 60000),
+                lerInt(propriedades, "pool.timeoutValidacaoSeg", 2),
+                lerLong(propriedades, "pool.intervaloManutencaoMs", 30000)
+            );
+        }
+
+        /**
+         * Configuração padrão, usada quando o arquivo de propriedades não está disponível.
+         */
+        public static Configuracao padrao() {
+            return deProperties(new Properties());
+        }
+
+        private static int lerInt(Properties propriedades, String chave, int padrao) {
+            String valor = propriedades.getProperty(chave);
+            if (valor == null || valor.trim().isEmpty()) {
+                return padrao;
+            }
+            try {
+                return Integer.parseInt(valor.trim());
+            } catch (NumberFormatException e) {
+                System.err.println("Valor inválido para " + chave + ": " + valor + ". Usando " + padrao);
+                return padrao;
+            }
+        }
+
+        private static long lerLong(Properties propriedades, String chave, long padrao) {
+            String valor = propriedades.getProperty(chave);
+            if (valor == null || valor.trim().isEmpty()) {
+                return padrao;
+            }
+            try {
+                return Long.parseLong(valor.trim());
+            } catch (NumberFormatException e) {
+                System.err.println("Valor inválido para " + chave + ": " + valor + ". Usando " + padrao);
+                return padrao;
+            }
+        }
+    }
+
+    /**
+     * Conexão física parada no pool, com o instante em que foi devolvida.
+     */
+    private static class ConexaoOciosa {
+        final Connection fisica;
+        final long devolvidaEm;
+
+        ConexaoOciosa(Connection fisica, long devolvidaEm) {
+            this.fisica = fisica;
+            this.devolvidaEm = devolvidaEm;
+        }
+    }
+
+    /**
+     * Registro de uma conexão emprestada, usado para devolução e detecção de vazamentos.
+     */
+    private static class Emprestimo {
+        final Connection fisica;
+        final long emprestadaEm;
+        final Throwable origem;
+        volatile boolean devolvida;
+        volatile boolean vazamentoReportado;
+
+        Emprestimo(Connection fisica, long emprestadaEm, Throwable origem) {
+            this.fisica = fisica;
+            this.emprestadaEm = emprestadaEm;
+            this.origem = origem;
+        }
+    }
+
+    private final String url;
+    private final String usuario;
+    private final String senha;
+    private final Configuracao configuracao;
+    private final Semaphore permissoes;
+    private final Deque<ConexaoOciosa> ociosas;
+    private final Map<Emprestimo, Boolean> emprestadas;
+    private final ScheduledExecutorService manutencao;
+    private volatile boolean fechado;
+
+    /**
+     * Cria o pool e agenda a tarefa de manutenção (eviction, tamanho mínimo e vazamentos).
+     * @param url URL JDBC
+     * @param usuario Usuário do banco
+     * @param senha Senha do banco
+     * @param configuracao Parâmetros do pool
+     */
+    public PoolConexoes(String url, String usuario, String senha, Configuracao configuracao) {
+        this.url = url;
+        this.usuario = usuario;
+        this.senha = senha;
+        this.configuracao = configuracao;
+        this.permissoes = new Semaphore(configuracao.tamanhoMaximo, true);
+        this.ociosas = new ArrayDeque<>();
+        this.emprestadas = new ConcurrentHashMap<>();
+        this.fechado = false;
+
+        this.manutencao = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "Pool-Conexoes-Manutencao");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.manutencao.scheduleWithFixedDelay(this::executarManutencao,
+                0, configuracao.intervaloManutencaoMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Empresta uma conexão do pool, aguardando até o timeout configurado se todas estiverem em uso.
+     * A conexão é validada antes de ser entregue.
+     * @return Conexão que volta ao pool quando fechada
+     * @throws SQLException Se o tempo de espera esgotar ou não for possível abrir uma conexão
+     */
+    public Connection emprestar() throws SQLException {
+        if (fechado) {
+            throw new SQLException("Pool de conexões já foi encerrado");
+        }
+
+        try {
+            if (!permissoes.tryAcquire(configuracao.timeoutEmprestimoMs, TimeUnit.MILLISECONDS)) {
+                throw new SQLTimeoutException("Tempo esgotado aguardando conexão do pool após "
+                        + configuracao.timeoutEmprestimoMs + "ms " + descreverEstado());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrompido aguardando conexão do pool", e);
+        }
+
+        try {
+            Connection fisica = obterConexaoValida();
+            Emprestimo emprestimo = new Emprestimo(fisica, System.currentTimeMillis(),
+                    new Throwable("Conexão emprestada por " + Thread.currentThread().getName()));
+            emprestadas.put(emprestimo, Boolean.TRUE);
+            return criarProxy(emprestimo);
+        } catch (SQLException | RuntimeException e) {
+            permissoes.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Retira uma conexão ociosa válida ou abre uma nova conexão física.
+     */
+    private Connection obterConexaoValida() throws SQLException {
+        while (true) {
+            ConexaoOciosa ociosa;
+            synchronized (ociosas) {
+                ociosa = ociosas.pollFirst();
+            }
+            if (ociosa == null) {
+                return abrirConexaoFisica();
+            }
+            if (validar(ociosa.fisica)) {
+                return ociosa.fisica;
+            }
+            fecharSilenciosamente(ociosa.fisica);
+        }
+    }
+
+    private boolean validar(Connection fisica) {
+        try {
+            return !fisica.isClosed() && fisica.isValid(configuracao.timeoutValidacaoSeg);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private Connection abrirConexaoFisica() throws SQLException {
+        return DriverManager.getConnection(url, usuario, senha);
+    }
+
+    /**
+     * Devolve a conexão física ao pool, restaurando o estado padrão da sessão.
+     */
+    private void devolver(Emprestimo emprestimo) {
+        synchronized (emprestimo) {
+            if (emprestimo.devolvida) {
+                return;
+            }
+            emprestimo.devolvida = true;
+        }
+        emprestadas.remove(emprestimo);
+
+        Connection fisica = emprestimo.fisica;
+        boolean reutilizavel = !fechado;
+        try {
+            if (reutilizavel && !fisica.isClosed()) {
+                if (!fisica.getAutoCommit()) {
+                    fisica.rollback();
+                    fisica.setAutoCommit(true);
+                }
+            } else {
+                reutilizavel = false;
+            }
+        } catch (SQLException e) {
+            reutilizavel = false;
+        }
+
+        if (reutilizavel) {
+            synchronized (ociosas) {
+                ociosas.offerFirst(new ConexaoOciosa(fisica, System.currentTimeMillis()));
+            }
+        } else {
+            fecharSilenciosamente(fisica);
+        }
+        permissoes.release();
+    }
+
+    private Connection criarProxy(Emprestimo emprestimo) {
+        InvocationHandler handler = new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                String nome = method.getName();
+                switch (nome) {
+                    case "close":
+                        devolver(emprestimo);
+                        return null;
+                    case "isClosed":
+                        return emprestimo.devolvida || emprestimo.fisica.isClosed();
+                    case "equals":
+                        return proxy == args[0];
+                    case "hashCode":
+                        return System.identityHashCode(proxy);
+                    case "toString":
+                        return "ConexaoPool[" + emprestimo.fisica + "]";
+                    default:
+                        break;
+                }
+                if (emprestimo.devolvida) {
+                    throw new SQLException("Conexão já foi devolvida ao pool");
+                }
+                Object resultado;
+                try {
+                    resultado = method.invoke(emprestimo.fisica, args);
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+                return envolverDerivado(resultado, method.getReturnType(), (Connection) proxy, null);
+            }
+        };
+        return (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(), new Class<?>[]{Connection.class}, handler);
+    }
+
+    /**
+     * Envolve statements, result sets e metadados obtidos de uma conexão emprestada.
+     * Fechar a conexão física obtida por getConnection() a tiraria do pool sem devolver a permissão.
+     * @param tipo Tipo declarado pelo método que produziu o objeto
+     * @param conexao Proxy da conexão emprestada
+     * @param statement Proxy do statement que gerou o result set (null para os demais)
+     * @return O próprio objeto, se não for de um tipo envolvido
+     */
+    private Object envolverDerivado(Object fisico, Class<?> tipo, Connection conexao, Object statement) {
+        if (fisico == null || !(Statement.class.isAssignableFrom(tipo)
+                || tipo == DatabaseMetaData.class || tipo == ResultSet.class)) {
+            return fisico;
+        }
+        InvocationHandler handler = new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                String nome = method.getName();
+                if (method.getParameterCount() == 0) {
+                    switch (nome) {
+                        case "getConnection":
+                            return conexao;
+                        case "getStatement":
+                            // Result sets de metadados não vêm de um statement do chamador (JDBC: null)
+                            return statement;
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        case "toString":
+                            return "DerivadoPool[" + fisico + "]";
+                        default:
+                            break;
+                    }
+                } else if (nome.equals("equals") && method.getParameterCount() == 1) {
+                    return proxy == args[0];
+                }
+                Object resultado;
+                try {
+                    resultado = method.invoke(fisico, args);
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+                Object dono = Statement.class.isAssignableFrom(tipo) ? proxy : null;
+                return envolverDerivado(resultado, method.getReturnType(), conexao, dono);
+            }
+        };
+        return Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{tipo}, handler);
+    }
+
+    /**
+     * Tarefa periódica: remove conexões ociosas há muito tempo, mantém o tamanho mínimo
+     * e reporta conexões emprestadas por mais tempo que o limite de vazamento.
+     */
+    private void executarManutencao() {
+        try {
+            removerOciosasExpiradas();
+            completarTamanhoMinimo();
+            detectarVazamentos();
+        } catch (Exception e) {
+            System.err.println("Erro na manutenção do pool de conexões: " + e.getMessage());
+        }
+    }
+
+    private void removerOciosasExpiradas() {
+        long limite = System.currentTimeMillis() - configuracao.tempoOciosoMaximoMs;
+        synchronized (ociosas) {
+            Iterator<ConexaoOciosa> iterator = ociosas.descendingIterator();
+            while (iterator.hasNext() && ociosas.size() + emprestadas.size() > configuracao.tamanhoMinimo) {
+                ConexaoOciosa ociosa = iterator.next();
+                if (ociosa.devolvidaEm < limite) {
+                    iterator.remove();
+                    fecharSilenciosamente(ociosa.fisica);
+                }
+            }
+        }
+    }
+
+    private void completarTamanhoMinimo() {
+        while (!fechado && getTotal() < configuracao.tamanhoMinimo) {
+            if (!permissoes.tryAcquire()) {
+                return;
+            }
+            try {
+                Connection fisica = abrirConexaoFisica();
+                synchronized (ociosas) {
+                    ociosas.offerLast(new ConexaoOciosa(fisica, System.currentTimeMillis()));
+                }
+            } catch (SQLException e) {
+                System.err.println("Não foi possível abrir conexão mínima do pool: " + e.getMessage());
+                return;
+            } finally {
+                permissoes.release();
+            }
+        }
+    }
+
+    private void detectarVazamentos() {
+        long agora = System.currentTimeMillis();
+        for (Emprestimo emprestimo : emprestadas.keySet()) {
+            if (!emprestimo.vazamentoReportado
+                    && agora - emprestimo.emprestadaEm > configuracao.limiteVazamentoMs) {
+                emprestimo.vazamentoReportado = true;
+                System.err.println("Possível vazamento de conexão: emprestada há "
+                        + (agora - emprestimo.emprestadaEm) + "ms sem ser fechada");
+                emprestimo.origem.printStackTrace();
+            }
+        }
+    }
+
+    private void fecharSilenciosamente(Connection fisica) {
+        try {
+            fisica.close();
+        } catch (SQLException e) {
+            // Conexão já inutilizável; nada a fazer
+        }
+    }
+
+    /**
+     * Encerra o pool, fechando as conexões ociosas. Conexões emprestadas são fechadas ao serem devolvidas.
+     */
+    public void fechar() {
+        fechado = true;
+        manutencao.shutdownNow();
+        synchronized (ociosas) {
+            for (ConexaoOciosa ociosa : ociosas) {
+                fecharSilenciosamente(ociosa.fisica);
+            }
+            ociosas.clear();
+        }
+    }
+
+    private String descreverEstado() {
+        return "(ativas=" + getAtivas() + ", ociosas=" + getOciosas() + ", aguardando=" + getAguardando() + ")";
+    }
+
+    // Métricas do pool
+
+    /**
+     * Quantidade de conexões emprestadas no momento.
+     */
+    public int getAtivas() {
+        return emprestadas.size();
+    }
+
+    /**
+     * Quantidade de conexões físicas paradas no pool.
+     */
+    public int getOciosas() {
+        synchronized (ociosas) {
+            return ociosas.size();
+        }
+    }
+
+    /**
+     * Estimativa de threads aguardando uma conexão livre.
+     */
+    public int getAguardando() {
+        return permissoes.getQueueLength();
+    }
+
+    /**
+     * Total de conexões físicas abertas (ativas + ociosas).
+     */
+    public int getTotal() {
+        return getAtivas() + getOciosas();
+    }
+
+    public int getTamanhoMaximo() {
+        return configuracao.tamanhoMaximo;
+    }
+
+    /**
+     * Métricas do pool para dimensionamento.
+     */
+    public Map<String, Object> obterMetricas() {
+        Map<String, Object> metricas = new HashMap<>();
+        metricas.put("ativas", getAtivas());
+        metricas.put("ociosas", getOciosas());
+        metricas.put("aguardando", getAguardando());
+        metricas.put("total", getTotal());
+        metricas.put("tamanhoMinimo", configuracao.tamanhoMinimo);
+        metricas.put("tamanhoMaximo", configuracao.tamanhoMaximo);
+        return metricas;
+    }
+}
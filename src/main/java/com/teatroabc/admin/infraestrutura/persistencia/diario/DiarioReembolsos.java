@@ -0,0 +1,344 @@
+package com.teatroabc.admin.infraestrutura.persistencia.diario;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Diário local, somente de acréscimo, dos reembolsos ainda não gravados no banco de dados
+ * (modo write-behind). Cada reembolso é gravado e sincronizado no disco (fsync) antes de ser
+ * aceito; depois que o banco confirma a gravação, um registro de confirmação é acrescentado.
+ * Ao abrir o diário, os reembolsos sem confirmação voltam a ficar pendentes, de modo que um
+ * reinício não perde reembolsos já aceitos no balcão.
+ * Um reembolso que o banco recusa porque o bilhete já estava reembolsado é marcado como
+ * conflito: deixa de ser pendente, mas continua registrado (inclusive após reinícios) para
+ * que alguém confira o reembolso aceito em duplicidade.
+ *
+ * Cada registro é gravado como [tamanho][corpo][CRC32 do corpo]. Um registro incompleto ou
+ * corrompido no final do arquivo (queda durante a escrita) é descartado na abertura.
+ * Quando não há pendentes e o arquivo passa de LIMITE_COMPACTACAO_BYTES, ele é truncado e
+ * apenas os conflitos são regravados.
+ */
+public class DiarioReembolsos implements AutoCloseable {
+
+    private static final byte TIPO_REEMBOLSO = 1;
+    private static final byte TIPO_CONFIRMACAO = 2;
+    private static final byte TIPO_CONFLITO = 3;
+    private static final int TAMANHO_MAXIMO_REGISTRO = 1 << 20;
+    private static final long LIMITE_COMPACTACAO_BYTES = 1 << 20;
+
+    /**
+     * Reembolso registrado no diário.
+     */
+    public static final class Entrada {
+        private final long sequencia;
+        private final String idIngresso;
+        private final LocalDateTime dataReembolso;
+        private final String motivo;
+
+        Entrada(long sequencia, String idIngresso, LocalDateTime dataReembolso, String motivo) {
+            this.sequencia = sequencia;
+            this.idIngresso = idIngresso;
+            this.dataReembolso = dataReembolso;
+            this.motivo = motivo;
+        }
+
+        public long getSequencia() { return sequencia; }
+        public String getIdIngresso() { return idIngresso; }
+        public LocalDateTime getDataReembolso() { return dataReembolso; }
+        public String getMotivo() { return motivo; }
+    }
+
+    private final Path arquivo;
+    private final FileChannel canal;
+    // Pendentes na ordem de registro e, para consulta rápida, pelo ID do ingresso
+    private final Map<Long, Entrada> pendentes = new LinkedHashMap<>();
+    private final Map<String, Entrada> pendentesPorId = new HashMap<>();
+    // Reembolsos recusados pelo banco por já estarem reembolsados, na ordem de registro
+    private final Map<Long, Entrada> conflitos = new LinkedHashMap<>();
+    private long proximaSequencia = 1;
+
+    private DiarioReembolsos(Path arquivo, FileChannel canal) {
+        this.arquivo = arquivo;
+        this.canal = canal;
+    }
+
+    /**
+     * Abre (ou cria) o diário e recupera os reembolsos que ainda não foram confirmados.
+     * @param arquivo Caminho do arquivo do diário
+     * @return Diário pronto para uso
+     * @throws IOException Se o arquivo não puder ser aberto ou lido
+     */
+    public static DiarioReembolsos abrir(Path arquivo) throws IOException {
+        Path diretorio = arquivo.toAbsolutePath().getParent();
+        if (diretorio != null) {
+            Files.createDirectories(diretorio);
+        }
+        FileChannel canal = FileChannel.open(arquivo, StandardOpenOption.CREATE,
+                                             StandardOpenOption.READ, StandardOpenOption.WRITE);
+        DiarioReembolsos diario = new DiarioReembolsos(arquivo, canal);
+        try {
+            diario.recuperar();
+        } catch (IOException e) {
+            canal.close();
+            throw e;
+        }
+        return diario;
+    }
+
+    /**
+     * Acrescenta um reembolso e só retorna depois que ele estiver no disco.
+     * @return Entrada registrada, pendente até ser confirmada
+     * @throws IOException Se a escrita ou a sincronização com o disco falhar
+     */
+    public synchronized Entrada registrar(String idIngresso, LocalDateTime dataReembolso, String motivo)
+            throws IOException {
+        Entrada entrada = new Entrada(proximaSequencia, idIngresso, dataReembolso, motivo);
+        acrescentar(corpoReembolso(entrada));
+
+        proximaSequencia++;
+        pendentes.put(entrada.sequencia, entrada);
+        pendentesPorId.put(idIngresso, entrada);
+        return entrada;
+    }
+
+    /**
+     * Marca reembolsos como gravados no banco; eles não serão reaplicados na próxima abertura.
+     * @param entradas Entradas confirmadas
+     * @throws IOException Se a escrita ou a sincronização com o disco falhar
+     */
+    public synchronized void confirmar(Collection<Entrada> entradas) throws IOException {
+        if (entradas.isEmpty()) {
+            return;
+        }
+        acrescentar(corpoSequencias(TIPO_CONFIRMACAO, entradas));
+
+        for (Entrada entrada : entradas) {
+            removerPendente(entrada.sequencia);
+        }
+        compactarSeOcioso();
+    }
+
+    /**
+     * Marca reembolsos recusados pelo banco porque o bilhete já estava reembolsado (outra
+     * instância, ou um envio anterior cuja confirmação não chegou ao diário). Eles deixam de
+     * ser reenviados e passam a constar em {@link #conflitos()}.
+     * @param entradas Entradas em conflito
+     * @throws IOException Se a escrita ou a sincronização com o disco falhar
+     */
+    public synchronized void marcarConflitos(Collection<Entrada> entradas) throws IOException {
+        if (entradas.isEmpty()) {
+            return;
+        }
+        acrescentar(corpoSequencias(TIPO_CONFLITO, entradas));
+
+        for (Entrada entrada : entradas) {
+            Entrada removida = removerPendente(entrada.sequencia);
+            if (removida != null) {
+                conflitos.put(removida.sequencia, removida);
+            }
+        }
+        compactarSeOcioso();
+    }
+
+    /**
+     * Reembolsos aceitos localmente que o banco recusou por já estarem reembolsados.
+     */
+    public synchronized List<Entrada> conflitos() {
+        return new ArrayList<>(conflitos.values());
+    }
+
+    /**
+     * Reembolsos ainda não confirmados, na ordem em que foram registrados.
+     */
+    public synchronized List<Entrada> pendentes() {
+        return new ArrayList<>(pendentes.values());
+    }
+
+    /**
+     * Reembolso pendente do bilhete, ou null se não houver.
+     */
+    public synchronized Entrada pendente(String idIngresso) {
+        return pendentesPorId.get(idIngresso);
+    }
+
+    public synchronized int quantidadePendentes() {
+        return pendentes.size();
+    }
+
+    public Path getArquivo() {
+        return arquivo;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        canal.close();
+    }
+
+    private void acrescentar(byte[] corpo) throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(corpo);
+        ByteBuffer registro = ByteBuffer.allocate(corpo.length + 8);
+        registro.putInt(corpo.length).put(corpo).putInt((int) crc.getValue()).flip();
+
+        long tamanhoAnterior = canal.size();
+        try {
+            long posicao = tamanhoAnterior;
+            while (registro.hasRemaining()) {
+                posicao += canal.write(registro, posicao);
+            }
+            // Só os dados precisam chegar ao disco; metadados como data de modificação não
+            canal.force(false);
+        } catch (IOException e) {
+            // Um registro pela metade no meio do arquivo esconderia os seguintes na recuperação
+            try {
+                canal.truncate(tamanhoAnterior);
+            } catch (IOException erroTruncar) {
+                e.addSuppressed(erroTruncar);
+            }
+            throw e;
+        }
+    }
+
+    private Entrada removerPendente(long sequencia) {
+        Entrada removida = pendentes.remove(sequencia);
+        if (removida != null && pendentesPorId.get(removida.idIngresso) == removida) {
+            pendentesPorId.remove(removida.idIngresso);
+        }
+        return removida;
+    }
+
+    /**
+     * Sem pendentes, o histórico não é mais necessário: trunca o arquivo e regrava só os conflitos.
+     * Uma queda entre o truncamento e a regravação perde apenas o registro dos conflitos, já
+     * avisados no log quando foram marcados.
+     */
+    private void compactarSeOcioso() throws IOException {
+        if (!pendentes.isEmpty() || canal.size() <= LIMITE_COMPACTACAO_BYTES) {
+            return;
+        }
+        canal.truncate(0);
+        canal.force(true);
+        if (!conflitos.isEmpty()) {
+            for (Entrada conflito : conflitos.values()) {
+                acrescentar(corpoReembolso(conflito));
+            }
+            acrescentar(corpoSequencias(TIPO_CONFLITO, conflitos.values()));
+        }
+    }
+
+    private static byte[] corpoReembolso(Entrada entrada) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        DataOutputStream corpo = new DataOutputStream(bytes);
+        corpo.writeByte(TIPO_REEMBOLSO);
+        corpo.writeLong(entrada.sequencia);
+        corpo.writeUTF(entrada.idIngresso);
+        corpo.writeLong(entrada.dataReembolso.toEpochSecond(ZoneOffset.UTC));
+        corpo.writeInt(entrada.dataReembolso.getNano());
+        corpo.writeBoolean(entrada.motivo != null);
+        if (entrada.motivo != null) {
+            corpo.writeUTF(entrada.motivo);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Registro de confirmação ou de conflito: o tipo seguido das sequências das entradas.
+     */
+    private static byte[] corpoSequencias(byte tipo, Collection<Entrada> entradas) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(16 + 8 * entradas.size());
+        DataOutputStream corpo = new DataOutputStream(bytes);
+        corpo.writeByte(tipo);
+        corpo.writeInt(entradas.size());
+        for (Entrada entrada : entradas) {
+            corpo.writeLong(entrada.sequencia);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Relê o arquivo inteiro, reconstruindo os pendentes, e trunca um final incompleto.
+     */
+    private void recuperar() throws IOException {
+        long tamanho = canal.size();
+        ByteBuffer conteudo = ByteBuffer.allocate((int) Math.min(tamanho, Integer.MAX_VALUE));
+        while (conteudo.hasRemaining() && canal.read(conteudo, conteudo.position()) > 0) {
+            // lê até o fim
+        }
+        conteudo.flip();
+
+        long validos = 0;
+        while (conteudo.remaining() >= 4) {
+            int comprimento = conteudo.getInt();
+            if (comprimento <= 0 || comprimento > TAMANHO_MAXIMO_REGISTRO || conteudo.remaining() < comprimento + 4) {
+                break;
+            }
+            byte[] corpo = new byte[comprimento];
+            conteudo.get(corpo);
+            CRC32 crc = new CRC32();
+            crc.update(corpo);
+            if (conteudo.getInt() != (int) crc.getValue()) {
+                break;
+            }
+            aplicarRegistro(corpo);
+            validos = conteudo.position();
+        }
+
+        if (validos < tamanho) {
+            System.err.println("Diário de reembolsos com final incompleto: descartando " + (tamanho - validos) + " bytes");
+            canal.truncate(validos);
+            canal.force(true);
+        }
+        if (!pendentes.isEmpty()) {
+            System.out.println("Diário de reembolsos: " + pendentes.size() + " reembolsos pendentes recuperados");
+        }
+        if (!conflitos.isEmpty()) {
+            System.err.println("Diário de reembolsos: " + conflitos.size()
+                               + " reembolsos aceitos localmente já estavam reembolsados no banco (conflitos)");
+        }
+    }
+
+    private void aplicarRegistro(byte[] bytes) throws IOException {
+        DataInputStream corpo = new DataInputStream(new ByteArrayInputStream(bytes));
+        byte tipo = corpo.readByte();
+        if (tipo == TIPO_REEMBOLSO) {
+            long sequencia = corpo.readLong();
+            String idIngresso = corpo.readUTF();
+            LocalDateTime data = LocalDateTime.ofEpochSecond(corpo.readLong(), corpo.readInt(), ZoneOffset.UTC);
+            String motivo = corpo.readBoolean() ? corpo.readUTF() : null;
+            Entrada entrada = new Entrada(sequencia, idIngresso, data, motivo);
+            pendentes.put(sequencia, entrada);
+            pendentesPorId.put(idIngresso, entrada);
+            proximaSequencia = Math.max(proximaSequencia, sequencia + 1);
+        } else if (tipo == TIPO_CONFIRMACAO) {
+            int quantidade = corpo.readInt();
+            for (int i = 0; i < quantidade; i++) {
+                removerPendente(corpo.readLong());
+            }
+        } else if (tipo == TIPO_CONFLITO) {
+            int quantidade = corpo.readInt();
+            for (int i = 0; i < quantidade; i++) {
+                Entrada removida = removerPendente(corpo.readLong());
+                if (removida != null) {
+                    conflitos.put(removida.sequencia, removida);
+                }
+            }
+        }
+    }
+}
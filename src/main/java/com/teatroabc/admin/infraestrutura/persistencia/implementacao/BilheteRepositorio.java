@@ -1,6 +1,8 @@
 package com.teatroabc.admin.infraestrutura.persistencia.implementacao;
 
 import com.teatroabc.admin.dominio.entidades.BilheteVendido;
+import com.teatroabc.admin.dominio.entidades.ConsultaBilhetes;
+import com.teatroabc.admin.dominio.entidades.TotaisVendas;
 import com.teatroabc.admin.dominio.interfaces.IRepositorioBilhete;
 import com.teatroabc.admin.infraestrutura.persistencia.conexao.ConexaoDB;
 
@@ -9,8 +11,13 @@ import java.sql.*;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
 
 /**
  * Implementação do repositório de bilhetes.
@@ -20,6 +27,14 @@ public class BilheteRepositorio implements IRepositorioBilhete {
     
     private final ConexaoDB conexaoDB;
     private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    // Atualizações por transação no reembolso em lote
+    private static final int TAMANHO_LOTE_REEMBOLSO = 500;
+    // Só altera bilhetes ainda não reembolsados: o banco decide qual reembolso concorrente vence.
+    // data_reembolso é a data do negócio, vinda da aplicação; atualizado_em vem do relógio do banco,
+    // o mesmo da marca d'água da sincronização incremental
+    private static final String SQL_REGISTRAR_REEMBOLSO =
+        "UPDATE bilhetes SET reembolsado = TRUE, data_reembolso = ?, motivo_reembolso = ?, " +
+        "atualizado_em = CURRENT_TIMESTAMP WHERE id_ingresso = ? AND reembolsado = FALSE";
     
     /**
      * Construtor padrão que inicializa a conexão com o banco de dados.
@@ -41,7 +56,7 @@ public class BilheteRepositorio implements IRepositorioBilhete {
     public List<BilheteVendido> buscarTodos() {
         List<BilheteVendido> bilhetes = new ArrayList<>();
         String sql = "SELECT id_ingresso, cpf, nome_peca, turno, numero_poltrona, nome_sessao, capacidade, preco, " +
-                     "reembolsado, data_reembolso FROM vw_bilhetes";
+                     "reembolsado, data_reembolso, data_compra FROM vw_bilhetes";
         
         try (Connection conn = conexaoDB.obterConexao();
              PreparedStatement stmt = conn.prepareStatement(sql);
@@ -59,10 +74,43 @@ public class BilheteRepositorio implements IRepositorioBilhete {
         return bilhetes;
     }
     
+    /**
+     * Percorre a view vw_bilhetes com um cursor somente-leitura e fetch size em modo streaming,
+     * de forma que o driver MySQL não armazene o resultado completo no cliente.
+     */
+    @Override
+    public int buscarTodos(Consumer<BilheteVendido> consumidor) {
+        String sql = "SELECT id_ingresso, cpf, nome_peca, turno, numero_poltrona, nome_sessao, capacidade, preco, " +
+                     "reembolsado, data_reembolso, data_compra FROM vw_bilhetes";
+        int quantidade = 0;
+        
+        try (Connection conn = conexaoDB.obterConexao();
+             PreparedStatement stmt = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            
+            // Integer.MIN_VALUE faz o Connector/J entregar as linhas uma a uma
+            stmt.setFetchSize(Integer.MIN_VALUE);
+            
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    consumidor.accept(mapearBilhete(rs));
+                    quantidade++;
+                }
+            }
+            
+        } catch (SQLException e) {
+            System.err.println("Erro ao percorrer bilhetes em modo streaming: " + e.getMessage());
+            e.printStackTrace();
+            // Uma carga parcial não pode ser tratada como completa pelo chamador
+            throw new RuntimeException("Erro ao percorrer bilhetes após " + quantidade + " linhas: " + e.getMessage(), e);
+        }
+        
+        return quantidade;
+    }
+    
     @Override
     public Optional<BilheteVendido> buscarPorId(String id) {
         String sql = "SELECT id_ingresso, cpf, nome_peca, turno, numero_poltrona, nome_sessao, capacidade, preco, " +
-                     "reembolsado, data_reembolso FROM vw_bilhetes WHERE id_ingresso = ?";
+                     "reembolsado, data_reembolso, data_compra FROM vw_bilhetes WHERE id_ingresso = ?";
         
         try (Connection conn = conexaoDB.obterConexao();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
@@ -87,7 +135,7 @@ public class BilheteRepositorio implements IRepositorioBilhete {
     public List<BilheteVendido> buscarPorCpf(String cpf) {
         List<BilheteVendido> bilhetes = new ArrayList<>();
         String sql = "SELECT id_ingresso, cpf, nome_peca, turno, numero_poltrona, nome_sessao, capacidade, preco, " +
-                     "reembolsado, data_reembolso FROM vw_bilhetes WHERE cpf = ?";
+                     "reembolsado, data_reembolso, data_compra FROM vw_bilhetes WHERE cpf = ?";
         
         try (Connection conn = conexaoDB.obterConexao();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
@@ -112,7 +160,7 @@ public class BilheteRepositorio implements IRepositorioBilhete {
     public List<BilheteVendido> buscarPorPeca(String nomePeca) {
         List<BilheteVendido> bilhetes = new ArrayList<>();
         String sql = "SELECT id_ingresso, cpf, nome_peca, turno, numero_poltrona, nome_sessao, capacidade, preco, " +
-                     "reembolsado, data_reembolso FROM vw_bilhetes WHERE nome_peca LIKE ?";
+                     "reembolsado, data_reembolso, data_compra FROM vw_bilhetes WHERE nome_peca LIKE ?";
         
         try (Connection conn = conexaoDB.obterConexao();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
@@ -136,7 +184,8 @@ public class BilheteRepositorio implements IRepositorioBilhete {
     @Override
     public boolean atualizarStatusReembolso(String idBilhete, boolean reembolsado, 
                                            LocalDateTime dataReembolso, String motivo) {
-        String sql = "UPDATE bilhetes SET reembolsado = ?, data_reembolso = ?, motivo_reembolso = ? WHERE id_ingresso = ?";
+        String sql = "UPDATE bilhetes SET reembolsado = ?, data_reembolso = ?, motivo_reembolso = ?, " +
+                     "atualizado_em = CURRENT_TIMESTAMP WHERE id_ingresso = ?";
         
         try (Connection conn = conexaoDB.obterConexao();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
@@ -162,11 +211,114 @@ public class BilheteRepositorio implements IRepositorioBilhete {
         }
     }
     
+    @Override
+    public boolean registrarReembolso(String idBilhete, LocalDateTime dataReembolso, String motivo) {
+        try (Connection conn = conexaoDB.obterConexao();
+             PreparedStatement stmt = conn.prepareStatement(SQL_REGISTRAR_REEMBOLSO)) {
+            
+            stmt.setString(1, dataReembolso.format(FORMATTER));
+            stmt.setString(2, motivo);
+            stmt.setString(3, idBilhete);
+            
+            int linhasAfetadas = stmt.executeUpdate();
+            return linhasAfetadas > 0;
+            
+        } catch (SQLException e) {
+            System.err.println("Erro ao registrar reembolso: " + e.getMessage());
+            e.printStackTrace();
+            return false;
+        }
+    }
+    
+    /**
+     * Usa uma única conexão e um único PreparedStatement para todo o lote: cada trecho de
+     * TAMANHO_LOTE_REEMBOLSO bilhetes vira um executeBatch seguido de commit, de modo que
+     * o banco recebe poucas idas e voltas e um trecho com erro não desfaz os anteriores.
+     * Antes do executeBatch, o trecho trava (FOR UPDATE) os bilhetes ainda não reembolsados:
+     * só esses podem ser gravados por esta transação, o que permite conferir as linhas para as
+     * quais o driver informa SUCCESS_NO_INFO em vez da contagem.
+     */
+    @Override
+    public boolean[] atualizarStatusReembolsoEmLote(List<BilheteVendido> bilhetes, String motivo) {
+        boolean[] gravados = new boolean[bilhetes.size()];
+        try (Connection conn = conexaoDB.obterConexao();
+             PreparedStatement stmt = conn.prepareStatement(SQL_REGISTRAR_REEMBOLSO)) {
+            
+            boolean autoCommitOriginal = conn.getAutoCommit();
+            conn.setAutoCommit(false);
+            try {
+                for (int inicio = 0; inicio < bilhetes.size(); inicio += TAMANHO_LOTE_REEMBOLSO) {
+                    int fim = Math.min(bilhetes.size(), inicio + TAMANHO_LOTE_REEMBOLSO);
+                    try {
+                        Set<String> travados = travarNaoReembolsados(conn, bilhetes.subList(inicio, fim));
+                        for (int i = inicio; i < fim; i++) {
+                            BilheteVendido bilhete = bilhetes.get(i);
+                            stmt.setString(1, bilhete.getDataReembolso().format(FORMATTER));
+                            stmt.setString(2, motivo);
+                            stmt.setString(3, bilhete.getIdIngresso());
+                            stmt.addBatch();
+                        }
+                        
+                        int[] linhasAfetadas = stmt.executeBatch();
+                        conn.commit();
+                        for (int i = inicio; i < fim; i++) {
+                            int afetadas = linhasAfetadas[i - inicio];
+                            // Com rewriteBatchedStatements o driver pode não informar a contagem por linha.
+                            // Nesse caso vale a trava: o bilhete travado ainda não reembolsado foi gravado
+                            // por este lote (remove do conjunto para não contar um ID repetido duas vezes)
+                            boolean travado = travados.remove(bilhetes.get(i).getIdIngresso());
+                            gravados[i] = afetadas > 0 || (afetadas == Statement.SUCCESS_NO_INFO && travado);
+                        }
+                    } catch (SQLException e) {
+                        System.err.println("Erro ao gravar lote de reembolsos (bilhetes " + inicio + " a " + (fim - 1)
+                                           + "): " + e.getMessage());
+                        e.printStackTrace();
+                        stmt.clearBatch();
+                        conn.rollback();
+                    }
+                }
+            } finally {
+                conn.setAutoCommit(autoCommitOriginal);
+            }
+            
+        } catch (SQLException e) {
+            System.err.println("Erro ao atualizar status de reembolso em lote: " + e.getMessage());
+            e.printStackTrace();
+        }
+        
+        return gravados;
+    }
+    
+    /**
+     * Trava, na transação corrente, os bilhetes do trecho que ainda não foram reembolsados.
+     * @return IDs travados; nenhuma outra transação consegue reembolsá-los até o commit
+     */
+    private Set<String> travarNaoReembolsados(Connection conn, List<BilheteVendido> trecho) throws SQLException {
+        StringBuilder sql = new StringBuilder("SELECT id_ingresso FROM bilhetes WHERE reembolsado = FALSE AND id_ingresso IN (");
+        for (int i = 0; i < trecho.size(); i++) {
+            sql.append(i == 0 ? "?" : ", ?");
+        }
+        sql.append(") FOR UPDATE");
+        
+        Set<String> travados = new HashSet<>();
+        try (PreparedStatement stmt = conn.prepareStatement(sql.toString())) {
+            for (int i = 0; i < trecho.size(); i++) {
+                stmt.setString(i + 1, trecho.get(i).getIdIngresso());
+            }
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    travados.add(rs.getString(1));
+                }
+            }
+        }
+        return travados;
+    }
+    
     @Override
     public List<BilheteVendido> buscarPorStatusReembolso(boolean reembolsado) {
         List<BilheteVendido> bilhetes = new ArrayList<>();
         String sql = "SELECT id_ingresso, cpf, nome_peca, turno, numero_poltrona, nome_sessao, capacidade, preco, " +
-                     "reembolsado, data_reembolso FROM vw_bilhetes WHERE reembolsado = ?";
+                     "reembolsado, data_reembolso, data_compra FROM vw_bilhetes WHERE reembolsado = ?";
         
         try (Connection conn = conexaoDB.obterConexao();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
@@ -191,7 +343,7 @@ public class BilheteRepositorio implements IRepositorioBilhete {
     public List<BilheteVendido> buscarPorPeriodo(LocalDateTime inicio, LocalDateTime fim) {
         List<BilheteVendido> bilhetes = new ArrayList<>();
         String sql = "SELECT id_ingresso, cpf, nome_peca, turno, numero_poltrona, nome_sessao, capacidade, preco, " +
-                     "reembolsado, data_reembolso FROM vw_bilhetes WHERE data_compra BETWEEN ? AND ?";
+                     "reembolsado, data_reembolso, data_compra FROM vw_bilhetes WHERE data_compra BETWEEN ? AND ?";
         
         try (Connection conn = conexaoDB.obterConexao();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
@@ -213,6 +365,334 @@ public class BilheteRepositorio implements IRepositorioBilhete {
         return bilhetes;
     }
     
+    /**
+     * Traduz a consulta para SQL: cada critério vira uma condição com parâmetro, a ordenação
+     * desempata pelo ID (como no cache) e a paginação vira LIMIT/OFFSET.
+     */
+    @Override
+    public List<BilheteVendido> consultar(ConsultaBilhetes consulta) {
+        List<Object> parametros = new ArrayList<>();
+        StringBuilder sql = new StringBuilder(
+            "SELECT id_ingresso, cpf, nome_peca, turno, numero_poltrona, nome_sessao, capacidade, preco, " +
+            "reembolsado, data_reembolso, data_compra FROM vw_bilhetes");
+        acrescentarCriterios(sql, parametros, consulta);
+        
+        boolean paginada = consulta.getDeslocamento() > 0 || consulta.getLimite() != ConsultaBilhetes.SEM_LIMITE;
+        if (consulta.getOrdenacao() != null) {
+            sql.append(" ORDER BY ").append(colunaOrdenacao(consulta.getOrdenacao()))
+               .append(consulta.isCrescente() ? " ASC" : " DESC").append(", id_ingresso ASC");
+        } else if (paginada) {
+            sql.append(" ORDER BY id_ingresso"); // Páginas estáveis entre chamadas
+        }
+        if (paginada) {
+            sql.append(" LIMIT ? OFFSET ?");
+            parametros.add(consulta.getLimite());
+            parametros.add(consulta.getDeslocamento());
+        }
+        
+        List<BilheteVendido> bilhetes = new ArrayList<>();
+        try (Connection conn = conexaoDB.obterConexao();
+             PreparedStatement stmt = conn.prepareStatement(sql.toString())) {
+            
+            definirParametros(stmt, parametros);
+            
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    bilhetes.add(mapearBilhete(rs));
+                }
+            }
+            
+        } catch (SQLException e) {
+            System.err.println("Erro ao consultar bilhetes: " + e.getMessage());
+            e.printStackTrace();
+            throw new RuntimeException("Erro ao consultar bilhetes: " + e.getMessage(), e);
+        }
+        
+        return bilhetes;
+    }
+    
+    @Override
+    public int contar(ConsultaBilhetes consulta) {
+        List<Object> parametros = new ArrayList<>();
+        StringBuilder sql = new StringBuilder("SELECT COUNT(*) FROM vw_bilhetes");
+        acrescentarCriterios(sql, parametros, consulta);
+        
+        try (Connection conn = conexaoDB.obterConexao();
+             PreparedStatement stmt = conn.prepareStatement(sql.toString())) {
+            
+            definirParametros(stmt, parametros);
+            
+            try (ResultSet rs = stmt.executeQuery()) {
+                rs.next();
+                return rs.getInt(1);
+            }
+            
+        } catch (SQLException e) {
+            System.err.println("Erro ao contar bilhetes: " + e.getMessage());
+            e.printStackTrace();
+            throw new RuntimeException("Erro ao contar bilhetes: " + e.getMessage(), e);
+        }
+    }
+    
+    /**
+     * Acrescenta o WHERE com os critérios informados na consulta; critérios nulos não filtram.
+     * O trecho da peça usa LIKE, que na collation padrão do MySQL também ignora maiúsculas e acentos.
+     */
+    private static void acrescentarCriterios(StringBuilder sql, List<Object> parametros, ConsultaBilhetes consulta) {
+        List<String> condicoes = new ArrayList<>();
+        if (consulta.getIdIngresso() != null) {
+            condicoes.add("id_ingresso = ?");
+            parametros.add(consulta.getIdIngresso());
+        }
+        if (consulta.getCpf() != null) {
+            condicoes.add("cpf = ?");
+            parametros.add(consulta.getCpf());
+        }
+        if (consulta.getPrefixoCpf() != null) {
+            condicoes.add("cpf LIKE ?");
+            parametros.add(escaparLike(consulta.getPrefixoCpf()) + "%");
+        }
+        if (consulta.getNomePeca() != null) {
+            condicoes.add("nome_peca = ?");
+            parametros.add(consulta.getNomePeca());
+        }
+        if (consulta.getTrechoPeca() != null) {
+            condicoes.add("nome_peca LIKE ?");
+            parametros.add("%" + escaparLike(consulta.getTrechoPeca()) + "%");
+        }
+        if (consulta.getTurno() != null) {
+            condicoes.add("turno = ?");
+            parametros.add(consulta.getTurno());
+        }
+        if (consulta.getNomeSessao() != null) {
+            condicoes.add("nome_sessao = ?");
+            parametros.add(consulta.getNomeSessao());
+        }
+        if (consulta.getReembolsado() != null) {
+            condicoes.add("reembolsado = ?");
+            parametros.add(consulta.getReembolsado());
+        }
+        if (consulta.getPrecoMinimo() != null) {
+            condicoes.add("preco >= ?");
+            parametros.add(consulta.getPrecoMinimo());
+        }
+        if (consulta.getPrecoMaximo() != null) {
+            condicoes.add("preco <= ?");
+            parametros.add(consulta.getPrecoMaximo());
+        }
+        if (!condicoes.isEmpty()) {
+            sql.append(" WHERE ").append(String.join(" AND ", condicoes));
+        }
+    }
+    
+    private static String escaparLike(String texto) {
+        return texto.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+    
+    private static String colunaOrdenacao(ConsultaBilhetes.Ordenacao ordenacao) {
+        switch (ordenacao) {
+            case CPF: return "cpf";
+            case PECA: return "nome_peca";
+            case TURNO: return "turno";
+            case SESSAO: return "nome_sessao";
+            case PRECO: return "preco";
+            case DATA_COMPRA: return "data_compra";
+            default: return "id_ingresso";
+        }
+    }
+    
+    private static void definirParametros(PreparedStatement stmt, List<Object> parametros) throws SQLException {
+        for (int i = 0; i < parametros.size(); i++) {
+            Object parametro = parametros.get(i);
+            if (parametro instanceof Boolean) {
+                stmt.setBoolean(i + 1, (Boolean) parametro);
+            } else if (parametro instanceof Integer) {
+                stmt.setInt(i + 1, (Integer) parametro);
+            } else if (parametro instanceof BigDecimal) {
+                stmt.setBigDecimal(i + 1, (BigDecimal) parametro);
+            } else {
+                stmt.setString(i + 1, (String) parametro);
+            }
+        }
+    }
+    
+    /**
+     * Uma única busca por intervalo em atualizado_em, carimbada pelo banco em toda inserção e
+     * alteração: usa o índice da coluna e não depende das datas de negócio (compra e reembolso),
+     * que podem ser anteriores à gravação, como no reembolso gravado depois pelo write-behind.
+     */
+    @Override
+    public int buscarAlteradosDesde(LocalDateTime desde, Consumer<BilheteVendido> consumidor) {
+        String sql = "SELECT id_ingresso, cpf, nome_peca, turno, numero_poltrona, nome_sessao, capacidade, preco, " +
+                     "reembolsado, data_reembolso, data_compra FROM vw_bilhetes WHERE atualizado_em >= ?";
+        int quantidade = 0;
+        
+        try (Connection conn = conexaoDB.obterConexao();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            
+            stmt.setString(1, desde.format(FORMATTER));
+            
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    consumidor.accept(mapearBilhete(rs));
+                    quantidade++;
+                }
+            }
+            
+        } catch (SQLException e) {
+            System.err.println("Erro ao buscar bilhetes alterados: " + e.getMessage());
+            e.printStackTrace();
+            // Sem o conjunto completo de alterações a marca d'água não pode avançar
+            throw new RuntimeException("Erro ao buscar bilhetes alterados desde " + desde + ": " + e.getMessage(), e);
+        }
+        
+        return quantidade;
+    }
+    
+    /**
+     * Lê o instante como texto, no fuso da sessão do banco: é assim que ele volta a ser comparado
+     * com atualizado_em, sem a conversão de fuso do driver (serverTimezone).
+     */
+    @Override
+    public LocalDateTime obterInstanteAtual() {
+        String sql = "SELECT DATE_FORMAT(CURRENT_TIMESTAMP, '%Y-%m-%d %H:%i:%s')";
+        
+        try (Connection conn = conexaoDB.obterConexao();
+             PreparedStatement stmt = conn.prepareStatement(sql);
+             ResultSet rs = stmt.executeQuery()) {
+            
+            if (rs.next()) {
+                return LocalDateTime.parse(rs.getString(1), FORMATTER);
+            }
+            
+        } catch (SQLException e) {
+            System.err.println("Erro ao obter instante atual do banco: " + e.getMessage());
+            e.printStackTrace();
+            throw new RuntimeException("Erro ao obter instante atual do banco: " + e.getMessage(), e);
+        }
+        
+        throw new IllegalStateException("Banco de dados não retornou o instante atual");
+    }
+    
+    // Consultas agregadas: apenas as linhas já somadas trafegam do banco para a aplicação
+    
+    @Override
+    public Optional<TotaisVendas> calcularTotais() {
+        String sql = "SELECT COUNT(*) AS quantidade, " +
+                     "COALESCE(SUM(CASE WHEN reembolsado THEN 1 ELSE 0 END), 0) AS quantidade_reembolsados, " +
+                     "COALESCE(SUM(CASE WHEN reembolsado THEN 0 ELSE preco END), 0) AS total_vendas, " +
+                     "COALESCE(SUM(CASE WHEN reembolsado THEN preco ELSE 0 END), 0) AS total_reembolsos " +
+                     "FROM vw_bilhetes";
+        
+        try (Connection conn = conexaoDB.obterConexao();
+             PreparedStatement stmt = conn.prepareStatement(sql);
+             ResultSet rs = stmt.executeQuery()) {
+            
+            if (rs.next()) {
+                return Optional.of(new TotaisVendas(
+                    rs.getBigDecimal("total_vendas"),
+                    rs.getBigDecimal("total_reembolsos"),
+                    rs.getInt("quantidade"),
+                    rs.getInt("quantidade_reembolsados")
+                ));
+            }
+            
+        } catch (SQLException e) {
+            System.err.println("Erro ao calcular totais de vendas: " + e.getMessage());
+            e.printStackTrace();
+        }
+        
+        return Optional.empty();
+    }
+    
+    @Override
+    public Map<String, BigDecimal> somarVendasPorPeca() {
+        return somarVendasAgrupadas("nome_peca", "Erro ao somar vendas por peça: ");
+    }
+    
+    @Override
+    public Map<String, BigDecimal> somarVendasPorTurno() {
+        return somarVendasAgrupadas("turno", "Erro ao somar vendas por turno: ");
+    }
+    
+    /**
+     * Soma as vendas não reembolsadas agrupadas por uma coluna fixa da view.
+     * @param coluna Nome da coluna de agrupamento (constante interna, nunca vinda do usuário)
+     */
+    private Map<String, BigDecimal> somarVendasAgrupadas(String coluna, String mensagemErro) {
+        Map<String, BigDecimal> vendas = new HashMap<>();
+        String sql = "SELECT " + coluna + " AS chave, SUM(preco) AS total FROM vw_bilhetes " +
+                     "WHERE reembolsado = FALSE GROUP BY " + coluna;
+        
+        try (Connection conn = conexaoDB.obterConexao();
+             PreparedStatement stmt = conn.prepareStatement(sql);
+             ResultSet rs = stmt.executeQuery()) {
+            
+            while (rs.next()) {
+                vendas.put(rs.getString("chave"), rs.getBigDecimal("total"));
+            }
+            
+        } catch (SQLException e) {
+            System.err.println(mensagemErro + e.getMessage());
+            e.printStackTrace();
+        }
+        
+        return vendas;
+    }
+    
+    @Override
+    public Map<Integer, BigDecimal> somarVendasPorMes(int ano) {
+        Map<Integer, BigDecimal> vendas = new HashMap<>();
+        // Intervalo em data_compra (em vez de YEAR(data_compra) = ?) permite o uso de índice
+        String sql = "SELECT MONTH(data_compra) AS mes, SUM(preco) AS total FROM vw_bilhetes " +
+                     "WHERE reembolsado = FALSE AND data_compra >= ? AND data_compra < ? " +
+                     "GROUP BY MONTH(data_compra)";
+        
+        try (Connection conn = conexaoDB.obterConexao();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            
+            stmt.setString(1, LocalDateTime.of(ano, 1, 1, 0, 0).format(FORMATTER));
+            stmt.setString(2, LocalDateTime.of(ano + 1, 1, 1, 0, 0).format(FORMATTER));
+            
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    vendas.put(rs.getInt("mes"), rs.getBigDecimal("total"));
+                }
+            }
+            
+        } catch (SQLException e) {
+            System.err.println("Erro ao somar vendas por mês: " + e.getMessage());
+            e.printStackTrace();
+        }
+        
+        return vendas;
+    }
+    
+    @Override
+    public BigDecimal somarVendasNoPeriodo(LocalDateTime inicio, LocalDateTime fim) {
+        String sql = "SELECT COALESCE(SUM(preco), 0) AS total FROM vw_bilhetes " +
+                     "WHERE reembolsado = FALSE AND data_compra >= ? AND data_compra < ?";
+        
+        try (Connection conn = conexaoDB.obterConexao();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            
+            stmt.setString(1, inicio.format(FORMATTER));
+            stmt.setString(2, fim.format(FORMATTER));
+            
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (rs.next()) {
+                    return rs.getBigDecimal("total");
+                }
+            }
+            
+        } catch (SQLException e) {
+            System.err.println("Erro ao somar vendas no período: " + e.getMessage());
+            e.printStackTrace();
+        }
+        
+        return BigDecimal.ZERO;
+    }
+    
     @Override
     public boolean salvar(BilheteVendido bilhete) {
         // No contexto deste sistema administrativo, não é necessário implementar
@@ -248,14 +728,14 @@ public class BilheteRepositorio implements IRepositorioBilhete {
         // Configura o status de reembolso se for o caso
         boolean reembolsado = rs.getBoolean("reembolsado");
         if (reembolsado) {
-            bilhete.realizarReembolso();
-            
-            // Verifica se há data de reembolso no resultado
-            if (rs.getObject("data_reembolso") != null) {
-                // Código para definir a data do reembolso no objeto
-                // Em um ambiente real, provavelmente usaríamos um campo na entidade
-                // Ou uma subclasse específica para bilhetes reembolsados
-            }
+            // Preserva a data de reembolso registrada no banco
+            Timestamp dataReembolso = rs.getTimestamp("data_reembolso");
+            bilhete.restaurarReembolso(dataReembolso != null ? dataReembolso.toLocalDateTime() : null);
+        }
+        
+        Timestamp dataCompra = rs.getTimestamp("data_compra");
+        if (dataCompra != null) {
+            bilhete.restaurarDataCompra(dataCompra.toLocalDateTime());
         }
         
         return bilhete;
@@ -0,0 +1,148 @@
+package com.teatroabc.admin.infraestrutura.ui_swing.componentes;
+
+import com.teatroabc.admin.dominio.entidades.BilheteVendido;
+
+import javax.swing.table.AbstractTableModel;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Modelo de tabela que lê os valores diretamente da lista de bilhetes, sem copiar cada bilhete
+ * para uma linha de Object[]. Os valores são devolvidos crus (CPF sem máscara, preço em BigDecimal);
+ * a formatação fica a cargo do renderer e só acontece para as células visíveis.
+ * Alterações pontuais disparam eventos de linha (inserção, atualização, remoção) em vez de
+ * recarregar a tabela inteira. Deve ser usado apenas na EDT.
+ */
+public class ModeloTabelaBilhetes extends AbstractTableModel {
+
+    public static final int COLUNA_ID = 0;
+    public static final int COLUNA_CPF = 1;
+    public static final int COLUNA_PECA = 2;
+    public static final int COLUNA_TURNO = 3;
+    public static final int COLUNA_POLTRONAS = 4;
+    public static final int COLUNA_VALOR = 5;
+    public static final int COLUNA_REEMBOLSADO = 6;
+
+    private static final String[] NOMES_COLUNAS = {
+        "ID", "CPF Cliente", "Peça", "Turno", "Poltronas", "Valor", "Reembolsado"
+    };
+
+    private List<BilheteVendido> bilhetes = new ArrayList<>();
+    // ID -> linha; montado sob demanda na primeira alteração pontual e descartado quando as linhas mudam de posição
+    private Map<String, Integer> linhasPorId;
+
+    /**
+     * Substitui todos os bilhetes exibidos.
+     * A lista passa a ser usada diretamente pelo modelo (é copiada apenas se não for um ArrayList).
+     */
+    public void substituirBilhetes(List<BilheteVendido> novos) {
+        this.bilhetes = novos instanceof ArrayList ? novos : new ArrayList<>(novos);
+        this.linhasPorId = null;
+        fireTableDataChanged();
+    }
+
+    /**
+     * Substitui o bilhete de mesmo ID, se estiver sendo exibido, e redesenha apenas a linha dele.
+     * @return true se o bilhete estava na tabela
+     */
+    public boolean atualizarBilhete(BilheteVendido bilhete) {
+        Integer linha = localizar(bilhete.getIdIngresso());
+        if (linha == null) {
+            return false;
+        }
+        bilhetes.set(linha, bilhete);
+        fireTableRowsUpdated(linha, linha);
+        return true;
+    }
+
+    /**
+     * Acrescenta um bilhete no fim da tabela.
+     */
+    public void adicionarBilhete(BilheteVendido bilhete) {
+        int linha = bilhetes.size();
+        bilhetes.add(bilhete);
+        if (linhasPorId != null) {
+            linhasPorId.put(bilhete.getIdIngresso(), linha);
+        }
+        fireTableRowsInserted(linha, linha);
+    }
+
+    /**
+     * Remove o bilhete com o ID informado, se estiver sendo exibido.
+     * @return true se o bilhete estava na tabela
+     */
+    public boolean removerBilhete(String idIngresso) {
+        Integer linha = localizar(idIngresso);
+        if (linha == null) {
+            return false;
+        }
+        bilhetes.remove((int) linha);
+        // As linhas seguintes mudaram de posição
+        linhasPorId = null;
+        fireTableRowsDeleted(linha, linha);
+        return true;
+    }
+
+    public BilheteVendido getBilhete(int linha) {
+        return bilhetes.get(linha);
+    }
+
+    private Integer localizar(String idIngresso) {
+        if (linhasPorId == null) {
+            Map<String, Integer> indice = new HashMap<>(bilhetes.size() * 2);
+            for (int i = 0; i < bilhetes.size(); i++) {
+                indice.put(bilhetes.get(i).getIdIngresso(), i);
+            }
+            linhasPorId = indice;
+        }
+        return linhasPorId.get(idIngresso);
+    }
+
+    @Override
+    public int getRowCount() {
+        return bilhetes.size();
+    }
+
+    @Override
+    public int getColumnCount() {
+        return NOMES_COLUNAS.length;
+    }
+
+    @Override
+    public String getColumnName(int coluna) {
+        return NOMES_COLUNAS[coluna];
+    }
+
+    @Override
+    public Class<?> getColumnClass(int coluna) {
+        // Define o tipo de cada coluna para ordenação correta
+        switch (coluna) {
+            case COLUNA_VALOR: return BigDecimal.class;
+            case COLUNA_REEMBOLSADO: return Boolean.class;
+            default: return String.class;
+        }
+    }
+
+    @Override
+    public boolean isCellEditable(int linha, int coluna) {
+        return false; // Nenhuma célula é editável
+    }
+
+    @Override
+    public Object getValueAt(int linha, int coluna) {
+        BilheteVendido bilhete = bilhetes.get(linha);
+        switch (coluna) {
+            case COLUNA_ID: return bilhete.getIdIngresso();
+            case COLUNA_CPF: return bilhete.getCpf();
+            case COLUNA_PECA: return bilhete.getNomePeca();
+            case COLUNA_TURNO: return bilhete.getTurno();
+            case COLUNA_POLTRONAS: return bilhete.getNumeroPoltronas();
+            case COLUNA_VALOR: return bilhete.getPreco();
+            case COLUNA_REEMBOLSADO: return bilhete.isReembolsado();
+            default: return null;
+        }
+    }
+}
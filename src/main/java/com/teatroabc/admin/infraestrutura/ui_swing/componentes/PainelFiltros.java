@@ -6,16 +6,26 @@ import javax.swing.*;
 import javax.swing.border.EmptyBorder;
 import javax.swing.border.LineBorder;
 import javax.swing.border.TitledBorder;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
 import javax.swing.text.MaskFormatter;
 import java.awt.*;
+import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.text.ParseException;
 
 /**
  * Componente para filtros de busca de bilhetes.
  * Versão corrigida com interface melhorada.
+ * Opcionalmente busca enquanto o usuário digita: cada alteração reinicia um temporizador curto
+ * e a busca só é disparada quando a digitação para.
  */
 public class PainelFiltros extends JPanel {
+    // Pausa na digitação após a qual a busca incremental é disparada
+    private static final int ATRASO_BUSCA_INCREMENTAL_MS = 200;
+    // Dígitos de CPF necessários para a busca incremental por prefixo
+    private static final int MINIMO_DIGITOS_PREFIXO_CPF = 3;
+
     private JTextField txtBusca;
     private JComboBox<String> cmbTipoBusca;
     private JCheckBox chkMostrarReembolsados;
@@ -23,13 +33,33 @@ public class PainelFiltros extends JPanel {
     private JButton btnLimpar;
     
     private final ActionListener acaoBuscar;
+    private final ActionListener acaoBuscaIncremental;
+    private final Timer temporizadorBusca;
+    private final DocumentListener ouvinteDigitacao = new DocumentListener() {
+        @Override public void insertUpdate(DocumentEvent e) { agendarBuscaIncremental(); }
+        @Override public void removeUpdate(DocumentEvent e) { agendarBuscaIncremental(); }
+        @Override public void changedUpdate(DocumentEvent e) { agendarBuscaIncremental(); }
+    };
     
     /**
      * Construtor do painel de filtros.
      * @param acaoBuscar ActionListener para a ação de busca
      */
     public PainelFiltros(ActionListener acaoBuscar) {
+        this(acaoBuscar, null);
+    }
+    
+    /**
+     * Construtor do painel de filtros com busca incremental.
+     * @param acaoBuscar ActionListener para a ação de busca (botão Buscar, com validação)
+     * @param acaoBuscaIncremental ActionListener disparado após uma pausa na digitação ou quando
+     *                             o tipo de busca ou o filtro de reembolsados muda; null desativa
+     */
+    public PainelFiltros(ActionListener acaoBuscar, ActionListener acaoBuscaIncremental) {
         this.acaoBuscar = acaoBuscar;
+        this.acaoBuscaIncremental = acaoBuscaIncremental;
+        this.temporizadorBusca = new Timer(ATRASO_BUSCA_INCREMENTAL_MS, e -> dispararBuscaIncremental());
+        this.temporizadorBusca.setRepeats(false);
         
         setLayout(new BoxLayout(this, BoxLayout.Y_AXIS));
         setOpaque(false);
@@ -142,11 +172,15 @@ public class PainelFiltros extends JPanel {
         cmbTipoBusca.addActionListener(e -> {
             int selectedIndex = cmbTipoBusca.getSelectedIndex();
             atualizarCampoBusca(selectedIndex);
+            agendarBuscaIncremental();
         });
         
+        chkMostrarReembolsados.addActionListener(e -> agendarBuscaIncremental());
+        
         // Quando o botão Buscar é pressionado
         btnBuscar.addActionListener(e -> {
             if (validarCampos()) {
+                temporizadorBusca.stop(); // A busca explícita substitui a incremental pendente
                 acaoBuscar.actionPerformed(e); // Dispara a ação para o listener externo
             }
         });
@@ -201,6 +235,8 @@ public class PainelFiltros extends JPanel {
                 estilizarCampo(txtBusca);
             }
             
+            txtBusca.getDocument().addDocumentListener(ouvinteDigitacao);
+            
             // Adiciona o novo componente na mesma posição
             parent.add(txtBusca, index);
             parent.revalidate();
@@ -221,8 +257,45 @@ public class PainelFiltros extends JPanel {
         campo.setAlignmentX(Component.LEFT_ALIGNMENT);
     }
     
+    /**
+     * Reinicia o temporizador da busca incremental; a busca só acontece quando
+     * não houver nova alteração dentro do intervalo.
+     */
+    private void agendarBuscaIncremental() {
+        if (acaoBuscaIncremental != null) {
+            temporizadorBusca.restart();
+        }
+    }
+    
+    private void dispararBuscaIncremental() {
+        if (termoProntoParaBuscaIncremental()) {
+            acaoBuscaIncremental.actionPerformed(
+                new ActionEvent(this, ActionEvent.ACTION_PERFORMED, "buscaIncremental"));
+        }
+    }
+    
+    /**
+     * Regras de validarCampos, mas sem mensagens: um termo ainda curto demais
+     * simplesmente não dispara a busca. Termo vazio lista todos os bilhetes, e um CPF
+     * incompleto busca pelos CPFs que começam com os dígitos já digitados.
+     */
+    private boolean termoProntoParaBuscaIncremental() {
+        String termo = getTermoBusca();
+        if (termo.isEmpty()) {
+            return true;
+        }
+        switch (cmbTipoBusca.getSelectedIndex()) {
+            case 1: // CPF do Cliente: a partir de 3 dígitos busca pelo início do CPF
+                return termo.chars().filter(Character::isDigit).count() >= MINIMO_DIGITOS_PREFIXO_CPF;
+            case 2: // Nome da Peça
+                return termo.length() >= 3;
+            default: // ID do Bilhete: a busca incremental só consulta o cache, nunca o BD
+                return true;
+        }
+    }
+    
     private boolean validarCampos() {
-        String termo = txtBusca.getText().trim();
+        String termo = getTermoBusca();
         int tipoIndex = cmbTipoBusca.getSelectedIndex();
         
         if (termo.isEmpty()) {
@@ -281,7 +354,12 @@ public class PainelFiltros extends JPanel {
      * @return String com o termo de busca
      */
     public String getTermoBusca() {
-        return txtBusca.getText().trim();
+        String termo = txtBusca.getText().trim();
+        // A máscara de CPF sem nenhum dígito equivale a um campo vazio
+        if (txtBusca instanceof JFormattedTextField && termo.chars().noneMatch(Character::isDigit)) {
+            return "";
+        }
+        return termo;
     }
     
     /**
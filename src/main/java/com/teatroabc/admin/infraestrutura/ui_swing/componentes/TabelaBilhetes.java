@@ -4,60 +4,33 @@ import com.teatroabc.admin.dominio.entidades.BilheteVendido;
 
 import javax.swing.*;
 import javax.swing.table.DefaultTableCellRenderer;
-import javax.swing.table.DefaultTableModel;
 import javax.swing.table.JTableHeader;
 import javax.swing.table.TableColumnModel;
-import javax.swing.table.TableRowSorter;
 import java.awt.*;
 import java.text.DecimalFormat;
-import java.text.SimpleDateFormat;
 import java.util.List;
 
 /**
  * Componente de tabela para exibição de bilhetes.
  * Versão corrigida com melhor visualização.
+ * Os dados vêm de um modelo virtualizado (ModeloTabelaBilhetes): nada é copiado por linha e
+ * CPF e valor são formatados apenas quando a célula é desenhada.
  */
 public class TabelaBilhetes extends JTable {
-    private final DefaultTableModel modelo;
-    private List<BilheteVendido> bilhetes;
-    private final SimpleDateFormat formatoData = new SimpleDateFormat("dd/MM/yyyy HH:mm");
+    private final ModeloTabelaBilhetes modelo;
     private final DecimalFormat formatoMoeda = new DecimalFormat("R$ #,##0.00");
     
+    private static final Color COR_LINHA_PAR = new Color(25, 40, 55);
+    private static final Color COR_LINHA_IMPAR = new Color(30, 45, 60);
+    private static final Color COR_FUNDO_REEMBOLSADO = new Color(60, 30, 30);
+    private static final Color COR_TEXTO_REEMBOLSADO = new Color(220, 180, 180);
+    
     /**
      * Construtor da tabela de bilhetes.
      */
     public TabelaBilhetes() {
-        // Cria o modelo de tabela não editável
-        modelo = new DefaultTableModel() {
-            @Override
-            public boolean isCellEditable(int row, int column) {
-                return false; // Nenhuma célula é editável
-            }
-            
-            @Override
-            public Class<?> getColumnClass(int columnIndex) {
-                // Define o tipo de cada coluna para ordenação correta
-                switch (columnIndex) {
-                    case 0: return String.class;   // ID
-                    case 1: return String.class;   // CPF
-                    case 2: return String.class;   // Peça
-                    case 3: return String.class;   // Turno
-                    case 4: return String.class;   // Poltronas
-                    case 5: return Double.class;   // Valor
-                    case 6: return Boolean.class;  // Reembolsado
-                    default: return Object.class;
-                }
-            }
-        };
-        
-        // Define as colunas
-        modelo.addColumn("ID");
-        modelo.addColumn("CPF Cliente");
-        modelo.addColumn("Peça");
-        modelo.addColumn("Turno");
-        modelo.addColumn("Poltronas");
-        modelo.addColumn("Valor");
-        modelo.addColumn("Reembolsado");
+        // Modelo não editável que lê direto da lista de bilhetes
+        modelo = new ModeloTabelaBilhetes();
         
         setModel(modelo);
         configurarTabela();
@@ -69,12 +42,13 @@ public class TabelaBilhetes extends JTable {
         setShowGrid(false);
         setIntercellSpacing(new Dimension(0, 0));
         setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        // O sorter é criado uma única vez e acompanha os eventos do modelo
         setAutoCreateRowSorter(true);
         setFillsViewportHeight(true);
         
         // Fonte e cores
         setFont(new Font("Arial", Font.PLAIN, 14));
-        setBackground(new Color(25, 40, 55));
+        setBackground(COR_LINHA_PAR);
         setForeground(Color.WHITE);
         setSelectionBackground(new Color(60, 90, 150));
         setSelectionForeground(Color.WHITE);
@@ -82,7 +56,7 @@ public class TabelaBilhetes extends JTable {
         // Configuração do cabeçalho
         JTableHeader header = getTableHeader();
         header.setFont(new Font("Arial", Font.BOLD, 14));
-        header.setBackground(new Color(30, 45, 60));
+        header.setBackground(COR_LINHA_IMPAR);
         header.setForeground(new Color(180, 200, 220));
         header.setBorder(BorderFactory.createEmptyBorder());
         header.setPreferredSize(new Dimension(header.getWidth(), 45));
@@ -114,24 +88,28 @@ public class TabelaBilhetes extends JTable {
                 
                 // Define a cor de fundo com base no estado
                 if (!isSelected) {
-                    boolean reembolsado = (boolean) modelo.getValueAt(modelRow, 6);
+                    boolean reembolsado = modelo.getBilhete(modelRow).isReembolsado();
                     if (reembolsado) {
-                        label.setBackground(new Color(60, 30, 30)); // Vermelho escuro para reembolsados
-                        label.setForeground(new Color(220, 180, 180)); // Texto mais claro
+                        label.setBackground(COR_FUNDO_REEMBOLSADO); // Vermelho escuro para reembolsados
+                        label.setForeground(COR_TEXTO_REEMBOLSADO); // Texto mais claro
                     } else {
                         // Alterna cores para melhor legibilidade
-                        label.setBackground(row % 2 == 0 ? new Color(25, 40, 55) : new Color(30, 45, 60));
+                        label.setBackground(row % 2 == 0 ? COR_LINHA_PAR : COR_LINHA_IMPAR);
                         label.setForeground(Color.WHITE);
                     }
                 }
                 
+                // Formatação só das células visíveis (o modelo guarda os valores crus)
+                int modelColumn = table.convertColumnIndexToModel(column);
+                if (modelColumn == ModeloTabelaBilhetes.COLUNA_CPF && value != null) {
+                    label.setText(formatarCPF((String) value));
+                }
+                
                 // Formata a coluna de valor
-                if (column == 5 && value != null) {
-                    if (value instanceof Double) {
-                        label.setText(formatoMoeda.format(value));
-                    }
+                if (modelColumn == ModeloTabelaBilhetes.COLUNA_VALOR && value != null) {
+                    label.setText(formatoMoeda.format(value));
                     label.setHorizontalAlignment(SwingConstants.RIGHT);
-                } else if (column == 6) {
+                } else if (modelColumn == ModeloTabelaBilhetes.COLUNA_REEMBOLSADO) {
                     // Centraliza a coluna de reembolsado
                     label.setHorizontalAlignment(SwingConstants.CENTER);
                 } else {
@@ -151,28 +129,30 @@ public class TabelaBilhetes extends JTable {
         
         // Renderer para a coluna "Reembolsado" (checkbox)
         getColumnModel().getColumn(6).setCellRenderer(new DefaultTableCellRenderer() {
+            // Um único checkbox estilizado, reaproveitado a cada célula desenhada
+            private final JCheckBox checkBox = new JCheckBox();
+            
+            {
+                checkBox.setHorizontalAlignment(SwingConstants.CENTER);
+            }
+            
             @Override
             public Component getTableCellRendererComponent(JTable table, Object value,
                                                           boolean isSelected, boolean hasFocus, int row, int column) {
                 
-                // Cria um checkbox estilizado para a coluna de reembolso
-                JCheckBox checkBox = new JCheckBox();
-                checkBox.setSelected((Boolean) value);
-                checkBox.setHorizontalAlignment(SwingConstants.CENTER);
+                boolean reembolsado = Boolean.TRUE.equals(value);
+                checkBox.setSelected(reembolsado);
                 
                 // Cor de fundo baseada no status
-                int modelRow = table.convertRowIndexToModel(row);
-                boolean reembolsado = (boolean) modelo.getValueAt(modelRow, 6);
-                
                 if (isSelected) {
                     checkBox.setBackground(table.getSelectionBackground());
                     checkBox.setForeground(table.getSelectionForeground());
                 } else {
                     if (reembolsado) {
-                        checkBox.setBackground(new Color(60, 30, 30));
-                        checkBox.setForeground(new Color(220, 180, 180));
+                        checkBox.setBackground(COR_FUNDO_REEMBOLSADO);
+                        checkBox.setForeground(COR_TEXTO_REEMBOLSADO);
                     } else {
-                        checkBox.setBackground(row % 2 == 0 ? new Color(25, 40, 55) : new Color(30, 45, 60));
+                        checkBox.setBackground(row % 2 == 0 ? COR_LINHA_PAR : COR_LINHA_IMPAR);
                         checkBox.setForeground(Color.WHITE);
                     }
                 }
@@ -191,28 +171,38 @@ public class TabelaBilhetes extends JTable {
     
     /**
      * Atualiza os dados da tabela.
-     * @param bilhetes Lista de bilhetes a ser exibida
+     * A lista é exibida diretamente, sem cópia linha a linha; o sorter existente reordena
+     * as novas linhas mantendo a ordenação escolhida pelo usuário.
+     * @param bilhetes Lista de bilhetes a ser exibida (passa a pertencer à tabela)
      */
     public void atualizarDados(List<BilheteVendido> bilhetes) {
-        this.bilhetes = bilhetes;
-        modelo.setRowCount(0); // Limpa a tabela
-        
-        for (BilheteVendido bilhete : bilhetes) {
-            Object[] linha = {
-                bilhete.getIdIngresso(),
-                formatarCPF(bilhete.getCpf()),
-                bilhete.getNomePeca(),
-                bilhete.getTurno(),
-                bilhete.getNumeroPoltronas(),
-                bilhete.getPreco().doubleValue(), // Para ordenação como número
-                bilhete.isReembolsado()
-            };
-            modelo.addRow(linha);
-        }
-        
-        // Recriar o sorter
-        TableRowSorter<DefaultTableModel> sorter = new TableRowSorter<>(modelo);
-        setRowSorter(sorter);
+        modelo.substituirBilhetes(bilhetes);
+    }
+    
+    /**
+     * Atualiza apenas a linha do bilhete informado, se ele estiver sendo exibido.
+     * @param bilhete Novo estado do bilhete
+     * @return true se o bilhete estava na tabela
+     */
+    public boolean atualizarBilhete(BilheteVendido bilhete) {
+        return modelo.atualizarBilhete(bilhete);
+    }
+    
+    /**
+     * Acrescenta um bilhete à tabela.
+     * @param bilhete Bilhete a ser exibido
+     */
+    public void adicionarBilhete(BilheteVendido bilhete) {
+        modelo.adicionarBilhete(bilhete);
+    }
+    
+    /**
+     * Remove um bilhete da tabela, se estiver sendo exibido.
+     * @param idIngresso ID do bilhete
+     * @return true se o bilhete estava na tabela
+     */
+    public boolean removerBilhete(String idIngresso) {
+        return modelo.removerBilhete(idIngresso);
     }
     
     /**
@@ -224,10 +214,16 @@ public class TabelaBilhetes extends JTable {
         if (cpf == null || cpf.length() != 11) {
             return cpf;
         }
-        return cpf.substring(0, 3) + "." + 
-               cpf.substring(3, 6) + "." + 
-               cpf.substring(6, 9) + "-" + 
-               cpf.substring(9, 11);
+        // Monta a máscara em um único buffer, sem substrings intermediárias
+        char[] formatado = new char[14];
+        cpf.getChars(0, 3, formatado, 0);
+        formatado[3] = '.';
+        cpf.getChars(3, 6, formatado, 4);
+        formatado[7] = '.';
+        cpf.getChars(6, 9, formatado, 8);
+        formatado[11] = '-';
+        cpf.getChars(9, 11, formatado, 12);
+        return new String(formatado);
     }
     
     /**
@@ -238,7 +234,7 @@ public class TabelaBilhetes extends JTable {
         int linhaSelecionada = getSelectedRow();
         if (linhaSelecionada >= 0) {
             int indiceLinhaSelecionada = convertRowIndexToModel(linhaSelecionada);
-            return bilhetes.get(indiceLinhaSelecionada);
+            return modelo.getBilhete(indiceLinhaSelecionada);
         }
         return null;
     }
@@ -1,5 +1,6 @@
 package com.teatroabc.admin.infraestrutura.ui_swing.controllers;
 
+import com.teatroabc.admin.aplicacao.dto.EstatisticaDTO;
 import com.teatroabc.admin.aplicacao.interfaces.IBilheteServico;
 import com.teatroabc.admin.aplicacao.interfaces.IEstatisticaServico;
 import com.teatroabc.admin.infraestrutura.ui_swing.telas.TelaEstatisticas;
@@ -47,13 +48,14 @@ public class ControladorEstatisticas {
                 // Simula um pequeno atraso para que o feedback visual seja perceptível
                 Thread.sleep(500);
 
-                // Busca os dados dos serviços
-                resultado.put("totalVendas", bilheteServico.calcularTotalVendas());
-                resultado.put("totalReembolsos", bilheteServico.calcularTotalReembolsos());
-                resultado.put("qtdBilhetes", bilheteServico.buscarTodos().size());
-                resultado.put("qtdReembolsados", bilheteServico.contarBilhetesReembolsados());
-                resultado.put("vendasPorPeca", estatisticaServico.calcularVendasPorPeca());
-                resultado.put("vendasPorTurno", estatisticaServico.calcularVendasPorTurno());
+                // Busca todos os números em uma única agregação
+                EstatisticaDTO estatisticas = estatisticaServico.gerarEstatisticasGerais();
+                resultado.put("totalVendas", estatisticas.getTotalVendas());
+                resultado.put("totalReembolsos", estatisticas.getTotalReembolsos());
+                resultado.put("qtdBilhetes", estatisticas.getQuantidadeBilhetes());
+                resultado.put("qtdReembolsados", estatisticas.getQuantidadeReembolsados());
+                resultado.put("vendasPorPeca", estatisticas.getVendasPorPeca());
+                resultado.put("vendasPorTurno", estatisticas.getVendasPorTurno());
                 
                 return resultado;
             }
@@ -1,13 +1,17 @@
 package com.teatroabc.admin.infraestrutura.ui_swing.controllers;
 
 import com.teatroabc.admin.aplicacao.dto.ReembolsoDTO;
+import com.teatroabc.admin.aplicacao.dto.ReembolsoLoteDTO;
 import com.teatroabc.admin.aplicacao.interfaces.IBilheteServico;
 import com.teatroabc.admin.dominio.entidades.BilheteVendido;
+import com.teatroabc.admin.dominio.entidades.ConsultaBilhetes;
 import com.teatroabc.admin.infraestrutura.ui_swing.telas.TelaGerenciamentoBilhetes;
 
 import javax.swing.*;
 import java.util.List;
+import java.util.UUID;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Classe controladora para a TelaGerenciamentoBilhetes.
@@ -18,6 +22,14 @@ public class ControladorGerenciamentoBilhetes {
     private final IBilheteServico bilheteServico;
     private final TelaGerenciamentoBilhetes view; // Referência à View
 
+    // Bilhetes exibidos de uma vez quando o CPF ainda está incompleto (busca por prefixo)
+    private static final int TAMANHO_PAGINA_PREFIXO_CPF = 500;
+
+    // Geração da consulta mais recente; resultados de gerações anteriores são descartados
+    private final AtomicLong geracaoConsulta = new AtomicLong();
+    // Consulta em andamento (acessada apenas na EDT)
+    private SwingWorker<List<BilheteVendido>, Void> consultaEmAndamento;
+
     /**
      * Construtor do controlador.
      *
@@ -33,7 +45,7 @@ public class ControladorGerenciamentoBilhetes {
      * Carrega todos os bilhetes do serviço e atualiza a view.
      */
     public void carregarBilhetes() {
-        view.setCarregando(true);
+        long geracao = iniciarConsulta();
         view.atualizarStatus("Carregando bilhetes...");
 
         SwingWorker<List<BilheteVendido>, Void> worker = new SwingWorker<>() {
@@ -44,6 +56,9 @@ public class ControladorGerenciamentoBilhetes {
 
             @Override
             protected void done() {
+                if (!isConsultaAtual(this, geracao)) {
+                    return; // Substituída por uma consulta mais recente
+                }
                 try {
                     view.atualizarTabela(get());
                     view.atualizarStatus("Bilhetes carregados");
@@ -51,60 +66,146 @@ public class ControladorGerenciamentoBilhetes {
                     view.mostrarErro("Erro ao carregar bilhetes: " + ex.getMessage());
                     ex.printStackTrace();
                 } finally {
-                    view.setCarregando(false);
+                    finalizarConsulta();
                 }
             }
         };
-        worker.execute();
+        executarConsulta(worker);
     }
 
     /**
-     * Aplica os filtros com base nos dados fornecidos pela view.
+     * Aplica os filtros com base nos dados fornecidos pela view (botão Buscar): um ID que não
+     * estiver em memória ainda é procurado no banco de dados.
      */
     public void aplicarFiltros() {
+        aplicarFiltros(false);
+    }
+
+    /**
+     * Aplica os filtros enquanto o usuário digita, respondendo só com o cache: um ID ainda
+     * incompleto não vira uma consulta ao banco a cada pausa na digitação.
+     */
+    public void aplicarFiltrosIncremental() {
+        aplicarFiltros(true);
+    }
+
+    /**
+     * Pode ser chamado a cada tecla (busca incremental): a consulta anterior ainda em andamento
+     * é cancelada e só o resultado da consulta mais recente chega à tabela.
+     */
+    private void aplicarFiltros(boolean somenteEmMemoria) {
         String termo = view.getFiltroTermo();
         String tipoBusca = view.getFiltroTipo();
         boolean mostrarReembolsados = view.getFiltroMostrarReembolsados();
 
-        view.setCarregando(true);
+        long geracao = iniciarConsulta();
         view.atualizarStatus("Aplicando filtros...");
 
         SwingWorker<List<BilheteVendido>, Void> worker = new SwingWorker<>() {
+            private String status = "Filtros aplicados";
+
             @Override
             protected List<BilheteVendido> doInBackground() {
-                List<BilheteVendido> resultado;
-                if (termo != null && !termo.isEmpty()) {
-                    resultado = switch (tipoBusca) {
-                        case "cpf" -> bilheteServico.buscarPorCpf(termo);
-                        case "peca" -> bilheteServico.buscarPorPeca(termo);
-                        default -> bilheteServico.buscarPorId(termo).map(List::of).orElse(List.of());
-                    };
-                } else {
-                    resultado = bilheteServico.buscarTodos();
+                // Um único plano de consulta: o termo e o status de reembolso são resolvidos
+                // juntos pelos índices do cache, sem filtrar a lista depois
+                ConsultaBilhetes consulta = ConsultaBilhetes.todos();
+                if (!mostrarReembolsados) {
+                    consulta = consulta.comReembolsado(false);
+                }
+                if (termo == null || termo.isEmpty()) {
+                    return consultar(consulta);
                 }
+                return switch (tipoBusca) {
+                    case "cpf" -> buscarPorCpfOuPrefixo(consulta, termo);
+                    case "peca" -> consultar(consulta.comTrechoPeca(termo));
+                    default -> consultar(consulta.comId(termo));
+                };
+            }
 
-                if (!mostrarReembolsados) {
-                    return resultado.stream().filter(b -> !b.isReembolsado()).toList();
+            private List<BilheteVendido> consultar(ConsultaBilhetes consulta) {
+                return somenteEmMemoria
+                    ? bilheteServico.consultarEmMemoria(consulta)
+                    : bilheteServico.consultar(consulta);
+            }
+
+            /**
+             * CPF completo usa a busca exata; enquanto o CPF é digitado, mostra a primeira
+             * página dos bilhetes cujo CPF começa pelo que já foi digitado.
+             */
+            private List<BilheteVendido> buscarPorCpfOuPrefixo(ConsultaBilhetes consulta, String cpf) {
+                if (contarDigitos(cpf) == 11) {
+                    return consultar(consulta.comCpf(cpf));
+                }
+                ConsultaBilhetes porPrefixo = consulta.comPrefixoCpf(cpf).ordenadaPor(ConsultaBilhetes.Ordenacao.CPF, true);
+                List<BilheteVendido> pagina = consultar(porPrefixo.comPaginacao(0, TAMANHO_PAGINA_PREFIXO_CPF));
+                if (pagina.size() == TAMANHO_PAGINA_PREFIXO_CPF) {
+                    int total = somenteEmMemoria
+                        ? bilheteServico.contarEmMemoria(porPrefixo)
+                        : bilheteServico.contar(porPrefixo);
+                    status = "Exibindo os primeiros " + pagina.size() + " de " + total + " bilhetes com este início de CPF";
                 }
-                return resultado;
+                return pagina;
             }
 
             @Override
             protected void done() {
+                if (!isConsultaAtual(this, geracao)) {
+                    return; // Substituída por uma consulta mais recente
+                }
                 try {
                     view.atualizarTabela(get());
-                    view.atualizarStatus("Filtros aplicados");
+                    view.atualizarStatus(status);
                 } catch (Exception ex) {
                     view.mostrarErro("Erro ao aplicar filtros: " + ex.getMessage());
                     ex.printStackTrace();
                 } finally {
-                    view.setCarregando(false);
+                    finalizarConsulta();
                 }
             }
         };
+        executarConsulta(worker);
+    }
+
+    /**
+     * Abre uma nova geração de consulta, cancelando a anterior se ainda estiver em andamento.
+     * @return A geração da nova consulta
+     */
+    private long iniciarConsulta() {
+        if (consultaEmAndamento != null) {
+            consultaEmAndamento.cancel(true);
+            consultaEmAndamento = null;
+        }
+        view.setCarregando(true);
+        return geracaoConsulta.incrementAndGet();
+    }
+
+    private void executarConsulta(SwingWorker<List<BilheteVendido>, Void> worker) {
+        consultaEmAndamento = worker;
         worker.execute();
     }
 
+    /**
+     * Verifica, na EDT, se o resultado do worker ainda corresponde à consulta mais recente.
+     */
+    private boolean isConsultaAtual(SwingWorker<?, ?> worker, long geracao) {
+        return !worker.isCancelled() && geracao == geracaoConsulta.get();
+    }
+
+    private void finalizarConsulta() {
+        consultaEmAndamento = null;
+        view.setCarregando(false);
+    }
+
+    private static int contarDigitos(String texto) {
+        int digitos = 0;
+        for (int i = 0; i < texto.length(); i++) {
+            if (Character.isDigit(texto.charAt(i))) {
+                digitos++;
+            }
+        }
+        return digitos;
+    }
+
     /**
      * Sincroniza os dados com o banco de dados e recarrega os bilhetes.
      */
@@ -150,12 +251,14 @@ public class ControladorGerenciamentoBilhetes {
     public void processarReembolso(String idBilhete, String motivo) {
         view.setCarregando(true);
         view.atualizarStatus("Processando reembolso...");
+        // Uma chave por confirmação do operador: se a mesma operação for reenviada, o serviço
+        // devolve o resultado original em vez de reembolsar de novo
+        String chaveIdempotencia = UUID.randomUUID().toString();
 
         SwingWorker<ReembolsoDTO, Void> worker = new SwingWorker<>() {
             @Override
             protected ReembolsoDTO doInBackground() throws Exception {
-                Thread.sleep(500); // Delay para feedback visual
-                return bilheteServico.processarReembolso(idBilhete, motivo);
+                return bilheteServico.processarReembolso(idBilhete, motivo, chaveIdempotencia);
             }
 
             @Override
@@ -163,8 +266,8 @@ public class ControladorGerenciamentoBilhetes {
                 try {
                     ReembolsoDTO resultado = get();
                     if (resultado != null && resultado.isSucesso()) {
+                        atualizarLinhaReembolsada(idBilhete, resultado.getBilhete());
                         view.mostrarSucesso("Reembolso Concluído", "O bilhete foi reembolsado com sucesso.\nValor: " + resultado.getValorReembolsado());
-                        carregarBilhetes(); // Atualiza a lista
                     } else {
                         String msg = resultado != null ? resultado.getMensagem() : "Erro desconhecido.";
                         view.mostrarErro("Falha ao processar reembolso: " + msg);
@@ -179,4 +282,67 @@ public class ControladorGerenciamentoBilhetes {
         };
         worker.execute();
     }
+
+    /**
+     * Reembolsa em lote todos os bilhetes ativos de uma sessão cancelada.
+     *
+     * @param nomePeca   Peça da sessão.
+     * @param turno      Turno da sessão.
+     * @param nomeSessao Nome da sessão.
+     * @param motivo     O motivo do reembolso.
+     */
+    public void processarReembolsoSessao(String nomePeca, String turno, String nomeSessao, String motivo) {
+        view.setCarregando(true);
+        view.atualizarStatus("Reembolsando bilhetes da sessão...");
+
+        SwingWorker<ReembolsoLoteDTO, Void> worker = new SwingWorker<>() {
+            @Override
+            protected ReembolsoLoteDTO doInBackground() {
+                ConsultaBilhetes consulta = ConsultaBilhetes.todos()
+                    .comPeca(nomePeca)
+                    .comTurno(turno)
+                    .comSessao(nomeSessao)
+                    .comReembolsado(false);
+                return bilheteServico.processarReembolsoEmLote(consulta, motivo);
+            }
+
+            @Override
+            protected void done() {
+                try {
+                    ReembolsoLoteDTO resultado = get();
+                    String resumo = resultado.getQuantidadeSucesso() + " de " + resultado.getQuantidadeTotal()
+                                    + " bilhetes reembolsados.\nValor total: " + resultado.getValorTotalReembolsado();
+                    if (resultado.isParcial()) {
+                        view.mostrarErro("O banco de dados não respondeu: só os bilhetes em memória foram considerados."
+                                         + " Repita o reembolso da sessão para incluir os demais.\n" + resumo);
+                    } else if (resultado.getQuantidadeFalha() == 0) {
+                        view.mostrarSucesso("Reembolso da Sessão Concluído", resumo);
+                    } else {
+                        view.mostrarErro("Reembolso da sessão concluído com falhas.\n" + resumo);
+                    }
+                } catch (Exception ex) {
+                    view.mostrarErro("Erro ao reembolsar a sessão: " + ex.getMessage());
+                    ex.printStackTrace();
+                } finally {
+                    view.setCarregando(false);
+                    aplicarFiltros(); // Muitas linhas mudaram: reconsulta com os filtros atuais
+                }
+            }
+        };
+        worker.execute();
+    }
+
+    /**
+     * Reflete o reembolso apenas na linha afetada, sem recarregar a tabela inteira.
+     * Se os reembolsados estiverem ocultos pelo filtro, a linha é removida.
+     */
+    private void atualizarLinhaReembolsada(String idBilhete, BilheteVendido atualizado) {
+        if (atualizado == null) {
+            carregarBilhetes(); // Sem o estado atualizado, recarrega a lista
+        } else if (!view.getFiltroMostrarReembolsados()) {
+            view.removerBilheteDaTabela(idBilhete);
+        } else {
+            view.atualizarBilheteNaTabela(atualizado);
+        }
+    }
 }
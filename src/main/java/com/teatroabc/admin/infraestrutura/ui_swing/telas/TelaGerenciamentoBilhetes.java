@@ -25,7 +25,7 @@ public class TelaGerenciamentoBilhetes extends JPanel {
 
     private final TabelaBilhetes tabelaBilhetes;
     private final PainelFiltros painelFiltros;
-    private final JButton btnAtualizar, btnDetalhes, btnReembolsar;
+    private final JButton btnAtualizar, btnDetalhes, btnReembolsar, btnReembolsarSessao;
     private final JLabel lblStatus, lblContagem;
     private final JProgressBar progressBar;
 
@@ -43,10 +43,11 @@ public class TelaGerenciamentoBilhetes extends JPanel {
 
         // Inicialização dos componentes
         this.tabelaBilhetes = new TabelaBilhetes();
-        this.painelFiltros = new PainelFiltros(e -> controlador.aplicarFiltros());
+        this.painelFiltros = new PainelFiltros(e -> controlador.aplicarFiltros(), e -> controlador.aplicarFiltrosIncremental());
         this.btnAtualizar = new JButton("Atualizar Dados");
         this.btnDetalhes = new JButton("Ver Detalhes");
         this.btnReembolsar = new JButton("Reembolsar");
+        this.btnReembolsarSessao = new JButton("Reembolsar Sessão");
         this.lblStatus = new JLabel("Pronto");
         this.lblContagem = new JLabel("0 bilhetes encontrados");
         this.progressBar = new JProgressBar();
@@ -74,6 +75,7 @@ public class TelaGerenciamentoBilhetes extends JPanel {
         btnAtualizar.addActionListener(e -> controlador.sincronizarComBanco());
         btnDetalhes.addActionListener(e -> mostrarDetalhesBilhete());
         btnReembolsar.addActionListener(e -> iniciarProcessoReembolso());
+        btnReembolsarSessao.addActionListener(e -> iniciarReembolsoSessao());
 
         tabelaBilhetes.getSelectionModel().addListSelectionListener(e -> {
             if (!e.getValueIsAdjusting()) {
@@ -94,6 +96,26 @@ public class TelaGerenciamentoBilhetes extends JPanel {
         tabelaBilhetes.atualizarDados(bilhetes);
         lblContagem.setText(bilhetes.size() + " bilhetes encontrados");
     }
+    
+    /**
+     * Atualiza só a linha do bilhete, preservando rolagem, seleção e ordenação.
+     * @return true se o bilhete estava na tabela
+     */
+    public boolean atualizarBilheteNaTabela(BilheteVendido bilhete) {
+        boolean atualizado = tabelaBilhetes.atualizarBilhete(bilhete);
+        atualizarEstadoBotoes(); // O bilhete selecionado pode ter mudado de estado
+        return atualizado;
+    }
+    
+    /**
+     * Remove só a linha do bilhete (ex.: reembolsado com o filtro de reembolsados desligado).
+     */
+    public void removerBilheteDaTabela(String idIngresso) {
+        if (tabelaBilhetes.removerBilhete(idIngresso)) {
+            lblContagem.setText(tabelaBilhetes.getModel().getRowCount() + " bilhetes encontrados");
+        }
+        atualizarEstadoBotoes();
+    }
 
     public void atualizarStatus(String mensagem) {
         lblStatus.setText(mensagem);
@@ -120,6 +142,7 @@ public class TelaGerenciamentoBilhetes extends JPanel {
         boolean temSelecao = bilheteSelecionado != null;
         btnDetalhes.setEnabled(temSelecao);
         btnReembolsar.setEnabled(temSelecao && !bilheteSelecionado.isReembolsado());
+        btnReembolsarSessao.setEnabled(temSelecao && bilheteSelecionado.getNomeSessao() != null);
     }
 
     private void iniciarProcessoReembolso() {
@@ -152,6 +175,40 @@ public class TelaGerenciamentoBilhetes extends JPanel {
         }
     }
     
+    /**
+     * Cancela a sessão do bilhete selecionado, reembolsando todos os bilhetes ativos dela.
+     */
+    private void iniciarReembolsoSessao() {
+        BilheteVendido bilhete = tabelaBilhetes.getBilheteSelecionado();
+        if (bilhete == null || bilhete.getNomeSessao() == null) return;
+
+        JPanel painelMotivo = new JPanel(new BorderLayout(10, 10));
+        painelMotivo.setBorder(new EmptyBorder(10, 10, 10, 10));
+        JLabel lblInfo = new JLabel("<html>Deseja realmente reembolsar todos os bilhetes ativos da sessão?<br>" +
+                                   "Peça: " + bilhete.getNomePeca() + " - Turno: " + bilhete.getTurno() +
+                                   " - Sessão: " + bilhete.getNomeSessao() + "</html>");
+        lblInfo.setFont(new Font("Arial", Font.PLAIN, 14));
+        
+        JTextArea txtMotivo = new JTextArea(3, 30);
+        txtMotivo.setLineWrap(true);
+        txtMotivo.setWrapStyleWord(true);
+        JScrollPane scrollMotivo = new JScrollPane(txtMotivo);
+        
+        painelMotivo.add(lblInfo, BorderLayout.NORTH);
+        painelMotivo.add(scrollMotivo, BorderLayout.CENTER);
+        
+        int resultado = JOptionPane.showConfirmDialog(this, painelMotivo, "Confirmar Reembolso da Sessão", JOptionPane.OK_CANCEL_OPTION, JOptionPane.WARNING_MESSAGE);
+
+        if (resultado == JOptionPane.OK_OPTION) {
+            String motivo = txtMotivo.getText().trim();
+            if (motivo.isEmpty()) {
+                mostrarErro("É necessário informar um motivo para o reembolso.");
+                return;
+            }
+            controlador.processarReembolsoSessao(bilhete.getNomePeca(), bilhete.getTurno(), bilhete.getNomeSessao(), motivo);
+        }
+    }
+    
     private void mostrarDetalhesBilhete() {
         BilheteVendido bilhete = tabelaBilhetes.getBilheteSelecionado();
         if (bilhete == null) return;
@@ -254,7 +311,13 @@ public class TelaGerenciamentoBilhetes extends JPanel {
         btnReembolsar.setForeground(Color.WHITE);
         btnReembolsar.setEnabled(false);
         
+        btnReembolsarSessao.setFont(new Font("Arial", Font.BOLD, 14));
+        btnReembolsarSessao.setBackground(new Color(231, 76, 60));
+        btnReembolsarSessao.setForeground(Color.WHITE);
+        btnReembolsarSessao.setEnabled(false);
+        
         painel.add(btnDetalhes);
+        painel.add(btnReembolsarSessao);
         painel.add(btnReembolsar);
         return painel;
     }
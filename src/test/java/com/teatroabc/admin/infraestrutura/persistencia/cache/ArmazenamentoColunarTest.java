@@ -0,0 +1,138 @@
+package com.teatroabc.admin.infraestrutura.persistencia.cache;
+
+import com.teatroabc.admin.dominio.entidades.BilheteVendido;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+/**
+ * Substituições que mudam atributos (nova linha + lápide) não podem esconder o bilhete,
+ * nem parte dele, de quem o consulta sem lock.
+ */
+class ArmazenamentoColunarTest {
+
+    private static final int BILHETES = 64;
+    // Não cabe em centavos: o preço fica fora das colunas primitivas
+    private static final BigDecimal PRECO_FRACIONADO = new BigDecimal("33.335");
+
+    @Test
+    void substituicaoNaoEscondeBilheteDeBuscasPorIdECpf() throws Exception {
+        ArmazenamentoColunar armazenamento = new ArmazenamentoColunar();
+        for (int i = 0; i < BILHETES; i++) {
+            armazenamento.adicionar(bilhete(i, "A0", cpf(i)));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        AtomicBoolean escrevendo = new AtomicBoolean(true);
+        try {
+            // Escritas serializadas, como no CacheBilhetes; as colunas crescem durante o teste
+            Future<?> escritor = executor.submit(() -> {
+                for (int rodada = 1; rodada <= 3_000; rodada++) {
+                    for (int i = 0; i < BILHETES; i++) {
+                        // Metade muda de CPF, metade só de poltrona
+                        String cpf = i % 2 == 0 ? cpf(i) : cpf(i + BILHETES * (rodada % 2));
+                        armazenamento.atualizar(bilhete(i, "A" + rodada, cpf));
+                    }
+                }
+                escrevendo.set(false);
+                return null;
+            });
+            Future<?> porId = executor.submit(() -> {
+                while (escrevendo.get()) {
+                    for (int i = 0; i < BILHETES; i++) {
+                        assertNotNull(armazenamento.buscarPorId("id" + i), "Bilhete sumiu durante a substituição");
+                    }
+                }
+                return null;
+            });
+            Future<?> porCpf = executor.submit(() -> {
+                while (escrevendo.get()) {
+                    for (int i = 0; i < BILHETES; i += 2) {
+                        List<BilheteVendido> bilhetes = armazenamento.buscarPorCpf(cpf(i));
+                        assertEquals(1, bilhetes.size(), "CPF sem o bilhete ou com o bilhete repetido");
+                    }
+                }
+                return null;
+            });
+            escritor.get(120, TimeUnit.SECONDS);
+            porId.get(120, TimeUnit.SECONDS);
+            porCpf.get(120, TimeUnit.SECONDS);
+        } finally {
+            escrevendo.set(false);
+            executor.shutdownNow();
+        }
+
+        assertEquals(BILHETES, armazenamento.tamanho());
+        for (int i = 0; i < BILHETES; i++) {
+            assertEquals("A3000", armazenamento.buscarPorId("id" + i).getNumeroPoltronas());
+        }
+    }
+
+    @Test
+    void lapideMantemPrecoComFracaoDeCentavoParaLeitoresSemLock() throws Exception {
+        ArmazenamentoColunar armazenamento = new ArmazenamentoColunar();
+        for (int i = 0; i < BILHETES; i++) {
+            armazenamento.adicionar(bilhete(i, "A0", cpf(i), PRECO_FRACIONADO));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        AtomicBoolean escrevendo = new AtomicBoolean(true);
+        try {
+            Future<?> escritor = executor.submit(() -> {
+                for (int rodada = 1; rodada <= 3_000; rodada++) {
+                    for (int i = 0; i < BILHETES; i++) {
+                        // A troca de poltrona cria nova linha e deixa a antiga como lápide
+                        armazenamento.atualizar(bilhete(i, "A" + rodada, cpf(i), PRECO_FRACIONADO));
+                    }
+                }
+                escrevendo.set(false);
+                return null;
+            });
+            Future<?> varredura = executor.submit(() -> {
+                while (escrevendo.get()) {
+                    armazenamento.paraCada(bilhete ->
+                        assertEquals(0, PRECO_FRACIONADO.compareTo(bilhete.getPreco())));
+                }
+                return null;
+            });
+            Future<?> porCpf = executor.submit(() -> {
+                while (escrevendo.get()) {
+                    for (int i = 0; i < BILHETES; i++) {
+                        for (BilheteVendido bilhete : armazenamento.buscarPorCpf(cpf(i))) {
+                            assertEquals(0, PRECO_FRACIONADO.compareTo(bilhete.getPreco()));
+                        }
+                        assertEquals(0, PRECO_FRACIONADO.compareTo(armazenamento.buscarPorId("id" + i).getPreco()));
+                    }
+                }
+                return null;
+            });
+            escritor.get(120, TimeUnit.SECONDS);
+            varredura.get(120, TimeUnit.SECONDS);
+            porCpf.get(120, TimeUnit.SECONDS);
+        } finally {
+            escrevendo.set(false);
+            executor.shutdownNow();
+        }
+    }
+
+    private static BilheteVendido bilhete(int i, String poltrona, String cpf) {
+        return bilhete(i, poltrona, cpf, new BigDecimal("30.00"));
+    }
+
+    private static BilheteVendido bilhete(int i, String poltrona, String cpf, BigDecimal preco) {
+        return new BilheteVendido("id" + i, cpf, "Peca", "NOITE", poltrona, "Sessao", 100, preco);
+    }
+
+    private static String cpf(int i) {
+        return String.format("%011d", 20_000_000_000L + i);
+    }
+}
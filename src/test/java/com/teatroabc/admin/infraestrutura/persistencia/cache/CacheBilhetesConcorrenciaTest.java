@@ -0,0 +1,169 @@
+package com.teatroabc.admin.infraestrutura.persistencia.cache;
+
+import com.teatroabc.admin.dominio.entidades.BilheteVendido;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Estresse do cache: inclusões, reembolsos e remoções de várias threads enquanto outras
+ * consultam por ID, CPF e peça. Ao final, índices e agregados devem refletir exatamente
+ * os bilhetes que ficaram.
+ */
+class CacheBilhetesConcorrenciaTest {
+
+    private static final int ESCRITORES = 6;
+    private static final int LEITORES = 4;
+    private static final int BILHETES_POR_ESCRITOR = 5_000;
+    private static final int CPFS = 50;
+    private static final int PECAS = 8;
+
+    private final CacheBilhetes cache = CacheBilhetes.getInstance();
+
+    @AfterEach
+    void restaurarPadrao() {
+        cache.setModoArmazenamento(CacheBilhetes.ModoArmazenamento.OBJETOS);
+        cache.limparCache();
+    }
+
+    @ParameterizedTest
+    @EnumSource(CacheBilhetes.ModoArmazenamento.class)
+    void escritasEConsultasConcorrentesMantemIndicesEAgregadosConsistentes(CacheBilhetes.ModoArmazenamento modo)
+            throws Exception {
+        cache.setModoArmazenamento(modo);
+        cache.setPesoMaximo(0);
+        List<BilheteVendido> iniciais = new ArrayList<>();
+        for (int i = 0; i < 2_000; i++) {
+            iniciais.add(bilhete("inicial-" + i, i));
+        }
+        cache.carregarBilhetes(iniciais);
+
+        // ID -> reembolsado, para os bilhetes que devem restar
+        ConcurrentHashMap<String, Boolean> esperados = new ConcurrentHashMap<>();
+        for (BilheteVendido bilhete : iniciais) {
+            esperados.put(bilhete.getIdIngresso(), false);
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(ESCRITORES + LEITORES);
+        CountDownLatch largada = new CountDownLatch(1);
+        AtomicBoolean escrevendo = new AtomicBoolean(true);
+        try {
+            List<Future<?>> escritores = new ArrayList<>();
+            for (int t = 0; t < ESCRITORES; t++) {
+                int escritor = t;
+                escritores.add(executor.submit(() -> {
+                    largada.await();
+                    for (int i = 0; i < BILHETES_POR_ESCRITOR; i++) {
+                        String id = "t" + escritor + "-" + i;
+                        BilheteVendido novo = bilhete(id, i);
+                        cache.adicionar(novo);
+                        if (i % 3 == 0) {
+                            cache.remover(id);
+                        } else if (i % 3 == 1) {
+                            BilheteVendido reembolsado = novo.copiar();
+                            reembolsado.restaurarReembolso(LocalDateTime.now());
+                            cache.atualizar(reembolsado);
+                            esperados.put(id, true);
+                        } else {
+                            esperados.put(id, false);
+                        }
+                    }
+                    // Parte dos bilhetes iniciais também sai durante as consultas
+                    for (int i = escritor; i < iniciais.size(); i += ESCRITORES * 4) {
+                        cache.remover("inicial-" + i);
+                        esperados.remove("inicial-" + i);
+                    }
+                    return null;
+                }));
+            }
+            List<Future<?>> leitores = new ArrayList<>();
+            for (int t = 0; t < LEITORES; t++) {
+                leitores.add(executor.submit(() -> {
+                    largada.await();
+                    int rodada = 0;
+                    while (escrevendo.get()) {
+                        String cpf = cpf(rodada % CPFS);
+                        for (BilheteVendido bilhete : cache.buscarPorCpf(cpf)) {
+                            assertEquals(cpf, bilhete.getCpf());
+                        }
+                        String peca = peca(rodada % PECAS);
+                        for (BilheteVendido bilhete : cache.buscarPorPeca(peca)) {
+                            assertEquals(peca, bilhete.getNomePeca());
+                        }
+                        Optional<BilheteVendido> porId = cache.buscarPorId("inicial-" + (rodada % 2_000));
+                        porId.ifPresent(b -> assertTrue(b.getIdIngresso().startsWith("inicial-")));
+                        cache.obterResumo();
+                        rodada++;
+                    }
+                    return null;
+                }));
+            }
+
+            largada.countDown();
+            for (Future<?> escritor : escritores) {
+                escritor.get(120, TimeUnit.SECONDS);
+            }
+            escrevendo.set(false);
+            for (Future<?> leitor : leitores) {
+                leitor.get(120, TimeUnit.SECONDS); // Repassa exceções e falhas de asserção das leituras
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(esperados.size(), cache.tamanho());
+        Set<String> porCpf = new HashSet<>();
+        for (int c = 0; c < CPFS; c++) {
+            for (BilheteVendido bilhete : cache.buscarPorCpf(cpf(c))) {
+                assertTrue(porCpf.add(bilhete.getIdIngresso()), "Bilhete repetido no índice de CPF");
+            }
+        }
+        assertEquals(esperados.keySet(), porCpf);
+        Set<String> porPeca = new HashSet<>();
+        for (int p = 0; p < PECAS; p++) {
+            for (BilheteVendido bilhete : cache.buscarPorPeca(peca(p))) {
+                porPeca.add(bilhete.getIdIngresso());
+            }
+        }
+        assertEquals(esperados.keySet(), porPeca);
+
+        long reembolsados = esperados.values().stream().filter(Boolean::booleanValue).count();
+        ResumoCache resumo = cache.obterResumo();
+        assertEquals(esperados.size(), resumo.getQuantidadeBilhetes());
+        assertEquals(reembolsados, resumo.getQuantidadeReembolsados());
+        // Bilhetes reembolsados saem do total de vendas
+        assertEquals(new BigDecimal("25.00").multiply(BigDecimal.valueOf(esperados.size() - reembolsados)),
+                     resumo.getTotalVendas());
+    }
+
+    private static BilheteVendido bilhete(String id, int i) {
+        return new BilheteVendido(id, cpf(i % CPFS), peca(i % PECAS), "NOITE", "A" + (i % 40),
+                                  "Sessao" + (i % 5), 100, new BigDecimal("25.00"));
+    }
+
+    private static String cpf(int i) {
+        return String.format("%011d", 10_000_000_000L + i);
+    }
+
+    private static String peca(int i) {
+        return "Peca " + i;
+    }
+}
@@ -0,0 +1,167 @@
+package com.teatroabc.admin.infraestrutura.persistencia.cache;
+
+import com.teatroabc.admin.dominio.entidades.BilheteVendido;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Com limite de peso, alterações, remoções e readmissões de bilhetes despejados devem deixar
+ * os agregados iguais aos calculados do zero sobre o estado final dos bilhetes, e os estados
+ * guardados dos despejados contam no limite.
+ */
+class CacheBilhetesDespejoTest {
+
+    private static final int BILHETES = 2_000;
+
+    private final CacheBilhetes cache = CacheBilhetes.getInstance();
+
+    @AfterEach
+    void restaurarPadrao() {
+        cache.setPesoMaximo(0);
+        cache.setModoArmazenamento(CacheBilhetes.ModoArmazenamento.OBJETOS);
+        cache.limparCache();
+    }
+
+    @ParameterizedTest
+    @EnumSource(CacheBilhetes.ModoArmazenamento.class)
+    void alteracoesEmDespejadosMantemAgregadosExatos(CacheBilhetes.ModoArmazenamento modo) {
+        cache.setModoArmazenamento(modo);
+        // Despeja boa parte dos bilhetes, com folga para os estados dos despejados (o colunar é bem mais leve)
+        cache.setPesoMaximo(modo == CacheBilhetes.ModoArmazenamento.OBJETOS ? 500_000 : 250_000);
+        Map<String, BilheteVendido> esperados = carregar();
+        assertTrue(cache.isAgregadosExatos());
+        assertTrue(pesoAtual() <= cache.getPesoMaximo(), "Bilhetes presentes e estados dos despejados passaram do limite");
+
+        List<String> despejados = new ArrayList<>();
+        for (String id : esperados.keySet()) {
+            if (cache.isDespejado(id)) {
+                despejados.add(id);
+            }
+        }
+        assertTrue(despejados.size() > BILHETES / 4, "O limite de peso deveria despejar boa parte dos bilhetes");
+        assertTrue(cache.possuiDespejados(), "Consultas por filtros deveriam ser marcadas como incompletas no cache");
+
+        Random aleatorio = new Random(7);
+        for (int i = 0; i < despejados.size(); i++) {
+            String id = despejados.get(i);
+            BilheteVendido atual = esperados.get(id);
+            switch (i % 5) {
+                case 0: {
+                    // Reembolso de um bilhete despejado
+                    BilheteVendido reembolsado = atual.copiar();
+                    reembolsado.restaurarReembolso(LocalDateTime.now());
+                    cache.atualizar(reembolsado);
+                    esperados.put(id, reembolsado);
+                    break;
+                }
+                case 1: {
+                    // Troca de peça, preço e CPF enquanto despejado
+                    BilheteVendido alterado = bilhete(id, aleatorio.nextInt(BILHETES), "Peca nova", new BigDecimal("99.999"));
+                    cache.atualizar(alterado);
+                    esperados.put(id, alterado);
+                    break;
+                }
+                case 2:
+                    cache.remover(id);
+                    esperados.remove(id);
+                    assertFalse(cache.isDespejado(id));
+                    break;
+                case 3: {
+                    // Readmissão com um estado diferente do que foi contado
+                    BilheteVendido readmitido = atual.copiar();
+                    readmitido.restaurarReembolso(LocalDateTime.now());
+                    cache.adicionar(readmitido);
+                    esperados.put(id, readmitido);
+                    break;
+                }
+                default: {
+                    // Alterado enquanto despejado e depois readmitido
+                    BilheteVendido alterado = bilhete(id, i, "Peca " + (i % 3), new BigDecimal("12.50"));
+                    cache.atualizar(alterado);
+                    cache.adicionar(alterado.copiar());
+                    esperados.put(id, alterado);
+                    break;
+                }
+            }
+        }
+
+        assertTrue(cache.isAgregadosExatos(), "As alterações não deveriam descartar os estados dos despejados");
+        AgregadosCache recalculado = new AgregadosCache();
+        for (BilheteVendido bilhete : esperados.values()) {
+            recalculado.aplicar(null, bilhete);
+        }
+        ResumoCache esperado = recalculado.montarResumo();
+        ResumoCache obtido = cache.obterResumo();
+        assertEquals(esperado.getQuantidadeBilhetes(), obtido.getQuantidadeBilhetes());
+        assertEquals(esperado.getQuantidadeReembolsados(), obtido.getQuantidadeReembolsados());
+        assertEquals(0, esperado.getTotalVendas().compareTo(obtido.getTotalVendas()));
+        assertEquals(0, esperado.getTotalReembolsos().compareTo(obtido.getTotalReembolsos()));
+        assertEquals(normalizar(esperado.getVendasPorPeca()), normalizar(obtido.getVendasPorPeca()));
+        assertEquals(normalizar(esperado.getVendasPorTurno()), normalizar(obtido.getVendasPorTurno()));
+        assertEquals(esperado.getOcupacaoPorSessao().size(), obtido.getOcupacaoPorSessao().size());
+        assertEquals(normalizar(recalculado.vendasPorMes(2025)), normalizar(cache.obterVendasPorMes(2025)));
+    }
+
+    @Test
+    void limitePequenoDemaisDescartaEstadosDosDespejados() {
+        cache.setPesoMaximo(100_000);
+        Map<String, BilheteVendido> esperados = carregar();
+
+        assertFalse(cache.isAgregadosExatos(), "Os estados não cabem em metade do limite");
+        assertTrue(pesoAtual() <= cache.getPesoMaximo());
+        assertTrue(cache.possuiDespejados());
+        assertFalse(cache.permiteSnapshot());
+        for (String id : esperados.keySet()) {
+            // Sem os estados, todo bilhete ausente é tratado como despejado (buscado no banco)
+            assertEquals(!cache.contem(id), cache.isDespejado(id));
+        }
+    }
+
+    private Map<String, BilheteVendido> carregar() {
+        Map<String, BilheteVendido> esperados = new LinkedHashMap<>();
+        for (int i = 0; i < BILHETES; i++) {
+            BilheteVendido bilhete = bilhete("id" + i, i, "Peca " + (i % 12), precoDe(i));
+            esperados.put(bilhete.getIdIngresso(), bilhete);
+        }
+        cache.carregarBilhetes(new ArrayList<>(esperados.values()));
+        return esperados;
+    }
+
+    private long pesoAtual() {
+        return (Long) cache.obterEstatisticas().get("pesoAtual");
+    }
+
+    private static BilheteVendido bilhete(String id, int i, String peca, BigDecimal preco) {
+        BilheteVendido bilhete = new BilheteVendido(id, String.format("%011d", 30_000_000_000L + i % 300), peca,
+                                                    i % 2 == 0 ? "NOITE" : "TARDE", "A" + (i % 40),
+                                                    "Sessao" + (i % 4), 100, preco);
+        bilhete.restaurarDataCompra(LocalDateTime.of(2025, 1 + i % 12, 1 + i % 28, 20, 0));
+        return bilhete;
+    }
+
+    private static BigDecimal precoDe(int i) {
+        // Alguns preços com frações de centavo, que não cabem em centavos exatos
+        return i % 10 == 0 ? new BigDecimal("33.335") : BigDecimal.valueOf(2_000 + i % 500, 2);
+    }
+
+    private static <K> Map<K, BigDecimal> normalizar(Map<K, BigDecimal> valores) {
+        Map<K, BigDecimal> normalizados = new TreeMap<>();
+        valores.forEach((chave, valor) -> normalizados.put(chave, valor.stripTrailingZeros()));
+        return normalizados;
+    }
+}
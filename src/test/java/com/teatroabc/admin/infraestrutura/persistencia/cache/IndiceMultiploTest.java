@@ -0,0 +1,130 @@
+package com.teatroabc.admin.infraestrutura.persistencia.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Estresse do índice secundário: muitas threads adicionando e removendo IDs nas mesmas
+ * chaves enquanto outras percorrem os conjuntos.
+ */
+class IndiceMultiploTest {
+
+    private static final int ESCRITORES = 8;
+    private static final int LEITORES = 4;
+    private static final int IDS_POR_ESCRITOR = 20_000;
+    private static final int CHAVES = 16;
+
+    @Test
+    void adicoesRemocoesELeiturasConcorrentesNaoPerdemIds() throws Exception {
+        IndiceMultiplo indice = new IndiceMultiplo();
+        ExecutorService executor = Executors.newFixedThreadPool(ESCRITORES + LEITORES);
+        CountDownLatch largada = new CountDownLatch(1);
+        AtomicBoolean escrevendo = new AtomicBoolean(true);
+        try {
+            List<Future<?>> escritores = new ArrayList<>();
+            for (int t = 0; t < ESCRITORES; t++) {
+                int escritor = t;
+                escritores.add(executor.submit(() -> {
+                    largada.await();
+                    for (int i = 0; i < IDS_POR_ESCRITOR; i++) {
+                        String chave = "chave" + (i % CHAVES);
+                        String id = escritor + "-" + i;
+                        indice.adicionar(chave, id);
+                        // IDs ímpares saem logo depois, esvaziando e recriando chaves o tempo todo
+                        if (i % 2 == 1) {
+                            indice.remover(chave, id);
+                        }
+                    }
+                    return null;
+                }));
+            }
+            List<Future<?>> leitores = new ArrayList<>();
+            for (int t = 0; t < LEITORES; t++) {
+                leitores.add(executor.submit(() -> {
+                    largada.await();
+                    while (escrevendo.get()) {
+                        for (int c = 0; c < CHAVES; c++) {
+                            String chave = "chave" + c;
+                            for (String id : indice.obter(chave)) {
+                                int i = Integer.parseInt(id.substring(id.indexOf('-') + 1));
+                                assertEquals(chave, "chave" + (i % CHAVES), "ID listado na chave errada");
+                            }
+                        }
+                    }
+                    return null;
+                }));
+            }
+
+            largada.countDown();
+            for (Future<?> escritor : escritores) {
+                escritor.get(60, TimeUnit.SECONDS);
+            }
+            escrevendo.set(false);
+            for (Future<?> leitor : leitores) {
+                leitor.get(60, TimeUnit.SECONDS); // Repassa ConcurrentModificationException ou falha de asserção
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        for (int c = 0; c < CHAVES; c++) {
+            Set<String> esperados = new HashSet<>();
+            for (int escritor = 0; escritor < ESCRITORES; escritor++) {
+                for (int i = c; i < IDS_POR_ESCRITOR; i += CHAVES) {
+                    if (i % 2 == 0) {
+                        esperados.add(escritor + "-" + i);
+                    }
+                }
+            }
+            assertEquals(esperados, new HashSet<>(indice.obter("chave" + c)));
+        }
+    }
+
+    @Test
+    void chaveEsvaziadaEmParaleloComAdicaoNaoDescartaId() throws Exception {
+        IndiceMultiplo indice = new IndiceMultiplo();
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            for (int rodada = 0; rodada < 2_000; rodada++) {
+                String chave = "cpf" + rodada;
+                indice.adicionar(chave, "antigo");
+                CountDownLatch largada = new CountDownLatch(1);
+                Future<?> remocao = executor.submit(() -> {
+                    largada.await();
+                    indice.remover(chave, "antigo");
+                    return null;
+                });
+                Future<?> adicao = executor.submit(() -> {
+                    largada.await();
+                    indice.adicionar(chave, "novo");
+                    return null;
+                });
+                largada.countDown();
+                remocao.get(10, TimeUnit.SECONDS);
+                adicao.get(10, TimeUnit.SECONDS);
+                assertEquals(Set.of("novo"), new HashSet<>(indice.obter(chave)));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(2_000, indice.tamanho());
+        for (int rodada = 0; rodada < 2_000; rodada++) {
+            indice.remover("cpf" + rodada, "novo");
+        }
+        assertTrue(indice.obter("cpf0").isEmpty());
+        assertEquals(0, indice.tamanho());
+    }
+}
@@ -0,0 +1,113 @@
+package com.teatroabc.admin.infraestrutura.persistencia.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * A soma em centavos deve dar sempre o mesmo resultado que a soma feita só com BigDecimal,
+ * inclusive com frações de centavo, valores enormes e estouro do long.
+ */
+class SomaCentavosTest {
+
+    @Test
+    void paraCentavosConverteValoresComAteDuasCasas() {
+        assertEquals(12345L, SomaCentavos.paraCentavos(new BigDecimal("123.45")));
+        assertEquals(1230L, SomaCentavos.paraCentavos(new BigDecimal("12.3")));
+        assertEquals(-7L, SomaCentavos.paraCentavos(new BigDecimal("-0.07")));
+        // Escala negativa passa pelo caminho exato
+        assertEquals(100_000L, SomaCentavos.paraCentavos(new BigDecimal("1E+3")));
+        // Maior valor do caminho rápido (13 dígitos inteiros): o double não pode arredondar errado
+        assertEquals(999_999_999_999_999L, SomaCentavos.paraCentavos(new BigDecimal("9999999999999.99")));
+    }
+
+    @Test
+    void paraCentavosRecusaFracoesDeCentavoEValoresForaDoLong() {
+        assertEquals(Long.MIN_VALUE, SomaCentavos.paraCentavos(new BigDecimal("10.005")));
+        assertEquals(Long.MIN_VALUE, SomaCentavos.paraCentavos(new BigDecimal("0.001")));
+        assertEquals(Long.MIN_VALUE, SomaCentavos.paraCentavos(new BigDecimal("100000000000000000.00")));
+        // Escala maior que 2, mas sem fração de centavo de fato: ainda é exato
+        assertEquals(1050L, SomaCentavos.paraCentavos(new BigDecimal("10.500")));
+        // Acima de 13 dígitos inteiros, mas ainda dentro do long
+        assertEquals(123_456_789_012_345_678L, SomaCentavos.paraCentavos(new BigDecimal("1234567890123456.78")));
+    }
+
+    @Test
+    void somaComFracoesDeCentavoIgualABigDecimal() {
+        SomaCentavos soma = new SomaCentavos();
+        BigDecimal esperado = BigDecimal.ZERO;
+        for (String valor : new String[] {"10.005", "0.333", "25.00", "-0.001", "7.1234"}) {
+            soma.somar(new BigDecimal(valor), 1);
+            esperado = esperado.add(new BigDecimal(valor));
+        }
+        soma.somar(new BigDecimal("0.333"), -1);
+        esperado = esperado.subtract(new BigDecimal("0.333"));
+        assertIguais(esperado, soma.valor());
+    }
+
+    @Test
+    void estouroDoLongCaiParaParcelaExata() {
+        BigDecimal grande = BigDecimal.valueOf(Long.MAX_VALUE / 2, 2);
+        SomaCentavos soma = new SomaCentavos();
+        BigDecimal esperado = BigDecimal.ZERO;
+        for (int i = 0; i < 5; i++) {
+            soma.somar(grande, 1);
+            esperado = esperado.add(grande);
+        }
+        assertIguais(esperado, soma.valor());
+
+        for (int i = 0; i < 9; i++) {
+            soma.somar(grande, -1);
+            esperado = esperado.subtract(grande);
+        }
+        assertIguais(esperado, soma.valor());
+    }
+
+    @Test
+    void mesclarIgualASomaUnica() {
+        Random aleatorio = new Random(42);
+        List<BigDecimal> valores = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            valores.add(BigDecimal.valueOf(aleatorio.nextInt(1_000_000), 2 + aleatorio.nextInt(2)));
+        }
+
+        SomaCentavos unica = new SomaCentavos();
+        BigDecimal esperado = BigDecimal.ZERO;
+        SomaCentavos[] parciais = {new SomaCentavos(), new SomaCentavos(), new SomaCentavos()};
+        for (int i = 0; i < valores.size(); i++) {
+            int sinal = i % 7 == 0 ? -1 : 1;
+            unica.somar(valores.get(i), sinal);
+            parciais[i % parciais.length].somar(valores.get(i), sinal);
+            esperado = sinal > 0 ? esperado.add(valores.get(i)) : esperado.subtract(valores.get(i));
+        }
+        SomaCentavos mesclada = new SomaCentavos();
+        for (SomaCentavos parcial : parciais) {
+            mesclada.mesclar(parcial);
+        }
+        assertIguais(esperado, unica.valor());
+        assertIguais(esperado, mesclada.valor());
+    }
+
+    @Test
+    void mesclarComEstouroDoLongMantemValorExato() {
+        BigDecimal grande = BigDecimal.valueOf(Long.MAX_VALUE - 1, 2);
+        SomaCentavos primeira = new SomaCentavos();
+        primeira.somar(grande, 1);
+        primeira.somar(new BigDecimal("0.125"), 1);
+        SomaCentavos segunda = new SomaCentavos();
+        segunda.somar(grande, 1);
+        segunda.somar(new BigDecimal("1.005"), 1);
+
+        primeira.mesclar(segunda);
+        assertIguais(grande.add(grande).add(new BigDecimal("1.130")), primeira.valor());
+    }
+
+    private static void assertIguais(BigDecimal esperado, BigDecimal obtido) {
+        assertEquals(0, esperado.compareTo(obtido), () -> "esperado " + esperado + ", obtido " + obtido);
+    }
+}